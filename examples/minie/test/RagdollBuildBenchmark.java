@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.anim.Armature;
+import com.jme3.anim.Joint;
+import com.jme3.anim.SkinningControl;
+import com.jme3.bullet.animation.DynamicAnimControl;
+import com.jme3.bullet.animation.RangeOfMotion;
+import com.jme3.math.FastMath;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Node;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.system.NativeLibraryLoader;
+import com.jme3.util.BufferUtils;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark the construction of a 60-bone ragdoll by DynamicAnimControl, with
+ * and without a build executor.
+ * <p>
+ * The model is generated: a chain of 60 joints, skinned to a tube mesh in
+ * which each vertex is weighted to a single joint. The time measured is that
+ * of adding the control to the model, which assigns vertices to links and
+ * generates a hull shape for each link.
+ * <p>
+ * Usage: {@code RagdollBuildBenchmark [numIterations [verticesPerRing]]}
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class RagdollBuildBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of joints in the armature
+     */
+    final private static int numJoints = 60;
+    /**
+     * number of vertex rings per joint
+     */
+    final private static int ringsPerJoint = 4;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(RagdollBuildBenchmark.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private RagdollBuildBenchmark() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the RagdollBuildBenchmark application.
+     *
+     * @param arguments the number of timed builds per mode (default=20) and
+     * the number of vertices in each ring of the tube (default=64)
+     */
+    public static void main(String[] arguments) {
+        int numIterations = 20;
+        if (arguments.length > 0) {
+            numIterations = Integer.parseInt(arguments[0]);
+        }
+        int verticesPerRing = 64;
+        if (arguments.length > 1) {
+            verticesPerRing = Integer.parseInt(arguments[1]);
+        }
+
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+        Mesh mesh = createTube(verticesPerRing);
+        System.out.printf("%d joints, %d vertices%n",
+                numJoints, mesh.getVertexCount());
+
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        for (int pass = 0; pass < 2; ++pass) { // the first pass is warmup
+            boolean report = (pass == 1);
+            long serialNanos = time(mesh, null, numIterations);
+            long parallelNanos = time(mesh, executor, numIterations);
+            if (report) {
+                System.out.printf("serial:   %8.2f ms per ragdoll%n",
+                        1e-6 * serialNanos / numIterations);
+                System.out.printf("parallel: %8.2f ms per ragdoll"
+                        + " (%d threads)%n",
+                        1e-6 * parallelNanos / numIterations, numThreads);
+            }
+        }
+        executor.shutdown();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create an armature consisting of a vertical chain of joints.
+     *
+     * @return a new armature in its bind pose (not null)
+     */
+    private static Armature createChain() {
+        Joint[] joints = new Joint[numJoints];
+        for (int jointIndex = 0; jointIndex < numJoints; ++jointIndex) {
+            Joint joint = new Joint("joint" + jointIndex);
+            if (jointIndex > 0) {
+                joint.setLocalTranslation(new Vector3f(0f, 1f, 0f));
+                joints[jointIndex - 1].addChild(joint);
+            }
+            joints[jointIndex] = joint;
+        }
+
+        Armature result = new Armature(joints);
+        result.update();
+        result.saveBindPose();
+        result.saveInitialPose();
+
+        return result;
+    }
+
+    /**
+     * Create a tube mesh along the Y axis, with each ring of vertices weighted
+     * to the joint at the bottom of its unit-length segment.
+     *
+     * @param verticesPerRing the number of vertices in each ring (&ge;3)
+     * @return a new mesh (not null)
+     */
+    private static Mesh createTube(int verticesPerRing) {
+        int numRings = numJoints * ringsPerJoint;
+        int numVertices = numRings * verticesPerRing;
+        FloatBuffer positions = BufferUtils.createFloatBuffer(3 * numVertices);
+        FloatBuffer normals = BufferUtils.createFloatBuffer(3 * numVertices);
+        ByteBuffer boneIndices = BufferUtils.createByteBuffer(4 * numVertices);
+        FloatBuffer weights = BufferUtils.createFloatBuffer(4 * numVertices);
+
+        for (int ring = 0; ring < numRings; ++ring) {
+            float y = ring / (float) ringsPerJoint;
+            byte jointIndex = (byte) (ring / ringsPerJoint);
+            float radius = 0.3f + 0.1f * FastMath.sin(y);
+            for (int i = 0; i < verticesPerRing; ++i) {
+                float theta = FastMath.TWO_PI * i / verticesPerRing;
+                float cos = FastMath.cos(theta);
+                float sin = FastMath.sin(theta);
+                positions.put(radius * cos).put(y).put(radius * sin);
+                normals.put(cos).put(0f).put(sin);
+                boneIndices.put(jointIndex).put((byte) 0).put((byte) 0)
+                        .put((byte) 0);
+                weights.put(1f).put(0f).put(0f).put(0f);
+            }
+        }
+
+        int numQuads = (numRings - 1) * verticesPerRing;
+        IntBuffer indices = BufferUtils.createIntBuffer(6 * numQuads);
+        for (int ring = 0; ring < numRings - 1; ++ring) {
+            int base = ring * verticesPerRing;
+            for (int i = 0; i < verticesPerRing; ++i) {
+                int v0 = base + i;
+                int v1 = base + (i + 1) % verticesPerRing;
+                int v2 = v0 + verticesPerRing;
+                int v3 = v1 + verticesPerRing;
+                indices.put(v0).put(v2).put(v1).put(v1).put(v2).put(v3);
+            }
+        }
+
+        Mesh result = new Mesh();
+        result.setBuffer(VertexBuffer.Type.Position, 3, positions);
+        result.setBuffer(VertexBuffer.Type.Normal, 3, normals);
+        result.setBuffer(VertexBuffer.Type.BoneIndex, 4, boneIndices);
+        result.setBuffer(VertexBuffer.Type.BoneWeight, 4, weights);
+        result.setBuffer(VertexBuffer.Type.Index, 3, indices);
+        result.setMaxNumWeights(1);
+        result.generateBindPose();
+        result.updateBound();
+
+        return result;
+    }
+
+    /**
+     * Build the specified number of ragdolls and measure the total time spent
+     * adding the control.
+     *
+     * @param mesh the skinned mesh to share (not null, unaffected)
+     * @param executor the build executor, or null to build on this thread
+     * @param numIterations the number of ragdolls to build (&ge;0)
+     * @return the total elapsed time (in nanoseconds)
+     */
+    private static long time(Mesh mesh, ExecutorService executor,
+            int numIterations) {
+        RangeOfMotion rom = new RangeOfMotion(0.5f);
+        long totalNanos = 0L;
+        for (int iteration = 0; iteration < numIterations; ++iteration) {
+            Node model = new Node("model");
+            model.attachChild(new Geometry("tube", mesh));
+            model.addControl(new SkinningControl(createChain()));
+
+            DynamicAnimControl dac = new DynamicAnimControl();
+            dac.setMainBoneName("joint0");
+            for (int jointIndex = 1; jointIndex < numJoints; ++jointIndex) {
+                dac.link("joint" + jointIndex, 1f, rom);
+            }
+            dac.setBuildExecutor(executor);
+
+            long startNanos = System.nanoTime();
+            model.addControl(dac);
+            totalNanos += System.nanoTime() - startNanos;
+
+            model.removeControl(dac);
+        }
+
+        return totalNanos;
+    }
+}
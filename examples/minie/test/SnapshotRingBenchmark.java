@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.SpaceSnapshotRing;
+import com.jme3.bullet.collision.shapes.BoxCollisionShape;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.objects.PhysicsBody;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.math.Vector3f;
+import com.jme3.system.NativeLibraryLoader;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark SpaceSnapshotRing capture and restore in a PhysicsSpace containing
+ * thousands of dynamic rigid bodies, as in a rollback-networking server.
+ * <p>
+ * Usage: {@code SnapshotRingBenchmark [numBodies [numIterations]]}
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class SnapshotRingBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * simulation time step (in seconds)
+     */
+    final private static float timeStep = 1f / 60f;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SnapshotRingBenchmark.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private SnapshotRingBenchmark() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the SnapshotRingBenchmark application.
+     *
+     * @param arguments the number of dynamic bodies (default=5,000) and the
+     * number of timed iterations (default=500)
+     */
+    public static void main(String[] arguments) {
+        int numBodies = 5_000;
+        if (arguments.length > 0) {
+            numBodies = Integer.parseInt(arguments[0]);
+        }
+        int numIterations = 500;
+        if (arguments.length > 1) {
+            numIterations = Integer.parseInt(arguments[1]);
+        }
+
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+        PhysicsSpace space = createSpace(numBodies);
+        for (int stepIndex = 0; stepIndex < 60; ++stepIndex) {
+            space.update(timeStep, 0);
+        }
+
+        int capacity = 64;
+        SpaceSnapshotRing ring = new SpaceSnapshotRing(capacity);
+        int numBytes = ring.countBytes(space);
+        System.out.printf("%d bodies, %d bytes per snapshot%n",
+                space.countRigidBodies(), numBytes);
+
+        for (int pass = 0; pass < 2; ++pass) { // the first pass is warmup
+            boolean report = (pass == 1);
+            ring.clear();
+
+            long startNanos = System.nanoTime();
+            for (int tick = 0; tick < numIterations; ++tick) {
+                ring.capture(space, tick);
+            }
+            long captureNanos = System.nanoTime() - startNanos;
+
+            long oldest = ring.oldestTick();
+            startNanos = System.nanoTime();
+            for (int i = 0; i < numIterations; ++i) {
+                long tick = oldest + (i % ring.countSnapshots());
+                boolean success = ring.restore(space, tick);
+                assert success : tick;
+            }
+            long restoreNanos = System.nanoTime() - startNanos;
+
+            if (report) {
+                print("capture", captureNanos, numIterations, numBodies);
+                print("restore", restoreNanos, numIterations, numBodies);
+            }
+        }
+
+        space.destroy();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Create a space containing a static floor and a grid of dynamic spheres.
+     *
+     * @param numBodies the number of dynamic bodies (&ge;0)
+     * @return a new space (not null)
+     */
+    private static PhysicsSpace createSpace(int numBodies) {
+        PhysicsSpace result
+                = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+
+        CollisionShape floorShape = new BoxCollisionShape(500f, 1f, 500f);
+        PhysicsRigidBody floor
+                = new PhysicsRigidBody(floorShape, PhysicsBody.massForStatic);
+        floor.setPhysicsLocation(new Vector3f(0f, -1f, 0f));
+        result.addCollisionObject(floor);
+
+        CollisionShape ballShape = new SphereCollisionShape(0.4f);
+        int side = (int) Math.ceil(Math.sqrt(numBodies));
+        Vector3f location = new Vector3f();
+        for (int bodyIndex = 0; bodyIndex < numBodies; ++bodyIndex) {
+            int row = bodyIndex / side;
+            int column = bodyIndex % side;
+            location.set(column - side / 2f, 2f, row - side / 2f);
+
+            PhysicsRigidBody ball = new PhysicsRigidBody(ballShape, 1f);
+            ball.setPhysicsLocation(location);
+            result.addCollisionObject(ball);
+        }
+
+        return result;
+    }
+
+    /**
+     * Print the per-snapshot and per-body cost of an operation.
+     *
+     * @param operation the name of the operation (not null)
+     * @param elapsedNanos the total elapsed time (in nanoseconds)
+     * @param numIterations the number of operations timed (&gt;0)
+     * @param numBodies the number of dynamic bodies (&gt;0)
+     */
+    private static void print(String operation, long elapsedNanos,
+            int numIterations, int numBodies) {
+        double microsPerOp = 1e-3 * elapsedNanos / numIterations;
+        double nanosPerBody = 1e3 * microsPerOp / numBodies;
+        System.out.printf("%s: %8.1f us per snapshot, %6.1f ns per body%n",
+                operation, microsPerOp, nanosPerBody);
+    }
+}
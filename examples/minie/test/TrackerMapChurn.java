@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.util.LongObjectMap;
+import com.jme3.bullet.util.StripedLongObjectMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Benchmark the add/remove churn that the native-object tracker map sees when
+ * many threads create and free physics objects: compare ConcurrentHashMap
+ * (with boxed keys), a single LongObjectMap, and a StripedLongObjectMap.
+ * <p>
+ * Each thread repeatedly inserts and removes entries from its own set of
+ * 4,000 aligned, address-like keys. Usage: {@code TrackerMapChurn [numThreads
+ * [numPairsPerThread]]}
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class TrackerMapChurn {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of live keys per thread
+     */
+    final private static int keysPerThread = 4_000;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(TrackerMapChurn.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private TrackerMapChurn() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the TrackerMapChurn application.
+     *
+     * @param arguments the number of threads (default=number of processors)
+     * and the number of add/remove pairs per thread (default=5,000,000)
+     * @throws InterruptedException if interrupted while awaiting a worker
+     */
+    public static void main(String[] arguments) throws InterruptedException {
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        if (arguments.length > 0) {
+            numThreads = Integer.parseInt(arguments[0]);
+        }
+        int numPairs = 5_000_000;
+        if (arguments.length > 1) {
+            numPairs = Integer.parseInt(arguments[1]);
+        }
+        System.out.printf("%d thread(s), %d add/remove pairs per thread%n",
+                numThreads, numPairs);
+
+        for (int pass = 0; pass < 3; ++pass) { // the first 2 are warmup
+            boolean report = (pass == 2);
+            time("ConcurrentHashMap", new ChmChurn(), numThreads, numPairs,
+                    report);
+            time("LongObjectMap", new SingleChurn(), numThreads, numPairs,
+                    report);
+            time("StripedLongObjectMap", new StripedChurn(), numThreads,
+                    numPairs, report);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Generate the indexed key for the indexed thread. Keys resemble native
+     * addresses: non-zero and 16-byte aligned.
+     *
+     * @param threadIndex the index of the thread (&ge;0)
+     * @param keyIndex the index of the key (&ge;0)
+     * @return the key (not zero)
+     */
+    private static long key(int threadIndex, int keyIndex) {
+        long result = 0x7f0000000000L
+                + 16L * (threadIndex * keysPerThread + keyIndex);
+        return result;
+    }
+
+    /**
+     * Run the specified churn on the specified number of threads and print
+     * the throughput.
+     *
+     * @param name the name of the map type (not null)
+     * @param churn the churn to run (not null)
+     * @param numThreads the number of threads (&ge;1)
+     * @param numPairs the number of add/remove pairs per thread (&ge;0)
+     * @param report true to print the result, false to discard it
+     * @throws InterruptedException if interrupted while awaiting a worker
+     */
+    private static void time(String name, final Churn churn, int numThreads,
+            final int numPairs, boolean report) throws InterruptedException {
+        Thread[] workers = new Thread[numThreads];
+        for (int threadIndex = 0; threadIndex < numThreads; ++threadIndex) {
+            final int index = threadIndex;
+            workers[threadIndex] = new Thread() {
+                @Override
+                public void run() {
+                    churn.run(index, numPairs);
+                }
+            };
+        }
+
+        long startNanos = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        if (report) {
+            double totalOps = 2.0 * numPairs * numThreads;
+            double nsPerOp = elapsedNanos / totalOps;
+            System.out.printf("%-22s %7.1f ms  %6.1f ns/op%n", name,
+                    elapsedNanos * 1e-6, nsPerOp);
+        }
+    }
+    // *************************************************************************
+    // classes
+
+    /**
+     * Add/remove churn against one map type.
+     */
+    private interface Churn {
+        /**
+         * Fill the thread's keys, then repeatedly remove and re-insert them.
+         *
+         * @param threadIndex the index of the calling thread (&ge;0)
+         * @param numPairs the number of add/remove pairs (&ge;0)
+         */
+        void run(int threadIndex, int numPairs);
+    }
+
+    /**
+     * Churn against a shared ConcurrentHashMap with boxed keys.
+     */
+    private static class ChmChurn implements Churn {
+        final private Map<Long, Object> map = new ConcurrentHashMap<>(999);
+
+        @Override
+        public void run(int threadIndex, int numPairs) {
+            Object value = new Object();
+            for (int i = 0; i < keysPerThread; ++i) {
+                map.put(key(threadIndex, i), value);
+            }
+            for (int i = 0; i < numPairs; ++i) {
+                long key = key(threadIndex, i % keysPerThread);
+                map.remove(key);
+                map.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Churn against a shared LongObjectMap.
+     */
+    private static class SingleChurn implements Churn {
+        final private LongObjectMap<Object> map = new LongObjectMap<>(999);
+
+        @Override
+        public void run(int threadIndex, int numPairs) {
+            Object value = new Object();
+            for (int i = 0; i < keysPerThread; ++i) {
+                map.put(key(threadIndex, i), value);
+            }
+            for (int i = 0; i < numPairs; ++i) {
+                long key = key(threadIndex, i % keysPerThread);
+                map.remove(key);
+                map.put(key, value);
+            }
+        }
+    }
+
+    /**
+     * Churn against a shared StripedLongObjectMap.
+     */
+    private static class StripedChurn implements Churn {
+        final private StripedLongObjectMap<Object> map
+                = new StripedLongObjectMap<>(999);
+
+        @Override
+        public void run(int threadIndex, int numPairs) {
+            Object value = new Object();
+            for (int i = 0; i < keysPerThread; ++i) {
+                map.put(key(threadIndex, i), value);
+            }
+            for (int i = 0; i < numPairs; ++i) {
+                long key = key(threadIndex, i % keysPerThread);
+                map.remove(key);
+                map.put(key, value);
+            }
+        }
+    }
+}
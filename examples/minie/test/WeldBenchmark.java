@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.util.NativeSoftBodyUtil;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import jme3utilities.math.MyBuffer;
+import jme3utilities.math.MyVector3f;
+
+/**
+ * Benchmark the vertex welding performed by
+ * {@link NativeSoftBodyUtil#generateIndexMap(java.nio.FloatBuffer, float,
+ * java.util.concurrent.ExecutorService)} against the HashMap-based algorithm
+ * it replaced, and verify that all algorithms produce the same index map.
+ * <p>
+ * The mesh is generated: a square grid of quads in triangle-soup form, so
+ * each interior position is shared by 6 vertices.
+ * <p>
+ * Usage: {@code WeldBenchmark [numIterations [quadsPerSide]]}
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class WeldBenchmark {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * welding tolerance for the tolerant mode (in mesh units, much less than
+     * the grid spacing)
+     */
+    final private static float epsilon = 0.01f;
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(WeldBenchmark.class.getName());
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private WeldBenchmark() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Main entry point for the WeldBenchmark application.
+     *
+     * @param arguments the number of timed welds per algorithm (default=10)
+     * and the number of quads along each side of the grid (default=224)
+     */
+    public static void main(String[] arguments) {
+        int numIterations = 10;
+        if (arguments.length > 0) {
+            numIterations = Integer.parseInt(arguments[0]);
+        }
+        int quadsPerSide = 224;
+        if (arguments.length > 1) {
+            quadsPerSide = Integer.parseInt(arguments[1]);
+        }
+
+        FloatBuffer positions = createGrid(quadsPerSide);
+        int numVertices = positions.limit() / numAxes;
+        System.out.printf("%d vertices%n", numVertices);
+
+        IntBuffer expected = referenceIndexMap(positions);
+        int numThreads = Runtime.getRuntime().availableProcessors();
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        check("exact", expected, NativeSoftBodyUtil.generateIndexMap(
+                positions, 0f, null));
+        check("exact parallel", expected, NativeSoftBodyUtil.generateIndexMap(
+                positions, 0f, executor));
+        check("tolerant", expected, NativeSoftBodyUtil.generateIndexMap(
+                positions, epsilon, null));
+        check("tolerant parallel", expected,
+                NativeSoftBodyUtil.generateIndexMap(
+                        positions, epsilon, executor));
+
+        for (int pass = 0; pass < 2; ++pass) { // the first pass is warmup
+            boolean report = (pass == 1);
+            long referenceNanos = 0L;
+            long exactNanos = 0L;
+            long exactParallelNanos = 0L;
+            long tolerantNanos = 0L;
+            long tolerantParallelNanos = 0L;
+            for (int iteration = 0; iteration < numIterations; ++iteration) {
+                long startNanos = System.nanoTime();
+                referenceIndexMap(positions);
+                long t1 = System.nanoTime();
+                NativeSoftBodyUtil.generateIndexMap(positions, 0f, null);
+                long t2 = System.nanoTime();
+                NativeSoftBodyUtil.generateIndexMap(positions, 0f, executor);
+                long t3 = System.nanoTime();
+                NativeSoftBodyUtil.generateIndexMap(positions, epsilon, null);
+                long t4 = System.nanoTime();
+                NativeSoftBodyUtil.generateIndexMap(
+                        positions, epsilon, executor);
+                long t5 = System.nanoTime();
+
+                referenceNanos += t1 - startNanos;
+                exactNanos += t2 - t1;
+                exactParallelNanos += t3 - t2;
+                tolerantNanos += t4 - t3;
+                tolerantParallelNanos += t5 - t4;
+            }
+            if (report) {
+                print("HashMap reference", referenceNanos, numIterations);
+                print("exact", exactNanos, numIterations);
+                print("exact parallel", exactParallelNanos, numIterations);
+                print("tolerant", tolerantNanos, numIterations);
+                print("tolerant parallel", tolerantParallelNanos,
+                        numIterations);
+                System.out.printf("(%d threads)%n", numThreads);
+            }
+        }
+        executor.shutdown();
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that the specified index map matches the expected one.
+     *
+     * @param name the name of the algorithm (not null)
+     * @param expected the expected map (not null, unaffected)
+     * @param actual the map to verify (not null, unaffected)
+     */
+    private static void check(String name, IntBuffer expected,
+            IntBuffer actual) {
+        if (!actual.equals(expected)) {
+            throw new IllegalStateException(name + " map doesn't match");
+        }
+    }
+
+    /**
+     * Generate a square grid of quads in the X-Z plane, as a triangle soup.
+     *
+     * @param quadsPerSide the number of quads along each side (&ge;1)
+     * @return a new, flipped buffer of positions
+     */
+    private static FloatBuffer createGrid(int quadsPerSide) {
+        int numVertices = 6 * quadsPerSide * quadsPerSide;
+        FloatBuffer result = BufferUtils.createFloatBuffer(
+                numAxes * numVertices);
+        int[] cornerX = {0, 1, 1, 0, 1, 0};
+        int[] cornerZ = {0, 0, 1, 0, 1, 1};
+        for (int quadX = 0; quadX < quadsPerSide; ++quadX) {
+            for (int quadZ = 0; quadZ < quadsPerSide; ++quadZ) {
+                for (int corner = 0; corner < 6; ++corner) {
+                    result.put(quadX + cornerX[corner]);
+                    result.put(0f);
+                    result.put(quadZ + cornerZ[corner]);
+                }
+            }
+        }
+        result.flip();
+
+        return result;
+    }
+
+    /**
+     * Print the average time per weld.
+     *
+     * @param name the name of the algorithm (not null)
+     * @param totalNanos the total time of all welds (in nanoseconds)
+     * @param numIterations the number of welds (&ge;1)
+     */
+    private static void print(String name, long totalNanos,
+            int numIterations) {
+        System.out.printf("%-18s %8.2f ms per weld%n", name,
+                1e-6 * totalNanos / numIterations);
+    }
+
+    /**
+     * Create an index map the way NativeSoftBodyUtil did before primitive
+     * hashing: one Vector3f per vertex, boxed indices in a HashMap.
+     *
+     * @param positionBuffer the buffer of vertex positions (not null, limit a
+     * multiple of 3, unaffected)
+     * @return a new, flipped index map
+     */
+    private static IntBuffer referenceIndexMap(FloatBuffer positionBuffer) {
+        int numVertices = positionBuffer.limit() / numAxes;
+        IntBuffer result = BufferUtils.createIntBuffer(numVertices);
+        Map<Vector3f, Integer> tmpHashMap = new HashMap<>(numVertices);
+        int nextMappedIndex = 0;
+
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            Vector3f position = new Vector3f();
+            MyBuffer.get(positionBuffer, numAxes * vertexIndex, position);
+            MyVector3f.standardize(position, position);
+
+            if (!tmpHashMap.containsKey(position)) {
+                tmpHashMap.put(position, nextMappedIndex);
+                result.put(nextMappedIndex);
+                ++nextMappedIndex;
+            } else {
+                int mappedIndex = tmpHashMap.get(position);
+                result.put(mappedIndex);
+            }
+        }
+        result.flip();
+
+        return result;
+    }
+}
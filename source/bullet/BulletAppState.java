@@ -35,10 +35,12 @@ import com.jme3.app.Application;
 import com.jme3.app.state.AbstractAppState;
 import com.jme3.app.state.AppStateManager;
 import com.jme3.bullet.PhysicsSpace.BroadphaseType;
+import com.jme3.bullet.control.BulkTransformSync;
 import com.jme3.bullet.debug.BulletDebugAppState;
 import com.jme3.bullet.debug.DebugConfiguration;
 import com.jme3.bullet.debug.DebugInitListener;
 import com.jme3.bullet.util.NativeLibrary;
+import com.jme3.math.FastMath;
 import com.jme3.math.Vector3f;
 import com.jme3.renderer.Camera;
 import com.jme3.renderer.RenderManager;
@@ -78,7 +80,32 @@ public class BulletAppState
          * Parallel threaded mode: physics update and rendering are executed in
          * parallel, update order is maintained.
          */
-        PARALLEL
+        PARALLEL,
+        /**
+         * Pipelined mode: the physics step is submitted from render(), after
+         * all controls and the scene graph have been updated. It runs in
+         * parallel with rendering, postRender(), the buffer swap (including
+         * any wait for vertical sync), and the next frame's input handling
+         * and updates of app states attached before this one. It completes
+         * at the start of this state's next update(). It never overlaps
+         * control or scene-graph updates, so its overlap is similar to that
+         * of PARALLEL mode, which waits in postRender(). The extra overlap is
+         * only the end of one frame and the start of the next.
+         * <p>
+         * Rigid-body transforms are published after each step in an
+         * immutable {@link TransformFrame}, and each RigidBodyControl
+         * registered with {@link BulletAppState#getTransformSync()} reads
+         * them without calling native code. Visual state lags the simulation
+         * by one frame.
+         * <p>
+         * While a step is in progress, the application must not access
+         * physics objects from the render thread, except through
+         * {@link PhysicsSpace#enqueue(java.util.concurrent.Callable)} or
+         * physics-tick listeners. In particular, an app state that accesses
+         * physics objects during its update() must be attached after this
+         * state.
+         */
+        PIPELINED
     }
     // *************************************************************************
     // constants and loggers
@@ -119,10 +146,24 @@ public class BulletAppState
             return true;
         }
     };
+    /**
+     * true to interpolate published transforms in PIPELINED mode
+     */
+    private boolean interpolate = false;
     /**
      * configuration for debug visualization
      */
     final private DebugConfiguration debugConfig = new DebugConfiguration();
+    /**
+     * simulation time consumed by the render thread in PIPELINED mode (in
+     * seconds)
+     */
+    private double renderTime = 0.0;
+    /**
+     * simulation time stepped by the physics thread in PIPELINED mode (in
+     * seconds)
+     */
+    private volatile double simulationTime = 0.0;
     /**
      * simulation speed multiplier (paused=0)
      */
@@ -135,6 +176,15 @@ public class BulletAppState
      * current physics task, or null if none
      */
     private Future physicsFuture;
+    /**
+     * in-progress physics step in PIPELINED mode, or null if none
+     */
+    private Future<?> pipelineFuture;
+    /**
+     * tick listener that tracks the simulation time in PIPELINED mode, or null
+     * if not pipelined
+     */
+    private PhysicsTickListener pipelineClock = null;
     /**
      * number of solvers in the thread-safe pool
      */
@@ -152,6 +202,23 @@ public class BulletAppState
      * threading mode to use (not null)
      */
     private ThreadingType threadingType = ThreadingType.SEQUENTIAL;
+    /**
+     * synchronizer that moves the spatials of registered rigid-body controls
+     * during update()
+     */
+    final private BulkTransformSync transformSync = new BulkTransformSync();
+    /**
+     * transforms being captured by the in-progress step in PIPELINED mode
+     */
+    private TransformFrame backFrame;
+    /**
+     * newest published transforms in PIPELINED mode
+     */
+    private TransformFrame currentFrame;
+    /**
+     * 2nd-newest published transforms in PIPELINED mode
+     */
+    private TransformFrame previousFrame;
     /**
      * maximum coordinate values for the PhysicsSpace when using AXIS_SWEEP
      * broadphase algorithms (not null)
@@ -305,6 +372,29 @@ public class BulletAppState
         return speed;
     }
 
+    /**
+     * Access the newest published transforms. Meaningful only in PIPELINED
+     * mode.
+     *
+     * @return the pre-existing instance (do not modify!) or null if none
+     */
+    public TransformFrame getPublishedFrame() {
+        return currentFrame;
+    }
+
+    /**
+     * Access the synchronizer that moves spatials during this state's
+     * update(): in PIPELINED mode from the published transforms, otherwise
+     * from the bodies' motion states. In PIPELINED mode, register each
+     * RigidBodyControl whose spatial should follow its body with this
+     * synchronizer, and with no other.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public BulkTransformSync getTransformSync() {
+        return transformSync;
+    }
+
     /**
      * Determine which type of threading this app state uses.
      *
@@ -324,6 +414,15 @@ public class BulletAppState
         return debugConfig.isEnabled();
     }
 
+    /**
+     * Test whether published transforms are interpolated in PIPELINED mode.
+     *
+     * @return true if interpolated, otherwise false
+     */
+    public boolean isUsingInterpolation() {
+        return interpolate;
+    }
+
     /**
      * Test whether the physics simulation is running (started but not yet
      * stopped).
@@ -383,6 +482,18 @@ public class BulletAppState
         debugConfig.setAxisLineWidth(width);
     }
 
+    /**
+     * Alter whether rigid bodies with identical debug meshes are visualized in
+     * batches. Changes take effect on the next update.
+     *
+     * @param enable true &rarr; batch, false &rarr; visualize individually
+     * (default=false)
+     * @see com.jme3.bullet.debug.DebugConfiguration#setBatched(boolean)
+     */
+    public void setDebugBatched(boolean enable) {
+        debugConfig.setBatched(enable);
+    }
+
     /**
      * Alter which bounding boxes are included in the debug visualization.
      *
@@ -630,6 +741,15 @@ public class BulletAppState
                 assert pSpace != null;
                 break;
 
+            case PIPELINED:
+                success = startPhysicsOnExecutor();
+                assert success;
+
+                pSpace = debugConfig.getSpace();
+                assert pSpace != null;
+                startPipeline(pSpace);
+                break;
+
             case SEQUENTIAL:
                 pSpace = createPhysicsSpace(worldMin, worldMax, broadphaseType);
                 debugConfig.setSpace(pSpace);
@@ -651,14 +771,35 @@ public class BulletAppState
             return;
         }
 
-        if (executor != null) {
-            executor.shutdown();
-            executor = null;
+        try {
+            awaitPipelinedStep();
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+                executor = null;
+            }
+            PhysicsSpace pSpace = debugConfig.getSpace();
+            pSpace.removeTickListener(this);
+            if (pipelineClock != null) {
+                pSpace.removeTickListener(pipelineClock);
+                pipelineClock = null;
+            }
+            setPhysicsSpace(null);
+            setRunning(false);
         }
-        PhysicsSpace pSpace = debugConfig.getSpace();
-        pSpace.removeTickListener(this);
-        setPhysicsSpace(null);
-        setRunning(false);
+    }
+
+    /**
+     * Enable or disable interpolation of published transforms in PIPELINED
+     * mode. When enabled, the rendered transforms lag the newest published
+     * frame by one simulation step and are blended between the 2 newest
+     * frames, which hides the quantization of fixed-size steps.
+     *
+     * @param setting true to interpolate, false to apply the newest frame
+     * as-is (default=false)
+     */
+    public void useInterpolation(boolean setting) {
+        this.interpolate = setting;
     }
 
     /**
@@ -853,6 +994,10 @@ public class BulletAppState
         } else if (threadingType == ThreadingType.SEQUENTIAL) {
             PhysicsSpace pSpace = debugConfig.getSpace();
             pSpace.update(isEnabled() ? tpf * speed : 0f);
+        } else if (threadingType == ThreadingType.PIPELINED
+                && pipelineFuture == null) {
+            PhysicsSpace pSpace = debugConfig.getSpace();
+            startPipelinedStep(pSpace);
         }
     }
 
@@ -870,7 +1015,8 @@ public class BulletAppState
         if (!isRunning) {
             startPhysics();
         }
-        if (threadingType == ThreadingType.PARALLEL) {
+        if (threadingType == ThreadingType.PARALLEL
+                || threadingType == ThreadingType.PIPELINED) {
             PhysicsSpace pSpace = debugConfig.getSpace();
             CollisionSpace.setLocalThreadPhysicsSpace(pSpace);
         }
@@ -887,6 +1033,9 @@ public class BulletAppState
     public void update(float tpf) {
         super.update(tpf);
         this.tpf = tpf;
+        if (threadingType == ThreadingType.PIPELINED) {
+            finishPipelinedStep();
+        }
 
         boolean enable = debugConfig.isEnabled();
         if (enable && debugAppState == null) {
@@ -906,6 +1055,16 @@ public class BulletAppState
 
         PhysicsSpace pSpace = debugConfig.getSpace();
         pSpace.distributeEvents();
+
+        if (threadingType == ThreadingType.PIPELINED) {
+            /*
+             * Controls and debug visualization access native objects
+             * later in this frame, so the next step waits until render().
+             */
+            applyPublishedFrame(pSpace);
+        } else {
+            transformSync.sync();
+        }
     }
     // *************************************************************************
     // PhysicsTickListener methods
@@ -933,4 +1092,136 @@ public class BulletAppState
     public void prePhysicsTick(PhysicsSpace space, float timeStep) {
         // do nothing
     }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Apply the published transforms to each RigidBodyControl registered with
+     * this state's synchronizer, interpolating if so configured. Doesn't call
+     * native code.
+     *
+     * @param pSpace the managed space (not null)
+     */
+    private void applyPublishedFrame(PhysicsSpace pSpace) {
+        TransformFrame frame = currentFrame;
+        if (frame.countBodies() == 0) {
+            return;
+        }
+
+        float alpha = 1f;
+        if (interpolate) {
+            double delay = pSpace.getAccuracy();
+            double newest = frame.simulationTime();
+            double oldest = previousFrame.simulationTime();
+            /*
+             * Keep the render clock within one step of the published frames,
+             * in case the physics fell behind or was paused.
+             */
+            renderTime = Math.max(oldest + delay,
+                    Math.min(renderTime, newest + delay));
+            if (newest > oldest) {
+                double target = renderTime - delay;
+                alpha = (float) ((target - oldest) / (newest - oldest));
+                alpha = FastMath.clamp(alpha, 0f, 1f);
+            }
+        }
+        transformSync.sync(frame, previousFrame, alpha);
+    }
+
+    /**
+     * Wait for the in-progress physics step (if any) to complete. A failure
+     * of the step is rethrown, and an interrupt is rethrown after restoring
+     * the thread's interrupt status.
+     */
+    private void awaitPipelinedStep() {
+        Future<?> step = pipelineFuture;
+        if (step == null) {
+            return;
+        }
+
+        pipelineFuture = null;
+        try {
+            step.get();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(exception);
+        }
+    }
+
+    /**
+     * Wait for the in-progress physics step (if any) to complete, then publish
+     * the transforms it captured. Invoked on the render thread in PIPELINED
+     * mode.
+     */
+    private void finishPipelinedStep() {
+        if (pipelineFuture == null) {
+            return;
+        }
+
+        awaitPipelinedStep();
+
+        TransformFrame recycled = previousFrame;
+        previousFrame = currentFrame;
+        currentFrame = backFrame;
+        backFrame = recycled;
+    }
+
+    /**
+     * Prepare to simulate in PIPELINED mode.
+     *
+     * @param pSpace the managed space (not null)
+     */
+    private void startPipeline(PhysicsSpace pSpace) {
+        this.backFrame = new TransformFrame();
+        this.currentFrame = new TransformFrame();
+        this.previousFrame = new TransformFrame();
+        this.renderTime = 0.0;
+        this.simulationTime = 0.0;
+        /*
+         * Track the simulation time, independent of the
+         * (overridable) tick callbacks of this app state.
+         */
+        this.pipelineClock = new PhysicsTickListener() {
+            @Override
+            public void physicsTick(PhysicsSpace space, float timeStep) {
+                simulationTime += timeStep;
+            }
+
+            @Override
+            public void prePhysicsTick(PhysicsSpace space, float timeStep) {
+                // do nothing
+            }
+        };
+        pSpace.addTickListener(pipelineClock);
+    }
+
+    /**
+     * Start stepping the physics on the executor's thread. Invoked on the
+     * render thread in PIPELINED mode, from render() only, so that no control
+     * or app-state update of the current frame overlaps the step.
+     *
+     * @param pSpace the managed space (not null)
+     */
+    private void startPipelinedStep(final PhysicsSpace pSpace) {
+        assert pipelineFuture == null;
+
+        final float timeInterval = isEnabled() ? tpf * speed : 0f;
+        renderTime += timeInterval;
+        final TransformFrame frame = backFrame;
+        Callable<Void> step = new Callable<Void>() {
+            @Override
+            public Void call() {
+                pSpace.update(timeInterval);
+                frame.capture(pSpace, simulationTime);
+                return null;
+            }
+        };
+        pipelineFuture = executor.submit(step);
+    }
 }
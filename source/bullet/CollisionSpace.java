@@ -31,6 +31,8 @@
  */
 package com.jme3.bullet;
 
+import com.jme3.bounding.BoundingBox;
+import com.jme3.bullet.collision.BatchTestResults;
 import com.jme3.bullet.collision.PhysicsCollisionGroupListener;
 import com.jme3.bullet.collision.PhysicsCollisionListener;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
@@ -39,8 +41,12 @@ import com.jme3.bullet.collision.PhysicsSweepTestResult;
 import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.collision.shapes.ConvexShape;
 import com.jme3.bullet.objects.PhysicsGhostObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.LongObjectMap;
+import com.jme3.bullet.util.NativeLibrary;
 import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
+import java.nio.FloatBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -49,7 +55,11 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -60,9 +70,105 @@ import jme3utilities.Validate;
  * @author normenhansen
  */
 public class CollisionSpace extends NativePhysicsObject {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * An immutable snapshot of the bounding-box cache. A refresh publishes a
+     * new snapshot instead of rewriting the arrays of the current one, so a
+     * query can scan its snapshot without holding a lock.
+     * <p>
+     * Stationary objects (static rigid bodies) occupy the first entries, so a
+     * refresh after a simulation step can copy their bounds and recalculate
+     * only the remaining entries.
+     */
+    private static class AabbCache {
+        /**
+         * axis-aligned bounding box of each collision object: 6 floats per
+         * object (minX, minY, minZ, maxX, maxY, maxZ) in physics-space
+         * coordinates
+         */
+        final float[] bounds;
+        /**
+         * number of stationary objects, which precede all others (&ge;0)
+         */
+        final int numStationary;
+        /**
+         * collision object of each bounding box
+         */
+        final PhysicsCollisionObject[] objects;
+
+        /**
+         * Instantiate a cache with the specified number of entries.
+         *
+         * @param numObjects the number of entries (&ge;0)
+         * @param numStationary the number of stationary entries (&ge;0,
+         * &le;numObjects)
+         */
+        AabbCache(int numObjects, int numStationary) {
+            this.bounds = new float[6 * numObjects];
+            this.numStationary = numStationary;
+            this.objects = new PhysicsCollisionObject[numObjects];
+        }
+    }
+
+    /**
+     * Per-thread temporary storage for batched queries.
+     */
+    private static class QueryScratch {
+        /**
+         * results of a single ray test
+         */
+        final List<PhysicsRayTestResult> rayResults = new ArrayList<>(10);
+        /**
+         * results of a single sweep test
+         */
+        final List<PhysicsSweepTestResult> sweepResults = new ArrayList<>(10);
+        /**
+         * ending transform of a sweep
+         */
+        final Transform end = new Transform();
+        /**
+         * starting transform of a sweep
+         */
+        final Transform start = new Transform();
+        /**
+         * starting location of a query
+         */
+        final Vector3f from = new Vector3f();
+        /**
+         * ending location of a query
+         */
+        final Vector3f to = new Vector3f();
+    }
+
+    /**
+     * Perform a contiguous range of queries from a batch.
+     */
+    private interface RangeQuery {
+        /**
+         * Perform the specified queries and append their results.
+         *
+         * @param firstQuery the index of the first query in the batch (&ge;0)
+         * @param numQueries the number of queries to perform (&ge;0)
+         * @param storeResult storage for the results (not null, modified)
+         */
+        void perform(int firstQuery, int numQueries,
+                BatchTestResults storeResult);
+    }
+
     // *************************************************************************
     // constants and loggers
 
+    /**
+     * number of floats per ray in a batched ray test: from xyz, then to xyz
+     */
+    final public static int RAY_STRIDE = 6;
+    /**
+     * number of floats per sweep in a batched sweep test: starting location
+     * xyz and orientation xyzw, then ending location xyz and orientation xyzw
+     */
+    final public static int SWEEP_STRIDE = 14;
     /**
      * message logger for this class
      */
@@ -71,6 +177,40 @@ public class CollisionSpace extends NativePhysicsObject {
     // *************************************************************************
     // fields
 
+    /**
+     * true if the cached bounding boxes are current, false if they must be
+     * recalculated before the next overlap query
+     */
+    private volatile boolean aabbsValid = false;
+    /**
+     * true if the cached bounding boxes of stationary objects are current,
+     * false if every bounding box must be recalculated
+     */
+    private volatile boolean stationaryAabbsValid = false;
+    /**
+     * most recently published bounding-box cache (not null)
+     */
+    private volatile AabbCache aabbCache = new AabbCache(0, 0);
+    /**
+     * bounding box of a collision object during a refresh of the cache,
+     * guarded by this space's monitor
+     */
+    final private BoundingBox aabbBox = new BoundingBox();
+    /**
+     * collision objects enumerated during a refresh of the bounding-box cache,
+     * guarded by this space's monitor
+     */
+    final private List<PhysicsCollisionObject> aabbPcos = new ArrayList<>(64);
+    /**
+     * maximum coordinates of a bounding box during a refresh of the cache,
+     * guarded by this space's monitor
+     */
+    final private Vector3f aabbMax = new Vector3f();
+    /**
+     * minimum coordinates of a bounding box during a refresh of the cache,
+     * guarded by this space's monitor
+     */
+    final private Vector3f aabbMin = new Vector3f();
     /**
      * type of acceleration structure
      */
@@ -105,13 +245,23 @@ public class CollisionSpace extends NativePhysicsObject {
     /**
      * map ghost IDs to added objects
      */
-    final private Map<Long, PhysicsGhostObject> ghostMap
-            = new ConcurrentHashMap<>(64);
+    final private LongObjectMap<PhysicsGhostObject> ghostMap
+            = new LongObjectMap<>(64);
     /**
      * physics-space reference for each thread
      */
     final private static ThreadLocal<CollisionSpace> physicsSpaceTL
             = new ThreadLocal<>();
+    /**
+     * temporary storage for batched queries on each thread
+     */
+    final private static ThreadLocal<QueryScratch> queryScratchTL
+            = new ThreadLocal<QueryScratch>() {
+        @Override
+        protected QueryScratch initialValue() {
+            return new QueryScratch();
+        }
+    };
     /**
      * copy of maximum coordinate values when using AXIS_SWEEP broadphase
      * algorithms
@@ -167,6 +317,67 @@ public class CollisionSpace extends NativePhysicsObject {
     // *************************************************************************
     // new methods exposed
 
+    /**
+     * Find all collision objects whose axis-aligned bounding boxes overlap the
+     * specified box, without invoking the narrowphase.
+     * <p>
+     * The bounding boxes are cached. The cache is refreshed lazily, by the
+     * first query after a simulation step or after objects are added or
+     * removed. If objects are repositioned between steps, or a static rigid
+     * body is made dynamic or kinematic, invoke {@link #invalidateAabbs()} to
+     * query their new bounds.
+     * <p>
+     * Cost: this is a linear scan in Java, not a walk of Bullet's broadphase.
+     * A full refresh makes up to 3 native calls per collision object. After a
+     * simulation step, only objects that can move are recalculated: the bounds
+     * of static rigid bodies are reused. Queries that find the cache current
+     * make no native calls, and queries from different threads can scan
+     * concurrently.
+     *
+     * @param min the minimum coordinates of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param max the maximum coordinates of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param storeIds storage for the native IDs of the overlapping objects
+     * (not null, modified)
+     * @return the number of overlapping objects (&ge;0, may exceed the length
+     * of storeIds, in which case the excess IDs are not stored)
+     */
+    public int aabbQuery(Vector3f min, Vector3f max, long[] storeIds) {
+        Validate.nonNull(min, "min");
+        Validate.nonNull(max, "max");
+        Validate.nonNull(storeIds, "store IDs");
+
+        int result = overlapQuery(min.x, min.y, min.z, max.x, max.y, max.z,
+                null, -1f, storeIds, null);
+        return result;
+    }
+
+    /**
+     * Find all collision objects whose axis-aligned bounding boxes overlap the
+     * specified box, without invoking the narrowphase.
+     *
+     * @param min the minimum coordinates of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param max the maximum coordinates of the box (in physics-space
+     * coordinates, not null, unaffected)
+     * @param storeObjects storage for the overlapping objects (not null,
+     * modified)
+     * @return the number of overlapping objects (&ge;0, may exceed the length
+     * of storeObjects, in which case the excess objects are not stored)
+     * @see #aabbQuery(com.jme3.math.Vector3f, com.jme3.math.Vector3f, long[])
+     */
+    public int aabbQuery(Vector3f min, Vector3f max,
+            PhysicsCollisionObject[] storeObjects) {
+        Validate.nonNull(min, "min");
+        Validate.nonNull(max, "max");
+        Validate.nonNull(storeObjects, "store objects");
+
+        int result = overlapQuery(min.x, min.y, min.z, max.x, max.y, max.z,
+                null, -1f, null, storeObjects);
+        return result;
+    }
+
     /**
      * Add the specified object to this space.
      *
@@ -213,6 +424,7 @@ public class CollisionSpace extends NativePhysicsObject {
      */
     public void addCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
+        invalidateAabbs();
 
         if (pco instanceof PhysicsGhostObject) {
             addGhostObject((PhysicsGhostObject) pco);
@@ -262,6 +474,27 @@ public class CollisionSpace extends NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Append the collision objects in this space to the specified list,
+     * without creating a new collection. Subclasses that add other kinds of
+     * collision objects should override this method.
+     *
+     * @param storeResult the list to append to (not null, modified)
+     */
+    void appendPcos(List<PhysicsCollisionObject> storeResult) {
+        storeResult.addAll(ghostMap.values());
+    }
+
+    /**
+     * Copy the ghost objects that are added to this space to the specified
+     * list, without creating a new collection.
+     *
+     * @param storeResult the list to fill (not null, cleared, then appended)
+     */
+    void copyGhostObjects(List<PhysicsGhostObject> storeResult) {
+        ghostMap.values(storeResult);
+    }
+
     /**
      * Count how many collision-group listeners are registered with this space.
      *
@@ -297,6 +530,7 @@ public class CollisionSpace extends NativePhysicsObject {
      * Remove all collision objects and physics joints.
      */
     public void destroy() {
+        invalidateAabbs();
         for (PhysicsGhostObject character : ghostMap.values()) {
             removeGhostObject(character);
         }
@@ -326,12 +560,12 @@ public class CollisionSpace extends NativePhysicsObject {
      * Enumerate ghost objects that have been added to this space and not yet
      * removed.
      *
-     * @return a new unmodifiable collection of pre-existing instances (not
-     * null)
+     * @return an unmodifiable snapshot of pre-existing instances, cached and
+     * shared until the next addition or removal (not null)
      */
     public Collection<PhysicsGhostObject> getGhostObjectList() {
         Collection<PhysicsGhostObject> result = ghostMap.values();
-        return Collections.unmodifiableCollection(result);
+        return result;
     }
 
     /**
@@ -438,6 +672,27 @@ public class CollisionSpace extends NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Mark all cached bounding boxes as stale, so they will be recalculated
+     * before the next overlap query. Invoked automatically whenever objects
+     * are added or removed.
+     *
+     * @see #aabbQuery(com.jme3.math.Vector3f, com.jme3.math.Vector3f, long[])
+     */
+    public void invalidateAabbs() {
+        this.stationaryAabbsValid = false;
+        this.aabbsValid = false;
+    }
+
+    /**
+     * Mark the cached bounding boxes of objects that can move as stale, so
+     * they will be recalculated before the next overlap query. Invoked after
+     * each simulation step.
+     */
+    void invalidateMovingAabbs() {
+        this.aabbsValid = false;
+    }
+
     /**
      * Test whether this space is empty.
      *
@@ -529,6 +784,88 @@ public class CollisionSpace extends NativePhysicsObject {
         return results;
     }
 
+    /**
+     * Perform a batch of ray-collision tests (raycasts) and store the hits in
+     * primitive arrays, one query per ray, in ray order.
+     * <p>
+     * The rays are read from the remaining elements of the buffer,
+     * {@link #RAY_STRIDE} floats per ray: the starting location (x, y, z)
+     * followed by the ending location (x, y, z), in physics-space coordinates.
+     * The buffer's position is unaffected.
+     * <p>
+     * Unlike {@link #rayTest(com.jme3.math.Vector3f, com.jme3.math.Vector3f)},
+     * this method allocates no Java lists, vectors, or sorted copies once
+     * {@code storeResult} has grown to fit the batch.
+     *
+     * @param rays the ray endpoints (not null, unaffected)
+     * @param closestOnly true to store only the closest hit of each ray, false
+     * to store all hits in arbitrary order
+     * @param storeResult storage for the results (modified if not null)
+     * @return the results (either storeResult or a new instance, not null)
+     */
+    public BatchTestResults rayTestBatch(FloatBuffer rays, boolean closestOnly,
+            BatchTestResults storeResult) {
+        int numRays = countQueries(rays, RAY_STRIDE, "rays");
+        BatchTestResults result = (storeResult == null)
+                ? new BatchTestResults(Math.max(1, numRays), 64) : storeResult;
+
+        result.clear();
+        int startIndex = rays.position();
+        rayTestRange(rays, startIndex, numRays, closestOnly, result);
+
+        return result;
+    }
+
+    /**
+     * Perform a batch of ray-collision tests (raycasts), splitting the batch
+     * into chunks that execute concurrently, and store the hits in primitive
+     * arrays, one query per ray, in ray order.
+     * <p>
+     * The space must not be modified or stepped until this method returns. If
+     * the native library isn't thread-safe, the batch is processed on the
+     * current thread.
+     *
+     * @param rays the ray endpoints, {@link #RAY_STRIDE} floats per ray (not
+     * null, unaffected)
+     * @param closestOnly true to store only the closest hit of each ray, false
+     * to store all hits in arbitrary order
+     * @param storeResult storage for the results (modified if not null)
+     * @param executor the executor for the chunks (not null)
+     * @param numChunks the desired number of chunks (&ge;1)
+     * @return the results (either storeResult or a new instance, not null)
+     * @see #rayTestBatch(java.nio.FloatBuffer, boolean,
+     * com.jme3.bullet.collision.BatchTestResults)
+     */
+    public BatchTestResults rayTestBatch(final FloatBuffer rays,
+            final boolean closestOnly, BatchTestResults storeResult,
+            ExecutorService executor, int numChunks) {
+        Validate.nonNull(executor, "executor");
+        Validate.positive(numChunks, "number of chunks");
+        int numRays = countQueries(rays, RAY_STRIDE, "rays");
+        numChunks = Math.min(numChunks, numRays);
+        if (numChunks <= 1 || !NativeLibrary.isThreadSafe()) {
+            BatchTestResults result
+                    = rayTestBatch(rays, closestOnly, storeResult);
+            return result;
+        }
+
+        BatchTestResults result = (storeResult == null)
+                ? new BatchTestResults(numRays, 64) : storeResult;
+        final int startIndex = rays.position();
+        RangeQuery query = new RangeQuery() {
+            @Override
+            public void perform(int firstQuery, int numQueries,
+                    BatchTestResults chunkResults) {
+                int first = startIndex + RAY_STRIDE * firstQuery;
+                rayTestRange(rays, first, numQueries, closestOnly,
+                        chunkResults);
+            }
+        };
+        performChunks(query, numRays, numChunks, executor, result);
+
+        return result;
+    }
+
     /**
      * Perform a ray-collision test (raycast) and return the results in
      * arbitrary order.
@@ -609,6 +946,7 @@ public class CollisionSpace extends NativePhysicsObject {
      */
     public void removeCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
+        invalidateAabbs();
 
         if (pco instanceof PhysicsGhostObject) {
             removeGhostObject((PhysicsGhostObject) pco);
@@ -638,6 +976,58 @@ public class CollisionSpace extends NativePhysicsObject {
         this.rayTestFlags = flags;
     }
 
+    /**
+     * Find all collision objects whose axis-aligned bounding boxes intersect
+     * the specified sphere, without invoking the narrowphase. Useful for
+     * explosions and proximity triggers.
+     *
+     * @param center the center of the sphere (in physics-space coordinates,
+     * not null, unaffected)
+     * @param radius the radius of the sphere (in physics-space units, &ge;0)
+     * @param storeIds storage for the native IDs of the intersecting objects
+     * (not null, modified)
+     * @return the number of intersecting objects (&ge;0, may exceed the
+     * length of storeIds, in which case the excess IDs are not stored)
+     * @see #aabbQuery(com.jme3.math.Vector3f, com.jme3.math.Vector3f, long[])
+     */
+    public int sphereQuery(Vector3f center, float radius, long[] storeIds) {
+        Validate.finite(center, "center");
+        Validate.nonNegative(radius, "radius");
+        Validate.nonNull(storeIds, "store IDs");
+
+        int result = overlapQuery(center.x - radius, center.y - radius,
+                center.z - radius, center.x + radius, center.y + radius,
+                center.z + radius, center, radius * radius, storeIds, null);
+        return result;
+    }
+
+    /**
+     * Find all collision objects whose axis-aligned bounding boxes intersect
+     * the specified sphere, without invoking the narrowphase.
+     *
+     * @param center the center of the sphere (in physics-space coordinates,
+     * not null, unaffected)
+     * @param radius the radius of the sphere (in physics-space units, &ge;0)
+     * @param storeObjects storage for the intersecting objects (not null,
+     * modified)
+     * @return the number of intersecting objects (&ge;0, may exceed the
+     * length of storeObjects, in which case the excess objects are not
+     * stored)
+     * @see #aabbQuery(com.jme3.math.Vector3f, com.jme3.math.Vector3f, long[])
+     */
+    public int sphereQuery(Vector3f center, float radius,
+            PhysicsCollisionObject[] storeObjects) {
+        Validate.finite(center, "center");
+        Validate.nonNegative(radius, "radius");
+        Validate.nonNull(storeObjects, "store objects");
+
+        int result = overlapQuery(center.x - radius, center.y - radius,
+                center.z - radius, center.x + radius, center.y + radius,
+                center.z + radius, center, radius * radius, null,
+                storeObjects);
+        return result;
+    }
+
     /**
      * For compatibility with the jme3-bullet library.
      *
@@ -701,6 +1091,102 @@ public class CollisionSpace extends NativePhysicsObject {
         return results;
     }
 
+    /**
+     * Perform a batch of sweep-collision tests with a single convex shape and
+     * store the hits in primitive arrays, one query per sweep, in sweep order.
+     * <p>
+     * The sweeps are read from the remaining elements of the buffer,
+     * {@link #SWEEP_STRIDE} floats per sweep: the starting location (x, y, z)
+     * and orientation (x, y, z, w), followed by the ending location and
+     * orientation, in physics-space coordinates. The buffer's position is
+     * unaffected.
+     * <p>
+     * The same limitations apply as for
+     * {@link #sweepTest(com.jme3.bullet.collision.shapes.ConvexShape,
+     * com.jme3.math.Transform, com.jme3.math.Transform, java.util.List,
+     * float)}.
+     *
+     * @param shape the shape to sweep (not null, convex, unaffected)
+     * @param sweeps the sweep transforms (not null, unaffected)
+     * @param allowedPenetration the allowed CCD penetration (in physics-space
+     * units, default=0)
+     * @param closestOnly true to store only the closest hit of each sweep,
+     * false to store all hits in arbitrary order
+     * @param storeResult storage for the results (modified if not null)
+     * @return the results (either storeResult or a new instance, not null)
+     */
+    public BatchTestResults sweepTestBatch(ConvexShape shape,
+            FloatBuffer sweeps, float allowedPenetration, boolean closestOnly,
+            BatchTestResults storeResult) {
+        Validate.nonNull(shape, "shape");
+        int numSweeps = countQueries(sweeps, SWEEP_STRIDE, "sweeps");
+        BatchTestResults result = (storeResult == null)
+                ? new BatchTestResults(Math.max(1, numSweeps), 64)
+                : storeResult;
+
+        result.clear();
+        long shapeId = shape.nativeId();
+        int startIndex = sweeps.position();
+        sweepTestRange(shapeId, sweeps, startIndex, numSweeps,
+                allowedPenetration, closestOnly, result);
+
+        return result;
+    }
+
+    /**
+     * Perform a batch of sweep-collision tests with a single convex shape,
+     * splitting the batch into chunks that execute concurrently, and store the
+     * hits in primitive arrays, one query per sweep, in sweep order.
+     * <p>
+     * The space must not be modified or stepped until this method returns. If
+     * the native library isn't thread-safe, the batch is processed on the
+     * current thread.
+     *
+     * @param shape the shape to sweep (not null, convex, unaffected)
+     * @param sweeps the sweep transforms, {@link #SWEEP_STRIDE} floats per
+     * sweep (not null, unaffected)
+     * @param allowedPenetration the allowed CCD penetration (in physics-space
+     * units, default=0)
+     * @param closestOnly true to store only the closest hit of each sweep,
+     * false to store all hits in arbitrary order
+     * @param storeResult storage for the results (modified if not null)
+     * @param executor the executor for the chunks (not null)
+     * @param numChunks the desired number of chunks (&ge;1)
+     * @return the results (either storeResult or a new instance, not null)
+     */
+    public BatchTestResults sweepTestBatch(ConvexShape shape,
+            final FloatBuffer sweeps, final float allowedPenetration,
+            final boolean closestOnly, BatchTestResults storeResult,
+            ExecutorService executor, int numChunks) {
+        Validate.nonNull(shape, "shape");
+        Validate.nonNull(executor, "executor");
+        Validate.positive(numChunks, "number of chunks");
+        int numSweeps = countQueries(sweeps, SWEEP_STRIDE, "sweeps");
+        numChunks = Math.min(numChunks, numSweeps);
+        if (numChunks <= 1 || !NativeLibrary.isThreadSafe()) {
+            BatchTestResults result = sweepTestBatch(shape, sweeps,
+                    allowedPenetration, closestOnly, storeResult);
+            return result;
+        }
+
+        BatchTestResults result = (storeResult == null)
+                ? new BatchTestResults(numSweeps, 64) : storeResult;
+        final long shapeId = shape.nativeId();
+        final int startIndex = sweeps.position();
+        RangeQuery query = new RangeQuery() {
+            @Override
+            public void perform(int firstQuery, int numQueries,
+                    BatchTestResults chunkResults) {
+                int first = startIndex + SWEEP_STRIDE * firstQuery;
+                sweepTestRange(shapeId, sweeps, first, numQueries,
+                        allowedPenetration, closestOnly, chunkResults);
+            }
+        };
+        performChunks(query, numSweeps, numChunks, executor, result);
+
+        return result;
+    }
+
     /**
      * Enable or disable the "deterministic overlapping pairs" option in the
      * collision dispatcher (native field: m_deterministicOverlappingPairs).
@@ -767,6 +1253,25 @@ public class CollisionSpace extends NativePhysicsObject {
         addCollisionObject(spaceId, ghostId);
     }
 
+    /**
+     * Count the queries in the remaining elements of the specified buffer.
+     *
+     * @param buffer the query data (not null, unaffected)
+     * @param stride the number of floats per query (&gt;0)
+     * @param description a textual description of the buffer (not null)
+     * @return the count (&ge;0)
+     */
+    private static int countQueries(
+            FloatBuffer buffer, int stride, String description) {
+        Validate.nonNull(buffer, description);
+        int numFloats = buffer.remaining();
+        Validate.require(numFloats % stride == 0,
+                "a multiple of " + stride + " floats in " + description);
+
+        int result = numFloats / stride;
+        return result;
+    }
+
     /**
      * Free the identified tracked native object. Invoked by reflection.
      *
@@ -777,6 +1282,24 @@ public class CollisionSpace extends NativePhysicsObject {
         finalizeNative(spaceId);
     }
 
+    /**
+     * Test whether the specified collision object is a static rigid body,
+     * whose bounds can't change during a simulation step. Makes no native
+     * calls.
+     *
+     * @param pco the object to test (not null, unaffected)
+     * @return true if stationary, otherwise false
+     */
+    private static boolean isStationary(PhysicsCollisionObject pco) {
+        boolean result = false;
+        if (pco instanceof PhysicsRigidBody) {
+            PhysicsRigidBody body = (PhysicsRigidBody) pco;
+            result = !body.isDynamic() && !body.isKinematic();
+        }
+
+        return result;
+    }
+
     /**
      * This method is invoked by native code to determine whether the specified
      * objects should be allowed to collide. Invoked during broadphase, after
@@ -794,6 +1317,230 @@ public class CollisionSpace extends NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Split a batch of queries into contiguous chunks, perform the chunks
+     * concurrently, and store the merged results in query order.
+     *
+     * @param query the query to perform (not null)
+     * @param numQueries the number of queries in the batch (&ge;0)
+     * @param numChunks the number of chunks (&ge;1, &le;numQueries)
+     * @param executor the executor for the chunks (not null)
+     * @param storeResult storage for the results (not null, modified)
+     */
+    private static void performChunks(final RangeQuery query, int numQueries,
+            int numChunks, ExecutorService executor,
+            BatchTestResults storeResult) {
+        List<Callable<Void>> tasks = new ArrayList<>(numChunks);
+        for (int chunkIndex = 0; chunkIndex < numChunks; ++chunkIndex) {
+            long numerator = (long) numQueries * chunkIndex;
+            final int first = (int) (numerator / numChunks);
+            int end = (int) ((numerator + numQueries) / numChunks);
+            final int count = end - first;
+            final BatchTestResults chunk = storeResult.getChunk(chunkIndex);
+            chunk.clear();
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    query.perform(first, count, chunk);
+                    return null;
+                }
+            });
+        }
+
+        try {
+            List<Future<Void>> futures = executor.invokeAll(tasks);
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(exception);
+        }
+
+        storeResult.clear();
+        for (int chunkIndex = 0; chunkIndex < numChunks; ++chunkIndex) {
+            BatchTestResults chunk = storeResult.getChunk(chunkIndex);
+            storeResult.append(chunk);
+        }
+        assert storeResult.countQueries() == numQueries;
+    }
+
+    /**
+     * Scan the cached bounding boxes for overlaps with the specified box and
+     * (optionally) sphere, refreshing the cache if it's stale.
+     *
+     * @param minX the minimum X coordinate of the box
+     * @param minY the minimum Y coordinate of the box
+     * @param minZ the minimum Z coordinate of the box
+     * @param maxX the maximum X coordinate of the box
+     * @param maxY the maximum Y coordinate of the box
+     * @param maxZ the maximum Z coordinate of the box
+     * @param center the center of the sphere (unaffected) or null for a box
+     * query
+     * @param radiusSquared the squared radius of the sphere (ignored if center
+     * is null)
+     * @param storeIds storage for native IDs (modified if not null)
+     * @param storeObjects storage for collision objects (modified if not null)
+     * @return the number of overlapping objects (&ge;0)
+     */
+    private int overlapQuery(float minX, float minY, float minZ, float maxX,
+            float maxY, float maxZ, Vector3f center, float radiusSquared,
+            long[] storeIds, PhysicsCollisionObject[] storeObjects) {
+        if (!aabbsValid) {
+            synchronized (this) {
+                if (!aabbsValid) {
+                    refreshAabbs();
+                }
+            }
+        }
+        AabbCache cache = aabbCache;
+        float[] bounds = cache.bounds;
+        PhysicsCollisionObject[] objects = cache.objects;
+        int numObjects = objects.length;
+
+        int capacity = (storeIds == null) ? 0 : storeIds.length;
+        if (storeObjects != null) {
+            capacity = storeObjects.length;
+        }
+        int result = 0;
+        for (int objectIndex = 0; objectIndex < numObjects; ++objectIndex) {
+            int i = 6 * objectIndex;
+            if (bounds[i] > maxX || bounds[i + 3] < minX
+                    || bounds[i + 1] > maxY || bounds[i + 4] < minY
+                    || bounds[i + 2] > maxZ || bounds[i + 5] < minZ) {
+                continue;
+            }
+            if (center != null) {
+                float dx = Math.max(bounds[i] - center.x,
+                        Math.max(0f, center.x - bounds[i + 3]));
+                float dy = Math.max(bounds[i + 1] - center.y,
+                        Math.max(0f, center.y - bounds[i + 4]));
+                float dz = Math.max(bounds[i + 2] - center.z,
+                        Math.max(0f, center.z - bounds[i + 5]));
+                if (dx * dx + dy * dy + dz * dz > radiusSquared) {
+                    continue;
+                }
+            }
+
+            if (result < capacity) {
+                PhysicsCollisionObject pco = objects[objectIndex];
+                if (storeIds != null) {
+                    storeIds[result] = pco.nativeId();
+                } else {
+                    storeObjects[result] = pco;
+                }
+            }
+            ++result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Perform a contiguous range of ray tests from a batch and append the
+     * results. Safe to invoke concurrently with distinct results objects.
+     *
+     * @param rays the ray endpoints (not null, unaffected)
+     * @param startIndex the buffer index of the first ray (&ge;0)
+     * @param numRays the number of rays to test (&ge;0)
+     * @param closestOnly true to append only the closest hit of each ray
+     * @param storeResult storage for the results (not null, modified)
+     */
+    private void rayTestRange(FloatBuffer rays, int startIndex, int numRays,
+            boolean closestOnly, BatchTestResults storeResult) {
+        QueryScratch scratch = queryScratchTL.get();
+        List<PhysicsRayTestResult> rayResults = scratch.rayResults;
+        Vector3f from = scratch.from;
+        Vector3f to = scratch.to;
+        long spaceId = nativeId();
+
+        for (int rayIndex = 0; rayIndex < numRays; ++rayIndex) {
+            int i = startIndex + RAY_STRIDE * rayIndex;
+            from.set(rays.get(i), rays.get(i + 1), rays.get(i + 2));
+            to.set(rays.get(i + 3), rays.get(i + 4), rays.get(i + 5));
+
+            rayResults.clear();
+            rayTest_native(from, to, spaceId, rayResults, rayTestFlags);
+            storeResult.addRayQuery(rayResults, closestOnly);
+        }
+        rayResults.clear();
+    }
+
+    /**
+     * Recalculate stale bounding boxes and publish them as a new cache. The
+     * caller must hold this space's monitor.
+     */
+    private void refreshAabbs() {
+        /*
+         * Mark the cache valid BEFORE reading the bounds, so that an
+         * invalidation during the refresh isn't lost.
+         */
+        this.aabbsValid = true;
+        AabbCache oldCache = aabbCache;
+        boolean reuseStationary = stationaryAabbsValid;
+        this.stationaryAabbsValid = true;
+        int numStationary = oldCache.numStationary;
+        for (int i = 0; reuseStationary && i < numStationary; ++i) {
+            if (!isStationary(oldCache.objects[i])) {
+                reuseStationary = false;
+            }
+        }
+
+        AabbCache cache;
+        if (reuseStationary) {
+            /*
+             * The same objects in the same order: copy the stationary
+             * bounds and recalculate the rest.
+             */
+            int numObjects = oldCache.objects.length;
+            cache = new AabbCache(numObjects, numStationary);
+            System.arraycopy(oldCache.bounds, 0, cache.bounds, 0,
+                    6 * numStationary);
+            System.arraycopy(oldCache.objects, 0, cache.objects, 0,
+                    numObjects);
+            for (int i = numStationary; i < numObjects; ++i) {
+                storeAabb(cache, i);
+            }
+
+        } else {
+            aabbPcos.clear();
+            appendPcos(aabbPcos);
+            int numObjects = aabbPcos.size();
+            numStationary = 0;
+            for (PhysicsCollisionObject pco : aabbPcos) {
+                if (isStationary(pco)) {
+                    ++numStationary;
+                }
+            }
+
+            cache = new AabbCache(numObjects, numStationary);
+            int stationaryIndex = 0;
+            int movingIndex = numStationary;
+            for (PhysicsCollisionObject pco : aabbPcos) {
+                if (isStationary(pco)) {
+                    cache.objects[stationaryIndex] = pco;
+                    ++stationaryIndex;
+                } else {
+                    cache.objects[movingIndex] = pco;
+                    ++movingIndex;
+                }
+            }
+            aabbPcos.clear(); // allow garbage collection
+
+            for (int i = 0; i < numObjects; ++i) {
+                storeAabb(cache, i);
+            }
+        }
+
+        this.aabbCache = cache;
+    }
+
     /**
      * Remove the specified PhysicsGhostObject from this space.
      *
@@ -816,6 +1563,71 @@ public class CollisionSpace extends NativePhysicsObject {
         long spaceId = nativeId();
         removeCollisionObject(spaceId, ghostId);
     }
+
+    /**
+     * Recalculate the bounding box of the indexed entry in the specified
+     * cache. The caller must hold this space's monitor.
+     *
+     * @param cache the cache to modify (not null, not yet published)
+     * @param objectIndex the index of the entry (&ge;0)
+     */
+    private void storeAabb(AabbCache cache, int objectIndex) {
+        PhysicsCollisionObject pco = cache.objects[objectIndex];
+        pco.boundingBox(aabbBox);
+        aabbBox.getMin(aabbMin);
+        aabbBox.getMax(aabbMax);
+
+        float[] bounds = cache.bounds;
+        int i = 6 * objectIndex;
+        bounds[i] = aabbMin.x;
+        bounds[i + 1] = aabbMin.y;
+        bounds[i + 2] = aabbMin.z;
+        bounds[i + 3] = aabbMax.x;
+        bounds[i + 4] = aabbMax.y;
+        bounds[i + 5] = aabbMax.z;
+    }
+
+    /**
+     * Perform a contiguous range of sweep tests from a batch and append the
+     * results. Safe to invoke concurrently with distinct results objects.
+     *
+     * @param shapeId the native ID of the shape to sweep (not zero)
+     * @param sweeps the sweep transforms (not null, unaffected)
+     * @param startIndex the buffer index of the first sweep (&ge;0)
+     * @param numSweeps the number of sweeps to test (&ge;0)
+     * @param allowedPenetration the allowed CCD penetration (in physics-space
+     * units)
+     * @param closestOnly true to append only the closest hit of each sweep
+     * @param storeResult storage for the results (not null, modified)
+     */
+    private void sweepTestRange(long shapeId, FloatBuffer sweeps,
+            int startIndex, int numSweeps, float allowedPenetration,
+            boolean closestOnly, BatchTestResults storeResult) {
+        QueryScratch scratch = queryScratchTL.get();
+        List<PhysicsSweepTestResult> sweepResults = scratch.sweepResults;
+        Transform start = scratch.start;
+        Transform end = scratch.end;
+        long spaceId = nativeId();
+
+        for (int sweepIndex = 0; sweepIndex < numSweeps; ++sweepIndex) {
+            int i = startIndex + SWEEP_STRIDE * sweepIndex;
+            start.getTranslation().set(
+                    sweeps.get(i), sweeps.get(i + 1), sweeps.get(i + 2));
+            start.getRotation().set(sweeps.get(i + 3), sweeps.get(i + 4),
+                    sweeps.get(i + 5), sweeps.get(i + 6));
+            end.getTranslation().set(
+                    sweeps.get(i + 7), sweeps.get(i + 8), sweeps.get(i + 9));
+            end.getRotation().set(sweeps.get(i + 10), sweeps.get(i + 11),
+                    sweeps.get(i + 12), sweeps.get(i + 13));
+
+            sweepResults.clear();
+            sweepTest_native(shapeId, start, end, spaceId, sweepResults,
+                    allowedPenetration);
+            storeResult.addSweepQuery(sweepResults, closestOnly);
+        }
+        sweepResults.clear();
+    }
+
     // *************************************************************************
     // native private methods
 
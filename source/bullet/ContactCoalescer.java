@@ -0,0 +1,553 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.CollisionEventPool;
+import com.jme3.bullet.collision.ManifoldPoints;
+import com.jme3.bullet.collision.PersistentManifolds;
+import com.jme3.bullet.collision.PhysicsCollisionEvent;
+import com.jme3.bullet.collision.PhysicsCollisionListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.LongObjectMap;
+import com.jme3.math.Matrix3f;
+import com.jme3.math.Vector3f;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+/**
+ * Generate at most one collision event per contact manifold per simulation
+ * step, filtered by per-listener thresholds and rate-limited for ongoing
+ * contacts.
+ * <p>
+ * Manifolds are examined after each step, once the constraint solver has
+ * run, so the applied impulses are current. Each event refers to the
+ * manifold's point with the largest applied impulse.
+ * <p>
+ * By then the solver has already removed most of the approach velocity, so
+ * the speed compared with listener thresholds is estimated from the impulse
+ * instead: the largest applied impulse times the inverse effective mass of
+ * the pair along the contact normal at that point, divided by one plus the
+ * combined restitution. This approximates the normal speed at which the
+ * objects approached before the solve.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class ContactCoalescer {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * Bookkeeping for a single contact manifold.
+     */
+    private static class ManifoldState {
+        /**
+         * native ID of the first collision object
+         */
+        final private long bodyAId;
+        /**
+         * native ID of the 2nd collision object
+         */
+        final private long bodyBId;
+        /**
+         * native ID of the manifold
+         */
+        final private long manifoldId;
+        /**
+         * simulated time since the last ongoing event (in seconds, &ge;0)
+         */
+        private float sinceEvent = 0f;
+        /**
+         * index of the last step during which the manifold had points
+         */
+        private long lastStep;
+
+        /**
+         * Instantiate bookkeeping for the specified manifold.
+         *
+         * @param manifoldId the native ID of the manifold (not zero)
+         * @param bodyAId the native ID of the first object (not zero)
+         * @param bodyBId the native ID of the 2nd object (not zero)
+         */
+        ManifoldState(long manifoldId, long bodyAId, long bodyBId) {
+            this.manifoldId = manifoldId;
+            this.bodyAId = bodyAId;
+            this.bodyBId = bodyBId;
+        }
+    }
+
+    /**
+     * Minimum values a coalesced event must reach to be passed to a listener.
+     */
+    private static class Thresholds {
+        /**
+         * minimum total applied impulse (&ge;0)
+         */
+        final private float minImpulse;
+        /**
+         * minimum impact speed at the contact point (&ge;0)
+         */
+        final private float minSpeed;
+
+        /**
+         * Instantiate the specified thresholds.
+         *
+         * @param minImpulse the minimum total impulse (&ge;0)
+         * @param minSpeed the minimum impact speed (&ge;0)
+         */
+        Thresholds(float minImpulse, float minSpeed) {
+            this.minImpulse = minImpulse;
+            this.minSpeed = minSpeed;
+        }
+
+        /**
+         * Test whether the specified measurements reach these thresholds.
+         *
+         * @param impulse the total applied impulse
+         * @param speed the estimated impact speed at the contact point
+         * @return true if both thresholds are reached, otherwise false
+         */
+        boolean isReached(float impulse, float speed) {
+            boolean result = impulse >= minImpulse && speed >= minSpeed;
+            return result;
+        }
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ContactCoalescer.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the started event in each pending slot, false for ongoing
+     */
+    private boolean[] pendingStarted = new boolean[16];
+    /**
+     * minimum simulated time between ongoing events for a manifold (in
+     * seconds, &ge;0)
+     */
+    private float ongoingInterval = 0f;
+    /**
+     * total applied impulse of the event in each pending slot
+     */
+    private float[] pendingImpulses = new float[16];
+    /**
+     * estimated impact speed of the event in each pending slot
+     */
+    private float[] pendingSpeeds = new float[16];
+    /**
+     * number of events not yet distributed (&ge;0)
+     */
+    private int numPending = 0;
+    /**
+     * reusable list of tracked manifolds
+     */
+    final private List<ManifoldState> stateList = new ArrayList<>(64);
+    /**
+     * index of the current step
+     */
+    private long stepIndex = 0L;
+    /**
+     * map manifold IDs to their bookkeeping
+     */
+    final private LongObjectMap<ManifoldState> stateMap
+            = new LongObjectMap<>(64);
+    /**
+     * map listeners to their thresholds
+     */
+    final private Map<PhysicsCollisionListener, Thresholds> thresholdMap
+            = new ConcurrentHashMap<>(8);
+    /**
+     * events not yet distributed
+     */
+    private PhysicsCollisionEvent[] pendingEvents
+            = new PhysicsCollisionEvent[16];
+    /**
+     * temporary storage for an inverse inertia tensor
+     */
+    final private Matrix3f tmpInverseInertia = new Matrix3f();
+    /**
+     * temporary storage for vectors
+     */
+    final private Vector3f tmpAngular = new Vector3f();
+    final private Vector3f tmpCross = new Vector3f();
+    final private Vector3f tmpLocation = new Vector3f();
+    final private Vector3f tmpNormal = new Vector3f();
+    final private Vector3f tmpOffset = new Vector3f();
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Examine the specified manifold and, if warranted, queue a coalesced
+     * event for it. Has no effect unless {@link #beginStep()} has been
+     * invoked for the current step.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param manifoldId the native ID of the {@code btPersistentManifold}
+     * (not zero)
+     * @param bodyAId the native ID of the manifold's body A (not zero)
+     * @param bodyBId the native ID of the manifold's body B (not zero)
+     * @param numPoints the number of points in the manifold (&gt;0)
+     * @param timeStep the time per simulation step (in seconds, &ge;0)
+     * @param startedListeners the listeners for new contacts (not null,
+     * unaffected)
+     * @param ongoingListeners the listeners for ongoing contacts (not null,
+     * unaffected)
+     * @return true if an event was queued, otherwise false
+     */
+    boolean addManifold(PhysicsSpace space, long manifoldId, long bodyAId,
+            long bodyBId, int numPoints, float timeStep,
+            Collection<PhysicsCollisionListener> startedListeners,
+            Collection<PhysicsCollisionListener> ongoingListeners) {
+        assert numPoints > 0 : numPoints;
+
+        ManifoldState state = stateMap.get(manifoldId);
+        boolean isStarted = state == null
+                || state.bodyAId != bodyAId || state.bodyBId != bodyBId;
+        if (isStarted) {
+            state = new ManifoldState(manifoldId, bodyAId, bodyBId);
+            stateMap.put(manifoldId, state);
+        } else {
+            state.sinceEvent += timeStep;
+        }
+        state.lastStep = stepIndex;
+
+        Collection<PhysicsCollisionListener> listeners;
+        if (isStarted) {
+            listeners = startedListeners;
+        } else if (state.sinceEvent >= ongoingInterval) {
+            listeners = ongoingListeners;
+        } else {
+            return false;
+        }
+        if (listeners.isEmpty()) {
+            return false;
+        }
+
+        long bestPointId = 0L;
+        float bestImpulse = Float.NEGATIVE_INFINITY;
+        float totalImpulse = 0f;
+        for (int index = 0; index < numPoints; ++index) {
+            long pointId = PersistentManifolds.getPointId(manifoldId, index);
+            float impulse = ManifoldPoints.getAppliedImpulse(pointId);
+            totalImpulse += impulse;
+            if (impulse > bestImpulse) {
+                bestImpulse = impulse;
+                bestPointId = pointId;
+            }
+        }
+
+        PhysicsCollisionObject pcoA
+                = PhysicsCollisionObject.findInstance(bodyAId);
+        PhysicsCollisionObject pcoB
+                = PhysicsCollisionObject.findInstance(bodyBId);
+        if (pcoA == null || pcoB == null) {
+            return false;
+        }
+
+        float speed = 0f;
+        if (needsSpeed(listeners)) {
+            speed = impactSpeed(pcoA, pcoB, bestPointId, bestImpulse);
+        }
+        if (!isWanted(listeners, totalImpulse, speed)) {
+            return false;
+        }
+
+        if (!isStarted) {
+            state.sinceEvent = 0f;
+        }
+        PhysicsCollisionEvent event
+                = space.createEvent(pcoA, pcoB, bestPointId);
+        append(event, totalImpulse, speed, isStarted);
+
+        return true;
+    }
+
+    /**
+     * Begin examining the manifolds of a new step.
+     */
+    void beginStep() {
+        ++stepIndex;
+    }
+
+    /**
+     * Forget all tracked manifolds, for instance when coalescing is
+     * re-enabled.
+     */
+    void clear() {
+        stateMap.clear();
+    }
+
+    /**
+     * Count the events not yet distributed.
+     *
+     * @return the count (&ge;0)
+     */
+    int countPending() {
+        assert numPending >= 0 : numPending;
+        return numPending;
+    }
+
+    /**
+     * Distribute all pending events to the listeners whose thresholds they
+     * reach, then free the events.
+     *
+     * @param startedListeners the listeners for new contacts (not null,
+     * unaffected)
+     * @param ongoingListeners the listeners for ongoing contacts (not null,
+     * unaffected)
+     * @param pool the pool to free events to, or null if not pooling
+     */
+    void distribute(Collection<PhysicsCollisionListener> startedListeners,
+            Collection<PhysicsCollisionListener> ongoingListeners,
+            CollisionEventPool pool) {
+        for (int slot = 0; slot < numPending; ++slot) {
+            PhysicsCollisionEvent event = pendingEvents[slot];
+            float impulse = pendingImpulses[slot];
+            float speed = pendingSpeeds[slot];
+            Collection<PhysicsCollisionListener> listeners
+                    = pendingStarted[slot] ? startedListeners
+                            : ongoingListeners;
+            for (PhysicsCollisionListener listener : listeners) {
+                Thresholds thresholds = thresholdMap.get(listener);
+                if (thresholds == null
+                        || thresholds.isReached(impulse, speed)) {
+                    listener.collision(event);
+                }
+            }
+            if (pool != null) {
+                pool.free(event);
+            }
+            pendingEvents[slot] = null;
+        }
+        this.numPending = 0;
+    }
+
+    /**
+     * Finish examining the manifolds of the current step, discarding
+     * manifolds that no longer have contact points.
+     */
+    void endStep() {
+        stateMap.values(stateList);
+        for (ManifoldState state : stateList) {
+            if (state.lastStep != stepIndex) {
+                stateMap.remove(state.manifoldId);
+            }
+        }
+        stateList.clear();
+    }
+
+    /**
+     * Return the minimum simulated time between ongoing events for a
+     * manifold.
+     *
+     * @return the interval (in seconds, &ge;0)
+     */
+    float ongoingInterval() {
+        assert ongoingInterval >= 0f : ongoingInterval;
+        return ongoingInterval;
+    }
+
+    /**
+     * Forget the thresholds of the specified listener.
+     *
+     * @param listener the listener (not null)
+     */
+    void removeThresholds(PhysicsCollisionListener listener) {
+        thresholdMap.remove(listener);
+    }
+
+    /**
+     * Alter the minimum simulated time between ongoing events for a
+     * manifold.
+     *
+     * @param interval the desired interval (in seconds, &ge;0)
+     */
+    void setOngoingInterval(float interval) {
+        this.ongoingInterval = interval;
+    }
+
+    /**
+     * Alter the thresholds of the specified listener.
+     *
+     * @param listener the listener (not null, alias created)
+     * @param minImpulse the minimum total impulse (&ge;0)
+     * @param minSpeed the minimum relative speed (&ge;0)
+     */
+    void setThresholds(PhysicsCollisionListener listener, float minImpulse,
+            float minSpeed) {
+        if (minImpulse > 0f || minSpeed > 0f) {
+            Thresholds thresholds = new Thresholds(minImpulse, minSpeed);
+            thresholdMap.put(listener, thresholds);
+        } else {
+            thresholdMap.remove(listener);
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append an event to the pending slots, growing them if necessary.
+     *
+     * @param event the event to append (not null, alias created)
+     * @param impulse the total applied impulse
+     * @param speed the estimated impact speed at the contact point
+     * @param isStarted true for a new contact, false for an ongoing one
+     */
+    private void append(PhysicsCollisionEvent event, float impulse,
+            float speed, boolean isStarted) {
+        if (numPending == pendingEvents.length) {
+            int newLength = 2 * numPending;
+            this.pendingEvents = Arrays.copyOf(pendingEvents, newLength);
+            this.pendingImpulses = Arrays.copyOf(pendingImpulses, newLength);
+            this.pendingSpeeds = Arrays.copyOf(pendingSpeeds, newLength);
+            this.pendingStarted = Arrays.copyOf(pendingStarted, newLength);
+        }
+
+        pendingEvents[numPending] = event;
+        pendingImpulses[numPending] = impulse;
+        pendingSpeeds[numPending] = speed;
+        pendingStarted[numPending] = isStarted;
+        ++numPending;
+    }
+
+    /**
+     * Estimate the normal speed at which the objects approached each other at
+     * the specified contact point, before the solver resolved the contact.
+     *
+     * @param pcoA the first collision object (not null)
+     * @param pcoB the 2nd collision object (not null)
+     * @param pointId the native ID of the {@code btManifoldPoint} (not zero)
+     * @param impulse the impulse applied at the point during the step
+     * @return the speed (in physics-space units per second, &ge;0)
+     */
+    private float impactSpeed(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB, long pointId, float impulse) {
+        if (impulse <= 0f) {
+            return 0f;
+        }
+
+        ManifoldPoints.getPositionWorldOnB(pointId, tmpLocation);
+        ManifoldPoints.getNormalWorldOnB(pointId, tmpNormal);
+        float inverseMass = inverseEffectiveMass(pcoA, tmpLocation, tmpNormal)
+                + inverseEffectiveMass(pcoB, tmpLocation, tmpNormal);
+        float restitution = ManifoldPoints.getCombinedRestitution(pointId);
+        float result = impulse * inverseMass / (1f + restitution);
+
+        return result;
+    }
+
+    /**
+     * Calculate the contribution of the specified collision object to the
+     * inverse effective mass of a contact: its inverse mass plus the angular
+     * term (r&times;n)&middot;I<sup>-1</sup>(r&times;n), where r is the offset
+     * of the contact point from the object's center of mass. Objects other
+     * than dynamic rigid bodies contribute nothing.
+     *
+     * @param pco the collision object (not null)
+     * @param location the contact point (in physics-space coordinates, not
+     * null, unaffected)
+     * @param normal the contact normal (in physics-space coordinates, unit
+     * vector, not null, unaffected)
+     * @return the contribution (&ge;0)
+     */
+    private float inverseEffectiveMass(PhysicsCollisionObject pco,
+            Vector3f location, Vector3f normal) {
+        if (!(pco instanceof PhysicsRigidBody)
+                || !((PhysicsRigidBody) pco).isDynamic()) {
+            return 0f;
+        }
+
+        PhysicsRigidBody body = (PhysicsRigidBody) pco;
+        body.getPhysicsLocation(tmpOffset);
+        location.subtract(tmpOffset, tmpOffset);
+        tmpOffset.cross(normal, tmpCross);
+        body.getInverseInertiaWorld(tmpInverseInertia);
+        tmpInverseInertia.mult(tmpCross, tmpAngular);
+        float result = 1f / body.getMass() + tmpCross.dot(tmpAngular);
+
+        return result;
+    }
+
+    /**
+     * Test whether any of the specified listeners would accept an event with
+     * the specified measurements.
+     *
+     * @param listeners the listeners to test (not null, unaffected)
+     * @param impulse the total applied impulse
+     * @param speed the estimated impact speed at the contact point
+     * @return true if at least one listener accepts, otherwise false
+     */
+    private boolean isWanted(Collection<PhysicsCollisionListener> listeners,
+            float impulse, float speed) {
+        for (PhysicsCollisionListener listener : listeners) {
+            Thresholds thresholds = thresholdMap.get(listener);
+            if (thresholds == null || thresholds.isReached(impulse, speed)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Test whether any of the specified listeners has a speed threshold.
+     *
+     * @param listeners the listeners to test (not null, unaffected)
+     * @return true if the impact speed is needed, otherwise false
+     */
+    private boolean needsSpeed(
+            Collection<PhysicsCollisionListener> listeners) {
+        if (thresholdMap.isEmpty()) {
+            return false;
+        }
+
+        for (PhysicsCollisionListener listener : listeners) {
+            Thresholds thresholds = thresholdMap.get(listener);
+            if (thresholds != null && thresholds.minSpeed > 0f) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
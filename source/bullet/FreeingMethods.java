@@ -31,6 +31,9 @@
  */
 package com.jme3.bullet;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -42,6 +45,9 @@ import java.util.logging.Logger;
  * Cache the methods used (by the physics cleaner thread) to free each type of
  * NativePhysicsObject. This is measurably faster than traversing the class
  * hierarchy for every instance.
+ * <p>
+ * Each method is pre-bound to a {@code MethodHandle} of type (long)void, so
+ * freeing an object requires neither reflection nor boxing.
  */
 final class FreeingMethods {
     // *************************************************************************
@@ -52,13 +58,19 @@ final class FreeingMethods {
      */
     final public static Logger logger
             = Logger.getLogger(FreeingMethods.class.getName());
+    /**
+     * type of every freeing handle
+     */
+    final private static MethodType freeType
+            = MethodType.methodType(void.class, long.class);
     // *************************************************************************
     // fields
 
     /**
-     * map classes to methods - initialized lazily
+     * map classes to method handles - initialized lazily
      */
-    final private static Map<Class<? extends NativePhysicsObject>, Method[]> map
+    final private static
+            Map<Class<? extends NativePhysicsObject>, MethodHandle[]> map
             = new ConcurrentHashMap<>(30);
     // *************************************************************************
     // constructors
@@ -72,13 +84,15 @@ final class FreeingMethods {
     // new methods exposed
 
     /**
-     * Enumerate the methods used to free an instance of the specified class.
+     * Enumerate the method handles used to free an instance of the specified
+     * class, most-derived class first.
      *
      * @param clazz which class (not null)
      * @return an internal array (not null, do not modify!)
      */
-    static Method[] listMethods(Class<? extends NativePhysicsObject> clazz) {
-        Method[] result = map.get(clazz);
+    static MethodHandle[] listHandles(
+            Class<? extends NativePhysicsObject> clazz) {
+        MethodHandle[] result = map.get(clazz);
         if (result == null) {
             result = generate(clazz);
             map.put(clazz, result);
@@ -95,16 +109,20 @@ final class FreeingMethods {
      * @param clazz the class to be freed (not null)
      * @return a new array
      */
-    private static Method[] generate(
+    private static MethodHandle[] generate(
             Class<? extends NativePhysicsObject> clazz) {
-        Collection<Method> methods = new ArrayList<>(4);
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Collection<MethodHandle> handles = new ArrayList<>(4);
         for (Class<?> c = clazz; c != Object.class; c = c.getSuperclass()) {
             try {
                 Method method
                         = c.getDeclaredMethod("freeNativeObject", long.class);
                 method.setAccessible(true);
-                methods.add(method);
-            } catch (IllegalArgumentException
+                MethodHandle handle = lookup.unreflect(method);
+                handle = handle.asType(freeType);
+                handles.add(handle);
+            } catch (IllegalAccessException
+                    | IllegalArgumentException
                     | NoClassDefFoundError
                     | SecurityException exception) {
                 System.out.println("c = " + c.getName());
@@ -114,9 +132,9 @@ final class FreeingMethods {
             }
         }
 
-        int numMethods = methods.size();
-        Method[] result = new Method[numMethods];
-        methods.toArray(result);
+        int numHandles = handles.size();
+        MethodHandle[] result = new MethodHandle[numHandles];
+        handles.toArray(result);
 
         return result;
     }
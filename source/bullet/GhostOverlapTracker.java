@@ -0,0 +1,408 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.collision.GhostOverlapListener;
+import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.objects.PhysicsGhostObject;
+import com.jme3.bullet.util.LongObjectMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/**
+ * Track the objects that overlap each ghost object in a PhysicsSpace from one
+ * simulation step to the next, and report only the transitions.
+ * <p>
+ * Each ghost keeps its previous and current overlap sets in primitive-keyed
+ * maps. The overlaps are read from each ghost's broadphase pair cache by
+ * visiting them, without building an intermediate list. The native code makes
+ * one JNI upcall per overlapping object per step, so the cost of a ghost is
+ * proportional to its overlap count, but a ghost whose overlaps don't change
+ * allocates nothing. In contact mode, the pair cache supplies candidates, and
+ * contact manifolds are examined only if some ghost has a candidate.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final class GhostOverlapTracker {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * Overlap sets of a single ghost object.
+     */
+    private static class Overlaps implements Consumer<PhysicsCollisionObject> {
+        /**
+         * true if the pair cache supplies overlaps, false if it supplies
+         * candidates to be confirmed by contact manifolds
+         */
+        private boolean aabbOnly;
+        /**
+         * the ghost object
+         */
+        final private PhysicsGhostObject ghost;
+        /**
+         * objects that began to overlap during the current step
+         */
+        final private List<PhysicsCollisionObject> entered
+                = new ArrayList<>(4);
+        /**
+         * objects in the ghost's pair cache during the current step (used only
+         * in contact mode)
+         */
+        final private LongObjectMap<PhysicsCollisionObject> candidates
+                = new LongObjectMap<>(4);
+        /**
+         * native ID of the ghost object
+         */
+        final private long ghostId;
+        /**
+         * index of the last step during which the ghost was in the space
+         */
+        private long lastStep;
+        /**
+         * overlapping objects found during the current step
+         */
+        private LongObjectMap<PhysicsCollisionObject> current
+                = new LongObjectMap<>(4);
+        /**
+         * overlapping objects found during the previous step
+         */
+        private LongObjectMap<PhysicsCollisionObject> previous
+                = new LongObjectMap<>(4);
+
+        /**
+         * Instantiate empty overlap sets for the specified ghost.
+         *
+         * @param ghost the ghost object (not null, alias created)
+         */
+        Overlaps(PhysicsGhostObject ghost) {
+            this.ghost = ghost;
+            this.ghostId = ghost.nativeId();
+        }
+
+        /**
+         * Record an overlap found during the current step.
+         *
+         * @param otherId the native ID of the overlapping object (not zero)
+         * @param other the overlapping object (not null)
+         */
+        void add(long otherId, PhysicsCollisionObject other) {
+            if (current.containsKey(otherId)) {
+                return;
+            }
+
+            PhysicsCollisionObject pco = previous.get(otherId);
+            if (pco == null) {
+                pco = other;
+                entered.add(pco);
+            }
+            current.put(otherId, pco);
+        }
+
+        /**
+         * Prepare to record the overlaps of a new step, then read the ghost's
+         * pair cache.
+         *
+         * @param aabbOnly true to record pair-cache entries as overlaps, false
+         * to record them as candidates
+         * @return the number of entries in the pair cache (&ge;0)
+         */
+        int beginStep(boolean aabbOnly) {
+            if (!current.isEmpty()) {
+                current.clear();
+            }
+            if (!candidates.isEmpty()) {
+                candidates.clear();
+            }
+            entered.clear();
+
+            this.aabbOnly = aabbOnly;
+            ghost.visitOverlappingObjects(this);
+
+            int result = aabbOnly ? current.size() : candidates.size();
+            return result;
+        }
+
+        /**
+         * Notify the listeners that all previous overlaps have ended, because
+         * the ghost is no longer in the space.
+         *
+         * @param space the space that was just stepped (not null)
+         * @param listeners the listeners to notify (not null)
+         */
+        void notifyAllEnded(PhysicsSpace space,
+                Collection<GhostOverlapListener> listeners) {
+            if (previous.isEmpty()) {
+                return;
+            }
+            for (PhysicsCollisionObject other : previous.values()) {
+                for (GhostOverlapListener listener : listeners) {
+                    listener.overlapEnded(space, ghost, other);
+                }
+            }
+        }
+
+        /**
+         * Notify the listeners of all transitions since the previous step,
+         * then make the current overlaps the previous ones.
+         *
+         * @param space the space that was just stepped (not null)
+         * @param listeners the listeners to notify (not null)
+         */
+        void notifyAndSwap(PhysicsSpace space,
+                Collection<GhostOverlapListener> listeners) {
+            int numRetained = current.size() - entered.size();
+            if (previous.size() > numRetained) {
+                for (long otherId : previous.keys()) {
+                    if (!current.containsKey(otherId)) {
+                        PhysicsCollisionObject other = previous.get(otherId);
+                        for (GhostOverlapListener listener : listeners) {
+                            listener.overlapEnded(space, ghost, other);
+                        }
+                    }
+                }
+            }
+
+            for (PhysicsCollisionObject other : entered) {
+                for (GhostOverlapListener listener : listeners) {
+                    listener.overlapStarted(space, ghost, other);
+                }
+            }
+
+            LongObjectMap<PhysicsCollisionObject> swap = previous;
+            this.previous = current;
+            this.current = swap;
+        }
+
+        /**
+         * Receive an object from the ghost's pair cache. Invoked only by
+         * {@link PhysicsGhostObject#visitOverlappingObjects(Consumer)}.
+         *
+         * @param other the object in the pair cache (not null)
+         */
+        @Override
+        public void accept(PhysicsCollisionObject other) {
+            long otherId = other.nativeId();
+            if (aabbOnly) {
+                add(otherId, other);
+            } else {
+                candidates.put(otherId, other);
+            }
+        }
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(GhostOverlapTracker.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true to track overlaps of bounding boxes (broadphase), false to track
+     * only overlaps with contact points (narrowphase)
+     */
+    private boolean aabbOnly = true;
+    /**
+     * total number of candidates found during the current step
+     */
+    private int numCandidates = 0;
+    /**
+     * reusable list of the ghost objects in the space
+     */
+    final private List<PhysicsGhostObject> ghostList = new ArrayList<>(16);
+    /**
+     * reusable list of tracked ghost objects
+     */
+    final private List<Overlaps> stateList = new ArrayList<>(16);
+    /**
+     * map ghost IDs to their overlap sets
+     */
+    final private LongObjectMap<Overlaps> stateMap = new LongObjectMap<>(16);
+    /**
+     * index of the current step
+     */
+    private long stepIndex = 0L;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Record an overlap with contact points between the specified objects,
+     * for each of them that is a tracked ghost and has the other as a
+     * candidate. Has no effect unless {@link #beginStep(CollisionSpace)} has
+     * been invoked for the current step.
+     *
+     * @param aId the native ID of the first object (not zero)
+     * @param bId the native ID of the 2nd object (not zero)
+     */
+    void addContact(long aId, long bId) {
+        Overlaps aState = candidateState(aId, bId);
+        if (aState != null) {
+            aState.add(bId, aState.candidates.get(bId));
+        }
+        Overlaps bState = candidateState(bId, aId);
+        if (bState != null) {
+            bState.add(aId, bState.candidates.get(aId));
+        }
+    }
+
+    /**
+     * Begin a new step: enumerate the ghost objects in the specified space and
+     * read their pair caches.
+     *
+     * @param space the space that was just stepped (not null)
+     * @return the number of ghost objects in the space (&ge;0)
+     */
+    int beginStep(CollisionSpace space) {
+        ++stepIndex;
+        this.numCandidates = 0;
+        space.copyGhostObjects(ghostList);
+
+        for (PhysicsGhostObject ghost : ghostList) {
+            long ghostId = ghost.nativeId();
+            Overlaps state = stateMap.get(ghostId);
+            if (state == null || state.ghost != ghost) {
+                state = new Overlaps(ghost);
+                stateMap.put(ghostId, state);
+            }
+            state.lastStep = stepIndex;
+            int numEntries = state.beginStep(aabbOnly);
+            if (!aabbOnly) {
+                numCandidates += numEntries;
+            }
+        }
+
+        int result = ghostList.size();
+        ghostList.clear();
+
+        return result;
+    }
+
+    /**
+     * Forget all previous overlaps, for instance when tracking is re-enabled.
+     */
+    void clear() {
+        stateMap.clear();
+    }
+
+    /**
+     * Finish the current step: notify the listeners of all transitions and
+     * discard ghosts that are no longer in the space, reporting the end of
+     * their remaining overlaps.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param listeners the listeners to notify (not null)
+     */
+    void endStep(PhysicsSpace space,
+            Collection<GhostOverlapListener> listeners) {
+        stateMap.values(stateList);
+        for (Overlaps state : stateList) {
+            if (state.lastStep == stepIndex) {
+                state.notifyAndSwap(space, listeners);
+            } else {
+                state.notifyAllEnded(space, listeners);
+                stateMap.remove(state.ghostId);
+            }
+        }
+        stateList.clear();
+    }
+
+    /**
+     * Test whether bounding-box overlaps are tracked.
+     *
+     * @return true if tracking bounding boxes, false if tracking contacts
+     */
+    boolean isAabbOnly() {
+        return aabbOnly;
+    }
+
+    /**
+     * Test whether either of the specified objects is a ghost tracked during
+     * the current step with the other as a candidate, in other words,
+     * whether a contact manifold between them matters.
+     *
+     * @param aId the native ID of the first object (not zero)
+     * @param bId the native ID of the 2nd object (not zero)
+     * @return true if a candidate pair, otherwise false
+     */
+    boolean isCandidatePair(long aId, long bId) {
+        boolean result = candidateState(aId, bId) != null
+                || candidateState(bId, aId) != null;
+        return result;
+    }
+
+    /**
+     * Test whether the current step needs contact manifolds: that is, whether
+     * contacts are tracked and some ghost has a candidate.
+     *
+     * @return true if manifolds are needed, otherwise false
+     */
+    boolean needsManifolds() {
+        boolean result = !aabbOnly && numCandidates > 0;
+        return result;
+    }
+
+    /**
+     * Alter whether bounding-box overlaps are tracked.
+     *
+     * @param setting true to track bounding boxes, false to track contacts
+     */
+    void setAabbOnly(boolean setting) {
+        this.aabbOnly = setting;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the overlap sets of the specified ghost, if it's tracked during the
+     * current step and the other object is one of its candidates.
+     *
+     * @param ghostId the native ID of the possible ghost (not zero)
+     * @param otherId the native ID of the other object (not zero)
+     * @return the pre-existing sets, or null if none
+     */
+    private Overlaps candidateState(long ghostId, long otherId) {
+        Overlaps result = stateMap.get(ghostId);
+        if (result == null || result.lastStep != stepIndex
+                || !result.candidates.containsKey(otherId)) {
+            result = null;
+        }
+
+        return result;
+    }
+}
@@ -33,11 +33,10 @@ package com.jme3.bullet;
 
 import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.objects.MultiBodyCollider;
+import com.jme3.bullet.util.LongObjectMap;
 import com.jme3.math.Vector3f;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
@@ -63,8 +62,8 @@ public class MultiBodySpace extends PhysicsSpace {
     /**
      * map multibody IDs to added multibodies
      */
-    final private Map<Long, MultiBody> multiBodyMap
-            = new ConcurrentHashMap<>(64);
+    final private LongObjectMap<MultiBody> multiBodyMap
+            = new LongObjectMap<>(64);
     // *************************************************************************
     // constructors
 
@@ -108,6 +107,7 @@ public class MultiBodySpace extends PhysicsSpace {
      */
     public void addMultiBody(MultiBody multiBody) {
         long multiBodyId = multiBody.nativeId();
+        invalidateAabbs();
         if (multiBodyMap.containsKey(multiBodyId)) {
             logger2.log(Level.WARNING, "{0} is already added to {1}.",
                     new Object[]{multiBody, this});
@@ -141,12 +141,12 @@ public class MultiBodySpace extends PhysicsSpace {
      * Enumerate multibodies that have been added to this space and not yet
      * removed.
      *
-     * @return a new unmodifiable collection of pre-existing instances (not
-     * null)
+     * @return an unmodifiable snapshot of pre-existing instances, cached and
+     * shared until the next addition or removal (not null)
      */
     public Collection<MultiBody> getMultiBodyList() {
         Collection<MultiBody> result = multiBodyMap.values();
-        return Collections.unmodifiableCollection(result);
+        return result;
     }
 
     /**
@@ -166,6 +166,7 @@ public class MultiBodySpace extends PhysicsSpace {
      */
     public void removeMultiBody(MultiBody multiBody) {
         long multiBodyId = multiBody.nativeId();
+        invalidateAabbs();
         if (!multiBodyMap.containsKey(multiBodyId)) {
             logger2.log(Level.WARNING, "{0} does not exist in {1}.",
                     new Object[]{multiBody, this});
@@ -274,6 +275,32 @@ public class MultiBodySpace extends PhysicsSpace {
         }
     }
 
+    /**
+     * Append the collision objects in this space to the specified list,
+     * without creating a new collection.
+     *
+     * @param storeResult the list to append to (not null, modified)
+     */
+    @Override
+    void appendPcos(List<PhysicsCollisionObject> storeResult) {
+        super.appendPcos(storeResult);
+
+        for (MultiBody multiBody : multiBodyMap.values()) {
+            MultiBodyCollider baseCollider = multiBody.getBaseCollider();
+            if (baseCollider != null) {
+                storeResult.add(baseCollider);
+            }
+            int numLinks = multiBody.countConfiguredLinks();
+            for (int linkIndex = 0; linkIndex < numLinks; ++linkIndex) {
+                MultiBodyLink link = multiBody.getLink(linkIndex);
+                MultiBodyCollider collider = link.getCollider();
+                if (collider != null) {
+                    storeResult.add(collider);
+                }
+            }
+        }
+    }
+
     /**
      * Enumerate collision objects that have been added to this space and not
      * yet removed.
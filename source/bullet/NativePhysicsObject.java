@@ -31,9 +31,8 @@
  */
 package com.jme3.bullet;
 
+import com.jme3.bullet.util.StripedLongObjectMap;
 import java.lang.ref.ReferenceQueue;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 
@@ -63,8 +62,8 @@ abstract public class NativePhysicsObject
     /**
      * map native IDs to their trackers
      */
-    final private static Map<Long, NpoTracker> map
-            = new ConcurrentHashMap<>(999);
+    final private static StripedLongObjectMap<NpoTracker> map
+            = new StripedLongObjectMap<>(999);
     /**
      * weak references to all instances whose assigned native objects are
      * tracked and known to be unused
@@ -93,29 +92,42 @@ abstract public class NativePhysicsObject
         return result;
     }
 
+    /**
+     * Count how many tracked native objects belong to instances that have
+     * been garbage collected, but haven't been freed yet.
+     *
+     * @return the count (&ge;0)
+     */
+    static int countCollectedTrackers() {
+        int result = 0;
+        for (NpoTracker tracker : map.values(null)) {
+            if (tracker.get() == null) {
+                ++result;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Dump all native-object trackers to {@code System.out}.
      */
     final public static void dumpTrackers() {
         System.out.println("Active trackers:");
-        for (NpoTracker tracker : map.values()) {
+        for (NpoTracker tracker : map.values(null)) {
             System.out.println(" " + tracker);
         }
         System.out.flush();
     }
 
     /**
-     * Free any assigned native objects that are known to be unused.
+     * Free any assigned native objects that are known to be unused, in
+     * batches, blocking until the current thread is interrupted.
+     *
+     * @see NativeReclaimer
      */
     final public static void freeUnusedObjects() {
-        while (true) {
-            try {
-                NpoTracker tracker = (NpoTracker) weakReferenceQueue.remove();
-                tracker.freeTrackedObject();
-            } catch (InterruptedException exception) {
-                break;
-            }
-        }
+        NativeReclaimer.runLoop();
     }
 
     /**
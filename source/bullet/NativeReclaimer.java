@@ -0,0 +1,421 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.lang.ref.Reference;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Utility class to reclaim the native objects of unreachable
+ * NativePhysicsObject instances, in batches, and to gather statistics on
+ * reclamation.
+ * <p>
+ * Normally a daemon thread (the "Physics Cleaner") does the reclaiming,
+ * sleeping until the garbage collector enqueues a tracker. Applications may
+ * also invoke {@link #reclaim(int)} on any thread, for instance once per frame.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class NativeReclaimer {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * default maximum number of objects freed per batch
+     */
+    final public static int defaultBatchSize = 256;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(NativeReclaimer.class.getName());
+    /**
+     * name of the daemon thread
+     */
+    final private static String threadName = "Physics Cleaner";
+    // *************************************************************************
+    // fields
+
+    /**
+     * maximum number of objects freed per batch (&ge;1)
+     */
+    private static volatile int batchSize = defaultBatchSize;
+    /**
+     * number of objects freed in the most recent batch
+     */
+    private static volatile int lastBatchSize;
+    /**
+     * count batches since the statistics were last reset
+     */
+    final private static LongAdder batchCount = new LongAdder();
+    /**
+     * count objects freed since the statistics were last reset
+     */
+    final private static LongAdder freedCount = new LongAdder();
+    /**
+     * total nanoseconds spent freeing objects since the statistics were last
+     * reset
+     */
+    final private static LongAdder freeNanos = new LongAdder();
+    /**
+     * largest batch since the statistics were last reset
+     */
+    final private static AtomicLong maxBatchSize = new AtomicLong();
+    /**
+     * slowest single free (in nanoseconds) since the statistics were last
+     * reset
+     */
+    final private static AtomicLong maxFreeNanos = new AtomicLong();
+    /**
+     * map each class to the number of its instances freed since the
+     * statistics were last reset
+     */
+    final private static Map<Class<? extends NativePhysicsObject>, LongAdder>
+            classCounts = new ConcurrentHashMap<>(30);
+    /**
+     * the daemon thread, or null if not started
+     */
+    private static Thread thread;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private NativeReclaimer() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Return the maximum number of objects freed per batch.
+     *
+     * @return the batch size (&ge;1)
+     */
+    public static int batchSize() {
+        return batchSize;
+    }
+
+    /**
+     * Count the batches processed since the statistics were last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countBatches() {
+        long result = batchCount.sum();
+        return result;
+    }
+
+    /**
+     * Count the native objects freed since the statistics were last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countFreed() {
+        long result = freedCount.sum();
+        return result;
+    }
+
+    /**
+     * Count the instances of the specified class whose native objects were
+     * freed since the statistics were last reset. Subclasses are not included.
+     *
+     * @param clazz the class to count (not null)
+     * @return the count (&ge;0)
+     */
+    public static long countFreed(Class<? extends NativePhysicsObject> clazz) {
+        Validate.nonNull(clazz, "class");
+
+        LongAdder adder = classCounts.get(clazz);
+        long result = (adder == null) ? 0L : adder.sum();
+
+        return result;
+    }
+
+    /**
+     * Count the tracked native objects whose Java instances have been
+     * collected but which haven't been freed yet. This scans every tracker, so
+     * it's relatively slow.
+     *
+     * @return the count (&ge;0)
+     */
+    public static int countPending() {
+        int result = NativePhysicsObject.countCollectedTrackers();
+        return result;
+    }
+
+    /**
+     * Test whether the daemon thread is running.
+     *
+     * @return true if running, otherwise false
+     */
+    public static synchronized boolean isRunning() {
+        boolean result = thread != null && thread.isAlive();
+        return result;
+    }
+
+    /**
+     * Return the size of the most recent batch.
+     *
+     * @return the number of objects freed (&ge;0)
+     */
+    public static int lastBatchSize() {
+        return lastBatchSize;
+    }
+
+    /**
+     * Copy the per-class counts of freed objects.
+     *
+     * @return a new map from classes to counts (not null)
+     */
+    public static Map<Class<? extends NativePhysicsObject>, Long>
+            mapFreedCounts() {
+        Map<Class<? extends NativePhysicsObject>, Long> result
+                = new HashMap<>(classCounts.size());
+        for (Map.Entry<Class<? extends NativePhysicsObject>, LongAdder> entry
+                : classCounts.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the largest batch since the statistics were last reset. This
+     * approximates the peak depth of the reference queue.
+     *
+     * @return the number of objects freed (&ge;0)
+     */
+    public static long maxBatchSize() {
+        long result = maxBatchSize.get();
+        return result;
+    }
+
+    /**
+     * Return the slowest single free since the statistics were last reset.
+     *
+     * @return the latency (in nanoseconds, &ge;0)
+     */
+    public static long maxFreeNanos() {
+        long result = maxFreeNanos.get();
+        return result;
+    }
+
+    /**
+     * Return the mean time to free one native object since the statistics
+     * were last reset.
+     *
+     * @return the latency (in nanoseconds, &ge;0)
+     */
+    public static double meanFreeNanos() {
+        long count = freedCount.sum();
+        double result = (count == 0L) ? 0.0 : freeNanos.sum() / (double) count;
+
+        return result;
+    }
+
+    /**
+     * Free the native objects of up to {@code maxObjects} collected instances,
+     * without blocking. May be invoked on any thread.
+     *
+     * @param maxObjects the maximum number of objects to free (&ge;1)
+     * @return the number of objects freed (&ge;0)
+     */
+    public static int reclaim(int maxObjects) {
+        Validate.positive(maxObjects, "max objects");
+
+        int result = drain(null, maxObjects);
+        return result;
+    }
+
+    /**
+     * Reset all statistics to zero.
+     */
+    public static void resetStatistics() {
+        batchCount.reset();
+        freedCount.reset();
+        freeNanos.reset();
+        lastBatchSize = 0;
+        maxBatchSize.set(0L);
+        maxFreeNanos.set(0L);
+        classCounts.clear();
+    }
+
+    /**
+     * Alter the maximum number of objects freed per batch.
+     *
+     * @param numObjects the desired batch size (&ge;1, default=256)
+     */
+    public static void setBatchSize(int numObjects) {
+        Validate.positive(numObjects, "number of objects");
+        batchSize = numObjects;
+    }
+
+    /**
+     * Start the daemon thread, unless it's already running. Invoked
+     * automatically after the native library is loaded.
+     */
+    public static synchronized void start() {
+        if (thread == null || !thread.isAlive()) {
+            thread = new Thread(threadName) {
+                @Override
+                public void run() {
+                    runLoop();
+                }
+            };
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Stop the daemon thread, if it's running. Collected objects will then be
+     * freed only by {@link #reclaim(int)}.
+     */
+    public static synchronized void stop() {
+        if (thread != null) {
+            thread.interrupt();
+            thread = null;
+        }
+    }
+    // *************************************************************************
+    // new package-private methods
+
+    /**
+     * Free collected objects until the current thread is interrupted,
+     * blocking while the reference queue is empty.
+     */
+    static void runLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            NpoTracker first;
+            try {
+                first = (NpoTracker) NativePhysicsObject.weakReferenceQueue
+                        .remove();
+            } catch (InterruptedException exception) {
+                break;
+            }
+
+            try {
+                drain(first, batchSize);
+            } catch (RuntimeException exception) {
+                logger.log(Level.SEVERE, "failed to free a native object",
+                        exception);
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Free a batch of collected objects and update the statistics.
+     *
+     * @param first a tracker already removed from the queue, or null if none
+     * @param maxObjects the maximum number of objects to free (&ge;1)
+     * @return the number of objects freed (&ge;0)
+     */
+    private static int drain(NpoTracker first, int maxObjects) {
+        int numFreed = 0;
+        long batchNanos = 0L;
+        long slowest = 0L;
+
+        NpoTracker tracker = first;
+        if (tracker == null) {
+            tracker = poll();
+        }
+        while (tracker != null) {
+            long startNanos = System.nanoTime();
+            tracker.freeTrackedObject();
+            long elapsed = System.nanoTime() - startNanos;
+
+            batchNanos += elapsed;
+            slowest = Math.max(slowest, elapsed);
+            ++numFreed;
+            Class<? extends NativePhysicsObject> clazz
+                    = tracker.referentClass();
+            LongAdder adder = classCounts.get(clazz);
+            if (adder == null) {
+                classCounts.putIfAbsent(clazz, new LongAdder());
+                adder = classCounts.get(clazz);
+            }
+            adder.increment();
+
+            if (numFreed >= maxObjects) {
+                break;
+            }
+            tracker = poll();
+        }
+
+        if (numFreed > 0) {
+            batchCount.increment();
+            freedCount.add(numFreed);
+            freeNanos.add(batchNanos);
+            lastBatchSize = numFreed;
+            raiseMaximum(maxBatchSize, numFreed);
+            raiseMaximum(maxFreeNanos, slowest);
+        }
+
+        return numFreed;
+    }
+
+    /**
+     * Remove the next tracker from the reference queue, without blocking.
+     *
+     * @return the tracker, or null if the queue is empty
+     */
+    private static NpoTracker poll() {
+        Reference<? extends NativePhysicsObject> reference
+                = NativePhysicsObject.weakReferenceQueue.poll();
+        NpoTracker result = (NpoTracker) reference;
+
+        return result;
+    }
+
+    /**
+     * Raise the value of the specified maximum, if necessary.
+     *
+     * @param maximum the maximum to update (not null, modified)
+     * @param value the newly observed value
+     */
+    private static void raiseMaximum(AtomicLong maximum, long value) {
+        long current = maximum.get();
+        while (value > current && !maximum.compareAndSet(current, value)) {
+            current = maximum.get();
+        }
+    }
+}
@@ -31,9 +31,8 @@
  */
 package com.jme3.bullet;
 
+import java.lang.invoke.MethodHandle;
 import java.lang.ref.WeakReference;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.util.logging.Logger;
 
 /**
@@ -80,8 +79,8 @@ class NpoTracker extends WeakReference<NativePhysicsObject> {
     // new methods exposed
 
     /**
-     * Free the tracked native object by attempting to invoke
-     * freeNativeObject(id) on its class and superclasses thereof.
+     * Free the tracked native object by invoking freeNativeObject(id) on its
+     * class and superclasses thereof.
      */
     void freeTrackedObject() {
         int invocationCount = 0;
@@ -89,21 +88,29 @@ class NpoTracker extends WeakReference<NativePhysicsObject> {
          * Remove this tracker from the map BEFORE freeing the native object.
          */
         NativePhysicsObject.removeTracker(id);
-        Method[] methods = FreeingMethods.listMethods(referentClass);
-        // Avoid re-boxing in case more than one method is invoked.
-        Object[] boxedId = {id};
-        for (Method method : methods) {
+        MethodHandle[] handles = FreeingMethods.listHandles(referentClass);
+        for (MethodHandle handle : handles) {
             try {
-                method.invoke(null, boxedId);
+                handle.invokeExact(id);
                 ++invocationCount;
-            } catch (IllegalAccessException | IllegalArgumentException
-                   | InvocationTargetException exception) {
-                throw new RuntimeException(exception);
+            } catch (RuntimeException | Error exception) {
+                throw exception;
+            } catch (Throwable throwable) {
+                throw new RuntimeException(throwable);
             }
         }
 
         assert invocationCount > 0 : invocationCount;
     }
+
+    /**
+     * Access the type of the referent.
+     *
+     * @return the pre-existing Class object (not null)
+     */
+    Class<? extends NativePhysicsObject> referentClass() {
+        return referentClass;
+    }
     // *************************************************************************
     // Object methods
 
@@ -34,11 +34,10 @@ package com.jme3.bullet;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
 import com.jme3.bullet.joints.PhysicsJoint;
 import com.jme3.bullet.objects.PhysicsSoftBody;
+import com.jme3.bullet.util.LongObjectMap;
 import com.jme3.math.Vector3f;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -63,8 +62,8 @@ public class PhysicsSoftSpace extends PhysicsSpace {
     /**
      * map soft-body IDs to added objects
      */
-    final private Map<Long, PhysicsSoftBody> softBodyMap
-            = new ConcurrentHashMap<>(64);
+    final private LongObjectMap<PhysicsSoftBody> softBodyMap
+            = new LongObjectMap<>(64);
     /**
      * parameters applied when soft bodies are added to this space
      */
@@ -127,12 +126,12 @@ public class PhysicsSoftSpace extends PhysicsSpace {
      * Enumerate soft bodies that have been added to this space and not yet
      * removed.
      *
-     * @return a new unmodifiable collection of pre-existing instances (not
-     * null)
+     * @return an unmodifiable snapshot of pre-existing instances, cached and
+     * shared until the next addition or removal (not null)
      */
     public Collection<PhysicsSoftBody> getSoftBodyList() {
         Collection<PhysicsSoftBody> result = softBodyMap.values();
-        return Collections.unmodifiableCollection(result);
+        return result;
     }
 
     /**
@@ -165,6 +164,7 @@ public class PhysicsSoftSpace extends PhysicsSpace {
      */
     @Override
     public void addCollisionObject(PhysicsCollisionObject pco) {
+        invalidateAabbs();
         if (pco instanceof PhysicsSoftBody) {
             addSoftBody((PhysicsSoftBody) pco);
         } else {
@@ -199,7 +199,7 @@ public class PhysicsSoftSpace extends PhysicsSpace {
     @Override
     public int countJoints() {
         // can't use super.countJoints() because it includes a failing assertion
-        Map<Long, PhysicsJoint> map = getJointMap();
+        LongObjectMap<PhysicsJoint> map = getJointIdMap();
         int result = map.size();
 
         return result;
@@ -238,6 +238,18 @@ public class PhysicsSoftSpace extends PhysicsSpace {
         }
     }
 
+    /**
+     * Append the collision objects in this space to the specified list,
+     * without creating a new collection.
+     *
+     * @param storeResult the list to append to (not null, modified)
+     */
+    @Override
+    void appendPcos(List<PhysicsCollisionObject> storeResult) {
+        super.appendPcos(storeResult);
+        storeResult.addAll(softBodyMap.values());
+    }
+
     /**
      * Enumerate collision objects that have been added to this space and not
      * yet removed.
@@ -272,6 +284,7 @@ public class PhysicsSoftSpace extends PhysicsSpace {
      */
     @Override
     public void removeCollisionObject(PhysicsCollisionObject pco) {
+        invalidateAabbs();
         if (pco instanceof PhysicsSoftBody) {
             removeSoftBody((PhysicsSoftBody) pco);
         } else {
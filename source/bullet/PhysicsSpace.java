@@ -32,7 +32,11 @@
 package com.jme3.bullet;
 
 import com.jme3.app.AppTask;
+import com.jme3.bullet.collision.CollisionEventPool;
 import com.jme3.bullet.collision.ContactListener;
+import com.jme3.bullet.collision.ContactReport;
+import com.jme3.bullet.collision.ContactReportListener;
+import com.jme3.bullet.collision.GhostOverlapListener;
 import com.jme3.bullet.collision.PersistentManifolds;
 import com.jme3.bullet.collision.PhysicsCollisionEvent;
 import com.jme3.bullet.collision.PhysicsCollisionListener;
@@ -44,25 +48,31 @@ import com.jme3.bullet.objects.PhysicsBody;
 import com.jme3.bullet.objects.PhysicsCharacter;
 import com.jme3.bullet.objects.PhysicsRigidBody;
 import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.bullet.util.LongObjectMap;
 import com.jme3.bullet.util.NativeLibrary;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Transform;
 import com.jme3.math.Vector3f;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.util.SafeArrayList;
+import com.simsilica.mathd.Quatd;
+import com.simsilica.mathd.Vec3d;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
 import java.util.ArrayDeque;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Deque;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
+import jme3utilities.math.MyVector3f;
 
 /**
  * A CollisionSpace to simulate dynamic physics, with its own
@@ -116,6 +126,12 @@ public class PhysicsSpace
      * index of the Z axis
      */
     final public static int AXIS_Z = 2;
+    /**
+     * number of elements per body written by {@link #copyRigidTransforms} and
+     * {@link #copyRigidTransformsDp}: 3 for the location followed by 4 for the
+     * orientation
+     */
+    final public static int TRANSFORM_STRIDE = 7;
     /**
      * message logger for this class
      */
@@ -124,6 +140,23 @@ public class PhysicsSpace
     // *************************************************************************
     // fields
 
+    /**
+     * pool of recycled collision events, or null if events aren't pooled
+     */
+    private CollisionEventPool eventPool = null;
+    /**
+     * columnar report of the contacts after the most recent step, or null if
+     * contact reports are disabled
+     */
+    private ContactReport contactReport = null;
+    /**
+     * governor that adapts sub-stepping to a time budget, or null if none
+     */
+    private volatile SubStepGovernor governor = null;
+    /**
+     * profiling statistics, or null if profiling is disabled
+     */
+    private volatile PhysicsSpaceStats stats = null;
     /**
      * contact-processed events not yet distributed to listeners
      */
@@ -142,16 +175,30 @@ public class PhysicsSpace
      * maximum time step (in seconds, &gt;0) ignored when maxSubSteps>0
      */
     private float maxTimeStep = 0.1f;
+    /**
+     * accuracy to restore when the sub-step governor is removed (in seconds,
+     * &gt;0)
+     */
+    private float ungovernedAccuracy = accuracy;
     /**
      * maximum number of time steps per frame, or 0 for a variable time step
      * (&ge;0)
      */
     private int maxSubSteps = 4;
+    /**
+     * maxSubSteps to restore when the sub-step governor is removed (&ge;0)
+     */
+    private int ungovernedMaxSubSteps = maxSubSteps;
     /**
      * list of registered listeners for immediate contact notifications
      */
     final private Collection<ContactListener> contactListeners
             = new SafeArrayList<>(ContactListener.class);
+    /**
+     * list of registered listeners for contact reports
+     */
+    final private Collection<ContactReportListener> contactReportListeners
+            = new SafeArrayList<>(ContactReportListener.class);
     /**
      * list of registered listeners for ongoing contacts
      */
@@ -162,6 +209,26 @@ public class PhysicsSpace
      */
     final private Collection<PhysicsCollisionListener> contactStartedListeners
             = new SafeArrayList<>(PhysicsCollisionListener.class);
+    /**
+     * true to generate one event per contact manifold after each step, false
+     * to generate one event per contact point from native callbacks
+     */
+    private boolean coalesceEvents = false;
+    /**
+     * per-manifold event generation, used while coalescing is enabled
+     */
+    final private ContactCoalescer coalescer = new ContactCoalescer();
+    /**
+     * list of registered listeners for ghost-object overlap transitions
+     */
+    final private Collection<GhostOverlapListener> overlapListeners
+            = new SafeArrayList<>(GhostOverlapListener.class);
+    /**
+     * overlap sets of the ghost objects in this space, updated after each
+     * step while any GhostOverlapListener is registered
+     */
+    final private GhostOverlapTracker overlapTracker
+            = new GhostOverlapTracker();
     /**
      * list of registered tick listeners
      */
@@ -170,23 +237,23 @@ public class PhysicsSpace
     /**
      * map character IDs to added objects
      */
-    final private Map<Long, PhysicsCharacter> characterMap
-            = new ConcurrentHashMap<>(64);
+    final private LongObjectMap<PhysicsCharacter> characterMap
+            = new LongObjectMap<>(64);
     /**
      * map joint IDs to added objects
      */
-    final private Map<Long, PhysicsJoint> jointMap
-            = new ConcurrentHashMap<>(64);
+    final private LongObjectMap<PhysicsJoint> jointMap
+            = new LongObjectMap<>(64);
     /**
      * map rigid-body IDs to added objects (including vehicles)
      */
-    final private Map<Long, PhysicsRigidBody> rigidMap
-            = new ConcurrentHashMap<>(64);
+    final private LongObjectMap<PhysicsRigidBody> rigidMap
+            = new LongObjectMap<>(64);
     /**
      * map vehicle-controller IDs to added objects
      */
-    final private Map<Long, PhysicsVehicle> vehicleMap
-            = new ConcurrentHashMap<>(64);
+    final private LongObjectMap<PhysicsVehicle> vehicleMap
+            = new LongObjectMap<>(64);
     /**
      * first-in/first-out (FIFO) queue of physics tasks
      */
@@ -360,6 +427,21 @@ public class PhysicsSpace
         contactListeners.add(listener);
     }
 
+    /**
+     * Register the specified listener for contact reports.
+     * <p>
+     * Listeners are notified only while contact reports are enabled.
+     *
+     * @see #useContactReport(boolean)
+     * @param listener the listener to register (not null, alias created)
+     */
+    public void addContactReportListener(ContactReportListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !contactReportListeners.contains(listener);
+
+        contactReportListeners.add(listener);
+    }
+
     /**
      * Add the specified PhysicsJoint to this space.
      *
@@ -420,6 +502,26 @@ public class PhysicsSpace
         contactProcessedListeners.add(listener);
     }
 
+    /**
+     * Register the specified listener for ghost-object overlap transitions.
+     * <p>
+     * While any such listener is registered, the space remembers which
+     * objects overlap each ghost object and, after each simulation step,
+     * reports only the objects that began or ceased to overlap.
+     *
+     * @see #useAabbOverlaps(boolean)
+     * @param listener the listener to register (not null, alias created)
+     */
+    public void addOverlapListener(GhostOverlapListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !overlapListeners.contains(listener);
+
+        if (overlapListeners.isEmpty()) {
+            overlapTracker.clear();
+        }
+        overlapListeners.add(listener);
+    }
+
     /**
      * Register the specified tick listener with this space.
      * <p>
@@ -438,6 +540,103 @@ public class PhysicsSpace
         tickListeners.add(listener);
     }
 
+    /**
+     * Apply central forces to many rigid bodies in a single call, for instance
+     * from {@link PhysicsTickListener#prePhysicsTick}. For each body, 3 floats
+     * are read from {@code forces}, starting at the buffer's current position:
+     * the force (x, y, z) in physics-space coordinates. Effective on the next
+     * time step, then cleared.
+     * <p>
+     * The entire batch is validated before any force is applied, so an
+     * invalid argument leaves every body unaffected. Each body still costs 3
+     * native calls (one of them to verify that it's added to this space),
+     * because the native library has no batched entry point.
+     *
+     * @param bodies the bodies to affect (not null, each added to this space)
+     * @param forces the force vectors (not null, finite, unaffected)
+     * @param count the number of bodies to process (&ge;0,
+     * &le;bodies.length)
+     */
+    public void applyCentralForces(PhysicsRigidBody[] bodies,
+            FloatBuffer forces, int count) {
+        validateBatch(bodies, count, false);
+        validateFloats(forces, MyVector3f.numAxes * count, "forces");
+
+        Vector3f tmpForce = new Vector3f();
+        int index = forces.position();
+        for (int i = 0; i < count; ++i) {
+            tmpForce.set(forces.get(index), forces.get(index + 1),
+                    forces.get(index + 2));
+            index += MyVector3f.numAxes;
+            bodies[i].applyCentralForce(tmpForce);
+        }
+    }
+
+    /**
+     * Apply central impulses to many rigid bodies in a single call. The layout
+     * and validation are the same as for
+     * {@link #applyCentralForces(com.jme3.bullet.objects.PhysicsRigidBody[],
+     * java.nio.FloatBuffer, int)}.
+     *
+     * @param bodies the bodies to affect (not null, each added to this space)
+     * @param impulses the impulse vectors (not null, finite, unaffected)
+     * @param count the number of bodies to process (&ge;0,
+     * &le;bodies.length)
+     */
+    public void applyCentralImpulses(PhysicsRigidBody[] bodies,
+            FloatBuffer impulses, int count) {
+        validateBatch(bodies, count, false);
+        validateFloats(impulses, MyVector3f.numAxes * count, "impulses");
+
+        Vector3f tmpImpulse = new Vector3f();
+        int index = impulses.position();
+        for (int i = 0; i < count; ++i) {
+            tmpImpulse.set(impulses.get(index), impulses.get(index + 1),
+                    impulses.get(index + 2));
+            index += MyVector3f.numAxes;
+            bodies[i].applyCentralImpulse(tmpImpulse);
+        }
+    }
+
+    /**
+     * Apply off-center impulses to many rigid bodies in a single call. For
+     * each body, 3 floats are read from {@code impulses} and 3 from
+     * {@code offsets}, starting at each buffer's current position. The offsets
+     * are relative to each body's center of mass, in physics-space
+     * coordinates. The entire batch is validated before any impulse is
+     * applied.
+     *
+     * @param bodies the bodies to affect (not null, each added to this space)
+     * @param impulses the impulse vectors (not null, finite, unaffected)
+     * @param offsets the locations to apply the impulses (not null, finite,
+     * unaffected)
+     * @param count the number of bodies to process (&ge;0,
+     * &le;bodies.length)
+     */
+    public void applyImpulses(PhysicsRigidBody[] bodies, FloatBuffer impulses,
+            FloatBuffer offsets, int count) {
+        validateBatch(bodies, count, false);
+        int numFloats = MyVector3f.numAxes * count;
+        validateFloats(impulses, numFloats, "impulses");
+        validateFloats(offsets, numFloats, "offsets");
+
+        Vector3f tmpImpulse = new Vector3f();
+        Vector3f tmpOffset = new Vector3f();
+        int impulseIndex = impulses.position();
+        int offsetIndex = offsets.position();
+        for (int i = 0; i < count; ++i) {
+            tmpImpulse.set(impulses.get(impulseIndex),
+                    impulses.get(impulseIndex + 1),
+                    impulses.get(impulseIndex + 2));
+            tmpOffset.set(offsets.get(offsetIndex),
+                    offsets.get(offsetIndex + 1),
+                    offsets.get(offsetIndex + 2));
+            impulseIndex += MyVector3f.numAxes;
+            offsetIndex += MyVector3f.numAxes;
+            bodies[i].applyImpulse(tmpImpulse, tmpOffset);
+        }
+    }
+
     /**
      * Test whether the specified PhysicsJoint is added to this space.
      *
@@ -451,6 +650,140 @@ public class PhysicsSpace
         return result;
     }
 
+    /**
+     * Copy the physics characters that are added to this space to the
+     * specified list, without creating a new collection.
+     *
+     * @param storeResult the list to fill (not null, cleared, then appended)
+     */
+    void copyCharacters(List<PhysicsCharacter> storeResult) {
+        characterMap.values(storeResult);
+    }
+
+    /**
+     * Copy the rigid bodies (including vehicles) that are added to this space
+     * to the specified list, without creating a new collection.
+     *
+     * @param storeResult the list to fill (not null, cleared, then appended)
+     */
+    void copyRigidBodies(List<PhysicsRigidBody> storeResult) {
+        rigidMap.values(storeResult);
+    }
+
+    /**
+     * Copy the location and orientation of each rigid body in this space
+     * (including vehicles) to the specified buffer, in a single pass. For each
+     * body copied, 7 floats are written, starting at the buffer's current
+     * position: the location (x, y, z) followed by the orientation
+     * (x, y, z, w), both in physics-space coordinates. The body's native ID is
+     * written to the corresponding element of {@code storeIds}.
+     * <p>
+     * Each transform is read from the body's motion state, so it reflects
+     * interpolation, like the transforms that a RigidBodyControl applies to
+     * its spatial. The motion state's dirty flag isn't affected.
+     * <p>
+     * Copying stops when either storage is full, so compare the return value
+     * with {@link #countRigidBodies()} to detect truncation.
+     * <p>
+     * Cost: the loop runs in Java and makes 2 native calls per body copied,
+     * plus 1 per body tested when {@code activeOnly} is true. It saves the
+     * per-body overhead of separate getters, not the native calls themselves.
+     *
+     * @param storeTransforms storage for the transforms (not null, direct,
+     * position advanced)
+     * @param storeIds storage for the native IDs (not null, modified)
+     * @param activeOnly true to copy only active bodies, false to copy all
+     * bodies
+     * @return the number of bodies copied (&ge;0)
+     */
+    public int copyRigidTransforms(FloatBuffer storeTransforms,
+            long[] storeIds, boolean activeOnly) {
+        Validate.nonNull(storeTransforms, "store transforms");
+        Validate.nonNull(storeIds, "store IDs");
+        assert storeTransforms.isDirect();
+
+        Transform tmpTransform = new Transform();
+        Vector3f tmpLocation = tmpTransform.getTranslation(); // alias
+        Quaternion tmpOrientation = tmpTransform.getRotation(); // alias
+        int maxBodies = Math.min(storeIds.length,
+                storeTransforms.remaining() / TRANSFORM_STRIDE);
+        List<PhysicsRigidBody> bodies = rigidMap.values();
+        int numBodies = bodies.size();
+        int numCopied = 0;
+        for (int i = 0; i < numBodies && numCopied < maxBodies; ++i) {
+            PhysicsRigidBody body = bodies.get(i);
+            if (activeOnly && !body.isActive()) {
+                continue;
+            }
+
+            body.getMotionState().physicsTransform(tmpTransform);
+            storeTransforms.put(tmpLocation.x)
+                    .put(tmpLocation.y)
+                    .put(tmpLocation.z)
+                    .put(tmpOrientation.getX())
+                    .put(tmpOrientation.getY())
+                    .put(tmpOrientation.getZ())
+                    .put(tmpOrientation.getW());
+            storeIds[numCopied] = body.nativeId();
+            ++numCopied;
+        }
+
+        return numCopied;
+    }
+
+    /**
+     * Copy the location and orientation of each rigid body in this space
+     * (including vehicles) to the specified buffer, in a single pass, with
+     * double precision. The layout is the same as for
+     * {@link #copyRigidTransforms(java.nio.FloatBuffer, long[], boolean)}.
+     * <p>
+     * Unlike the single-precision method, this one reads each body's own
+     * transform, because motion states don't provide double-precision
+     * accessors, so it doesn't reflect interpolation. It makes 2 native calls
+     * per body copied, plus 1 per body tested when {@code activeOnly} is true.
+     *
+     * @param storeTransforms storage for the transforms (not null, direct,
+     * position advanced)
+     * @param storeIds storage for the native IDs (not null, modified)
+     * @param activeOnly true to copy only active bodies, false to copy all
+     * bodies
+     * @return the number of bodies copied (&ge;0)
+     */
+    public int copyRigidTransformsDp(DoubleBuffer storeTransforms,
+            long[] storeIds, boolean activeOnly) {
+        Validate.nonNull(storeTransforms, "store transforms");
+        Validate.nonNull(storeIds, "store IDs");
+        assert storeTransforms.isDirect();
+
+        Vec3d tmpLocation = new Vec3d();
+        Quatd tmpOrientation = new Quatd();
+        int maxBodies = Math.min(storeIds.length,
+                storeTransforms.remaining() / TRANSFORM_STRIDE);
+        List<PhysicsRigidBody> bodies = rigidMap.values();
+        int numBodies = bodies.size();
+        int numCopied = 0;
+        for (int i = 0; i < numBodies && numCopied < maxBodies; ++i) {
+            PhysicsRigidBody body = bodies.get(i);
+            if (activeOnly && !body.isActive()) {
+                continue;
+            }
+
+            body.getPhysicsLocationDp(tmpLocation);
+            body.getPhysicsRotationDp(tmpOrientation);
+            storeTransforms.put(tmpLocation.x)
+                    .put(tmpLocation.y)
+                    .put(tmpLocation.z)
+                    .put(tmpOrientation.x)
+                    .put(tmpOrientation.y)
+                    .put(tmpOrientation.z)
+                    .put(tmpOrientation.w);
+            storeIds[numCopied] = body.nativeId();
+            ++numCopied;
+        }
+
+        return numCopied;
+    }
+
     /**
      * Count how many collision listeners are registered with this space.
      *
@@ -508,14 +841,49 @@ public class PhysicsSpace
     }
 
     /**
-     * Distribute queued collision events to registered listeners.
+     * Create a collision event, obtaining it from the pool if events are
+     * pooled.
+     *
+     * @param pcoA the first involved object (not null)
+     * @param pcoB the 2nd involved object (not null)
+     * @param pointId the native ID of the {@code btManifoldPoint} (not zero)
+     * @return an event that's in use (not null)
+     */
+    PhysicsCollisionEvent createEvent(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB, long pointId) {
+        PhysicsCollisionEvent result;
+        if (eventPool == null) {
+            result = new PhysicsCollisionEvent(pcoA, pcoB, pointId);
+            PhysicsSpaceStats profile = stats;
+            if (profile != null) {
+                profile.addEventAllocations(1L);
+            }
+        } else {
+            result = eventPool.obtain(pcoA, pcoB, pointId);
+        }
+
+        return result;
+    }
+
+    /**
+     * Distribute queued collision events to registered listeners. If events
+     * are pooled, each event is returned to the pool after all listeners have
+     * been notified.
      */
     public void distributeEvents() {
+        PhysicsSpaceStats profile = stats;
+        long startNanos = (profile == null) ? 0L : System.nanoTime();
+        int numEvents = contactStartedEvents.size()
+                + contactProcessedEvents.size() + coalescer.countPending();
+
         while (!contactStartedEvents.isEmpty()) {
             PhysicsCollisionEvent event = contactStartedEvents.pop();
             for (PhysicsCollisionListener listener : contactStartedListeners) {
                 listener.collision(event);
             }
+            if (eventPool != null) {
+                eventPool.free(event);
+            }
         }
 
         while (!contactProcessedEvents.isEmpty()) {
@@ -524,6 +892,18 @@ public class PhysicsSpace
                     : contactProcessedListeners) {
                 listener.collision(event);
             }
+            if (eventPool != null) {
+                eventPool.free(event);
+            }
+        }
+
+        coalescer.distribute(contactStartedListeners,
+                contactProcessedListeners, eventPool);
+
+        if (profile != null) {
+            long elapsed = System.nanoTime() - startNanos;
+            profile.add(PhysicsSpaceStats.Phase.EVENT_DISTRIBUTION, elapsed,
+                    numEvents);
         }
     }
 
@@ -556,6 +936,33 @@ public class PhysicsSpace
         return task;
     }
 
+    /**
+     * Find the physics character with the specified native ID, provided it's
+     * added to this space. Doesn't involve native code.
+     *
+     * @param characterId the native ID of the character
+     * @return the pre-existing instance, or null if not added
+     * @see #findRigidBody(long)
+     */
+    public PhysicsCharacter findCharacter(long characterId) {
+        PhysicsCharacter result = characterMap.get(characterId);
+        return result;
+    }
+
+    /**
+     * Find the rigid body (including vehicles) with the specified native ID,
+     * provided it's added to this space. Unlike
+     * {@link PhysicsCollisionObject#findInstance(long)}, this doesn't involve
+     * native code.
+     *
+     * @param bodyId the native ID of the body
+     * @return the pre-existing instance, or null if not added
+     */
+    public PhysicsRigidBody findRigidBody(long bodyId) {
+        PhysicsRigidBody result = rigidMap.get(bodyId);
+        return result;
+    }
+
     /**
      * Read the accuracy: the time step used when maxSubSteps&gt;0.
      *
@@ -569,12 +976,21 @@ public class PhysicsSpace
      * Enumerate physics characters that have been added to this space and not
      * yet removed.
      *
-     * @return a new unmodifiable collection of pre-existing instances (not
-     * null)
+     * @return an unmodifiable snapshot of pre-existing instances, cached and
+     * shared until the next addition or removal (not null)
      */
     public Collection<PhysicsCharacter> getCharacterList() {
         Collection<PhysicsCharacter> result = characterMap.values();
-        return Collections.unmodifiableCollection(result);
+        return result;
+    }
+
+    /**
+     * Access the sub-step governor of this space.
+     *
+     * @return the pre-existing instance, or null if none
+     */
+    public SubStepGovernor getGovernor() {
+        return governor;
     }
 
     /**
@@ -596,12 +1012,44 @@ public class PhysicsSpace
      * Enumerate physics joints that have been added to this space and not yet
      * removed.
      *
-     * @return a new unmodifiable collection of pre-existing instances (not
-     * null)
+     * @return an unmodifiable snapshot of pre-existing instances, cached and
+     * shared until the next addition or removal (not null)
      */
     public Collection<PhysicsJoint> getJointList() {
         Collection<PhysicsJoint> result = jointMap.values();
-        return Collections.unmodifiableCollection(result);
+        return result;
+    }
+
+    /**
+     * Access the columnar report of the contacts that existed after the most
+     * recent simulation step.
+     *
+     * @return the pre-existing instance, or null if contact reports are
+     * disabled
+     */
+    public ContactReport getContactReport() {
+        return contactReport;
+    }
+
+    /**
+     * Access the pool used to recycle collision events, for instance to enable
+     * its debug mode.
+     *
+     * @return the pre-existing instance, or null if events aren't pooled
+     */
+    public CollisionEventPool getEventPool() {
+        return eventPool;
+    }
+
+    /**
+     * Return the minimum simulated time between coalesced events for an
+     * ongoing contact.
+     *
+     * @return the interval (in seconds, &ge;0)
+     */
+    public float getOngoingEventInterval() {
+        float result = coalescer.ongoingInterval();
+        return result;
     }
 
     /**
@@ -618,12 +1066,12 @@ public class PhysicsSpace
      * Enumerate rigid bodies (including vehicles) that have been added to this
      * space and not yet removed.
      *
-     * @return a new unmodifiable collection of pre-existing instances (not
-     * null)
+     * @return an unmodifiable snapshot of pre-existing instances, cached and
+     * shared until the next addition or removal (not null)
      */
     public Collection<PhysicsRigidBody> getRigidBodyList() {
         Collection<PhysicsRigidBody> result = rigidMap.values();
-        return Collections.unmodifiableCollection(result);
+        return result;
     }
 
     /**
@@ -654,16 +1102,75 @@ public class PhysicsSpace
         return solverType;
     }
 
+    /**
+     * Access the profiling statistics of this space.
+     *
+     * @return the pre-existing instance, or null if profiling is disabled
+     * @see #setProfiling(boolean)
+     */
+    public PhysicsSpaceStats getStats() {
+        return stats;
+    }
+
     /**
      * Enumerate physics vehicles that have been added to this space and not yet
      * removed.
      *
-     * @return a new unmodifiable collection of pre-existing instances (not
-     * null)
+     * @return an unmodifiable snapshot of pre-existing instances, cached and
+     * shared until the next addition or removal (not null)
      */
     public Collection<PhysicsVehicle> getVehicleList() {
         Collection<PhysicsVehicle> result = vehicleMap.values();
-        return Collections.unmodifiableCollection(result);
+        return result;
+    }
+
+    /**
+     * Test whether this space collects profiling statistics.
+     *
+     * @return true if profiling, otherwise false
+     */
+    public boolean isProfiling() {
+        boolean result = (stats != null);
+        return result;
+    }
+
+    /**
+     * Test whether ghost-object overlaps are tracked using bounding boxes.
+     *
+     * @return true if tracking bounding boxes, false if tracking contacts
+     */
+    public boolean isUsingAabbOverlaps() {
+        boolean result = overlapTracker.isAabbOnly();
+        return result;
+    }
+
+    /**
+     * Test whether collision events are coalesced per contact manifold.
+     *
+     * @return true if coalescing, otherwise false
+     */
+    public boolean isUsingCoalescedEvents() {
+        return coalesceEvents;
+    }
+
+    /**
+     * Test whether a contact report is filled after each simulation step.
+     *
+     * @return true if enabled, otherwise false
+     */
+    public boolean isUsingContactReport() {
+        boolean result = (contactReport != null);
+        return result;
+    }
+
+    /**
+     * Test whether collision events are recycled through a pool.
+     *
+     * @return true if pooled, otherwise false
+     */
+    public boolean isUsingPooledEvents() {
+        boolean result = (eventPool != null);
+        return result;
     }
 
     /**
@@ -752,6 +1259,9 @@ public class PhysicsSpace
 
         boolean success = contactStartedListeners.remove(listener);
         assert success;
+        if (!contactProcessedListeners.contains(listener)) {
+            coalescer.removeThresholds(listener);
+        }
     }
 
     /**
@@ -767,6 +1277,20 @@ public class PhysicsSpace
         assert success;
     }
 
+    /**
+     * De-register the specified listener for contact reports.
+     *
+     * @see #addContactReportListener(
+     * com.jme3.bullet.collision.ContactReportListener)
+     * @param listener the listener to de-register (not null)
+     */
+    public void removeContactReportListener(ContactReportListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = contactReportListeners.remove(listener);
+        assert success;
+    }
+
     /**
      * Remove the specified PhysicsJoint from this space.
      *
@@ -808,6 +1332,23 @@ public class PhysicsSpace
 
         boolean success = contactProcessedListeners.remove(listener);
         assert success;
+        if (!contactStartedListeners.contains(listener)) {
+            coalescer.removeThresholds(listener);
+        }
+    }
+
+    /**
+     * De-register the specified listener for ghost-object overlap transitions.
+     *
+     * @see #addOverlapListener(
+     * com.jme3.bullet.collision.GhostOverlapListener)
+     * @param listener the listener to de-register (not null)
+     */
+    public void removeOverlapListener(GhostOverlapListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = overlapListeners.remove(listener);
+        assert success;
     }
 
     /**
@@ -836,6 +1377,54 @@ public class PhysicsSpace
         this.accuracy = accuracy;
     }
 
+    /**
+     * Alter the thresholds a coalesced collision event must reach before it's
+     * passed to the specified listener. Thresholds apply only while events
+     * are coalesced, and they're forgotten when the listener is de-registered.
+     *
+     * @see #useCoalescedEvents(boolean)
+     * @param listener the listener to configure (not null, alias created)
+     * @param minImpulse the minimum total impulse applied at the contact
+     * points during the step (&ge;0, default=0)
+     * @param minSpeed the minimum speed at which the objects approached each
+     * other along the contact normal, estimated from the applied impulse and
+     * the objects' masses and inertias (in physics-space units per second,
+     * &ge;0, default=0)
+     */
+    public void setEventThresholds(PhysicsCollisionListener listener,
+            float minImpulse, float minSpeed) {
+        Validate.nonNull(listener, "listener");
+        Validate.nonNegative(minImpulse, "min impulse");
+        Validate.nonNegative(minSpeed, "min speed");
+
+        coalescer.setThresholds(listener, minImpulse, minSpeed);
+    }
+
+    /**
+     * Replace the sub-step governor of this space. While a governor is set,
+     * {@link #update(float)} lets it choose the accuracy and maxSubSteps for
+     * each update. The accuracy and maxSubSteps in effect when a governor is
+     * first set are restored when the governor is removed.
+     * <p>
+     * Should be invoked only when the space isn't being updated, for instance
+     * from a physics-tick listener or between updates.
+     *
+     * @param governor the desired governor (alias created) or null for none
+     * (default=null)
+     */
+    public void setGovernor(SubStepGovernor governor) {
+        SubStepGovernor oldGovernor = this.governor;
+        if (oldGovernor == null && governor != null) {
+            this.ungovernedAccuracy = accuracy;
+            this.ungovernedMaxSubSteps = maxSubSteps;
+        }
+        this.governor = governor;
+        if (oldGovernor != null && governor == null) {
+            setAccuracy(ungovernedAccuracy);
+            setMaxSubSteps(ungovernedMaxSubSteps);
+        }
+    }
+
     /**
      * Alter the gravitational acceleration acting on newly-added bodies.
      * <p>
@@ -852,6 +1441,67 @@ public class PhysicsSpace
         setGravity(spaceId, gravity);
     }
 
+    /**
+     * Reposition and reorient many kinematic rigid bodies in a single call,
+     * for instance from {@link PhysicsTickListener#prePhysicsTick}. For each
+     * body, 7 floats are read from {@code transforms}, starting at the
+     * buffer's current position, using the layout written by
+     * {@link #copyRigidTransforms(java.nio.FloatBuffer, long[], boolean)}.
+     * The entire batch is validated before any body is moved.
+     *
+     * @param bodies the bodies to move (not null, each added to this space
+     * and in kinematic mode)
+     * @param transforms the desired transforms (not null, finite, unaffected)
+     * @param count the number of bodies to process (&ge;0,
+     * &le;bodies.length)
+     */
+    public void setKinematicTransforms(PhysicsRigidBody[] bodies,
+            FloatBuffer transforms, int count) {
+        validateBatch(bodies, count, true);
+        validateFloats(transforms, TRANSFORM_STRIDE * count, "transforms");
+
+        Vector3f tmpLocation = new Vector3f();
+        Quaternion tmpOrientation = new Quaternion();
+        int index = transforms.position();
+        for (int i = 0; i < count; ++i) {
+            tmpLocation.set(transforms.get(index), transforms.get(index + 1),
+                    transforms.get(index + 2));
+            tmpOrientation.set(transforms.get(index + 3),
+                    transforms.get(index + 4), transforms.get(index + 5),
+                    transforms.get(index + 6));
+            index += TRANSFORM_STRIDE;
+            bodies[i].setPhysicsLocation(tmpLocation);
+            bodies[i].setPhysicsRotation(tmpOrientation);
+        }
+    }
+
+    /**
+     * Alter the linear velocities of many rigid bodies in a single call. The
+     * layout and validation are the same as for
+     * {@link #applyCentralForces(com.jme3.bullet.objects.PhysicsRigidBody[],
+     * java.nio.FloatBuffer, int)}.
+     *
+     * @param bodies the bodies to affect (not null, each added to this space)
+     * @param velocities the desired velocities (in physics-space units per
+     * second, not null, finite, unaffected)
+     * @param count the number of bodies to process (&ge;0,
+     * &le;bodies.length)
+     */
+    public void setLinearVelocities(PhysicsRigidBody[] bodies,
+            FloatBuffer velocities, int count) {
+        validateBatch(bodies, count, false);
+        validateFloats(velocities, MyVector3f.numAxes * count, "velocities");
+
+        Vector3f tmpVelocity = new Vector3f();
+        int index = velocities.position();
+        for (int i = 0; i < count; ++i) {
+            tmpVelocity.set(velocities.get(index),
+                    velocities.get(index + 1), velocities.get(index + 2));
+            index += MyVector3f.numAxes;
+            bodies[i].setLinearVelocity(tmpVelocity);
+        }
+    }
+
     /**
      * Alter the maximum number of simulation steps per frame.
      * <p>
@@ -883,6 +1533,37 @@ public class PhysicsSpace
         this.maxTimeStep = maxTimeStep;
     }
 
+    /**
+     * Alter the minimum simulated time between coalesced events for an
+     * ongoing contact, which limits the rate of events for each pair of
+     * objects in contact.
+     *
+     * @see #useCoalescedEvents(boolean)
+     * @param interval the desired interval (in seconds, &ge;0, default=0)
+     */
+    public void setOngoingEventInterval(float interval) {
+        Validate.nonNegative(interval, "interval");
+        coalescer.setOngoingInterval(interval);
+    }
+
+    /**
+     * Alter whether this space collects profiling statistics: time spent in
+     * each phase of an update, callback and event counts, and allocations.
+     * While enabled, a Java Flight Recorder event is also emitted for each
+     * update, provided the JVM supports it and a recording enables it. While
+     * disabled, the cost is a null check per callback.
+     *
+     * @param setting true to enable profiling, false to disable it
+     * (default=false)
+     */
+    public void setProfiling(boolean setting) {
+        if (setting && stats == null) {
+            this.stats = new PhysicsSpaceStats();
+        } else if (!setting) {
+            this.stats = null;
+        }
+    }
+
     /**
      * Alter the number of iterations used by the contact-and-constraint solver,
      * for compatibility with the jme3-bullet library.
@@ -898,7 +1579,8 @@ public class PhysicsSpace
 
     /**
      * Update this space. Can be used to single-step the physics simulation, if
-     * maxSubSteps is set to 0 or 1.
+     * maxSubSteps is set to 0 or 1. If a sub-step governor is set, it chooses
+     * the accuracy and maxSubSteps.
      *
      * @see #setMaxSubSteps(int)
      * @param timeInterval the time interval to simulate (in seconds, &ge;0)
@@ -906,6 +1588,12 @@ public class PhysicsSpace
     public void update(float timeInterval) {
         assert Validate.nonNegative(timeInterval, "time interval");
 
+        SubStepGovernor activeGovernor = governor;
+        if (activeGovernor != null) {
+            activeGovernor.update(this, timeInterval);
+            return;
+        }
+
         float interval;
         if (maxSubSteps == 0) {
             interval = Math.min(timeInterval, maxTimeStep);
@@ -929,10 +1617,10 @@ public class PhysicsSpace
 
         boolean haveImmediate = !contactListeners.isEmpty();
         boolean doEnded = haveImmediate;
-        boolean doProcessed
-                = haveImmediate || !contactProcessedListeners.isEmpty();
-        boolean doStarted
-                = haveImmediate || !contactStartedListeners.isEmpty();
+        boolean doProcessed = haveImmediate || (!coalesceEvents
+                && !contactProcessedListeners.isEmpty());
+        boolean doStarted = haveImmediate || (!coalesceEvents
+                && !contactStartedListeners.isEmpty());
         update(timeInterval, maxSteps, doEnded, doProcessed, doStarted);
     }
 
@@ -956,8 +1644,103 @@ public class PhysicsSpace
 
         long spaceId = nativeId();
         assert accuracy > 0f : accuracy;
-        stepSimulation(spaceId, timeInterval, maxSteps, accuracy, doEnded,
-                doProcessed, doStarted);
+        PhysicsSpaceStats profile = stats;
+        if (profile == null) {
+            stepSimulation(spaceId, timeInterval, maxSteps, accuracy, doEnded,
+                    doProcessed, doStarted);
+        } else {
+            CollisionEventPool pool = eventPool;
+            long poolAllocations = (pool == null) ? 0L : pool.countAllocated();
+            profile.beginUpdate();
+            stepSimulation(spaceId, timeInterval, maxSteps, accuracy, doEnded,
+                    doProcessed, doStarted);
+            if (pool != null) {
+                long delta = pool.countAllocated() - poolAllocations;
+                profile.addEventAllocations(Math.max(0L, delta));
+            }
+            profile.endUpdate();
+        }
+    }
+
+    /**
+     * Alter how ghost-object overlaps are tracked for GhostOverlapListeners.
+     * <p>
+     * Bounding-box tracking reads each ghost's broadphase pair cache, which
+     * costs one JNI upcall per overlapping object. Contact tracking also reads
+     * the pair caches, and if any ghost's cache isn't empty, it walks the
+     * contact manifolds after the step and counts only pairs with at least one
+     * contact point.
+     *
+     * @param setting true to track overlaps of bounding boxes, false to track
+     * only overlaps with contact points (default=true)
+     */
+    public void useAabbOverlaps(boolean setting) {
+        overlapTracker.setAabbOnly(setting);
+    }
+
+    /**
+     * Alter whether collision events are coalesced per contact manifold.
+     * <p>
+     * While enabled, no per-point events are queued. Instead, after each
+     * simulation step, the space walks its contact manifolds and queues at
+     * most one event per manifold: a started event when the manifold first
+     * has points, then ongoing events no more often than the ongoing-event
+     * interval. Each event refers to the point with the largest applied
+     * impulse, and events that reach no listener's thresholds are dropped
+     * before they're created.
+     *
+     * @see #setEventThresholds(
+     * com.jme3.bullet.collision.PhysicsCollisionListener, float, float)
+     * @see #setOngoingEventInterval(float)
+     * @param setting true to coalesce events, false to generate an event for
+     * each contact point (default=false)
+     */
+    public void useCoalescedEvents(boolean setting) {
+        if (setting && !coalesceEvents) {
+            coalescer.clear();
+        }
+        this.coalesceEvents = setting;
+    }
+
+    /**
+     * Alter whether a contact report is filled after each simulation step.
+     * <p>
+     * While enabled, the space walks all its contact manifolds once per step,
+     * copies every contact point into a reusable {@link ContactReport}, and
+     * then notifies registered ContactReportListeners. This is independent of
+     * the per-point collision events.
+     * <p>
+     * Each step then costs 4 native calls per manifold (including the
+     * manifold lookup) plus 7 per contact point, whether or not any listener
+     * is registered. See {@link ContactReport}.
+     *
+     * @param setting true to enable contact reports, false to disable them
+     * (default=false)
+     */
+    public void useContactReport(boolean setting) {
+        if (setting && contactReport == null) {
+            this.contactReport = new ContactReport();
+        } else if (!setting) {
+            this.contactReport = null;
+        }
+    }
+
+    /**
+     * Alter whether collision events are recycled through a pool.
+     * <p>
+     * While pooling is enabled, each event passed to a
+     * PhysicsCollisionListener is valid only until {@code collision()}
+     * returns, so listeners must not retain references to events.
+     *
+     * @param setting true to recycle events, false to allocate a new event
+     * for each contact point (default=false)
+     */
+    public void usePooledEvents(boolean setting) {
+        if (setting && eventPool == null) {
+            this.eventPool = new CollisionEventPool();
+        } else if (!setting) {
+            this.eventPool = null;
+        }
     }
 
     /**
@@ -974,14 +1757,26 @@ public class PhysicsSpace
     // new protected methods
 
     /**
-     * Access the map from native IDs to physics joints.
+     * Access the map from native IDs to physics joints, keyed by primitive
+     * longs.
      *
-     * @return the pre-existing instance
+     * @return the pre-existing instance (not null)
      */
-    protected Map<Long, PhysicsJoint> getJointMap() {
+    protected LongObjectMap<PhysicsJoint> getJointIdMap() {
         return jointMap;
     }
 
+    /**
+     * Access the map from native IDs to physics joints. Each access boxes its
+     * key; prefer {@link #getJointIdMap()} in new code.
+     *
+     * @return a live view of the pre-existing map (not null)
+     */
+    protected Map<Long, PhysicsJoint> getJointMap() {
+        Map<Long, PhysicsJoint> result = jointMap.asMap();
+        return result;
+    }
+
     /**
      * Determine the type of the underlying btDynamicsWorld.
      *
@@ -1046,6 +1841,7 @@ public class PhysicsSpace
     @Override
     public void addCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
+        invalidateAabbs();
 
         if (pco instanceof PhysicsRigidBody) {
             addRigidBody((PhysicsRigidBody) pco);
@@ -1115,6 +1911,19 @@ public class PhysicsSpace
         }
     }
 
+    /**
+     * Append the collision objects in this space to the specified list,
+     * without creating a new collection.
+     *
+     * @param storeResult the list to append to (not null, modified)
+     */
+    @Override
+    void appendPcos(List<PhysicsCollisionObject> storeResult) {
+        super.appendPcos(storeResult);
+        storeResult.addAll(rigidMap.values());
+        storeResult.addAll(characterMap.values());
+    }
+
     /**
      * Enumerate collision objects that have been added to this space and not
      * yet removed.
@@ -1145,6 +1954,32 @@ public class PhysicsSpace
         return result;
     }
 
+    /**
+     * Determine whether the specified collision objects should collide,
+     * timing the decision if profiling is enabled.
+     *
+     * @param pcoA the first collision object (not null)
+     * @param pcoB the 2nd collision object (not null)
+     * @return true to simulate collisions between pcoA and pcoB, false to
+     * ignore such collisions during this timestep
+     */
+    @Override
+    public boolean needsCollision(
+            PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB) {
+        PhysicsSpaceStats profile = stats;
+        if (profile == null) {
+            boolean result = super.needsCollision(pcoA, pcoB);
+            return result;
+        }
+
+        long startNanos = System.nanoTime();
+        boolean result = super.needsCollision(pcoA, pcoB);
+        long elapsed = System.nanoTime() - startNanos;
+        profile.add(PhysicsSpaceStats.Phase.COLLISION_FILTER, elapsed, 1);
+
+        return result;
+    }
+
     /**
      * Remove the specified object from this space. For compatibility with the
      * jme3-bullet library.
@@ -1178,6 +2013,7 @@ public class PhysicsSpace
     @Override
     public void removeCollisionObject(PhysicsCollisionObject pco) {
         Validate.nonNull(pco, "collision object");
+        invalidateAabbs();
 
         if (pco instanceof PhysicsRigidBody) {
             removeRigidBody((PhysicsRigidBody) pco);
@@ -1199,9 +2035,17 @@ public class PhysicsSpace
      */
     @Override
     public void onContactEnded(long manifoldId) {
+        PhysicsSpaceStats profile = stats;
+        long startNanos = (profile == null) ? 0L : System.nanoTime();
+
         for (ContactListener listener : contactListeners) {
             listener.onContactEnded(manifoldId);
         }
+
+        if (profile != null) {
+            long elapsed = System.nanoTime() - startNanos;
+            profile.add(PhysicsSpaceStats.Phase.CONTACT_CALLBACKS, elapsed, 1);
+        }
     }
 
     /**
@@ -1216,14 +2060,23 @@ public class PhysicsSpace
     @Override
     public void onContactProcessed(PhysicsCollisionObject pcoA,
             PhysicsCollisionObject pcoB, long pointId) {
+        PhysicsSpaceStats profile = stats;
+        long startNanos = (profile == null) ? 0L : System.nanoTime();
+
         for (ContactListener listener : contactListeners) {
             listener.onContactProcessed(pcoA, pcoB, pointId);
         }
 
-        PhysicsCollisionEvent event
-                = new PhysicsCollisionEvent(pcoA, pcoB, pointId);
-        // Queue the event to be handled later by distributeEvents().
-        contactProcessedEvents.add(event);
+        if (!coalesceEvents) {
+            PhysicsCollisionEvent event = createEvent(pcoA, pcoB, pointId);
+            // Queue the event to be handled later by distributeEvents().
+            contactProcessedEvents.add(event);
+        }
+
+        if (profile != null) {
+            long elapsed = System.nanoTime() - startNanos;
+            profile.add(PhysicsSpaceStats.Phase.CONTACT_CALLBACKS, elapsed, 1);
+        }
     }
 
     /**
@@ -1235,29 +2088,23 @@ public class PhysicsSpace
      */
     @Override
     public void onContactStarted(long manifoldId) {
+        PhysicsSpaceStats profile = stats;
+        long startNanos = (profile == null) ? 0L : System.nanoTime();
+
         for (ContactListener listener : contactListeners) {
             listener.onContactStarted(manifoldId);
         }
 
-        int numPoints = PersistentManifolds.countPoints(manifoldId);
-        if (numPoints == 0) {
-            return;
+        if (!coalesceEvents) {
+            int numPoints = PersistentManifolds.countPoints(manifoldId);
+            if (numPoints > 0) {
+                queueStartedEvents(manifoldId, numPoints);
+            }
         }
 
-        long bodyAId = PersistentManifolds.getBodyAId(manifoldId);
-        PhysicsCollisionObject pcoA
-                = PhysicsCollisionObject.findInstance(bodyAId);
-        long bodyBId = PersistentManifolds.getBodyBId(manifoldId);
-        PhysicsCollisionObject pcoB
-                = PhysicsCollisionObject.findInstance(bodyBId);
-
-        for (int i = 0; i < numPoints; ++i) {
-            long pointId = PersistentManifolds.getPointId(manifoldId, i);
-            PhysicsCollisionEvent event
-                    = new PhysicsCollisionEvent(pcoA, pcoB, pointId);
-
-            // Queue the event to be handled later by distributeEvents().
-            contactStartedEvents.add(event);
+        if (profile != null) {
+            long elapsed = System.nanoTime() - startNanos;
+            profile.add(PhysicsSpaceStats.Phase.CONTACT_CALLBACKS, elapsed, 1);
         }
     }
     // *************************************************************************
@@ -1364,15 +2211,86 @@ public class PhysicsSpace
         return result;
     }
 
+    /**
+     * Refill the contact report from the current contact manifolds and notify
+     * the registered report listeners.
+     */
+    private void fillContactReport() {
+        contactReport.clear();
+
+        long spaceId = nativeId();
+        int numManifolds = countManifolds(spaceId);
+        for (int index = 0; index < numManifolds; ++index) {
+            long manifoldId = getManifoldByIndex(spaceId, index);
+            contactReport.addManifold(manifoldId);
+        }
+
+        for (ContactReportListener listener : contactReportListeners) {
+            listener.contactReport(this, contactReport);
+        }
+    }
+
     /**
      * Callback invoked (by native code) just after the physics is stepped.
      *
      * @param timeStep the time per simulation step (in seconds, &ge;0)
      */
     private void postTick_native(float timeStep) {
+        invalidateMovingAabbs();
+        PhysicsSpaceStats profile = stats;
+        long startNanos = (profile == null) ? 0L : System.nanoTime();
+
+        if (contactReport != null) {
+            fillContactReport();
+            if (profile != null) {
+                long now = System.nanoTime();
+                profile.add(PhysicsSpaceStats.Phase.CONTACT_REPORT,
+                        now - startNanos, 1);
+                startNanos = now;
+            }
+        }
+
+        /*
+         * Event coalescing and ghost-overlap tracking share a single walk of
+         * the contact manifolds. When events are coalesced, the walk is
+         * charged to the contact-callback phase.
+         */
+        boolean coalesce = coalesceEvents && (!contactStartedListeners.isEmpty()
+                || !contactProcessedListeners.isEmpty());
+        boolean trackGhosts = !overlapListeners.isEmpty();
+        int numGhosts = 0;
+        if (trackGhosts) {
+            numGhosts = overlapTracker.beginStep(this);
+        }
+        boolean ghostManifolds = trackGhosts && overlapTracker.needsManifolds();
+        if (coalesce || ghostManifolds) {
+            int numQueued = walkManifolds(timeStep, coalesce, ghostManifolds);
+            if (profile != null && coalesce) {
+                long now = System.nanoTime();
+                profile.add(PhysicsSpaceStats.Phase.CONTACT_CALLBACKS,
+                        now - startNanos, numQueued);
+                startNanos = now;
+            }
+        }
+        if (trackGhosts) {
+            overlapTracker.endStep(this, overlapListeners);
+            if (profile != null) {
+                long now = System.nanoTime();
+                profile.add(PhysicsSpaceStats.Phase.GHOST_OVERLAPS,
+                        now - startNanos, numGhosts);
+                startNanos = now;
+            }
+        }
+
         for (PhysicsTickListener listener : tickListeners) {
             listener.physicsTick(this, timeStep);
         }
+
+        if (profile != null) {
+            long elapsed = System.nanoTime() - startNanos;
+            profile.add(PhysicsSpaceStats.Phase.TICK_LISTENERS, elapsed,
+                    tickListeners.size());
+        }
     }
 
     /**
@@ -1381,6 +2299,10 @@ public class PhysicsSpace
      * @param timeStep the time per simulation step (in seconds, &ge;0)
      */
     private void preTick_native(float timeStep) {
+        PhysicsSpaceStats profile = stats;
+        long startNanos = (profile == null) ? 0L : System.nanoTime();
+
+        int numTasks = 0;
         AppTask task;
         while ((task = pQueue.poll()) != null) {
             if (task.isCancelled()) {
@@ -1391,11 +2313,49 @@ public class PhysicsSpace
             } catch (RuntimeException exception) {
                 logger.log(Level.SEVERE, null, exception);
             }
+            ++numTasks;
+        }
+
+        if (profile != null) {
+            long now = System.nanoTime();
+            profile.add(PhysicsSpaceStats.Phase.TASKS, now - startNanos,
+                    numTasks);
+            startNanos = now;
         }
 
         for (PhysicsTickListener listener : tickListeners) {
             listener.prePhysicsTick(this, timeStep);
         }
+
+        if (profile != null) {
+            long elapsed = System.nanoTime() - startNanos;
+            profile.add(PhysicsSpaceStats.Phase.TICK_LISTENERS, elapsed,
+                    tickListeners.size());
+        }
+    }
+
+    /**
+     * Queue a contact-started event for each point in the specified manifold.
+     *
+     * @param manifoldId the native ID of the {@code btPersistentManifold} (not
+     * zero)
+     * @param numPoints the number of points in the manifold (&gt;0)
+     */
+    private void queueStartedEvents(long manifoldId, int numPoints) {
+        long bodyAId = PersistentManifolds.getBodyAId(manifoldId);
+        PhysicsCollisionObject pcoA
+                = PhysicsCollisionObject.findInstance(bodyAId);
+        long bodyBId = PersistentManifolds.getBodyBId(manifoldId);
+        PhysicsCollisionObject pcoB
+                = PhysicsCollisionObject.findInstance(bodyBId);
+
+        for (int i = 0; i < numPoints; ++i) {
+            long pointId = PersistentManifolds.getPointId(manifoldId, i);
+            PhysicsCollisionEvent event = createEvent(pcoA, pcoB, pointId);
+
+            // Queue the event to be handled later by distributeEvents().
+            contactStartedEvents.add(event);
+        }
     }
 
     /**
@@ -1459,6 +2419,118 @@ public class PhysicsSpace
 
         removeRigidBody(spaceId, rigidBodyId);
     }
+
+    /**
+     * Verify that the specified bodies can be processed as a batch.
+     *
+     * @param bodies the bodies to verify (not null, unaffected)
+     * @param count the number of bodies in the batch (&ge;0,
+     * &le;bodies.length)
+     * @param kinematic true to also require kinematic mode
+     */
+    private void validateBatch(PhysicsRigidBody[] bodies, int count,
+            boolean kinematic) {
+        Validate.nonNull(bodies, "bodies");
+        Validate.inRange(count, "count", 0, bodies.length);
+
+        long spaceId = nativeId();
+        for (int i = 0; i < count; ++i) {
+            PhysicsRigidBody body = bodies[i];
+            if (body == null) {
+                throw new NullPointerException("bodies[" + i + "] is null.");
+            }
+            if (body.spaceId() != spaceId) {
+                throw new IllegalArgumentException(
+                        "bodies[" + i + "] isn't added to this space.");
+            }
+            if (kinematic && !body.isKinematic()) {
+                throw new IllegalArgumentException(
+                        "bodies[" + i + "] isn't kinematic.");
+            }
+        }
+    }
+
+    /**
+     * Verify that the specified buffer holds enough finite floats, starting
+     * at its current position. The buffer is read using absolute gets.
+     *
+     * @param buffer the buffer to verify (not null, unaffected)
+     * @param numFloats the number of floats required (&ge;0)
+     * @param description a textual description of the buffer (not null)
+     */
+    private static void validateFloats(FloatBuffer buffer, int numFloats,
+            String description) {
+        Validate.nonNull(buffer, description);
+        if (buffer.remaining() < numFloats) {
+            throw new IllegalArgumentException(description + " must contain "
+                    + numFloats + " floats.");
+        }
+
+        int start = buffer.position();
+        for (int i = 0; i < numFloats; ++i) {
+            if (!Float.isFinite(buffer.get(start + i))) {
+                throw new IllegalArgumentException(description
+                        + " must be finite, but element " + i + " isn't.");
+            }
+        }
+    }
+
+    /**
+     * Walk the contact manifolds that exist after a simulation step, queuing
+     * coalesced collision events and/or recording ghost overlaps with contact
+     * points. Each manifold's points are counted at most once, and only if
+     * needed.
+     *
+     * @param timeStep the time per simulation step (in seconds, &ge;0)
+     * @param coalesce true to queue coalesced events
+     * @param trackGhosts true to record ghost overlaps (requires
+     * {@link GhostOverlapTracker#beginStep(CollisionSpace)} for the current
+     * step)
+     * @return the number of events queued (&ge;0)
+     */
+    private int walkManifolds(float timeStep, boolean coalesce,
+            boolean trackGhosts) {
+        if (coalesce) {
+            coalescer.beginStep();
+        }
+
+        int result = 0;
+        long spaceId = nativeId();
+        int numManifolds = countManifolds(spaceId);
+        for (int index = 0; index < numManifolds; ++index) {
+            long manifoldId = getManifoldByIndex(spaceId, index);
+            int numPoints = -1;
+            if (coalesce) {
+                numPoints = PersistentManifolds.countPoints(manifoldId);
+                if (numPoints == 0) {
+                    continue;
+                }
+            }
+
+            long aId = PersistentManifolds.getBodyAId(manifoldId);
+            long bId = PersistentManifolds.getBodyBId(manifoldId);
+            if (trackGhosts && overlapTracker.isCandidatePair(aId, bId)) {
+                if (numPoints < 0) {
+                    numPoints = PersistentManifolds.countPoints(manifoldId);
+                }
+                if (numPoints > 0) {
+                    overlapTracker.addContact(aId, bId);
+                }
+            }
+
+            if (coalesce && coalescer.addManifold(this, manifoldId, aId, bId,
+                    numPoints, timeStep, contactStartedListeners,
+                    contactProcessedListeners)) {
+                ++result;
+            }
+        }
+
+        if (coalesce) {
+            coalescer.endStep();
+        }
+
+        return result;
+    }
     // *************************************************************************
     // native private methods
 
@@ -0,0 +1,494 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.app.AppTask;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Own several independent physics spaces and step them concurrently, one tick
+ * at a time.
+ * <p>
+ * Each space is pinned to one worker, a dedicated platform thread on which the
+ * space is created, stepped, and its collision events distributed. This
+ * respects the thread affinity of Bullet: tasks queued using
+ * {@link PhysicsSpace#enqueue(java.util.concurrent.Callable)} run during the
+ * space's next step, and {@link PhysicsSpace#getPhysicsSpace()} returns the
+ * space being stepped. Several spaces may share a worker; they are stepped in
+ * turn.
+ * <p>
+ * {@link #update(float)} acts as a per-tick barrier: it returns only after
+ * every space has been stepped. Spaces must not be created or removed while
+ * an update is in progress.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class PhysicsSpaceGroup {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * A space in the group, along with its tick statistics.
+     */
+    private static class Member {
+        /**
+         * index of the worker to which the space is pinned
+         */
+        final int workerIndex;
+        /**
+         * duration of the most recent tick (in nanoseconds)
+         */
+        volatile long lastTickNanos = 0L;
+        /**
+         * number of ticks since the statistics were reset
+         */
+        volatile long numTicks = 0L;
+        /**
+         * total duration of all ticks since the statistics were reset (in
+         * nanoseconds)
+         */
+        volatile long totalTickNanos = 0L;
+        /**
+         * the space (not null)
+         */
+        final PhysicsSpace space;
+
+        /**
+         * Instantiate a member.
+         *
+         * @param space the space (not null, alias created)
+         * @param workerIndex the index of the worker to use (&ge;0)
+         */
+        Member(PhysicsSpace space, int workerIndex) {
+            this.space = space;
+            this.workerIndex = workerIndex;
+        }
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsSpaceGroup.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true once shutdown() has been invoked
+     */
+    private boolean isShutdown = false;
+    /**
+     * single-thread executor for each worker
+     */
+    final private ExecutorService[] workers;
+    /**
+     * members pinned to each worker
+     */
+    final private List<List<Member>> workerMembers;
+    /**
+     * map spaces to members
+     */
+    final private Map<PhysicsSpace, Member> memberMap
+            = new ConcurrentHashMap<>(16);
+    /**
+     * duration of the most recent update (in nanoseconds)
+     */
+    private long lastUpdateNanos = 0L;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a group with one worker per available processor.
+     */
+    public PhysicsSpaceGroup() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Instantiate a group with the specified number of workers.
+     *
+     * @param numWorkers the desired number of worker threads (&gt;0)
+     */
+    public PhysicsSpaceGroup(int numWorkers) {
+        Validate.positive(numWorkers, "number of workers");
+
+        this.workers = new ExecutorService[numWorkers];
+        this.workerMembers = new ArrayList<>(numWorkers);
+        for (int workerIndex = 0; workerIndex < numWorkers; ++workerIndex) {
+            final String threadName = "PhysicsSpaceGroup-" + workerIndex;
+            ThreadFactory factory = new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, threadName);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            };
+            workers[workerIndex] = Executors.newSingleThreadExecutor(factory);
+            workerMembers.add(new ArrayList<Member>(4));
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the spaces in this group.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countSpaces() {
+        int result = memberMap.size();
+        return result;
+    }
+
+    /**
+     * Count the workers in this group.
+     *
+     * @return the count (&gt;0)
+     */
+    public int countWorkers() {
+        int result = workers.length;
+        return result;
+    }
+
+    /**
+     * Create a space on the least-loaded worker and add it to this group. The
+     * least-loaded worker is the one with the fewest spaces.
+     *
+     * @param factory to create the space (not null)
+     * @return the new space (not null)
+     */
+    public PhysicsSpace createSpace(
+            Callable<? extends PhysicsSpace> factory) {
+        int bestIndex = 0;
+        for (int workerIndex = 1; workerIndex < workers.length; ++workerIndex) {
+            int numMembers = workerMembers.get(workerIndex).size();
+            if (numMembers < workerMembers.get(bestIndex).size()) {
+                bestIndex = workerIndex;
+            }
+        }
+        PhysicsSpace result = createSpace(factory, bestIndex);
+
+        return result;
+    }
+
+    /**
+     * Create a space on the specified worker and add it to this group. The
+     * factory is invoked on the worker thread, because a space must be
+     * created on its designated physics thread.
+     *
+     * @param factory to create the space (not null)
+     * @param workerIndex the index of the worker to use (&ge;0,
+     * &lt;numWorkers)
+     * @return the new space (not null)
+     */
+    public PhysicsSpace createSpace(Callable<? extends PhysicsSpace> factory,
+            int workerIndex) {
+        Validate.nonNull(factory, "factory");
+        Validate.inRange(workerIndex, "worker index", 0, workers.length - 1);
+        verifyRunning();
+
+        Future<? extends PhysicsSpace> future
+                = workers[workerIndex].submit(factory);
+        PhysicsSpace result;
+        try {
+            result = future.get();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(exception);
+        }
+        if (result == null) {
+            throw new IllegalArgumentException("The factory returned null.");
+        }
+
+        Member member = new Member(result, workerIndex);
+        workerMembers.get(workerIndex).add(member);
+        memberMap.put(result, member);
+
+        return result;
+    }
+
+    /**
+     * Return the duration of the specified space's most recent tick.
+     *
+     * @param space the space to query (not null, in this group)
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long lastTickNanos(PhysicsSpace space) {
+        Member member = findMember(space);
+        long result = member.lastTickNanos;
+
+        return result;
+    }
+
+    /**
+     * Return the wall-clock duration of the most recent update, which includes
+     * waiting for the slowest worker.
+     *
+     * @return the duration (in nanoseconds, &ge;0)
+     */
+    public long lastUpdateNanos() {
+        return lastUpdateNanos;
+    }
+
+    /**
+     * Enumerate the spaces in this group.
+     *
+     * @return a new list of pre-existing spaces (not null)
+     */
+    public List<PhysicsSpace> listSpaces() {
+        List<PhysicsSpace> result = new ArrayList<>(memberMap.keySet());
+        return result;
+    }
+
+    /**
+     * Return the mean duration of the specified space's ticks since its
+     * statistics were last reset.
+     *
+     * @param space the space to query (not null, in this group)
+     * @return the mean duration (in nanoseconds, &ge;0) or 0 if no ticks
+     */
+    public double meanTickNanos(PhysicsSpace space) {
+        Member member = findMember(space);
+        long numTicks = member.numTicks;
+        double result = 0.0;
+        if (numTicks > 0L) {
+            result = member.totalTickNanos / (double) numTicks;
+        }
+
+        return result;
+    }
+
+    /**
+     * Remove the specified space from this group. The space isn't destroyed.
+     *
+     * @param space the space to remove (not null, in this group)
+     */
+    public void removeSpace(PhysicsSpace space) {
+        Member member = findMember(space);
+        memberMap.remove(space);
+        boolean success = workerMembers.get(member.workerIndex).remove(member);
+        assert success;
+    }
+
+    /**
+     * Reset the tick statistics of all spaces in this group.
+     */
+    public void resetStatistics() {
+        for (Member member : memberMap.values()) {
+            member.numTicks = 0L;
+            member.totalTickNanos = 0L;
+        }
+    }
+
+    /**
+     * Stop all workers. The group can't be used afterwards.
+     */
+    public void shutdown() {
+        this.isShutdown = true;
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    /**
+     * Step every space in this group concurrently, distribute each space's
+     * collision events on its worker, and wait for all workers to finish.
+     * An interrupt doesn't cut the wait short: once every worker finishes,
+     * the interrupt status is restored and an exception is thrown.
+     *
+     * @param timeInterval the time interval to simulate (in seconds, &ge;0)
+     */
+    public void update(final float timeInterval) {
+        Validate.nonNegative(timeInterval, "time interval");
+        verifyRunning();
+
+        long startNanos = System.nanoTime();
+        List<Future<?>> futures = new ArrayList<>(workers.length);
+        for (int workerIndex = 0; workerIndex < workers.length; ++workerIndex) {
+            final List<Member> members = workerMembers.get(workerIndex);
+            if (members.isEmpty()) {
+                continue;
+            }
+            Runnable tick = new Runnable() {
+                @Override
+                public void run() {
+                    for (Member member : members) {
+                        tick(member, timeInterval);
+                    }
+                    runThreadTasks();
+                }
+            };
+            Future<?> future = workers[workerIndex].submit(tick);
+            futures.add(future);
+        }
+
+        /*
+         * Wait for every worker, even after a failure or an interrupt, so
+         * that no space is still being stepped when this method returns.
+         */
+        RuntimeException failure = null;
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            boolean done = false;
+            while (!done) {
+                try {
+                    future.get();
+                    done = true;
+                } catch (ExecutionException exception) {
+                    if (failure == null) {
+                        Throwable cause = exception.getCause();
+                        failure = (cause instanceof RuntimeException)
+                                ? (RuntimeException) cause
+                                : new RuntimeException(cause);
+                    }
+                    done = true;
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                    if (failure == null) {
+                        failure = new RuntimeException(exception);
+                    }
+                }
+            }
+        }
+        this.lastUpdateNanos = System.nanoTime() - startNanos;
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Return the index of the worker to which the specified space is pinned.
+     *
+     * @param space the space to query (not null, in this group)
+     * @return the index (&ge;0, &lt;numWorkers)
+     */
+    public int workerIndex(PhysicsSpace space) {
+        Member member = findMember(space);
+        int result = member.workerIndex;
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the member for the specified space.
+     *
+     * @param space the space to find (not null)
+     * @return the pre-existing member (not null)
+     */
+    private Member findMember(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+
+        Member result = memberMap.get(space);
+        if (result == null) {
+            throw new IllegalArgumentException("Space not in group: " + space);
+        }
+
+        return result;
+    }
+
+    /**
+     * Run any tasks enqueued on the current worker thread using
+     * {@link PhysicsSpace#enqueueOnThisThread(java.util.concurrent.Callable)}.
+     */
+    private static void runThreadTasks() {
+        Queue<AppTask<?>> queue = PhysicsSpace.pQueueTL.get();
+        AppTask<?> task;
+        while ((task = queue.poll()) != null) {
+            if (task.isCancelled()) {
+                continue;
+            }
+            try {
+                task.invoke();
+            } catch (RuntimeException exception) {
+                logger.log(Level.SEVERE, null, exception);
+            }
+        }
+    }
+
+    /**
+     * Step the specified member's space once and distribute its events.
+     * Invoked on the member's worker thread.
+     *
+     * @param member the member to step (not null)
+     * @param timeInterval the time interval to simulate (in seconds, &ge;0)
+     */
+    private static void tick(Member member, float timeInterval) {
+        PhysicsSpace space = member.space;
+        CollisionSpace.setLocalThreadPhysicsSpace(space);
+
+        long startNanos = System.nanoTime();
+        space.update(timeInterval);
+        space.distributeEvents();
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        member.lastTickNanos = elapsedNanos;
+        member.totalTickNanos += elapsedNanos;
+        ++member.numTicks;
+    }
+
+    /**
+     * Verify that shutdown() hasn't been invoked.
+     */
+    private void verifyRunning() {
+        if (isShutdown) {
+            throw new IllegalStateException("The group has been shut down.");
+        }
+    }
+}
@@ -0,0 +1,454 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.logging.Logger;
+
+/**
+ * Timers and counters for the phases of a PhysicsSpace update, collected only
+ * while profiling is enabled.
+ * <p>
+ * Figures are gathered on the physics thread and published at the end of
+ * each {@link PhysicsSpace#update(float, int, boolean, boolean, boolean)}, so
+ * the accessors may be polled from any thread. Work done between updates
+ * (such as {@link PhysicsSpace#distributeEvents()}) is published with the
+ * following update.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSpace#setProfiling(boolean)
+ */
+public class PhysicsSpaceStats {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * Enumerate the profiled phases of an update.
+     */
+    public enum Phase {
+        /**
+         * the entire native step, including all callbacks: counts updates
+         */
+        STEP,
+        /**
+         * draining the queue of enqueued tasks: counts tasks invoked
+         */
+        TASKS,
+        /**
+         * PhysicsTickListener callbacks: counts listener invocations
+         */
+        TICK_LISTENERS,
+        /**
+         * native contact callbacks, including immediate ContactListeners and
+         * event creation: counts callbacks
+         */
+        CONTACT_CALLBACKS,
+        /**
+         * collision-group filtering via needsCollision(): counts calls
+         */
+        COLLISION_FILTER,
+        /**
+         * filling the contact report and notifying its listeners: counts
+         * reports
+         */
+        CONTACT_REPORT,
+        /**
+         * tracking ghost-object overlaps and notifying GhostOverlapListeners:
+         * counts ghosts tracked
+         */
+        GHOST_OVERLAPS,
+        /**
+         * distributing queued collision events: counts events distributed
+         */
+        EVENT_DISTRIBUTION
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of profiled phases
+     */
+    final private static int numPhases = Phase.values().length;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(PhysicsSpaceStats.class.getName());
+    /**
+     * bean to measure per-thread allocation, or null if unsupported
+     */
+    final private static com.sun.management.ThreadMXBean threadBean
+            = findThreadBean();
+    /**
+     * true if Java Flight Recorder events can be emitted
+     */
+    final private static boolean isJfrAvailable = findJfr();
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if allocation counters are meaningful
+     */
+    final private boolean isAllocationSupported = (threadBean != null);
+    /**
+     * number of updates published since the last reset
+     */
+    private long numUpdates = 0L;
+    /**
+     * heap bytes allocated on the physics thread during the latest update
+     */
+    private long latestAllocatedBytes = 0L;
+    /**
+     * collision events allocated during the latest update
+     */
+    private long latestEventAllocations = 0L;
+    /**
+     * heap bytes allocated on the physics thread since the last reset
+     */
+    private long totalAllocatedBytes = 0L;
+    /**
+     * collision events allocated since the last reset
+     */
+    private long totalEventAllocations = 0L;
+    /**
+     * counts for each phase of the latest update
+     */
+    final private long[] latestCounts = new long[numPhases];
+    /**
+     * nanoseconds for each phase of the latest update
+     */
+    final private long[] latestNanos = new long[numPhases];
+    /**
+     * counts for each phase since the last reset
+     */
+    final private long[] totalCounts = new long[numPhases];
+    /**
+     * nanoseconds for each phase since the last reset
+     */
+    final private long[] totalNanos = new long[numPhases];
+    /*
+     * The remaining fields are accessed only on the physics thread.
+     */
+    /**
+     * collision events allocated since the last publication
+     */
+    private long workEventAllocations = 0L;
+    /**
+     * allocation counter at the start of the current update, or -1 if unknown
+     */
+    private long workStartBytes = -1L;
+    /**
+     * System.nanoTime() at the start of the current update
+     */
+    private long workStartNanos = 0L;
+    /**
+     * counts for each phase since the last publication
+     */
+    final private long[] workCounts = new long[numPhases];
+    /**
+     * nanoseconds for each phase since the last publication
+     */
+    final private long[] workNanos = new long[numPhases];
+    /**
+     * Flight Recorder event for the current update, or null if none
+     */
+    private Object jfrEvent;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a zeroed set of statistics. Invoked only by PhysicsSpace.
+     */
+    PhysicsSpaceStats() {
+        // do nothing
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Accumulate time and a count for the specified phase. Invoked only on
+     * the physics thread.
+     *
+     * @param phase which phase (not null)
+     * @param nanos the elapsed time (in nanoseconds)
+     * @param count the amount to add to the count (&ge;0)
+     */
+    void add(Phase phase, long nanos, int count) {
+        int index = phase.ordinal();
+        workNanos[index] += nanos;
+        workCounts[index] += count;
+    }
+
+    /**
+     * Accumulate collision-event allocations. Invoked only on the physics
+     * thread.
+     *
+     * @param count the number of events allocated (&ge;0)
+     */
+    void addEventAllocations(long count) {
+        assert count >= 0L : count;
+        workEventAllocations += count;
+    }
+
+    /**
+     * Return the number of heap bytes allocated on the physics thread during
+     * the latest update.
+     *
+     * @return the number of bytes (&ge;0) or -1 if the JVM can't measure
+     * allocation
+     */
+    synchronized public long allocatedBytes() {
+        long result = isAllocationSupported ? latestAllocatedBytes : -1L;
+        return result;
+    }
+
+    /**
+     * Note the start of an update. Invoked only on the physics thread.
+     */
+    void beginUpdate() {
+        this.workStartBytes = threadAllocatedBytes();
+        if (isJfrAvailable) {
+            this.jfrEvent = PhysicsStepEvent.start();
+        }
+        this.workStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Return the count for the specified phase during the latest update.
+     *
+     * @param phase which phase (not null)
+     * @return the count (&ge;0)
+     */
+    synchronized public long count(Phase phase) {
+        long result = latestCounts[phase.ordinal()];
+        return result;
+    }
+
+    /**
+     * Return the number of collision events allocated during the latest
+     * update, whether by a pool or directly.
+     *
+     * @return the count (&ge;0)
+     */
+    synchronized public long countEventAllocations() {
+        return latestEventAllocations;
+    }
+
+    /**
+     * Return the number of updates published since the last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    synchronized public long countUpdates() {
+        return numUpdates;
+    }
+
+    /**
+     * Note the end of an update and publish the accumulated figures. Invoked
+     * only on the physics thread.
+     */
+    void endUpdate() {
+        long stepNanos = System.nanoTime() - workStartNanos;
+        add(Phase.STEP, stepNanos, 1);
+
+        long allocatedBytes = 0L;
+        if (workStartBytes >= 0L) {
+            long endBytes = threadAllocatedBytes();
+            allocatedBytes = Math.max(0L, endBytes - workStartBytes);
+        }
+
+        synchronized (this) {
+            ++numUpdates;
+            this.latestAllocatedBytes = allocatedBytes;
+            this.totalAllocatedBytes += allocatedBytes;
+            this.latestEventAllocations = workEventAllocations;
+            this.totalEventAllocations += workEventAllocations;
+            for (int i = 0; i < numPhases; ++i) {
+                latestCounts[i] = workCounts[i];
+                latestNanos[i] = workNanos[i];
+                totalCounts[i] += workCounts[i];
+                totalNanos[i] += workNanos[i];
+            }
+        }
+
+        if (jfrEvent != null) {
+            PhysicsStepEvent.finish(jfrEvent, workNanos, workCounts,
+                    allocatedBytes, workEventAllocations);
+            this.jfrEvent = null;
+        }
+
+        this.workEventAllocations = 0L;
+        for (int i = 0; i < numPhases; ++i) {
+            workCounts[i] = 0L;
+            workNanos[i] = 0L;
+        }
+    }
+
+    /**
+     * Test whether Java Flight Recorder events are emitted. Requires a JVM
+     * that includes the {@code jdk.jfr} module. Events are recorded only when
+     * a recording enables them.
+     *
+     * @return true if emitted, otherwise false
+     */
+    public static boolean isJfrAvailable() {
+        return isJfrAvailable;
+    }
+
+    /**
+     * Return the time spent in the specified phase during the latest update.
+     * Phases nest within {@link Phase#STEP}.
+     *
+     * @param phase which phase (not null)
+     * @return the time (in nanoseconds, &ge;0)
+     */
+    synchronized public long nanos(Phase phase) {
+        long result = latestNanos[phase.ordinal()];
+        return result;
+    }
+
+    /**
+     * Zero all published figures.
+     */
+    synchronized public void reset() {
+        this.numUpdates = 0L;
+        this.latestAllocatedBytes = 0L;
+        this.latestEventAllocations = 0L;
+        this.totalAllocatedBytes = 0L;
+        this.totalEventAllocations = 0L;
+        for (int i = 0; i < numPhases; ++i) {
+            latestCounts[i] = 0L;
+            latestNanos[i] = 0L;
+            totalCounts[i] = 0L;
+            totalNanos[i] = 0L;
+        }
+    }
+
+    /**
+     * Return the number of heap bytes allocated on the physics thread since
+     * the last reset.
+     *
+     * @return the number of bytes (&ge;0) or -1 if the JVM can't measure
+     * allocation
+     */
+    synchronized public long totalAllocatedBytes() {
+        long result = isAllocationSupported ? totalAllocatedBytes : -1L;
+        return result;
+    }
+
+    /**
+     * Return the total count for the specified phase since the last reset.
+     *
+     * @param phase which phase (not null)
+     * @return the count (&ge;0)
+     */
+    synchronized public long totalCount(Phase phase) {
+        long result = totalCounts[phase.ordinal()];
+        return result;
+    }
+
+    /**
+     * Return the number of collision events allocated since the last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    synchronized public long totalEventAllocations() {
+        return totalEventAllocations;
+    }
+
+    /**
+     * Return the total time spent in the specified phase since the last
+     * reset.
+     *
+     * @param phase which phase (not null)
+     * @return the time (in nanoseconds, &ge;0)
+     */
+    synchronized public long totalNanos(Phase phase) {
+        long result = totalNanos[phase.ordinal()];
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test whether the Flight Recorder API is present.
+     *
+     * @return true if present, otherwise false
+     */
+    private static boolean findJfr() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError exception) {
+            return false;
+        }
+    }
+
+    /**
+     * Find a bean that measures per-thread allocation.
+     *
+     * @return the pre-existing instance, or null if unsupported
+     */
+    private static com.sun.management.ThreadMXBean findThreadBean() {
+        com.sun.management.ThreadMXBean result = null;
+        try {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                result = (com.sun.management.ThreadMXBean) bean;
+                if (!result.isThreadAllocatedMemorySupported()
+                        || !result.isThreadAllocatedMemoryEnabled()) {
+                    result = null;
+                }
+            }
+        } catch (LinkageError | RuntimeException exception) {
+            result = null;
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the allocation counter of the current thread.
+     *
+     * @return the number of bytes allocated, or -1 if unsupported
+     */
+    private static long threadAllocatedBytes() {
+        long result = -1L;
+        if (threadBean != null) {
+            long threadId = Thread.currentThread().getId();
+            result = threadBean.getThreadAllocatedBytes(threadId);
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A Java Flight Recorder event describing a single PhysicsSpace update, with
+ * the same figures as {@link PhysicsSpaceStats}. Referenced only after
+ * PhysicsSpaceStats has verified that the {@code jdk.jfr} module is present.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+@Name("com.jme3.bullet.PhysicsStep")
+@Label("Physics Step")
+@Category({"Minie", "Physics"})
+@Description("A single update of a PhysicsSpace")
+final class PhysicsStepEvent extends Event {
+    // *************************************************************************
+    // fields
+
+    /**
+     * time spent draining the task queue
+     */
+    @Label("Tasks Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long taskNanos;
+    /**
+     * number of tasks invoked
+     */
+    @Label("Tasks")
+    long taskCount;
+    /**
+     * time spent in tick listeners
+     */
+    @Label("Tick Listeners Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long tickNanos;
+    /**
+     * number of tick-listener invocations
+     */
+    @Label("Tick Listener Invocations")
+    long tickCount;
+    /**
+     * time spent in native contact callbacks
+     */
+    @Label("Contact Callbacks Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long contactNanos;
+    /**
+     * number of native contact callbacks
+     */
+    @Label("Contact Callbacks")
+    long contactCount;
+    /**
+     * time spent in collision-group filtering
+     */
+    @Label("Collision Filter Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long filterNanos;
+    /**
+     * number of collision-group filter calls
+     */
+    @Label("Collision Filter Calls")
+    long filterCount;
+    /**
+     * time spent filling contact reports
+     */
+    @Label("Contact Report Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long reportNanos;
+    /**
+     * time spent tracking ghost-object overlaps
+     */
+    @Label("Ghost Overlaps Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long ghostNanos;
+    /**
+     * number of ghost objects tracked
+     */
+    @Label("Ghosts Tracked")
+    long ghostCount;
+    /**
+     * time spent distributing collision events
+     */
+    @Label("Event Distribution Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long distributionNanos;
+    /**
+     * number of collision events distributed
+     */
+    @Label("Events Distributed")
+    long distributionCount;
+    /**
+     * heap bytes allocated on the physics thread, or -1 if unknown
+     */
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocatedBytes;
+    /**
+     * number of collision events allocated
+     */
+    @Label("Events Allocated")
+    long eventAllocations;
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Start an event for an update, if the event type is enabled.
+     *
+     * @return a new event, or null if not enabled
+     */
+    static Object start() {
+        PhysicsStepEvent result = new PhysicsStepEvent();
+        if (result.isEnabled()) {
+            result.begin();
+        } else {
+            result = null;
+        }
+
+        return result;
+    }
+
+    /**
+     * End and commit an event started by {@link #start()}.
+     *
+     * @param event the event to commit (not null)
+     * @param nanos the time for each phase, indexed by ordinal (not null,
+     * unaffected)
+     * @param counts the count for each phase, indexed by ordinal (not null,
+     * unaffected)
+     * @param allocatedBytes heap bytes allocated, or -1 if unknown
+     * @param eventAllocations collision events allocated (&ge;0)
+     */
+    static void finish(Object event, long[] nanos, long[] counts,
+            long allocatedBytes, long eventAllocations) {
+        PhysicsStepEvent stepEvent = (PhysicsStepEvent) event;
+        stepEvent.end();
+        if (!stepEvent.shouldCommit()) {
+            return;
+        }
+
+        int tasks = PhysicsSpaceStats.Phase.TASKS.ordinal();
+        stepEvent.taskNanos = nanos[tasks];
+        stepEvent.taskCount = counts[tasks];
+        int tick = PhysicsSpaceStats.Phase.TICK_LISTENERS.ordinal();
+        stepEvent.tickNanos = nanos[tick];
+        stepEvent.tickCount = counts[tick];
+        int contact = PhysicsSpaceStats.Phase.CONTACT_CALLBACKS.ordinal();
+        stepEvent.contactNanos = nanos[contact];
+        stepEvent.contactCount = counts[contact];
+        int filter = PhysicsSpaceStats.Phase.COLLISION_FILTER.ordinal();
+        stepEvent.filterNanos = nanos[filter];
+        stepEvent.filterCount = counts[filter];
+        int report = PhysicsSpaceStats.Phase.CONTACT_REPORT.ordinal();
+        stepEvent.reportNanos = nanos[report];
+        int ghost = PhysicsSpaceStats.Phase.GHOST_OVERLAPS.ordinal();
+        stepEvent.ghostNanos = nanos[ghost];
+        stepEvent.ghostCount = counts[ghost];
+        int distribution
+                = PhysicsSpaceStats.Phase.EVENT_DISTRIBUTION.ordinal();
+        stepEvent.distributionNanos = nanos[distribution];
+        stepEvent.distributionCount = counts[distribution];
+        stepEvent.allocatedBytes = allocatedBytes;
+        stepEvent.eventAllocations = eventAllocations;
+
+        stepEvent.commit();
+    }
+}
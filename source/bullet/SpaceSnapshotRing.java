@@ -0,0 +1,631 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.objects.PhysicsCharacter;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.bullet.objects.VehicleWheel;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A ring buffer of compact binary snapshots of the dynamic state of a
+ * PhysicsSpace, for rollback networking and similar applications.
+ * <p>
+ * Each snapshot records the location, orientation, velocities, accumulated
+ * force and torque, activation state, and deactivation time of every
+ * non-static rigid body (including vehicles), the location, velocities, and
+ * walk direction of every character, and the engine force, brake impulse,
+ * steering angle, and rotation of every vehicle wheel. Objects are identified
+ * by native ID, so a snapshot can be restored only into the space it was
+ * captured from (or into an identical space sharing those IDs).
+ * <p>
+ * Snapshots don't record collision shapes, masses, joints, or which objects
+ * are added to the space. Restoring a snapshot skips any object that's no
+ * longer in the space.
+ * <p>
+ * Instances are not thread-safe.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class SpaceSnapshotRing {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes per character record
+     */
+    final public static int characterBytes = 8 + 4 * 12;
+    /**
+     * number of bytes in the snapshot header
+     */
+    final public static int headerBytes = 20;
+    /**
+     * number of bytes per rigid-body record
+     */
+    final public static int rigidBodyBytes = 8 + 4 * 19 + 4 + 4;
+    /**
+     * number of bytes per vehicle record, excluding wheels
+     */
+    final public static int vehicleBytes = 8 + 4;
+    /**
+     * number of bytes per wheel in a vehicle record
+     */
+    final public static int wheelBytes = 4 * 4;
+    /**
+     * marker at the start of each snapshot ("MSNP")
+     */
+    final private static int magic = 0x4d534e50;
+    /**
+     * version of the snapshot format
+     */
+    final private static int formatVersion = 1;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SpaceSnapshotRing.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * storage for each snapshot, allocated lazily
+     */
+    final private ByteBuffer[] slots;
+    /**
+     * number of valid snapshots (&ge;0, &le;capacity)
+     */
+    private int numSnapshots = 0;
+    /**
+     * index of the slot that holds the newest snapshot
+     */
+    private int newestSlot = -1;
+    /**
+     * temporary list of characters
+     */
+    final private List<PhysicsCharacter> tmpCharacters = new ArrayList<>(8);
+    /**
+     * temporary list of rigid bodies
+     */
+    final private List<PhysicsRigidBody> tmpBodies = new ArrayList<>(64);
+    /**
+     * tick number of the snapshot in each slot
+     */
+    final private long[] ticks;
+    /**
+     * temporary storage for a rotation
+     */
+    final private Quaternion tmpRotation = new Quaternion();
+    /**
+     * temporary storage for a vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty ring with the specified capacity.
+     *
+     * @param capacity the number of snapshots to retain (&gt;0)
+     */
+    public SpaceSnapshotRing(int capacity) {
+        Validate.positive(capacity, "capacity");
+
+        this.slots = new ByteBuffer[capacity];
+        this.ticks = new long[capacity];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Return the maximum number of snapshots retained.
+     *
+     * @return the count (&gt;0)
+     */
+    public int capacity() {
+        int result = slots.length;
+        return result;
+    }
+
+    /**
+     * Capture a snapshot of the specified space into the ring, overwriting the
+     * oldest snapshot if the ring is full. Tick numbers should increase with
+     * each capture.
+     *
+     * @param space the space to capture (not null, unaffected)
+     * @param tick the application's tick number for the snapshot
+     * @return the size of the snapshot (in bytes, &gt;0)
+     */
+    public int capture(PhysicsSpace space, long tick) {
+        Validate.nonNull(space, "space");
+
+        int slotIndex = (newestSlot + 1) % slots.length;
+        int required = countBytes(space);
+        ByteBuffer buffer = slots[slotIndex];
+        if (buffer == null || buffer.capacity() < required) {
+            // Allocate 25% of headroom to absorb modest growth of the space.
+            buffer = ByteBuffer.allocateDirect(required + required / 4);
+            slots[slotIndex] = buffer;
+        }
+
+        buffer.clear();
+        int result = capture(space, buffer);
+        buffer.flip();
+
+        ticks[slotIndex] = tick;
+        this.newestSlot = slotIndex;
+        if (numSnapshots < slots.length) {
+            ++numSnapshots;
+        }
+
+        return result;
+    }
+
+    /**
+     * Write a snapshot of the specified space to the specified buffer, starting
+     * at its current position.
+     *
+     * @param space the space to capture (not null, unaffected)
+     * @param storeResult the buffer to write to (not null, position advanced)
+     * @return the number of bytes written (&gt;0)
+     * @throws BufferOverflowException if the buffer lacks sufficient space
+     * @see #countBytes(com.jme3.bullet.PhysicsSpace)
+     */
+    public int capture(PhysicsSpace space, ByteBuffer storeResult) {
+        Validate.nonNull(space, "space");
+        Validate.nonNull(storeResult, "store result");
+
+        int startPosition = storeResult.position();
+        space.copyRigidBodies(tmpBodies);
+        space.copyCharacters(tmpCharacters);
+
+        int numBodies = 0;
+        int numVehicles = 0;
+        for (PhysicsRigidBody body : tmpBodies) {
+            if (!body.isStatic()) {
+                ++numBodies;
+                if (body instanceof PhysicsVehicle) {
+                    ++numVehicles;
+                }
+            }
+        }
+        int numCharacters = tmpCharacters.size();
+
+        storeResult.putInt(magic);
+        storeResult.putInt(formatVersion);
+        storeResult.putInt(numBodies);
+        storeResult.putInt(numCharacters);
+        storeResult.putInt(numVehicles);
+
+        for (PhysicsRigidBody body : tmpBodies) {
+            if (!body.isStatic()) {
+                writeBody(body, storeResult);
+            }
+        }
+        for (PhysicsCharacter character : tmpCharacters) {
+            writeCharacter(character, storeResult);
+        }
+        for (PhysicsRigidBody body : tmpBodies) {
+            if (body instanceof PhysicsVehicle && !body.isStatic()) {
+                writeVehicle((PhysicsVehicle) body, storeResult);
+            }
+        }
+
+        tmpBodies.clear();
+        tmpCharacters.clear();
+        int result = storeResult.position() - startPosition;
+
+        return result;
+    }
+
+    /**
+     * Remove all snapshots, without releasing storage.
+     */
+    public void clear() {
+        this.numSnapshots = 0;
+        this.newestSlot = -1;
+    }
+
+    /**
+     * Calculate the size of a snapshot of the specified space in its current
+     * configuration.
+     *
+     * @param space the space to analyze (not null, unaffected)
+     * @return the number of bytes (&gt;0)
+     */
+    public int countBytes(PhysicsSpace space) {
+        Validate.nonNull(space, "space");
+
+        int result = headerBytes;
+        space.copyRigidBodies(tmpBodies);
+        for (PhysicsRigidBody body : tmpBodies) {
+            if (!body.isStatic()) {
+                result += rigidBodyBytes;
+                if (body instanceof PhysicsVehicle) {
+                    int numWheels = ((PhysicsVehicle) body).getNumWheels();
+                    result += vehicleBytes + numWheels * wheelBytes;
+                }
+            }
+        }
+        tmpBodies.clear();
+        space.copyCharacters(tmpCharacters);
+        result += tmpCharacters.size() * characterBytes;
+        tmpCharacters.clear();
+
+        return result;
+    }
+
+    /**
+     * Count the snapshots currently retained.
+     *
+     * @return the count (&ge;0, &le;capacity)
+     */
+    public int countSnapshots() {
+        assert numSnapshots >= 0 : numSnapshots;
+        return numSnapshots;
+    }
+
+    /**
+     * Discard all snapshots newer than the specified tick, typically after
+     * rolling back to it.
+     *
+     * @param tick the tick number of the newest snapshot to keep
+     * @return the number of snapshots discarded (&ge;0)
+     */
+    public int discardNewerThan(long tick) {
+        int result = 0;
+        while (numSnapshots > 0 && ticks[newestSlot] > tick) {
+            --numSnapshots;
+            this.newestSlot = (newestSlot + slots.length - 1) % slots.length;
+            ++result;
+        }
+        if (numSnapshots == 0) {
+            this.newestSlot = -1;
+        }
+
+        return result;
+    }
+
+    /**
+     * Access the retained snapshot with the specified tick number, for
+     * instance to transmit it.
+     *
+     * @param tick the tick number to find
+     * @return the pre-existing buffer (from position 0 to its limit, do not
+     * modify!) or null if not retained
+     */
+    public ByteBuffer findSnapshot(long tick) {
+        int slotIndex = findSlot(tick);
+        ByteBuffer result = (slotIndex == -1) ? null : slots[slotIndex];
+
+        return result;
+    }
+
+    /**
+     * Return the tick number of the newest snapshot.
+     *
+     * @return the tick number
+     * @throws IllegalStateException if the ring is empty
+     */
+    public long newestTick() {
+        if (numSnapshots == 0) {
+            throw new IllegalStateException("The ring is empty.");
+        }
+
+        long result = ticks[newestSlot];
+        return result;
+    }
+
+    /**
+     * Return the tick number of the oldest snapshot.
+     *
+     * @return the tick number
+     * @throws IllegalStateException if the ring is empty
+     */
+    public long oldestTick() {
+        if (numSnapshots == 0) {
+            throw new IllegalStateException("The ring is empty.");
+        }
+
+        int slotIndex = (newestSlot - numSnapshots + 1 + slots.length)
+                % slots.length;
+        long result = ticks[slotIndex];
+
+        return result;
+    }
+
+    /**
+     * Restore the retained snapshot with the specified tick number into the
+     * specified space.
+     *
+     * @param space the space to modify (not null)
+     * @param tick the tick number of the snapshot to restore
+     * @return true if the snapshot was found and restored, otherwise false
+     */
+    public boolean restore(PhysicsSpace space, long tick) {
+        Validate.nonNull(space, "space");
+
+        int slotIndex = findSlot(tick);
+        if (slotIndex == -1) {
+            return false;
+        }
+
+        ByteBuffer buffer = slots[slotIndex];
+        buffer.rewind();
+        restore(space, buffer);
+
+        return true;
+    }
+
+    /**
+     * Read a snapshot from the specified buffer, starting at its current
+     * position, and apply it to the specified space. The buffer must have the
+     * same byte order as when the snapshot was written.
+     *
+     * @param space the space to modify (not null)
+     * @param snapshot the buffer to read (not null, position advanced)
+     * @return the number of objects restored (&ge;0)
+     * @throws IllegalArgumentException if the buffer doesn't contain a
+     * snapshot in a supported format
+     */
+    public int restore(PhysicsSpace space, ByteBuffer snapshot) {
+        Validate.nonNull(space, "space");
+        Validate.nonNull(snapshot, "snapshot");
+
+        int header = snapshot.getInt();
+        int version = snapshot.getInt();
+        if (header != magic || version != formatVersion) {
+            throw new IllegalArgumentException("Not a supported snapshot.");
+        }
+        int numBodies = snapshot.getInt();
+        int numCharacters = snapshot.getInt();
+        int numVehicles = snapshot.getInt();
+
+        int result = 0;
+        for (int i = 0; i < numBodies; ++i) {
+            long bodyId = snapshot.getLong();
+            PhysicsRigidBody body = space.findRigidBody(bodyId);
+            if (body == null) {
+                int skip = rigidBodyBytes - 8;
+                snapshot.position(snapshot.position() + skip);
+            } else {
+                readBody(snapshot, body);
+                ++result;
+            }
+        }
+        for (int i = 0; i < numCharacters; ++i) {
+            long characterId = snapshot.getLong();
+            PhysicsCharacter character = space.findCharacter(characterId);
+            if (character == null) {
+                int skip = characterBytes - 8;
+                snapshot.position(snapshot.position() + skip);
+            } else {
+                readCharacter(snapshot, character);
+                ++result;
+            }
+        }
+        for (int i = 0; i < numVehicles; ++i) {
+            long vehicleId = snapshot.getLong();
+            int numWheels = snapshot.getInt();
+            PhysicsRigidBody body = space.findRigidBody(vehicleId);
+            if (body instanceof PhysicsVehicle
+                    && ((PhysicsVehicle) body).getNumWheels() == numWheels) {
+                readWheels(snapshot, (PhysicsVehicle) body);
+            } else {
+                int skip = numWheels * wheelBytes;
+                snapshot.position(snapshot.position() + skip);
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the slot that holds the snapshot with the specified tick number.
+     *
+     * @param tick the tick number to find
+     * @return the slot index, or -1 if not retained
+     */
+    private int findSlot(long tick) {
+        int slotIndex = newestSlot;
+        for (int i = 0; i < numSnapshots; ++i) {
+            if (ticks[slotIndex] == tick) {
+                return slotIndex;
+            }
+            slotIndex = (slotIndex + slots.length - 1) % slots.length;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Read a rigid-body record (excluding its ID) and apply it to the
+     * specified body.
+     *
+     * @param snapshot the buffer to read (not null, position advanced)
+     * @param body the body to modify (not null)
+     */
+    private void readBody(ByteBuffer snapshot, PhysicsRigidBody body) {
+        readVector(snapshot);
+        body.setPhysicsLocation(tmpVector);
+        tmpRotation.set(snapshot.getFloat(), snapshot.getFloat(),
+                snapshot.getFloat(), snapshot.getFloat());
+        body.setPhysicsRotation(tmpRotation);
+        readVector(snapshot);
+        body.setLinearVelocity(tmpVector);
+        readVector(snapshot);
+        body.setAngularVelocity(tmpVector);
+
+        body.clearForces();
+        readVector(snapshot);
+        if (!tmpVector.equals(Vector3f.ZERO)) {
+            body.applyCentralForce(tmpVector);
+        }
+        readVector(snapshot);
+        if (!tmpVector.equals(Vector3f.ZERO)) {
+            body.applyTorque(tmpVector);
+        }
+        /*
+         * The setters above may have activated the body,
+         * so restore its activation state last.
+         */
+        int activationState = snapshot.getInt();
+        float deactivationTime = snapshot.getFloat();
+        body.setDeactivationTime(deactivationTime);
+        body.setActivationState(activationState);
+    }
+
+    /**
+     * Read a character record (excluding its ID) and apply it to the
+     * specified character.
+     *
+     * @param snapshot the buffer to read (not null, position advanced)
+     * @param character the character to modify (not null)
+     */
+    private void readCharacter(ByteBuffer snapshot,
+            PhysicsCharacter character) {
+        readVector(snapshot);
+        character.setPhysicsLocation(tmpVector);
+        readVector(snapshot);
+        character.setLinearVelocity(tmpVector);
+        readVector(snapshot);
+        character.setAngularVelocity(tmpVector);
+        readVector(snapshot);
+        character.setWalkDirection(tmpVector);
+    }
+
+    /**
+     * Read a vector from the specified buffer into {@code tmpVector}.
+     *
+     * @param snapshot the buffer to read (not null, position advanced)
+     */
+    private void readVector(ByteBuffer snapshot) {
+        tmpVector.set(snapshot.getFloat(), snapshot.getFloat(),
+                snapshot.getFloat());
+    }
+
+    /**
+     * Read the wheel records of a vehicle and apply them to its wheels.
+     *
+     * @param snapshot the buffer to read (not null, position advanced)
+     * @param vehicle the vehicle to modify (not null)
+     */
+    private static void readWheels(ByteBuffer snapshot,
+            PhysicsVehicle vehicle) {
+        int numWheels = vehicle.getNumWheels();
+        for (int wheelIndex = 0; wheelIndex < numWheels; ++wheelIndex) {
+            vehicle.accelerate(wheelIndex, snapshot.getFloat());
+            vehicle.brake(wheelIndex, snapshot.getFloat());
+            vehicle.steer(wheelIndex, snapshot.getFloat());
+            VehicleWheel wheel = vehicle.getWheel(wheelIndex);
+            wheel.setRotationAngle(snapshot.getFloat());
+        }
+    }
+
+    /**
+     * Write the record of the specified rigid body.
+     *
+     * @param body the body to record (not null, unaffected)
+     * @param storeResult the buffer to write to (not null, position advanced)
+     */
+    private void writeBody(PhysicsRigidBody body, ByteBuffer storeResult) {
+        storeResult.putLong(body.nativeId());
+        writeVector(body.getPhysicsLocation(tmpVector), storeResult);
+        body.getPhysicsRotation(tmpRotation);
+        storeResult.putFloat(tmpRotation.getX())
+                .putFloat(tmpRotation.getY())
+                .putFloat(tmpRotation.getZ())
+                .putFloat(tmpRotation.getW());
+        writeVector(body.getLinearVelocity(tmpVector), storeResult);
+        writeVector(body.getAngularVelocity(tmpVector), storeResult);
+        writeVector(body.totalAppliedForce(tmpVector), storeResult);
+        writeVector(body.totalAppliedTorque(tmpVector), storeResult);
+        storeResult.putInt(body.getActivationState());
+        storeResult.putFloat(body.getDeactivationTime());
+    }
+
+    /**
+     * Write the record of the specified character.
+     *
+     * @param character the character to record (not null, unaffected)
+     * @param storeResult the buffer to write to (not null, position advanced)
+     */
+    private void writeCharacter(PhysicsCharacter character,
+            ByteBuffer storeResult) {
+        storeResult.putLong(character.nativeId());
+        writeVector(character.getPhysicsLocation(tmpVector), storeResult);
+        writeVector(character.getLinearVelocity(tmpVector), storeResult);
+        writeVector(character.getAngularVelocity(tmpVector), storeResult);
+        writeVector(character.getWalkDirection(tmpVector), storeResult);
+    }
+
+    /**
+     * Write the specified vector.
+     *
+     * @param vector the vector to write (not null, unaffected)
+     * @param storeResult the buffer to write to (not null, position advanced)
+     */
+    private static void writeVector(Vector3f vector, ByteBuffer storeResult) {
+        storeResult.putFloat(vector.x)
+                .putFloat(vector.y)
+                .putFloat(vector.z);
+    }
+
+    /**
+     * Write the wheel record of the specified vehicle.
+     *
+     * @param vehicle the vehicle to record (not null, unaffected)
+     * @param storeResult the buffer to write to (not null, position advanced)
+     */
+    private static void writeVehicle(PhysicsVehicle vehicle,
+            ByteBuffer storeResult) {
+        int numWheels = vehicle.getNumWheels();
+        storeResult.putLong(vehicle.nativeId());
+        storeResult.putInt(numWheels);
+        for (int wheelIndex = 0; wheelIndex < numWheels; ++wheelIndex) {
+            VehicleWheel wheel = vehicle.getWheel(wheelIndex);
+            storeResult.putFloat(wheel.getEngineForce())
+                    .putFloat(wheel.getBrake())
+                    .putFloat(wheel.getSteerAngle())
+                    .putFloat(wheel.getRotationAngle());
+        }
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Adapts the sub-stepping of a PhysicsSpace to a per-frame budget of wall
+ * time, to prevent the "spiral of death" in which a space that falls behind
+ * simulates ever more steps per frame.
+ * <p>
+ * Before each update, the governor estimates how many steps fit in the
+ * budget, based on the smoothed cost of recent steps, and sets the space's
+ * maxSubSteps accordingly. If the pending simulation time still won't fit,
+ * it coarsens the step size (accuracy) up to a limit. Any simulation time
+ * that can't be simulated is dropped and reported, so that gameplay code can
+ * detect degraded frames and compensate.
+ * <p>
+ * The space's previous accuracy and maxSubSteps are restored when the
+ * governor is removed from it.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see PhysicsSpace#setGovernor(com.jme3.bullet.SubStepGovernor)
+ */
+public class SubStepGovernor {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * weight given to the latest measurement when smoothing the step cost
+     */
+    final private static double costSmoothing = 0.2;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(SubStepGovernor.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * smoothed wall time per step (in nanoseconds, &ge;0, 0 if not yet
+     * measured)
+     */
+    private double stepCostNanos = 0.0;
+    /**
+     * simulation time that hasn't yet been simulated, mirroring the space's
+     * internal accumulator (in seconds, &ge;0)
+     */
+    private float localTime = 0f;
+    /**
+     * maximum factor by which the step size may be coarsened (&ge;1)
+     */
+    private float maxCoarsening = 2f;
+    /**
+     * nominal step size (in seconds, &gt;0) or 0 to use the space's accuracy
+     * when first governed
+     */
+    private float nominalStepSize = 0f;
+    /**
+     * wall-time budget for each update (in seconds, &gt;0)
+     */
+    private float budget;
+    /**
+     * simulation time dropped during the latest update (in seconds, &ge;0)
+     */
+    private float latestDropped = 0f;
+    /**
+     * step size used during the latest update (in seconds, &ge;0)
+     */
+    private float latestStepSize = 0f;
+    /**
+     * simulation time dropped since the last reset (in seconds, &ge;0)
+     */
+    private double totalDropped = 0.0;
+    /**
+     * upper limit on the number of steps per update (&ge;1)
+     */
+    private int maxSubSteps = 4;
+    /**
+     * sub-step limit used during the latest update (&ge;0)
+     */
+    private int latestSubStepLimit = 0;
+    /**
+     * number of steps simulated during the latest update (&ge;0)
+     */
+    private int latestSteps = 0;
+    /**
+     * number of degraded updates since the last reset (&ge;0)
+     */
+    private long numDegraded = 0L;
+    /**
+     * number of updates since the last reset (&ge;0)
+     */
+    private long numUpdates = 0L;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a governor with the specified budget.
+     *
+     * @param budget the wall-time budget for each update (in seconds, &gt;0)
+     */
+    public SubStepGovernor(float budget) {
+        Validate.positive(budget, "budget");
+        this.budget = budget;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Return the wall-time budget for each update.
+     *
+     * @return the budget (in seconds, &gt;0)
+     */
+    synchronized public float budget() {
+        assert budget > 0f : budget;
+        return budget;
+    }
+
+    /**
+     * Count the degraded updates since the last reset: those that dropped
+     * simulation time or used a coarsened step size.
+     *
+     * @return the count (&ge;0)
+     */
+    synchronized public long countDegraded() {
+        return numDegraded;
+    }
+
+    /**
+     * Return the number of steps simulated during the latest update.
+     *
+     * @return the count (&ge;0)
+     */
+    synchronized public int countSteps() {
+        return latestSteps;
+    }
+
+    /**
+     * Count the governed updates since the last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    synchronized public long countUpdates() {
+        return numUpdates;
+    }
+
+    /**
+     * Return the simulation time dropped during the latest update.
+     *
+     * @return the dropped time (in seconds, &ge;0)
+     */
+    synchronized public float droppedTime() {
+        return latestDropped;
+    }
+
+    /**
+     * Test whether the latest update was degraded, either by dropping
+     * simulation time or by coarsening the step size.
+     *
+     * @return true if degraded, otherwise false
+     */
+    synchronized public boolean isDegraded() {
+        boolean result = latestDropped > 0f
+                || latestStepSize > nominalStepSize;
+        return result;
+    }
+
+    /**
+     * Return the maximum factor by which the step size may be coarsened.
+     *
+     * @return the factor (&ge;1)
+     */
+    synchronized public float maxCoarsening() {
+        assert maxCoarsening >= 1f : maxCoarsening;
+        return maxCoarsening;
+    }
+
+    /**
+     * Return the upper limit on the number of steps per update.
+     *
+     * @return the limit (&ge;1)
+     */
+    synchronized public int maxSubSteps() {
+        assert maxSubSteps >= 1 : maxSubSteps;
+        return maxSubSteps;
+    }
+
+    /**
+     * Return the nominal step size.
+     *
+     * @return the step size (in seconds, &gt;0) or 0 if not yet determined
+     */
+    synchronized public float nominalStepSize() {
+        return nominalStepSize;
+    }
+
+    /**
+     * Zero the counters and the total dropped time.
+     */
+    synchronized public void resetStatistics() {
+        this.numDegraded = 0L;
+        this.numUpdates = 0L;
+        this.totalDropped = 0.0;
+    }
+
+    /**
+     * Alter the wall-time budget for each update.
+     *
+     * @param budget the desired budget (in seconds, &gt;0)
+     */
+    synchronized public void setBudget(float budget) {
+        Validate.positive(budget, "budget");
+        this.budget = budget;
+    }
+
+    /**
+     * Alter the maximum factor by which the step size may be coarsened.
+     *
+     * @param factor the desired factor (&ge;1, 1 &rarr; never coarsen,
+     * default=2)
+     */
+    synchronized public void setMaxCoarsening(float factor) {
+        Validate.inRange(factor, "factor", 1f, Float.MAX_VALUE);
+        this.maxCoarsening = factor;
+    }
+
+    /**
+     * Alter the upper limit on the number of steps per update.
+     *
+     * @param limit the desired limit (&ge;1, default=4)
+     */
+    synchronized public void setMaxSubSteps(int limit) {
+        Validate.positive(limit, "limit");
+        this.maxSubSteps = limit;
+    }
+
+    /**
+     * Alter the nominal step size.
+     *
+     * @param stepSize the desired step size (in seconds, &gt;0) or 0 to use
+     * the space's accuracy when first governed (default=0)
+     */
+    synchronized public void setNominalStepSize(float stepSize) {
+        Validate.nonNegative(stepSize, "step size");
+        this.nominalStepSize = stepSize;
+    }
+
+    /**
+     * Return the smoothed wall time per step.
+     *
+     * @return the cost (in seconds, &ge;0, 0 if not yet measured)
+     */
+    synchronized public float stepCost() {
+        float result = (float) (stepCostNanos * 1e-9);
+        return result;
+    }
+
+    /**
+     * Return the step size used during the latest update.
+     *
+     * @return the step size (in seconds, &ge;0)
+     */
+    synchronized public float stepSize() {
+        return latestStepSize;
+    }
+
+    /**
+     * Return the sub-step limit used during the latest update.
+     *
+     * @return the limit (&ge;0)
+     */
+    synchronized public int subStepLimit() {
+        return latestSubStepLimit;
+    }
+
+    /**
+     * Return the simulation time dropped since the last reset.
+     *
+     * @return the dropped time (in seconds, &ge;0)
+     */
+    synchronized public double totalDroppedTime() {
+        return totalDropped;
+    }
+
+    /**
+     * Update the specified space, choosing its sub-step limit and accuracy.
+     * Invoked only by PhysicsSpace.
+     *
+     * @param space the space to update (not null)
+     * @param timeInterval the time interval to simulate (in seconds, &ge;0)
+     */
+    void update(PhysicsSpace space, float timeInterval) {
+        float stepSize;
+        int limit;
+        synchronized (this) {
+            if (nominalStepSize == 0f) {
+                this.nominalStepSize = space.getAccuracy();
+            }
+            /*
+             * Estimate how many steps fit in the budget.
+             */
+            limit = maxSubSteps;
+            if (stepCostNanos > 0.0) {
+                double affordable = budget * 1e9 / stepCostNanos;
+                if (affordable < limit) {
+                    limit = Math.max(1, (int) affordable);
+                }
+            }
+            /*
+             * If the pending time won't fit at the nominal step size,
+             * coarsen the steps (within limits).
+             */
+            stepSize = nominalStepSize;
+            float pending = localTime + timeInterval;
+            if (pending > limit * nominalStepSize && maxCoarsening > 1f) {
+                float maxStepSize = maxCoarsening * nominalStepSize;
+                stepSize = Math.min(maxStepSize, pending / limit);
+            }
+        }
+
+        space.setAccuracy(stepSize);
+        space.setMaxSubSteps(limit);
+        long startNanos = System.nanoTime();
+        space.update(timeInterval, limit);
+        long elapsedNanos = System.nanoTime() - startNanos;
+
+        synchronized (this) {
+            /*
+             * Mirror the space's accumulator to determine how many steps
+             * were simulated and how much time was dropped.
+             */
+            localTime += timeInterval;
+            int numNeeded = (int) (localTime / stepSize);
+            localTime -= numNeeded * stepSize;
+            int numSteps = Math.min(numNeeded, limit);
+            float dropped = (numNeeded - numSteps) * stepSize;
+
+            if (numSteps > 0) {
+                double perStep = (double) elapsedNanos / numSteps;
+                if (stepCostNanos == 0.0) {
+                    this.stepCostNanos = perStep;
+                } else {
+                    this.stepCostNanos
+                            += costSmoothing * (perStep - stepCostNanos);
+                }
+            }
+
+            this.latestDropped = dropped;
+            this.latestStepSize = stepSize;
+            this.latestSteps = numSteps;
+            this.latestSubStepLimit = limit;
+            this.totalDropped += dropped;
+            ++numUpdates;
+            if (dropped > 0f || stepSize > nominalStepSize) {
+                ++numDegraded;
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet;
+
+import com.jme3.bullet.util.LongObjectMap;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * The locations and orientations of all rigid bodies in a PhysicsSpace at a
+ * specific simulation time, captured on the physics thread and then published
+ * to other threads. A published frame isn't modified until it's recycled, so
+ * it can be read without calling native code.
+ * <p>
+ * Transforms use the layout of
+ * {@link PhysicsSpace#copyRigidTransforms(java.nio.FloatBuffer, long[],
+ * boolean)}: {@link PhysicsSpace#TRANSFORM_STRIDE} floats per body.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TransformFrame {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(TransformFrame.class.getName());
+    /**
+     * largest frame that findBody() searches linearly when the hint misses
+     */
+    final private static int maxLinearSearch = 16;
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if idTable reflects the current capture, otherwise false
+     */
+    private boolean isTableValid = false;
+    /**
+     * simulation time of the capture (in seconds)
+     */
+    private double simulationTime = 0.0;
+    /**
+     * transform data: 7 floats per body (not null, direct)
+     */
+    private FloatBuffer transforms;
+    /**
+     * number of valid bodies (&ge;0)
+     */
+    private int numBodies = 0;
+    /**
+     * open-addressed hash table mapping native IDs to body indices, built on
+     * demand: each slot holds a body index plus one, or zero if empty
+     */
+    private int[] idTable = new int[0];
+    /**
+     * native ID of each body
+     */
+    private long[] bodyIds;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty frame with room for 64 bodies.
+     */
+    public TransformFrame() {
+        int capacity = 64;
+        this.bodyIds = new long[capacity];
+        this.transforms = BufferUtils.createFloatBuffer(
+                capacity * PhysicsSpace.TRANSFORM_STRIDE);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Read the native ID of the indexed body.
+     *
+     * @param bodyIndex the index of the body (&ge;0, &lt;count)
+     * @return the native ID (not zero)
+     * @see PhysicsSpace#findRigidBody(long)
+     */
+    public long bodyId(int bodyIndex) {
+        Validate.inRange(bodyIndex, "body index", 0, numBodies - 1);
+        long result = bodyIds[bodyIndex];
+        return result;
+    }
+
+    /**
+     * Capture the transforms of all rigid bodies in the specified space. Must
+     * be invoked on the thread that steps the space.
+     *
+     * @param space the space to capture (not null, unaffected)
+     * @param time the current simulation time (in seconds)
+     */
+    public void capture(PhysicsSpace space, double time) {
+        Validate.nonNull(space, "space");
+
+        int count = space.countRigidBodies();
+        if (count > bodyIds.length) {
+            int capacity = Math.max(count, 2 * bodyIds.length);
+            this.bodyIds = Arrays.copyOf(bodyIds, capacity);
+            this.transforms = BufferUtils.createFloatBuffer(
+                    capacity * PhysicsSpace.TRANSFORM_STRIDE);
+        }
+
+        transforms.clear();
+        this.numBodies = space.copyRigidTransforms(transforms, bodyIds, false);
+        transforms.flip();
+        this.simulationTime = time;
+        this.isTableValid = false;
+    }
+
+    /**
+     * Count the bodies in this frame.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countBodies() {
+        assert numBodies >= 0 : numBodies;
+        return numBodies;
+    }
+
+    /**
+     * Find the index of the body with the specified native ID, trying the
+     * suggested index first. If the hint misses, a hash table (built on
+     * demand after each capture) locates the body in constant average time.
+     *
+     * @param bodyId the native ID to find
+     * @param hint the index to try first (&ge;0)
+     * @return the body index, or -1 if not found
+     */
+    public int findBody(long bodyId, int hint) {
+        if (hint >= 0 && hint < numBodies && bodyIds[hint] == bodyId) {
+            return hint;
+        }
+        if (numBodies <= maxLinearSearch) {
+            for (int bodyIndex = 0; bodyIndex < numBodies; ++bodyIndex) {
+                if (bodyIds[bodyIndex] == bodyId) {
+                    return bodyIndex;
+                }
+            }
+            return -1;
+        }
+
+        if (!isTableValid) {
+            buildTable();
+        }
+        int mask = idTable.length - 1;
+        int slot = LongObjectMap.homeSlot(bodyId, mask);
+        while (idTable[slot] != 0) {
+            int bodyIndex = idTable[slot] - 1;
+            if (bodyIds[bodyIndex] == bodyId) {
+                return bodyIndex;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Copy the location of the indexed body.
+     *
+     * @param bodyIndex the index of the body (&ge;0, &lt;count)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the location vector (in physics-space coordinates, either
+     * storeResult or a new vector, not null)
+     */
+    public Vector3f location(int bodyIndex, Vector3f storeResult) {
+        Validate.inRange(bodyIndex, "body index", 0, numBodies - 1);
+        Vector3f result = (storeResult == null) ? new Vector3f() : storeResult;
+
+        int start = PhysicsSpace.TRANSFORM_STRIDE * bodyIndex;
+        result.set(transforms.get(start), transforms.get(start + 1),
+                transforms.get(start + 2));
+
+        return result;
+    }
+
+    /**
+     * Copy the orientation of the indexed body.
+     *
+     * @param bodyIndex the index of the body (&ge;0, &lt;count)
+     * @param storeResult storage for the result (modified if not null)
+     * @return the orientation (in physics-space coordinates, either
+     * storeResult or a new instance, not null)
+     */
+    public Quaternion orientation(int bodyIndex, Quaternion storeResult) {
+        Validate.inRange(bodyIndex, "body index", 0, numBodies - 1);
+        Quaternion result
+                = (storeResult == null) ? new Quaternion() : storeResult;
+
+        int start = PhysicsSpace.TRANSFORM_STRIDE * bodyIndex + 3;
+        result.set(transforms.get(start), transforms.get(start + 1),
+                transforms.get(start + 2), transforms.get(start + 3));
+
+        return result;
+    }
+
+    /**
+     * Return the simulation time of the capture.
+     *
+     * @return the time (in seconds)
+     */
+    public double simulationTime() {
+        return simulationTime;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Rebuild the ID-to-index hash table for the current capture.
+     */
+    private void buildTable() {
+        int tableSize = Integer.highestOneBit(2 * numBodies - 1) << 1;
+        if (idTable.length < tableSize) {
+            this.idTable = new int[tableSize];
+        } else {
+            Arrays.fill(idTable, 0);
+        }
+
+        int mask = idTable.length - 1;
+        for (int bodyIndex = 0; bodyIndex < numBodies; ++bodyIndex) {
+            int slot = LongObjectMap.homeSlot(bodyIds[bodyIndex], mask);
+            while (idTable[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            idTable[slot] = bodyIndex + 1;
+        }
+        this.isTableValid = true;
+    }
+}
@@ -0,0 +1,299 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.animation;
+
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.export.InputCapsule;
+import com.jme3.export.JmeExporter;
+import com.jme3.export.JmeImporter;
+import com.jme3.export.OutputCapsule;
+import com.jme3.export.Savable;
+import com.jme3.math.Vector3f;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Heart;
+import jme3utilities.Validate;
+
+/**
+ * The collision shapes, center offsets, and volumes computed for the torso and
+ * bone links of a ragdoll, as stored by {@link DacShapeCache}.
+ * <p>
+ * The record owns its shapes: it stores a copy of each shape added, and
+ * {@link #shape(java.lang.String)} returns a new copy, so no shape is ever
+ * shared between the cache and a ragdoll, or between ragdolls.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CachedLinkShapes implements Savable {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(CachedLinkShapes.class.getName());
+    /**
+     * field names for serialization
+     */
+    final private static String tagLinkNames = "linkNames";
+    final private static String tagMainBoneName = "mainBoneName";
+    final private static String tagOffsets = "offsets";
+    final private static String tagShapes = "shapes";
+    final private static String tagVolumes = "volumes";
+    // *************************************************************************
+    // fields
+
+    /**
+     * shape of each link, in the same order as linkNames
+     */
+    private List<CollisionShape> shapes = new ArrayList<>(32);
+    /**
+     * volume of each shape, in the same order as linkNames
+     */
+    private List<Float> volumes = new ArrayList<>(32);
+    /**
+     * name of each link (the torso or the name of a linked bone)
+     */
+    private List<String> linkNames = new ArrayList<>(32);
+    /**
+     * center offset of each link (in bone-local coordinates), in the same
+     * order as linkNames
+     */
+    private List<Vector3f> offsets = new ArrayList<>(32);
+    /**
+     * name of the torso's main bone, or null if not yet determined
+     */
+    private String mainBoneName;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty record. Also used during de-serialization.
+     */
+    public CachedLinkShapes() {
+        // do nothing
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the data for a link.
+     *
+     * @param linkName the name of the link (not null)
+     * @param shape the link's collision shape (not null, unaffected)
+     * @param offset the link's center offset (not null, unaffected)
+     */
+    void add(String linkName, CollisionShape shape, Vector3f offset) {
+        assert linkName != null;
+        assert shape != null;
+
+        float volume = DacShapeCache.volume(shape);
+        CollisionShape copy = Heart.deepCopy(shape);
+        DacShapeCache.rememberVolume(copy, volume);
+
+        linkNames.add(linkName);
+        shapes.add(copy);
+        offsets.add(offset.clone());
+        volumes.add(volume);
+    }
+
+    /**
+     * Count the links in this record.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countLinks() {
+        int result = linkNames.size();
+        return result;
+    }
+
+    /**
+     * Test whether this record includes the named link.
+     *
+     * @param linkName the name of the link (not null)
+     * @return true if found, otherwise false
+     */
+    public boolean hasLink(String linkName) {
+        Validate.nonNull(linkName, "link name");
+        boolean result = linkNames.contains(linkName);
+        return result;
+    }
+
+    /**
+     * Return the name of the torso's main bone.
+     *
+     * @return the name, or null if not recorded
+     */
+    public String mainBoneName() {
+        return mainBoneName;
+    }
+
+    /**
+     * Copy the center offset of the named link.
+     *
+     * @param linkName the name of the link (not null)
+     * @return a new vector (in bone-local coordinates)
+     */
+    public Vector3f offset(String linkName) {
+        int index = indexOf(linkName);
+        Vector3f result = offsets.get(index).clone();
+
+        return result;
+    }
+
+    /**
+     * Record the name of the torso's main bone.
+     *
+     * @param boneName the name to record (may be null)
+     */
+    void setMainBoneName(String boneName) {
+        this.mainBoneName = boneName;
+    }
+
+    /**
+     * Copy the collision shape of the named link. The copy reuses the
+     * computed geometry, but it's a distinct instance, so the caller may
+     * rescale it without affecting the cache or other ragdolls.
+     *
+     * @param linkName the name of the link (not null)
+     * @return a new instance (not null)
+     */
+    public CollisionShape shape(String linkName) {
+        int index = indexOf(linkName);
+        CollisionShape result = Heart.deepCopy(shapes.get(index));
+        DacShapeCache.rememberVolume(result, volumes.get(index));
+
+        return result;
+    }
+
+    /**
+     * Return the volume of the named link's shape.
+     *
+     * @param linkName the name of the link (not null)
+     * @return the volume (in physics-space units cubed, &ge;0)
+     */
+    public float volume(String linkName) {
+        int index = indexOf(linkName);
+        float result = volumes.get(index);
+
+        return result;
+    }
+    // *************************************************************************
+    // Savable methods
+
+    /**
+     * De-serialize this record from the specified importer, for example when
+     * loading from a J3O file.
+     *
+     * @param importer (not null)
+     * @throws IOException from the importer
+     */
+    @Override
+    public void read(JmeImporter importer) throws IOException {
+        InputCapsule capsule = importer.getCapsule(this);
+
+        this.mainBoneName = capsule.readString(tagMainBoneName, null);
+        String[] names = capsule.readStringArray(tagLinkNames, new String[0]);
+        Savable[] savedShapes = capsule.readSavableArray(tagShapes, null);
+        Savable[] savedOffsets = capsule.readSavableArray(tagOffsets, null);
+        float[] savedVolumes = capsule.readFloatArray(tagVolumes, null);
+
+        int numLinks = names.length;
+        this.linkNames = new ArrayList<>(numLinks);
+        this.shapes = new ArrayList<>(numLinks);
+        this.offsets = new ArrayList<>(numLinks);
+        this.volumes = new ArrayList<>(numLinks);
+        for (int linkIndex = 0; linkIndex < numLinks; ++linkIndex) {
+            CollisionShape shape = (CollisionShape) savedShapes[linkIndex];
+            float volume = savedVolumes[linkIndex];
+            DacShapeCache.rememberVolume(shape, volume);
+
+            linkNames.add(names[linkIndex]);
+            shapes.add(shape);
+            offsets.add((Vector3f) savedOffsets[linkIndex]);
+            volumes.add(volume);
+        }
+    }
+
+    /**
+     * Serialize this record to the specified exporter, for example when
+     * saving to a J3O file.
+     *
+     * @param exporter (not null)
+     * @throws IOException from the exporter
+     */
+    @Override
+    public void write(JmeExporter exporter) throws IOException {
+        OutputCapsule capsule = exporter.getCapsule(this);
+
+        int numLinks = linkNames.size();
+        String[] names = new String[numLinks];
+        Savable[] savedShapes = new Savable[numLinks];
+        Savable[] savedOffsets = new Savable[numLinks];
+        float[] savedVolumes = new float[numLinks];
+        for (int linkIndex = 0; linkIndex < numLinks; ++linkIndex) {
+            names[linkIndex] = linkNames.get(linkIndex);
+            savedShapes[linkIndex] = shapes.get(linkIndex);
+            savedOffsets[linkIndex] = offsets.get(linkIndex);
+            savedVolumes[linkIndex] = volumes.get(linkIndex);
+        }
+
+        capsule.write(mainBoneName, tagMainBoneName, null);
+        capsule.write(names, tagLinkNames, null);
+        capsule.write(savedShapes, tagShapes, null);
+        capsule.write(savedOffsets, tagOffsets, null);
+        capsule.write(savedVolumes, tagVolumes, null);
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Find the index of the named link.
+     *
+     * @param linkName the name of the link (not null)
+     * @return the index (&ge;0)
+     */
+    private int indexOf(String linkName) {
+        Validate.nonNull(linkName, "link name");
+
+        int result = linkNames.indexOf(linkName);
+        if (result < 0) {
+            String message = "No cached shape for link " + linkName;
+            throw new IllegalArgumentException(message);
+        }
+
+        return result;
+    }
+}
@@ -44,6 +44,7 @@ import com.jme3.bullet.collision.shapes.CollisionShape;
 import com.jme3.bullet.joints.PhysicsJoint;
 import com.jme3.bullet.objects.PhysicsBody;
 import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.NativeLibrary;
 import com.jme3.export.InputCapsule;
 import com.jme3.export.JmeExporter;
 import com.jme3.export.JmeImporter;
@@ -63,6 +64,10 @@ import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Heart;
@@ -130,6 +135,11 @@ public class DacLinks
      * bone links in a pre-order, depth-first traversal of the link hierarchy
      */
     private List<BoneLink> boneLinkList = null;
+    /**
+     * executor for parallel ragdoll construction, or null to build on the
+     * current thread
+     */
+    private ExecutorService buildExecutor = null;
     /**
      * map bone names to attachment links
      */
@@ -277,6 +287,16 @@ public class DacLinks
         return armature;
     }
 
+    /**
+     * Access the executor used to parallelize ragdoll construction.
+     *
+     * @return the pre-existing executor, or null if building on the current
+     * thread
+     */
+    public ExecutorService getBuildExecutor() {
+        return buildExecutor;
+    }
+
     /**
      * Access the Skeleton. Returns null if the Control is not added to a
      * Spatial.
@@ -564,6 +584,20 @@ public class DacLinks
         }
     }
 
+    /**
+     * Alter the executor used to parallelize ragdoll construction. When set,
+     * the assignment of mesh vertices to links and the generation of link
+     * shapes are split into tasks run by the executor. The resulting ragdoll
+     * is the same either way. The executor isn't serialized. Shape generation
+     * stays on the current thread if the native library isn't thread-safe.
+     *
+     * @param executor the desired executor (alias created) or null to build
+     * on the current thread (default=null)
+     */
+    public void setBuildExecutor(ExecutorService executor) {
+        this.buildExecutor = executor;
+    }
+
     /**
      * Alter the mass of the specified link.
      *
@@ -874,19 +908,56 @@ public class DacLinks
             this.transformer = spatial;
         }
 
-        // Enumerate mesh-vertex coordinates and assign them to managers.
-        Map<String, VectorSet> coordsMap
-                = RagUtils.coordsMap(targets, tempManagerMap);
-
-        // Create the TorsoLink.
-        VectorSet vertexLocations = coordsMap.get(torsoName);
-        createTorsoLink(vertexLocations, targets);
+        // Look for link shapes cached from an earlier ragdoll of this model.
+        String cacheKey = DacShapeCache.key(spatial, this, targets);
+        CachedLinkShapes cached = null;
+        if (cacheKey != null) {
+            cached = DacShapeCache.find(cacheKey);
+        }
 
-        // Create bone links without physics joints.
         String[] linkedBoneNames = listLinkedBoneNames();
-        for (String boneName : linkedBoneNames) {
-            vertexLocations = coordsMap.get(boneName);
-            createBoneLink(boneName, vertexLocations);
+        if (cached == null) {
+            // Enumerate mesh-vertex coordinates and assign them to managers.
+            Map<String, VectorSet> coordsMap = RagUtils.coordsMap(
+                    targets, tempManagerMap, buildExecutor);
+
+            // Determine the main bone and generate shapes for all links.
+            selectMainBone(coordsMap.get(torsoName), targets);
+            int numLinks = linkedBoneNames.length + 1;
+            String[] linkNames = new String[numLinks];
+            linkNames[0] = torsoName;
+            System.arraycopy(linkedBoneNames, 0, linkNames, 1, numLinks - 1);
+            CollisionShape[] shapes = new CollisionShape[numLinks];
+            Vector3f[] offsets = new Vector3f[numLinks];
+            createLinkShapes(linkNames, coordsMap, shapes, offsets);
+
+            // Create the TorsoLink and bone links without physics joints.
+            createTorsoLink(shapes[0], offsets[0]);
+            for (int linkIndex = 1; linkIndex < numLinks; ++linkIndex) {
+                createBoneLink(linkNames[linkIndex], shapes[linkIndex],
+                        offsets[linkIndex]);
+            }
+
+            if (cacheKey != null) {
+                CachedLinkShapes newShapes = new CachedLinkShapes();
+                for (int linkIndex = 0; linkIndex < numLinks; ++linkIndex) {
+                    newShapes.add(linkNames[linkIndex], shapes[linkIndex],
+                            offsets[linkIndex]);
+                }
+                newShapes.setMainBoneName(mainBoneName());
+                DacShapeCache.store(cacheKey, newShapes);
+            }
+
+        } else { // Re-use the cached shapes.
+            if (mainBoneName() == null) {
+                super.setMainBoneName(cached.mainBoneName());
+            }
+            createTorsoLink(cached.shape(torsoName), cached.offset(torsoName));
+            for (String boneName : linkedBoneNames) {
+                CollisionShape shape = cached.shape(boneName);
+                Vector3f offset = cached.offset(boneName);
+                createBoneLink(boneName, shape, offset);
+            }
         }
         int numLinkedBones = countLinkedBones();
         assert boneLinks.size() == numLinkedBones;
@@ -1532,113 +1603,156 @@ public class DacLinks
      * boneLinks map.
      *
      * @param boneName the name of the bone/joint to be linked (not null)
+     * @param shape the link's collision shape (not null, alias created)
+     * @param offset the link's center offset (in bone-local coordinates, not
+     * null, alias created)
+     */
+    private void createBoneLink(
+            String boneName, CollisionShape shape, Vector3f offset) {
+        LinkConfig linkConfig = config(boneName);
+
+        BoneLink link;
+        if (skeleton != null) {
+            Bone bone = findBone(boneName);
+            link = new BoneLink(this, bone, shape, linkConfig, offset);
+        } else {
+            Joint armatureJoint = findArmatureJoint(boneName);
+            link = new BoneLink(this, armatureJoint, shape, linkConfig, offset);
+        }
+        boneLinks.put(boneName, link);
+    }
+
+    /**
+     * Generate the collision shape and center offset for the named link.
+     * Doesn't modify the control, so it may be invoked from any thread.
+     *
+     * @param linkName the name of the torso or linked bone (not null)
      * @param vertexLocations the set of vertex locations (not null, not empty)
+     * @param storeOffset storage for the center offset (in bone-local
+     * coordinates, not null, modified)
+     * @return a new shape (not null)
      */
-    private void createBoneLink(String boneName, VectorSet vertexLocations) {
+    private CollisionShape createLinkShape(String linkName,
+            VectorSet vertexLocations, Vector3f storeOffset) {
+        boolean isTorso = torsoName.equals(linkName);
         if (vertexLocations == null || vertexLocations.numVectors() == 0) {
-            String msg = String.format("No mesh vertices for linked bone %s.",
-                    MyString.quote(boneName));
+            String msg;
+            if (isTorso) {
+                msg = "No mesh vertices for the torso."
+                        + " Make sure the root bone is not linked.";
+            } else {
+                msg = String.format("No mesh vertices for linked bone %s.",
+                        MyString.quote(linkName));
+            }
             throw new IllegalArgumentException(msg);
         }
 
-        Bone bone = null;
-        Joint armatureJoint = null;
+        String boneName = isTorso ? mainBoneName() : linkName;
         Transform boneToMesh;
         if (skeleton != null) {
-            bone = findBone(boneName);
+            Bone bone = findBone(boneName);
             boneToMesh = MySkeleton.copyMeshTransform(bone, null);
         } else {
-            armatureJoint = findArmatureJoint(boneName);
+            Joint armatureJoint = findArmatureJoint(boneName);
             boneToMesh = armatureJoint.getModelTransform();
         }
         Transform meshToBone = boneToMesh.invert();
-        LinkConfig linkConfig = config(boneName);
+        LinkConfig linkConfig = config(linkName);
 
         // Create the CollisionShape and locate the center of mass.
         Vector3f center;
         CenterHeuristic centerHeuristic = linkConfig.centerHeuristic();
         if (centerHeuristic == CenterHeuristic.Joint) {
+            assert !isTorso;
             center = translateIdentity;
         } else {
             center = centerHeuristic.center(vertexLocations, null);
             center.subtractLocal(boneToMesh.getTranslation());
         }
-        CollisionShape shape
+        CollisionShape result
                 = linkConfig.createShape(meshToBone, center, vertexLocations);
 
         meshToBone.getTranslation().zero();
-        Vector3f offset = meshToBone.transformVector(center, null);
+        meshToBone.transformVector(center, storeOffset);
 
-        BoneLink link;
-        if (skeleton != null) {
-            link = new BoneLink(this, bone, shape, linkConfig, offset);
-        } else {
-            link = new BoneLink(this, armatureJoint, shape, linkConfig, offset);
-        }
-        boneLinks.put(boneName, link);
+        return result;
     }
 
     /**
-     * Create the TorsoLink.
+     * Generate collision shapes and center offsets for the named links, using
+     * the build executor if one is set and the native library is thread-safe.
      *
-     * @param vertexLocations the set of vertex locations (not null, not empty)
-     * @param meshes array of animated meshes to use (not null, unaffected)
-     */
-    private void createTorsoLink(VectorSet vertexLocations, Mesh[] meshes) {
-        if (vertexLocations == null || vertexLocations.numVectors() == 0) {
-            throw new IllegalArgumentException(
-                    "No mesh vertices for the torso."
-                    + " Make sure the root bone is not linked.");
+     * @param linkNames the names of the links (not null, unaffected)
+     * @param coordsMap a map from link names to vertex locations (not null,
+     * unaffected)
+     * @param storeShapes storage for the shapes (not null, same length as
+     * linkNames, modified)
+     * @param storeOffsets storage for the center offsets (not null, same
+     * length as linkNames, modified)
+     */
+    private void createLinkShapes(final String[] linkNames,
+            final Map<String, VectorSet> coordsMap,
+            final CollisionShape[] storeShapes, final Vector3f[] storeOffsets) {
+        int numLinks = linkNames.length;
+        if (buildExecutor == null || numLinks <= 1
+                || !NativeLibrary.isThreadSafe()) {
+            for (int linkIndex = 0; linkIndex < numLinks; ++linkIndex) {
+                String linkName = linkNames[linkIndex];
+                VectorSet locations = coordsMap.get(linkName);
+                Vector3f offset = new Vector3f();
+                storeShapes[linkIndex]
+                        = createLinkShape(linkName, locations, offset);
+                storeOffsets[linkIndex] = offset;
+            }
+            return;
         }
 
-        // Create the CollisionShape.
-        Bone bone = null;
-        Joint armatureJoint = null;
-        String mainBoneName = mainBoneName();
-        Transform boneToMesh;
-        if (skeleton != null) {
-            if (mainBoneName == null) {
-                bone = RagUtils.findMainBone(skeleton, meshes);
-                assert bone.getParent() == null;
-                mainBoneName = bone.getName();
-                super.setMainBoneName(mainBoneName);
-            } else {
-                bone = skeleton.getBone(mainBoneName);
-                if (bone == null) {
-                    String q = MyString.quote(mainBoneName);
-                    throw new IllegalStateException("Bone not found: " + q);
+        List<Callable<Void>> tasks = new ArrayList<>(numLinks);
+        for (int linkIndex = 0; linkIndex < numLinks; ++linkIndex) {
+            final int index = linkIndex;
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    String linkName = linkNames[index];
+                    VectorSet locations = coordsMap.get(linkName);
+                    Vector3f offset = new Vector3f();
+                    storeShapes[index]
+                            = createLinkShape(linkName, locations, offset);
+                    storeOffsets[index] = offset;
+                    return null;
                 }
-            }
-            boneToMesh = MySkeleton.copyMeshTransform(bone, null);
+            });
+        }
 
-        } else {
-            if (mainBoneName == null) {
-                armatureJoint = RagUtils.findMainJoint(armature, meshes);
-                assert armatureJoint.getParent() == null;
-                mainBoneName = armatureJoint.getName();
-                super.setMainBoneName(mainBoneName);
-            } else {
-                armatureJoint = armature.getJoint(mainBoneName);
-                if (armatureJoint == null) {
-                    String q = MyString.quote(mainBoneName);
-                    throw new IllegalStateException("Joint not found: " + q);
-                }
+        try {
+            List<Future<Void>> futures = buildExecutor.invokeAll(tasks);
+            for (Future<Void> future : futures) {
+                future.get();
             }
-            boneToMesh = armatureJoint.getModelTransform();
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(exception);
         }
-        Transform meshToBone = boneToMesh.invert();
-        LinkConfig linkConfig = config(torsoName);
-
-        // Create the CollisionShape and locate the center of mass.
-        CenterHeuristic centerHeuristic = linkConfig.centerHeuristic();
-        assert centerHeuristic != CenterHeuristic.Joint;
-        Vector3f center = centerHeuristic.center(vertexLocations, null);
-        center.subtractLocal(boneToMesh.getTranslation());
-        CollisionShape shape
-                = linkConfig.createShape(meshToBone, center, vertexLocations);
+    }
 
-        meshToBone.getTranslation().zero();
-        Vector3f offset = meshToBone.transformVector(center, null);
+    /**
+     * Create the TorsoLink for the main bone, which must already be
+     * determined.
+     *
+     * @param shape the link's collision shape (not null, alias created)
+     * @param offset the link's center offset (in bone-local coordinates, not
+     * null, alias created)
+     */
+    private void createTorsoLink(CollisionShape shape, Vector3f offset) {
+        String mainBoneName = mainBoneName();
+        assert mainBoneName != null;
+        LinkConfig linkConfig = config(torsoName);
 
         Transform meshToModel;
         Spatial cgm = getSpatial();
@@ -1651,9 +1765,19 @@ public class DacLinks
         }
 
         if (skeleton != null) {
+            Bone bone = skeleton.getBone(mainBoneName);
+            if (bone == null) {
+                String q = MyString.quote(mainBoneName);
+                throw new IllegalStateException("Bone not found: " + q);
+            }
             this.torsoLink = new TorsoLink(this, bone, shape, linkConfig,
                     meshToModel, offset);
         } else {
+            Joint armatureJoint = armature.getJoint(mainBoneName);
+            if (armatureJoint == null) {
+                String q = MyString.quote(mainBoneName);
+                throw new IllegalStateException("Joint not found: " + q);
+            }
             this.torsoLink = new TorsoLink(this, armatureJoint, shape,
                     linkConfig, meshToModel, offset);
         }
@@ -1681,6 +1805,43 @@ public class DacLinks
         }
     }
 
+    /**
+     * Determine the main bone of the torso, if it isn't already configured,
+     * and verify that the torso has vertices.
+     *
+     * @param torsoLocations the torso's vertex locations (may be null)
+     * @param meshes array of animated meshes to use (not null, unaffected)
+     */
+    private void selectMainBone(VectorSet torsoLocations, Mesh[] meshes) {
+        if (torsoLocations == null || torsoLocations.numVectors() == 0) {
+            throw new IllegalArgumentException(
+                    "No mesh vertices for the torso."
+                    + " Make sure the root bone is not linked.");
+        }
+
+        String mainBoneName = mainBoneName();
+        if (skeleton != null) {
+            if (mainBoneName == null) {
+                Bone bone = RagUtils.findMainBone(skeleton, meshes);
+                assert bone.getParent() == null;
+                super.setMainBoneName(bone.getName());
+            } else if (skeleton.getBone(mainBoneName) == null) {
+                String q = MyString.quote(mainBoneName);
+                throw new IllegalStateException("Bone not found: " + q);
+            }
+
+        } else {
+            if (mainBoneName == null) {
+                Joint armatureJoint = RagUtils.findMainJoint(armature, meshes);
+                assert armatureJoint.getParent() == null;
+                super.setMainBoneName(armatureJoint.getName());
+            } else if (armature.getJoint(mainBoneName) == null) {
+                String q = MyString.quote(mainBoneName);
+                throw new IllegalStateException("Joint not found: " + q);
+            }
+        }
+    }
+
     /**
      * Sort the controls of the controlled spatial, such that this Control will
      * come BEFORE the specified Control.
@@ -0,0 +1,462 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.animation;
+
+import com.jme3.asset.AssetKey;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.util.ContentDigest;
+import com.jme3.export.Savable;
+import com.jme3.export.binary.BinaryExporter;
+import com.jme3.export.binary.BinaryImporter;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.Spatial;
+import com.jme3.scene.VertexBuffer;
+import java.io.File;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.MyString;
+import jme3utilities.minie.MyShape;
+
+/**
+ * A cache of the link shapes computed when a DynamicAnimControl is added to a
+ * model, so that further ragdolls of the same model asset (with equivalent
+ * configurations) can skip the per-vertex analysis and shape generation.
+ * <p>
+ * Entries are keyed by the model's AssetKey, the total vertex count of its
+ * animated meshes, a hash of their bind-pose positions, bone indices, and
+ * bone weights, the main bone, and the shape-related parameters of each
+ * torso and bone-link configuration. Models without an AssetKey are never
+ * cached. Each ragdoll receives its own copies of the cached shapes, so
+ * rescaling one ragdoll doesn't affect the others. Optionally, entries are
+ * also stored as J3O files in a directory, so they persist between runs.
+ * <p>
+ * The cache is disabled by default.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class DacShapeCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(DacShapeCache.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the cache is enabled, otherwise false
+     */
+    private static volatile boolean isEnabled = false;
+    /**
+     * directory for persistent entries, or null for in-memory caching only
+     */
+    private static volatile File directory = null;
+    /**
+     * count of lookups that found an entry
+     */
+    final private static LongAdder hitCount = new LongAdder();
+    /**
+     * count of lookups that found no entry
+     */
+    final private static LongAdder missCount = new LongAdder();
+    /**
+     * map cache keys to in-memory entries
+     */
+    final private static Map<String, CachedLinkShapes> entries
+            = new ConcurrentHashMap<>(16);
+    /**
+     * map cached shapes to their volumes, to avoid recalculating them
+     */
+    final private static Map<CollisionShape, Float> volumeMap
+            = Collections.synchronizedMap(
+                    new WeakHashMap<CollisionShape, Float>(64));
+    // *************************************************************************
+    // constructors
+
+    /**
+     * A private constructor to inhibit instantiation of this class.
+     */
+    private DacShapeCache() {
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Forget all in-memory entries. Persistent entries are unaffected.
+     */
+    public static void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Count the in-memory entries.
+     *
+     * @return the count (&ge;0)
+     */
+    public static int countEntries() {
+        int result = entries.size();
+        return result;
+    }
+
+    /**
+     * Count how many lookups found an entry since the statistics were last
+     * reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countHits() {
+        long result = hitCount.sum();
+        return result;
+    }
+
+    /**
+     * Count how many lookups found no entry since the statistics were last
+     * reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countMisses() {
+        long result = missCount.sum();
+        return result;
+    }
+
+    /**
+     * Find the entry for the specified key, first in memory and then (if a
+     * directory is set) on disk.
+     *
+     * @param key the cache key (not null)
+     * @return the pre-existing entry, or null if not found
+     */
+    static CachedLinkShapes find(String key) {
+        CachedLinkShapes result = entries.get(key);
+        if (result == null) {
+            result = load(key);
+            if (result != null) {
+                entries.putIfAbsent(key, result);
+            }
+        }
+
+        if (result == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return result;
+    }
+
+    /**
+     * Access the directory for persistent entries.
+     *
+     * @return the pre-existing directory, or null if caching in memory only
+     */
+    public static File getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Test whether the cache is enabled.
+     *
+     * @return true if enabled, otherwise false
+     */
+    public static boolean isEnabled() {
+        return isEnabled;
+    }
+
+    /**
+     * Generate the cache key for the specified model and configuration.
+     *
+     * @param model the controlled model (not null, unaffected)
+     * @param config the control's configuration (not null, unaffected)
+     * @param targets the model's animated meshes (not null, unaffected)
+     * @return a new key, or null if the cache is disabled or the model lacks
+     * an AssetKey
+     */
+    static String key(Spatial model, DacConfiguration config, Mesh[] targets) {
+        if (!isEnabled) {
+            return null;
+        }
+        AssetKey<?> assetKey = model.getKey();
+        if (assetKey == null) {
+            return null;
+        }
+
+        int numVertices = 0;
+        long meshHash = 0xcbf29ce484222325L;
+        for (Mesh mesh : targets) {
+            numVertices += mesh.getVertexCount();
+
+            VertexBuffer positions
+                    = mesh.getBuffer(VertexBuffer.Type.BindPosePosition);
+            if (positions == null) {
+                positions = mesh.getBuffer(VertexBuffer.Type.Position);
+            }
+            meshHash = hash(meshHash, positions);
+            meshHash = hash(meshHash,
+                    mesh.getBuffer(VertexBuffer.Type.BoneIndex));
+            meshHash = hash(meshHash,
+                    mesh.getBuffer(VertexBuffer.Type.BoneWeight));
+        }
+
+        StringBuilder builder = new StringBuilder(256);
+        builder.append(assetKey.getName())
+                .append("|vertices=")
+                .append(numVertices)
+                .append("|mesh=")
+                .append(Long.toHexString(meshHash))
+                .append("|main=")
+                .append(config.mainBoneName());
+        appendConfig(builder, DacConfiguration.torsoName,
+                config.config(DacConfiguration.torsoName));
+        for (String boneName : config.listLinkedBoneNames()) {
+            appendConfig(builder, boneName, config.config(boneName));
+        }
+        String result = builder.toString();
+
+        return result;
+    }
+
+    /**
+     * Remember the volume of a cached shape.
+     *
+     * @param shape the shape (not null, alias created)
+     * @param volume the shape's volume (in physics-space units cubed, &ge;0)
+     */
+    static void rememberVolume(CollisionShape shape, float volume) {
+        volumeMap.put(shape, volume);
+    }
+
+    /**
+     * Reset the hit and miss counters to zero.
+     */
+    public static void resetStatistics() {
+        hitCount.reset();
+        missCount.reset();
+    }
+
+    /**
+     * Alter the directory for persistent entries.
+     *
+     * @param dir the desired directory (alias created) or null to cache in
+     * memory only (default=null)
+     */
+    public static void setDirectory(File dir) {
+        directory = dir;
+    }
+
+    /**
+     * Enable or disable the cache. Disabling the cache doesn't discard
+     * existing entries.
+     *
+     * @param enable true &rarr; enable, false &rarr; disable (default=false)
+     */
+    public static void setEnabled(boolean enable) {
+        isEnabled = enable;
+    }
+
+    /**
+     * Add an entry to the cache and (if a directory is set) persist it.
+     *
+     * @param key the cache key (not null)
+     * @param shapes the entry to add (not null, alias created)
+     */
+    static void store(String key, CachedLinkShapes shapes) {
+        entries.put(key, shapes);
+
+        File file = fileFor(key);
+        if (file != null) {
+            try {
+                File parent = file.getParentFile();
+                if (parent != null && !parent.isDirectory()) {
+                    parent.mkdirs();
+                }
+                BinaryExporter.getInstance().save(shapes, file);
+            } catch (IOException exception) {
+                logger.log(Level.WARNING, "Failed to write {0}: {1}",
+                        new Object[]{
+                            MyString.quote(file.getPath()), exception
+                        });
+            }
+        }
+    }
+
+    /**
+     * Determine the volume of the specified shape, consulting the cache first.
+     * If the cache is enabled, the calculated volume is remembered.
+     *
+     * @param shape the shape to measure (not null, unaffected)
+     * @return the volume (in physics-space units cubed, &ge;0)
+     */
+    static float volume(CollisionShape shape) {
+        Float cached = volumeMap.get(shape);
+        if (cached != null) {
+            return cached;
+        }
+
+        float result = MyShape.volume(shape);
+        if (isEnabled) {
+            volumeMap.put(shape, result);
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append the shape-related parameters of a link configuration to a cache
+     * key.
+     *
+     * @param builder the key being built (not null, modified)
+     * @param linkName the name of the link (not null)
+     * @param config the link's configuration (not null, unaffected)
+     */
+    private static void appendConfig(
+            StringBuilder builder, String linkName, LinkConfig config) {
+        Vector3f shapeScale = config.shapeScale(null);
+        builder.append('|')
+                .append(linkName)
+                .append('=')
+                .append(config.centerHeuristic())
+                .append(',')
+                .append(config.shapeHeuristic())
+                .append(',')
+                .append(shapeScale.x)
+                .append(',')
+                .append(shapeScale.y)
+                .append(',')
+                .append(shapeScale.z);
+    }
+
+    /**
+     * Determine the J3O file for the specified cache key.
+     *
+     * @param key the cache key (not null)
+     * @return a new File, or null if caching in memory only
+     */
+    private static File fileFor(String key) {
+        File dir = directory;
+        if (dir == null) {
+            return null;
+        }
+
+        ContentDigest digest = new ContentDigest();
+        digest.putBytes(key.getBytes(StandardCharsets.UTF_8));
+        String fileName = digest.finish() + ".j3o";
+        File result = new File(dir, fileName);
+
+        return result;
+    }
+
+    /**
+     * Mix the contents of the specified vertex buffer into a 64-bit FNV-1a
+     * hash, reading the data in place.
+     *
+     * @param hash the hash so far
+     * @param vertexBuffer the buffer to mix in (unaffected) or null
+     * @return the updated hash
+     */
+    private static long hash(long hash, VertexBuffer vertexBuffer) {
+        long result = hash;
+        if (vertexBuffer == null) {
+            return result;
+        }
+
+        final long prime = 0x100000001b3L;
+        Buffer data = vertexBuffer.getData();
+        int limit = data.limit();
+        if (data instanceof FloatBuffer) {
+            FloatBuffer floats = (FloatBuffer) data;
+            for (int i = 0; i < limit; ++i) {
+                result = (result ^ Float.floatToIntBits(floats.get(i))) * prime;
+            }
+        } else if (data instanceof ByteBuffer) {
+            ByteBuffer bytes = (ByteBuffer) data;
+            for (int i = 0; i < limit; ++i) {
+                result = (result ^ bytes.get(i)) * prime;
+            }
+        } else if (data instanceof ShortBuffer) {
+            ShortBuffer shorts = (ShortBuffer) data;
+            for (int i = 0; i < limit; ++i) {
+                result = (result ^ shorts.get(i)) * prime;
+            }
+        } else if (data instanceof IntBuffer) {
+            IntBuffer ints = (IntBuffer) data;
+            for (int i = 0; i < limit; ++i) {
+                result = (result ^ ints.get(i)) * prime;
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Read the persistent entry for the specified key.
+     *
+     * @param key the cache key (not null)
+     * @return a new entry, or null if not found or unreadable
+     */
+    private static CachedLinkShapes load(String key) {
+        File file = fileFor(key);
+        if (file == null || !file.isFile()) {
+            return null;
+        }
+
+        CachedLinkShapes result = null;
+        try {
+            Savable loaded = BinaryImporter.getInstance().load(file);
+            if (loaded instanceof CachedLinkShapes) {
+                result = (CachedLinkShapes) loaded;
+            }
+        } catch (IOException | RuntimeException exception) {
+            logger.log(Level.WARNING, "Failed to read {0}: {1}",
+                    new Object[]{MyString.quote(file.getPath()), exception});
+        }
+
+        return result;
+    }
+}
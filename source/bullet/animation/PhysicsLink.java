@@ -51,7 +51,6 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.MyString;
 import jme3utilities.Validate;
-import jme3utilities.minie.MyShape;
 
 /**
  * The abstract base class used by DynamicAnimControl to link pieces of a JME
@@ -775,7 +774,7 @@ abstract public class PhysicsLink implements JmeCloneable, Savable {
             CollisionShape collisionShape) {
         assert collisionShape != null;
 
-        float volume = MyShape.volume(collisionShape);
+        float volume = DacShapeCache.volume(collisionShape);
         float mass = linkConfig.mass(volume);
         this.density = mass / volume;
         PhysicsRigidBody body = new PhysicsRigidBody(collisionShape, mass);
@@ -65,6 +65,11 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Logger;
 import jme3utilities.MyMesh;
 import jme3utilities.MySkeleton;
@@ -93,6 +98,10 @@ final public class RagUtils {
      */
     final private static Logger logger
             = Logger.getLogger(RagUtils.class.getName());
+    /**
+     * number of mesh vertices per task when assigning vertices in parallel
+     */
+    final private static int verticesPerTask = 8_192;
     // *************************************************************************
     // constructors
 
@@ -115,29 +124,116 @@ final public class RagUtils {
      */
     public static Map<String, VectorSet>
             coordsMap(Mesh[] meshes, String[] managerMap) {
-        Validate.nonNull(managerMap, "manager map");
+        Map<String, VectorSet> result = coordsMap(meshes, managerMap, null);
+        return result;
+    }
 
-        float[] wArray = new float[4];
-        int[] iArray = new int[4];
-        Vector3f bindPosition = new Vector3f();
-        Map<String, VectorSet> coordsMap = new HashMap<>(32);
+    /**
+     * Assign each mesh vertex to a bone/torso link and add its location (mesh
+     * coordinates in bind pose) to that link's list, optionally splitting the
+     * work across an executor. Each set lists its vertices in mesh order,
+     * regardless of how the work is split, so the result is deterministic.
+     *
+     * @param meshes array of animated meshes to use (not null, unaffected)
+     * @param managerMap a map from bone indices to managing link names (not
+     * null, unaffected)
+     * @param executor the executor for parallel tasks, or null to do all the
+     * work on the current thread
+     * @return a new map from bone/torso names to sets of vertex coordinates
+     */
+    public static Map<String, VectorSet> coordsMap(Mesh[] meshes,
+            final String[] managerMap, ExecutorService executor) {
+        Validate.nonNull(meshes, "meshes");
+        Validate.nonNull(managerMap, "manager map");
+        /*
+         * Split each mesh into ranges of vertices. Buffer views are created
+         * here, on the current thread, so that tasks don't share positions.
+         */
+        List<Callable<Map<String, VectorSet>>> tasks = new ArrayList<>(8);
         for (Mesh mesh : meshes) {
+            int maxWeightsPerVert = mesh.getMaxNumWeights();
+            if (maxWeightsPerVert <= 0) {
+                maxWeightsPerVert = 1;
+            }
+            final int numWeights = maxWeightsPerVert;
             int numVertices = mesh.getVertexCount();
-            for (int vertexI = 0; vertexI < numVertices; ++vertexI) {
-                String managerName = findManager(
-                        mesh, vertexI, iArray, wArray, managerMap);
-                VectorSet set = coordsMap.get(managerName);
+            int taskSize = (executor == null) ? numVertices : verticesPerTask;
+            for (int start = 0; start < numVertices; start += taskSize) {
+                final int first = start;
+                final int end = Math.min(start + taskSize, numVertices);
+                final FloatBuffer positions = (FloatBuffer) mesh.getBuffer(
+                        VertexBuffer.Type.BindPosePosition).getDataReadOnly();
+                final Buffer boneIndices = mesh.getBuffer(
+                        VertexBuffer.Type.BoneIndex).getDataReadOnly();
+                final FloatBuffer weights = (FloatBuffer) mesh.getBuffer(
+                        VertexBuffer.Type.BoneWeight).getDataReadOnly();
+                tasks.add(new Callable<Map<String, VectorSet>>() {
+                    @Override
+                    public Map<String, VectorSet> call() {
+                        Map<String, VectorSet> map = coordsRange(positions,
+                                boneIndices, weights, numWeights, first, end,
+                                managerMap);
+                        return map;
+                    }
+                });
+            }
+        }
+
+        List<Map<String, VectorSet>> partialMaps = new ArrayList<>(8);
+        try {
+            if (executor == null || tasks.size() <= 1) {
+                for (Callable<Map<String, VectorSet>> task : tasks) {
+                    FutureTask<Map<String, VectorSet>> futureTask
+                            = new FutureTask<>(task);
+                    futureTask.run();
+                    partialMaps.add(futureTask.get());
+                }
+            } else {
+                List<Future<Map<String, VectorSet>>> futures
+                        = executor.invokeAll(tasks);
+                for (Future<Map<String, VectorSet>> future : futures) {
+                    partialMaps.add(future.get());
+                }
+            }
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(exception);
+        }
+
+        if (partialMaps.isEmpty()) {
+            return new HashMap<>(32);
+        } else if (partialMaps.size() == 1) {
+            return partialMaps.get(0);
+        }
+
+        // Merge the partial maps in order.
+        Map<String, VectorSet> result = new HashMap<>(32);
+        Vector3f tmpVector = new Vector3f();
+        for (Map<String, VectorSet> partialMap : partialMaps) {
+            for (Map.Entry<String, VectorSet> entry : partialMap.entrySet()) {
+                String managerName = entry.getKey();
+                VectorSet set = result.get(managerName);
                 if (set == null) {
                     set = new VectorSetUsingBuffer(1, false);
-                    coordsMap.put(managerName, set);
+                    result.put(managerName, set);
+                }
+                VectorSet partialSet = entry.getValue();
+                int numVectors = partialSet.numVectors();
+                FloatBuffer buffer = partialSet.toBuffer();
+                for (int vectorI = 0; vectorI < numVectors; ++vectorI) {
+                    MyBuffer.get(buffer, 3 * vectorI, tmpVector);
+                    set.add(tmpVector);
                 }
-                MyMesh.vertexVector3f(mesh, VertexBuffer.Type.BindPosePosition,
-                        vertexI, bindPosition);
-                set.add(bindPosition);
             }
         }
 
-        return coordsMap;
+        return result;
     }
 
     /**
@@ -227,19 +323,9 @@ final public class RagUtils {
 
         MyMesh.vertexBoneIndices(mesh, vertexIndex, iArray);
         MyMesh.vertexBoneWeights(mesh, vertexIndex, wArray);
-        Map<String, Float> weightMap = weightMap(iArray, wArray, managerMap);
+        String result = findManager(iArray, wArray, managerMap);
 
-        float bestTotalWeight = Float.NEGATIVE_INFINITY;
-        String bestName = null;
-        for (Map.Entry<String, Float> entry : weightMap.entrySet()) {
-            float totalWeight = entry.getValue();
-            if (totalWeight >= bestTotalWeight) {
-                bestTotalWeight = totalWeight;
-                bestName = entry.getKey();
-            }
-        }
-
-        return bestName;
+        return result;
     }
 
     /**
@@ -677,6 +763,85 @@ final public class RagUtils {
         }
     }
 
+    /**
+     * Assign a range of mesh vertices to bone/torso links.
+     *
+     * @param positions the mesh's bind-pose positions (not null, unaffected)
+     * @param boneIndices the mesh's bone indices (not null, position modified)
+     * @param weights the mesh's bone weights (not null, unaffected)
+     * @param maxWeightsPerVert the number of weights used per vertex (1-4)
+     * @param first the index of the first vertex in the range (&ge;0)
+     * @param end the index after the last vertex in the range (&ge;first)
+     * @param managerMap a map from bone indices to managing link names (not
+     * null, unaffected)
+     * @return a new map from bone/torso names to sets of vertex coordinates
+     */
+    private static Map<String, VectorSet> coordsRange(FloatBuffer positions,
+            Buffer boneIndices, FloatBuffer weights, int maxWeightsPerVert,
+            int first, int end, String[] managerMap) {
+        assert maxWeightsPerVert > 0 : maxWeightsPerVert;
+        assert maxWeightsPerVert <= 4 : maxWeightsPerVert;
+
+        float[] wArray = new float[4];
+        int[] iArray = new int[4];
+        Vector3f bindPosition = new Vector3f();
+        Map<String, VectorSet> result = new HashMap<>(32);
+
+        boneIndices.position(4 * first);
+        for (int vertexI = first; vertexI < end; ++vertexI) {
+            for (int wIndex = 0; wIndex < 4; ++wIndex) {
+                int boneIndex = MyBuffer.readIndex(boneIndices);
+                if (wIndex < maxWeightsPerVert) {
+                    iArray[wIndex] = boneIndex;
+                    wArray[wIndex] = weights.get(4 * vertexI + wIndex);
+                } else {
+                    iArray[wIndex] = -1;
+                    wArray[wIndex] = 0f;
+                }
+            }
+            String managerName = findManager(iArray, wArray, managerMap);
+
+            VectorSet set = result.get(managerName);
+            if (set == null) {
+                set = new VectorSetUsingBuffer(1, false);
+                result.put(managerName, set);
+            }
+            int start = 3 * vertexI;
+            bindPosition.set(positions.get(start), positions.get(start + 1),
+                    positions.get(start + 2));
+            set.add(bindPosition);
+        }
+
+        return result;
+    }
+
+    /**
+     * Determine which physics link should manage a mesh vertex, given its bone
+     * indices and weights.
+     *
+     * @param iArray the vertex's bone indices (not null, unaffected)
+     * @param wArray the vertex's bone weights (not null, unaffected)
+     * @param managerMap a map from bone indices to bone/torso names (not null,
+     * unaffected)
+     * @return a bone/torso name
+     */
+    private static String findManager(
+            int[] iArray, float[] wArray, String[] managerMap) {
+        Map<String, Float> weightMap = weightMap(iArray, wArray, managerMap);
+
+        float bestTotalWeight = Float.NEGATIVE_INFINITY;
+        String bestName = null;
+        for (Map.Entry<String, Float> entry : weightMap.entrySet()) {
+            float totalWeight = entry.getValue();
+            if (totalWeight >= bestTotalWeight) {
+                bestTotalWeight = totalWeight;
+                bestName = entry.getKey();
+            }
+        }
+
+        return bestName;
+    }
+
     /**
      * Calculate the total mesh weight animated by each Joint in the specified
      * meshes.
@@ -0,0 +1,476 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.collision;
+
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Reusable struct-of-arrays storage for the results of a batch of collision
+ * queries (ray tests or sweep tests), so that callers can process many queries
+ * without allocating a result object per hit.
+ * <p>
+ * Hits are grouped by query, in query order: the hits of query {@code q}
+ * occupy indices {@code firstHits()[q]} through
+ * {@code firstHits()[q] + hitCounts()[q] - 1} of each per-hit array. Normals
+ * are stored 3 floats per hit (x, y, z) in physics-space coordinates. Only the
+ * first {@link #countQueries()} queries and {@link #countHits()} hits are
+ * valid; the arrays may be longer, and they may be replaced by larger arrays
+ * when the results are refilled.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class BatchTestResults {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(BatchTestResults.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * scratch storage for parallel tests, one per chunk, allocated lazily
+     */
+    private BatchTestResults[] chunks = new BatchTestResults[0];
+    /**
+     * hit fraction of each hit (from=0, to=1)
+     */
+    private float[] hitFractions;
+    /**
+     * normal at each hit: 3 floats per hit
+     */
+    private float[] normals;
+    /**
+     * index of the first hit of each query
+     */
+    private int[] firstHits;
+    /**
+     * number of hits of each query
+     */
+    private int[] hitCounts;
+    /**
+     * number of valid hits (&ge;0)
+     */
+    private int numHits = 0;
+    /**
+     * number of valid queries (&ge;0)
+     */
+    private int numQueries = 0;
+    /**
+     * collision-shape part index of each hit, or -1 if undefined
+     */
+    private int[] partIndices;
+    /**
+     * collision-shape triangle index of each hit, or -1 if undefined
+     */
+    private int[] triangleIndices;
+    /**
+     * native ID of the collision object of each hit
+     */
+    private long[] objectIds;
+    /**
+     * temporary storage for a vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate empty results with room for 64 queries and 64 hits.
+     */
+    public BatchTestResults() {
+        this(64, 64);
+    }
+
+    /**
+     * Instantiate empty results with the specified initial capacities.
+     *
+     * @param queryCapacity the number of queries to allocate room for (&gt;0)
+     * @param hitCapacity the number of hits to allocate room for (&gt;0)
+     */
+    public BatchTestResults(int queryCapacity, int hitCapacity) {
+        Validate.positive(queryCapacity, "query capacity");
+        Validate.positive(hitCapacity, "hit capacity");
+
+        this.firstHits = new int[queryCapacity];
+        this.hitCounts = new int[queryCapacity];
+
+        this.hitFractions = new float[hitCapacity];
+        this.normals = new float[numAxes * hitCapacity];
+        this.partIndices = new int[hitCapacity];
+        this.triangleIndices = new int[hitCapacity];
+        this.objectIds = new long[hitCapacity];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Append the results of a single ray test as the next query.
+     *
+     * @param rayResults the hits of the ray, in any order (not null,
+     * unaffected)
+     * @param closestOnly true to append only the hit with the smallest hit
+     * fraction, false to append all hits in their existing order
+     * @return the number of hits appended (&ge;0)
+     */
+    public int addRayQuery(List<PhysicsRayTestResult> rayResults,
+            boolean closestOnly) {
+        int numResults = rayResults.size();
+        int numAdded = (closestOnly && numResults > 0) ? 1 : numResults;
+        int queryIndex = beginQuery(numAdded);
+
+        if (closestOnly) {
+            PhysicsRayTestResult closest = null;
+            for (int i = 0; i < numResults; ++i) {
+                PhysicsRayTestResult result = rayResults.get(i);
+                if (closest == null
+                        || result.getHitFraction() < closest.getHitFraction()) {
+                    closest = result;
+                }
+            }
+            if (closest != null) {
+                addRayHit(closest);
+            }
+        } else {
+            for (int i = 0; i < numResults; ++i) {
+                addRayHit(rayResults.get(i));
+            }
+        }
+        assert numHits == firstHits[queryIndex] + numAdded;
+
+        return numAdded;
+    }
+
+    /**
+     * Append the results of a single sweep test as the next query.
+     *
+     * @param sweepResults the hits of the sweep, in any order (not null,
+     * unaffected)
+     * @param closestOnly true to append only the hit with the smallest hit
+     * fraction, false to append all hits in their existing order
+     * @return the number of hits appended (&ge;0)
+     */
+    public int addSweepQuery(List<PhysicsSweepTestResult> sweepResults,
+            boolean closestOnly) {
+        int numResults = sweepResults.size();
+        int numAdded = (closestOnly && numResults > 0) ? 1 : numResults;
+        int queryIndex = beginQuery(numAdded);
+
+        if (closestOnly) {
+            PhysicsSweepTestResult closest = null;
+            for (int i = 0; i < numResults; ++i) {
+                PhysicsSweepTestResult result = sweepResults.get(i);
+                if (closest == null
+                        || result.getHitFraction() < closest.getHitFraction()) {
+                    closest = result;
+                }
+            }
+            if (closest != null) {
+                addSweepHit(closest);
+            }
+        } else {
+            for (int i = 0; i < numResults; ++i) {
+                addSweepHit(sweepResults.get(i));
+            }
+        }
+        assert numHits == firstHits[queryIndex] + numAdded;
+
+        return numAdded;
+    }
+
+    /**
+     * Append all queries and hits of the specified results to these results.
+     *
+     * @param other the results to append (not null, unaffected)
+     */
+    public void append(BatchTestResults other) {
+        Validate.nonNull(other, "other");
+        assert other != this;
+
+        int otherQueries = other.numQueries;
+        int otherHits = other.numHits;
+        ensureQueryCapacity(numQueries + otherQueries);
+        ensureHitCapacity(numHits + otherHits);
+
+        for (int q = 0; q < otherQueries; ++q) {
+            firstHits[numQueries + q] = numHits + other.firstHits[q];
+        }
+        System.arraycopy(
+                other.hitCounts, 0, hitCounts, numQueries, otherQueries);
+
+        System.arraycopy(
+                other.hitFractions, 0, hitFractions, numHits, otherHits);
+        System.arraycopy(other.normals, 0, normals, numAxes * numHits,
+                numAxes * otherHits);
+        System.arraycopy(
+                other.partIndices, 0, partIndices, numHits, otherHits);
+        System.arraycopy(other.triangleIndices, 0, triangleIndices, numHits,
+                otherHits);
+        System.arraycopy(other.objectIds, 0, objectIds, numHits, otherHits);
+
+        this.numQueries += otherQueries;
+        this.numHits += otherHits;
+    }
+
+    /**
+     * Remove all queries and hits, without releasing storage.
+     */
+    public void clear() {
+        this.numHits = 0;
+        this.numQueries = 0;
+    }
+
+    /**
+     * Count the valid hits.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countHits() {
+        assert numHits >= 0 : numHits;
+        return numHits;
+    }
+
+    /**
+     * Count the valid queries.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countQueries() {
+        assert numQueries >= 0 : numQueries;
+        return numQueries;
+    }
+
+    /**
+     * Access the index of the first hit of each query.
+     *
+     * @return the pre-existing array (not null)
+     */
+    public int[] firstHits() {
+        return firstHits;
+    }
+
+    /**
+     * Access scratch storage for the indexed chunk of a parallel test. Used
+     * internally.
+     *
+     * @param chunkIndex the index of the chunk (&ge;0)
+     * @return the pre-existing or new instance (not null)
+     */
+    public BatchTestResults getChunk(int chunkIndex) {
+        Validate.nonNegative(chunkIndex, "chunk index");
+
+        if (chunkIndex >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunkIndex + 1);
+        }
+        BatchTestResults result = chunks[chunkIndex];
+        if (result == null) {
+            result = new BatchTestResults();
+            chunks[chunkIndex] = result;
+        }
+
+        return result;
+    }
+
+    /**
+     * Access the number of hits of each query.
+     *
+     * @return the pre-existing array (not null)
+     */
+    public int[] hitCounts() {
+        return hitCounts;
+    }
+
+    /**
+     * Access the hit fractions (from=0, to=1).
+     *
+     * @return the pre-existing array (not null)
+     */
+    public float[] hitFractions() {
+        return hitFractions;
+    }
+
+    /**
+     * Access the normals at the hits: 3 floats per hit.
+     *
+     * @return the pre-existing array (not null)
+     */
+    public float[] normals() {
+        return normals;
+    }
+
+    /**
+     * Access the native IDs of the collision objects that were hit.
+     *
+     * @return the pre-existing array (not null)
+     * @see PhysicsCollisionObject#findInstance(long)
+     */
+    public long[] objectIds() {
+        return objectIds;
+    }
+
+    /**
+     * Access the collision-shape part indices of the hits.
+     *
+     * @return the pre-existing array (not null)
+     * @see PhysicsRayTestResult#partIndex()
+     */
+    public int[] partIndices() {
+        return partIndices;
+    }
+
+    /**
+     * Access the collision-shape triangle indices of the hits.
+     *
+     * @return the pre-existing array (not null)
+     * @see PhysicsRayTestResult#triangleIndex()
+     */
+    public int[] triangleIndices() {
+        return triangleIndices;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Append a single ray-test hit to the current query.
+     *
+     * @param hit the hit to append (not null, unaffected)
+     */
+    private void addRayHit(PhysicsRayTestResult hit) {
+        int i = numHits;
+        hitFractions[i] = hit.getHitFraction();
+        hit.getHitNormalLocal(tmpVector);
+        store(tmpVector, i, normals);
+        partIndices[i] = hit.partIndex();
+        triangleIndices[i] = hit.triangleIndex();
+        objectIds[i] = hit.getCollisionObject().nativeId();
+
+        ++numHits;
+    }
+
+    /**
+     * Append a single sweep-test hit to the current query.
+     *
+     * @param hit the hit to append (not null, unaffected)
+     */
+    private void addSweepHit(PhysicsSweepTestResult hit) {
+        int i = numHits;
+        hitFractions[i] = hit.getHitFraction();
+        hit.getHitNormalLocal(tmpVector);
+        store(tmpVector, i, normals);
+        partIndices[i] = hit.partIndex();
+        triangleIndices[i] = hit.triangleIndex();
+        objectIds[i] = hit.getCollisionObject().nativeId();
+
+        ++numHits;
+    }
+
+    /**
+     * Begin a new query with the specified number of hits, growing the arrays
+     * if necessary.
+     *
+     * @param queryHits the number of hits that will be appended (&ge;0)
+     * @return the index of the new query (&ge;0)
+     */
+    private int beginQuery(int queryHits) {
+        ensureQueryCapacity(numQueries + 1);
+        ensureHitCapacity(numHits + queryHits);
+
+        int result = numQueries;
+        firstHits[result] = numHits;
+        hitCounts[result] = queryHits;
+        ++numQueries;
+
+        return result;
+    }
+
+    /**
+     * Grow the per-hit arrays, if necessary, to hold the specified number of
+     * hits.
+     *
+     * @param minCapacity the number of hits required (&ge;0)
+     */
+    private void ensureHitCapacity(int minCapacity) {
+        int capacity = objectIds.length;
+        if (minCapacity <= capacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(minCapacity, 2 * capacity);
+        hitFractions = Arrays.copyOf(hitFractions, newCapacity);
+        normals = Arrays.copyOf(normals, numAxes * newCapacity);
+        partIndices = Arrays.copyOf(partIndices, newCapacity);
+        triangleIndices = Arrays.copyOf(triangleIndices, newCapacity);
+        objectIds = Arrays.copyOf(objectIds, newCapacity);
+    }
+
+    /**
+     * Grow the per-query arrays, if necessary, to hold the specified number of
+     * queries.
+     *
+     * @param minCapacity the number of queries required (&ge;0)
+     */
+    private void ensureQueryCapacity(int minCapacity) {
+        int capacity = firstHits.length;
+        if (minCapacity <= capacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(minCapacity, 2 * capacity);
+        firstHits = Arrays.copyOf(firstHits, newCapacity);
+        hitCounts = Arrays.copyOf(hitCounts, newCapacity);
+    }
+
+    /**
+     * Store the specified vector in the specified array.
+     *
+     * @param vector the vector to store (not null, unaffected)
+     * @param hitIndex the index of the hit (&ge;0)
+     * @param array the array to modify (not null)
+     */
+    private static void store(Vector3f vector, int hitIndex, float[] array) {
+        int start = numAxes * hitIndex;
+        array[start] = vector.x;
+        array[start + 1] = vector.y;
+        array[start + 2] = vector.z;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.collision;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A free list of collision events, used by a PhysicsSpace to recycle events
+ * after they've been distributed to listeners.
+ * <p>
+ * Listeners of a space that uses pooled events must not retain references to
+ * events after {@code collision()} returns. In debug mode, released events
+ * are never reused, so any access to a retained event throws an
+ * IllegalStateException.
+ * <p>
+ * Not thread-safe: intended for use by a single PhysicsSpace.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class CollisionEventPool {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(CollisionEventPool.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true &rarr; never reuse released events, false &rarr; reuse them
+     */
+    private boolean debug = false;
+    /**
+     * released events available for reuse
+     */
+    final private Deque<PhysicsCollisionEvent> freeList
+            = new ArrayDeque<>(64);
+    /**
+     * maximum number of events in the free list (&ge;0)
+     */
+    private int maxFree;
+    /**
+     * number of events instantiated by this pool
+     */
+    private long numAllocated = 0L;
+    /**
+     * number of events obtained from the free list
+     */
+    private long numReused = 0L;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty pool that holds up to 4096 free events.
+     */
+    public CollisionEventPool() {
+        this(4096);
+    }
+
+    /**
+     * Instantiate an empty pool with the specified limit.
+     *
+     * @param maxFree the maximum number of free events to retain (&ge;0)
+     */
+    public CollisionEventPool(int maxFree) {
+        Validate.nonNegative(maxFree, "max free");
+        this.maxFree = maxFree;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the events instantiated by this pool.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countAllocated() {
+        assert numAllocated >= 0L : numAllocated;
+        return numAllocated;
+    }
+
+    /**
+     * Count the events in the free list.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countFree() {
+        int result = freeList.size();
+        return result;
+    }
+
+    /**
+     * Count the events obtained from the free list.
+     *
+     * @return the count (&ge;0)
+     */
+    public long countReused() {
+        assert numReused >= 0L : numReused;
+        return numReused;
+    }
+
+    /**
+     * Return the specified event to this pool. The event must not be accessed
+     * afterwards.
+     *
+     * @param event the event to release (not null, not already released)
+     */
+    public void free(PhysicsCollisionEvent event) {
+        Validate.nonNull(event, "event");
+        if (event.isReleased()) {
+            throw new IllegalStateException("Event released twice: " + event);
+        }
+
+        event.release();
+        if (!debug && freeList.size() < maxFree) {
+            freeList.push(event);
+        }
+    }
+
+    /**
+     * Test whether this pool is in debug mode.
+     *
+     * @return true if released events are never reused, otherwise false
+     */
+    public boolean isDebug() {
+        return debug;
+    }
+
+    /**
+     * Read the maximum number of free events to retain.
+     *
+     * @return the limit (&ge;0)
+     */
+    public int maxFree() {
+        assert maxFree >= 0 : maxFree;
+        return maxFree;
+    }
+
+    /**
+     * Obtain an event for the specified contact point, reusing a released
+     * event if one is available.
+     *
+     * @param pcoA the first involved object (not null, alias created)
+     * @param pcoB the 2nd involved object (not null, alias created)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     * @return an event that's in use (not null)
+     */
+    public PhysicsCollisionEvent obtain(PhysicsCollisionObject pcoA,
+            PhysicsCollisionObject pcoB, long manifoldPointId) {
+        PhysicsCollisionEvent result = freeList.poll();
+        if (result == null) {
+            result = new PhysicsCollisionEvent(pcoA, pcoB, manifoldPointId);
+            ++numAllocated;
+        } else {
+            result.reuse(pcoA, pcoB, manifoldPointId);
+            ++numReused;
+        }
+
+        return result;
+    }
+
+    /**
+     * Alter whether this pool is in debug mode. Entering debug mode empties
+     * the free list.
+     *
+     * @param setting true to poison released events instead of reusing them,
+     * false to reuse them (default=false)
+     */
+    public void setDebug(boolean setting) {
+        this.debug = setting;
+        if (setting) {
+            freeList.clear();
+        }
+    }
+
+    /**
+     * Alter the maximum number of free events to retain. Excess events are
+     * discarded.
+     *
+     * @param maxFree the desired limit (&ge;0, default=4096)
+     */
+    public void setMaxFree(int maxFree) {
+        Validate.nonNegative(maxFree, "max free");
+
+        this.maxFree = maxFree;
+        while (freeList.size() > maxFree) {
+            freeList.pop();
+        }
+    }
+}
@@ -0,0 +1,334 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.collision;
+
+import com.jme3.math.Vector3f;
+import java.util.Arrays;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Reusable struct-of-arrays storage for the contact points of a PhysicsSpace,
+ * filled once per simulation step so that listeners can iterate over contacts
+ * as primitive arrays instead of querying each btManifoldPoint individually.
+ * <p>
+ * Element {@code i} of each per-contact array describes the same contact
+ * point. Vector data are stored 3 floats per contact (x, y, z) in
+ * physics-space coordinates. Only the first {@link #countContacts()} contacts
+ * are valid; the arrays may be longer, and they may be replaced by larger
+ * arrays when the report is refilled.
+ * <p>
+ * Cost: the report is filled by a Java loop over the existing per-point
+ * accessors, not by a native batch copy. Each manifold costs 3 native calls
+ * (point count and both body IDs) and each point costs 7 (point ID, impulse,
+ * distance, lifetime, normal, and both positions). Listeners therefore save
+ * per-event allocation and dispatch, not native calls.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class ContactReport {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ContactReport.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * applied impulse of each contact point
+     */
+    private float[] appliedImpulses;
+    /**
+     * separation distance of each contact point (negative for penetration)
+     */
+    private float[] distances;
+    /**
+     * normal on object B of each contact point: 3 floats per contact
+     */
+    private float[] normals;
+    /**
+     * location on object A of each contact point: 3 floats per contact
+     */
+    private float[] positionsOnA;
+    /**
+     * location on object B of each contact point: 3 floats per contact
+     */
+    private float[] positionsOnB;
+    /**
+     * lifetime of each contact point (in simulation steps)
+     */
+    private int[] lifetimes;
+    /**
+     * number of valid contacts (&ge;0)
+     */
+    private int numContacts = 0;
+    /**
+     * native ID of the first collision object of each contact point
+     */
+    private long[] bodyAIds;
+    /**
+     * native ID of the 2nd collision object of each contact point
+     */
+    private long[] bodyBIds;
+    /**
+     * native ID of each btManifoldPoint, valid only until the next step
+     */
+    private long[] pointIds;
+    /**
+     * temporary storage for a vector
+     */
+    final private Vector3f tmpVector = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty report with room for 64 contacts.
+     */
+    public ContactReport() {
+        this(64);
+    }
+
+    /**
+     * Instantiate an empty report with the specified initial capacity.
+     *
+     * @param capacity the number of contacts to allocate room for (&gt;0)
+     */
+    public ContactReport(int capacity) {
+        Validate.positive(capacity, "capacity");
+
+        this.appliedImpulses = new float[capacity];
+        this.distances = new float[capacity];
+        this.normals = new float[numAxes * capacity];
+        this.positionsOnA = new float[numAxes * capacity];
+        this.positionsOnB = new float[numAxes * capacity];
+        this.lifetimes = new int[capacity];
+        this.bodyAIds = new long[capacity];
+        this.bodyBIds = new long[capacity];
+        this.pointIds = new long[capacity];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Append all points of the specified contact manifold to this report,
+     * growing the arrays if necessary. Makes 3 native calls, plus 7 per
+     * point appended.
+     *
+     * @param manifoldId the native ID of a btPersistentManifold (not 0)
+     * @return the number of points appended (&ge;0, &le;4)
+     */
+    public int addManifold(long manifoldId) {
+        Validate.nonZero(manifoldId, "manifold ID");
+
+        int numPoints = PersistentManifolds.countPoints(manifoldId);
+        if (numPoints == 0) {
+            return 0;
+        }
+        ensureCapacity(numContacts + numPoints);
+
+        long bodyAId = PersistentManifolds.getBodyAId(manifoldId);
+        long bodyBId = PersistentManifolds.getBodyBId(manifoldId);
+        for (int pointIndex = 0; pointIndex < numPoints; ++pointIndex) {
+            long pointId
+                    = PersistentManifolds.getPointId(manifoldId, pointIndex);
+            int i = numContacts;
+
+            bodyAIds[i] = bodyAId;
+            bodyBIds[i] = bodyBId;
+            pointIds[i] = pointId;
+            appliedImpulses[i] = ManifoldPoints.getAppliedImpulse(pointId);
+            distances[i] = ManifoldPoints.getDistance1(pointId);
+            lifetimes[i] = ManifoldPoints.getLifeTime(pointId);
+
+            ManifoldPoints.getNormalWorldOnB(pointId, tmpVector);
+            store(tmpVector, i, normals);
+            ManifoldPoints.getPositionWorldOnA(pointId, tmpVector);
+            store(tmpVector, i, positionsOnA);
+            ManifoldPoints.getPositionWorldOnB(pointId, tmpVector);
+            store(tmpVector, i, positionsOnB);
+
+            ++numContacts;
+        }
+
+        return numPoints;
+    }
+
+    /**
+     * Access the applied impulses.
+     *
+     * @return the pre-existing array (not null)
+     */
+    public float[] appliedImpulses() {
+        return appliedImpulses;
+    }
+
+    /**
+     * Access the native IDs of the first collision objects.
+     *
+     * @return the pre-existing array (not null)
+     * @see PhysicsCollisionObject#findInstance(long)
+     */
+    public long[] bodyAIds() {
+        return bodyAIds;
+    }
+
+    /**
+     * Access the native IDs of the 2nd collision objects.
+     *
+     * @return the pre-existing array (not null)
+     * @see PhysicsCollisionObject#findInstance(long)
+     */
+    public long[] bodyBIds() {
+        return bodyBIds;
+    }
+
+    /**
+     * Remove all contacts, without releasing storage.
+     */
+    public void clear() {
+        this.numContacts = 0;
+    }
+
+    /**
+     * Count the valid contacts.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countContacts() {
+        assert numContacts >= 0 : numContacts;
+        return numContacts;
+    }
+
+    /**
+     * Access the separation distances.
+     *
+     * @return the pre-existing array (not null)
+     */
+    public float[] distances() {
+        return distances;
+    }
+
+    /**
+     * Access the lifetimes (in simulation steps).
+     *
+     * @return the pre-existing array (not null)
+     */
+    public int[] lifetimes() {
+        return lifetimes;
+    }
+
+    /**
+     * Access the contact normals on object B: 3 floats per contact.
+     *
+     * @return the pre-existing array (not null)
+     */
+    public float[] normals() {
+        return normals;
+    }
+
+    /**
+     * Access the native IDs of the btManifoldPoints. These are valid only
+     * until the space is stepped again.
+     *
+     * @return the pre-existing array (not null)
+     * @see ManifoldPoints
+     */
+    public long[] pointIds() {
+        return pointIds;
+    }
+
+    /**
+     * Access the contact locations on object A: 3 floats per contact.
+     *
+     * @return the pre-existing array (not null)
+     */
+    public float[] positionsOnA() {
+        return positionsOnA;
+    }
+
+    /**
+     * Access the contact locations on object B: 3 floats per contact.
+     *
+     * @return the pre-existing array (not null)
+     */
+    public float[] positionsOnB() {
+        return positionsOnB;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Grow the arrays, if necessary, to hold the specified number of contacts.
+     *
+     * @param minCapacity the number of contacts required (&ge;0)
+     */
+    private void ensureCapacity(int minCapacity) {
+        int capacity = bodyAIds.length;
+        if (minCapacity <= capacity) {
+            return;
+        }
+
+        int newCapacity = Math.max(minCapacity, 2 * capacity);
+        appliedImpulses = Arrays.copyOf(appliedImpulses, newCapacity);
+        distances = Arrays.copyOf(distances, newCapacity);
+        normals = Arrays.copyOf(normals, numAxes * newCapacity);
+        positionsOnA = Arrays.copyOf(positionsOnA, numAxes * newCapacity);
+        positionsOnB = Arrays.copyOf(positionsOnB, numAxes * newCapacity);
+        lifetimes = Arrays.copyOf(lifetimes, newCapacity);
+        bodyAIds = Arrays.copyOf(bodyAIds, newCapacity);
+        bodyBIds = Arrays.copyOf(bodyBIds, newCapacity);
+        pointIds = Arrays.copyOf(pointIds, newCapacity);
+    }
+
+    /**
+     * Store the specified vector in the specified array.
+     *
+     * @param vector the vector to store (not null, unaffected)
+     * @param contactIndex the index of the contact (&ge;0)
+     * @param array the array to modify (not null)
+     */
+    private static void store(Vector3f vector, int contactIndex,
+            float[] array) {
+        int start = numAxes * contactIndex;
+        array[start] = vector.x;
+        array[start + 1] = vector.y;
+        array[start + 2] = vector.z;
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.collision;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.objects.PhysicsGhostObject;
+
+/**
+ * Interface to receive notifications when collision objects begin or cease
+ * to overlap a ghost object. Only transitions are reported, so a trigger
+ * volume whose overlaps don't change generates no callbacks.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ * @see com.jme3.bullet.PhysicsSpace#addOverlapListener(
+ * com.jme3.bullet.collision.GhostOverlapListener)
+ */
+public interface GhostOverlapListener {
+    /**
+     * Invoked on the physics thread just after the space is stepped, for each
+     * object that ceased to overlap a ghost during the step.
+     * <p>
+     * When a ghost is removed from the space, this is invoked after the next
+     * step for each object that overlapped the ghost before its removal.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param ghost the ghost object (not null)
+     * @param other the object that no longer overlaps the ghost (not null)
+     */
+    void overlapEnded(PhysicsSpace space, PhysicsGhostObject ghost,
+            PhysicsCollisionObject other);
+
+    /**
+     * Invoked on the physics thread just after the space is stepped, for each
+     * object that began to overlap a ghost during the step.
+     *
+     * @param space the space that was just stepped (not null)
+     * @param ghost the ghost object (not null)
+     * @param other the object that now overlaps the ghost (not null)
+     */
+    void overlapStarted(PhysicsSpace space, PhysicsGhostObject ghost,
+            PhysicsCollisionObject other);
+}
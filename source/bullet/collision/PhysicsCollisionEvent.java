@@ -40,6 +40,11 @@ import jme3utilities.Validate;
 /**
  * Describe a point of contact between 2 collision objects in a PhysicsSpace,
  * based on Bullet's btManifoldPoint.
+ * <p>
+ * Events may be pooled: after distribution, an event can be released and
+ * later reused for a different contact point. Listeners must not retain
+ * events, for instance as keys in a map or elements of a set, beyond the
+ * callback that delivered them. A released event equals only itself.
  *
  * @author normenhansen
  */
@@ -55,14 +60,21 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
     // *************************************************************************
     // fields
 
+    /**
+     * true if this event has been returned to a CollisionEventPool and not yet
+     * reused, otherwise false
+     */
+    private boolean isReleased = false;
     /**
      * first object involved in the collision (typically a PhysicsRigidBody)
+     * or null if released
      */
-    final private PhysicsCollisionObject pcoA;
+    private PhysicsCollisionObject pcoA;
     /**
-     * 2nd object involved in the collision (typically a PhysicsRigidBody)
+     * 2nd object involved in the collision (typically a PhysicsRigidBody) or
+     * null if released
      */
-    final private PhysicsCollisionObject pcoB;
+    private PhysicsCollisionObject pcoB;
     // *************************************************************************
     // constructors
 
@@ -93,6 +105,8 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
      * @return the pre-existing Spatial, or null if none
      */
     public Spatial getNodeA() {
+        verifyInUse();
+
         Spatial result = null;
         Object userObject = pcoA.getUserObject();
         if (userObject instanceof Spatial) {
@@ -109,6 +123,8 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
      * @return the pre-existing Spatial, or null if none
      */
     public Spatial getNodeB() {
+        verifyInUse();
+
         Spatial result = null;
         Object userObject = pcoB.getUserObject();
         if (userObject instanceof Spatial) {
@@ -124,6 +140,7 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
      * @return the pre-existing object (not null)
      */
     public PhysicsCollisionObject getObjectA() {
+        verifyInUse();
         assert pcoA != null;
         return pcoA;
     }
@@ -134,6 +151,7 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
      * @return the pre-existing object (not null)
      */
     public PhysicsCollisionObject getObjectB() {
+        verifyInUse();
         assert pcoB != null;
         return pcoB;
     }
@@ -499,6 +517,15 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
         return result;
     }
 
+    /**
+     * Test whether this event has been returned to a CollisionEventPool.
+     *
+     * @return true if released, false if in use
+     */
+    public boolean isReleased() {
+        return isReleased;
+    }
+
     /**
      * Test whether the contact point's lateral friction is initialized.
      *
@@ -510,4 +537,111 @@ public class PhysicsCollisionEvent extends NativePhysicsObject {
 
         return result;
     }
+    // *************************************************************************
+    // new package-private methods
+
+    /**
+     * Mark this event as released, dropping its references to the involved
+     * objects. Invoked by CollisionEventPool.
+     */
+    void release() {
+        assert !isReleased;
+
+        this.isReleased = true;
+        this.pcoA = null;
+        this.pcoB = null;
+    }
+
+    /**
+     * Re-initialize this event for reuse. Invoked by CollisionEventPool.
+     *
+     * @param pcoA the first involved object (not null, alias created)
+     * @param pcoB the 2nd involved object (not null, alias created)
+     * @param manifoldPointId the native ID of the btManifoldPoint (not 0)
+     */
+    void reuse(PhysicsCollisionObject pcoA, PhysicsCollisionObject pcoB,
+            long manifoldPointId) {
+        assert isReleased;
+        assert pcoA != null;
+        assert pcoB != null;
+
+        this.pcoA = pcoA;
+        this.pcoB = pcoB;
+        unassignNativeObject();
+        setNativeIdNotTracked(manifoldPointId);
+        this.isReleased = false;
+    }
+    // *************************************************************************
+    // NativePhysicsObject methods
+
+    /**
+     * Read the ID of the btManifoldPoint, verifying that this event hasn't
+     * been released.
+     *
+     * @return the native identifier (not zero)
+     * @throws IllegalStateException if this event has been released
+     */
+    @Override
+    public long nativeId() {
+        verifyInUse();
+        long result = super.nativeId();
+
+        return result;
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Test for ID equality with another object. Safe to invoke on a released
+     * event, which equals only itself.
+     *
+     * @param otherObject the object to compare to (may be null, unaffected)
+     * @return true if the objects are the same, or if both are in use and
+     * have the same native ID, otherwise false
+     */
+    @Override
+    public boolean equals(Object otherObject) {
+        boolean result;
+        if (otherObject == this) {
+            result = true;
+        } else if (isReleased
+                || !(otherObject instanceof PhysicsCollisionEvent)) {
+            result = false;
+        } else if (((PhysicsCollisionEvent) otherObject).isReleased()) {
+            result = false;
+        } else {
+            result = super.equals(otherObject);
+        }
+
+        return result;
+    }
+
+    /**
+     * Return the hash code for this instance. Safe to invoke on a released
+     * event.
+     * <p>
+     * Note: reusing a pooled event alters its hash code!
+     *
+     * @return a 32-bit value for use in hashing
+     */
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Verify that this event hasn't been returned to a CollisionEventPool.
+     *
+     * @throws IllegalStateException if it has
+     */
+    private void verifyInUse() {
+        if (isReleased) {
+            String message = "Accessed a collision event after it was "
+                    + "recycled. Listeners must not retain pooled events.";
+            throw new IllegalStateException(message);
+        }
+    }
 }
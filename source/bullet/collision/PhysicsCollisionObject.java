@@ -1002,6 +1002,23 @@ abstract public class PhysicsCollisionObject
         }
     }
 
+    /**
+     * Alter this object's activation state (native field: m_activationState1),
+     * for instance to restore a saved state.
+     * <p>
+     * Deactivation doesn't affect a PhysicsCharacter or PhysicsGhostObject.
+     *
+     * @param desiredState the desired state (&ge;1, &le;5)
+     * @see #getActivationState()
+     */
+    public void setActivationState(int desiredState) {
+        Validate.inRange(desiredState, "desired state", Activation.firstValue,
+                Activation.lastValue);
+
+        long objectId = nativeId();
+        setActivationState(objectId, desiredState);
+    }
+
     /**
      * Alter this object's anisotropic friction (native field:
      * m_anisotropicFriction).
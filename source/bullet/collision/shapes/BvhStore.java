@@ -0,0 +1,590 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.collision.shapes;
+
+import com.jme3.bullet.collision.shapes.infos.BoundingValueHierarchy;
+import com.jme3.bullet.collision.shapes.infos.IndexedMesh;
+import com.jme3.bullet.util.ContentDigest;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.system.JmeSystem;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.MyString;
+import jme3utilities.Validate;
+
+/**
+ * A file of serialized bounding-value hierarchies for MeshCollisionShape,
+ * indexed by a content hash of each shape's mesh. The file is memory-mapped,
+ * so looking up a BVH reads only the bytes of that BVH.
+ * <p>
+ * Serialized BVHs are specific to the native platform, so the file records
+ * the platform that wrote it. When opened on a different platform, the file
+ * is ignored and shapes are built using the native BVH builder.
+ * <p>
+ * Newly built BVHs are held in memory until {@link #save()} is invoked.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class BvhStore {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * Location and validation data for a single BVH.
+     */
+    private static class Entry {
+        /**
+         * serialized bytes of a BVH that's not yet saved, or null if saved
+         */
+        final byte[] pendingBytes;
+        /**
+         * number of bytes in the serialized BVH
+         */
+        final int length;
+        /**
+         * number of triangles in the mesh
+         */
+        final int numTriangles;
+        /**
+         * number of vertices in the mesh
+         */
+        final int numVertices;
+        /**
+         * offset of the serialized BVH in the mapped file, or -1 if not saved
+         */
+        final long offset;
+
+        /**
+         * Instantiate an entry.
+         *
+         * @param offset the offset in the file, or -1 if not saved
+         * @param length the length of the serialized BVH (&ge;0)
+         * @param numTriangles the number of mesh triangles (&ge;0)
+         * @param numVertices the number of mesh vertices (&ge;0)
+         * @param pendingBytes the unsaved BVH bytes, or null if saved
+         */
+        Entry(long offset, int length, int numTriangles, int numVertices,
+                byte[] pendingBytes) {
+            this.offset = offset;
+            this.length = length;
+            this.numTriangles = numTriangles;
+            this.numVertices = numVertices;
+            this.pendingBytes = pendingBytes;
+        }
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes in each index entry: key, length, triangle count,
+     * vertex count, and offset
+     */
+    final private static int bytesPerIndexEntry = 32 + 3 * 4 + 8;
+    /**
+     * version number of the file format
+     */
+    final private static int formatVersion = 1;
+    /**
+     * magic number at the start of the file ("BVHS" in ASCII)
+     */
+    final private static int magic = 0x42564853;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(BvhStore.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * file that backs the store
+     */
+    final private File file;
+    /**
+     * map content hashes to entries, in file order
+     */
+    final private Map<String, Entry> entries = new LinkedHashMap<>(64);
+    /**
+     * file that's currently mapped: either the backing file or a temporary
+     * file written by save(), or null if not mapped
+     */
+    private File mappedFile;
+    /**
+     * read-only mapping of mappedFile, or null if not mapped
+     */
+    private MappedByteBuffer mapping;
+    /**
+     * number of entries not yet saved
+     */
+    private int numPending = 0;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a store backed by the specified file. If the file exists and
+     * was written on the current platform, it is mapped and its index read.
+     * A file that can't be read is logged and ignored.
+     *
+     * @param file the file to use (not null)
+     */
+    public BvhStore(File file) {
+        Validate.nonNull(file, "file");
+        this.file = file;
+
+        if (file.isFile()) {
+            try {
+                map(file);
+            } catch (IOException exception) {
+                logger.log(Level.WARNING, "Failed to read {0}: {1}",
+                        new Object[]{
+                            MyString.quote(file.getPath()), exception
+                        });
+                entries.clear();
+                this.mapping = null;
+            }
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Count the BVHs in the store, including unsaved ones.
+     *
+     * @return the count (&ge;0)
+     */
+    synchronized public int countEntries() {
+        int result = entries.size();
+        return result;
+    }
+
+    /**
+     * Count the BVHs that have been added since the latest save.
+     *
+     * @return the count (&ge;0)
+     */
+    synchronized public int countPending() {
+        return numPending;
+    }
+
+    /**
+     * Create a mesh shape based on the specified JME meshes, using quantized
+     * AABB compression. The BVH is loaded from the store if possible;
+     * otherwise it is built and added to the store.
+     *
+     * @param jmeMeshes the mesh(es) on which to base the shape (must contain at
+     * least one triangle, unaffected)
+     * @return a new shape
+     */
+    public MeshCollisionShape createMeshShape(Mesh... jmeMeshes) {
+        Validate.nonEmpty(jmeMeshes, "JME meshes");
+
+        int numMeshes = jmeMeshes.length;
+        IndexedMesh[] submeshes = new IndexedMesh[numMeshes];
+        for (int meshIndex = 0; meshIndex < numMeshes; ++meshIndex) {
+            submeshes[meshIndex] = new IndexedMesh(jmeMeshes[meshIndex]);
+        }
+        MeshCollisionShape result = createMeshShape(true, submeshes);
+
+        return result;
+    }
+
+    /**
+     * Create a mesh shape based on the specified native meshes. The BVH is
+     * loaded from the store if possible; otherwise it is built and added to
+     * the store.
+     *
+     * @param useCompression true to use quantized AABB compression
+     * @param submeshes the mesh(es) on which to base the shape (must contain at
+     * least one triangle)
+     * @return a new shape
+     */
+    public MeshCollisionShape createMeshShape(boolean useCompression,
+            IndexedMesh... submeshes) {
+        Validate.nonEmpty(submeshes, "submeshes");
+
+        int numTriangles = 0;
+        int numVertices = 0;
+        for (IndexedMesh submesh : submeshes) {
+            numTriangles += submesh.countTriangles();
+            numVertices += submesh.countVertices();
+        }
+        Validate.require(numTriangles > 0, "at least one triangle");
+
+        String key = meshKey(useCompression, submeshes);
+        byte[] bvhBytes = findBytes(key, numTriangles, numVertices);
+
+        MeshCollisionShape result;
+        if (bvhBytes == null) {
+            result = new MeshCollisionShape(useCompression, submeshes);
+            bvhBytes = result.serializeBvh();
+            Entry entry = new Entry(-1L, bvhBytes.length, numTriangles,
+                    numVertices, bvhBytes);
+            synchronized (this) {
+                if (!entries.containsKey(key)) {
+                    entries.put(key, entry);
+                    ++numPending;
+                }
+            }
+        } else {
+            BoundingValueHierarchy bvh = new BoundingValueHierarchy(bvhBytes);
+            result = new MeshCollisionShape(bvh, useCompression, submeshes);
+        }
+
+        return result;
+    }
+
+    /**
+     * Access the file that backs the store.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Test whether the store contains a BVH with the specified key.
+     *
+     * @param key the content hash to find (not null)
+     * @return true if found, otherwise false
+     */
+    synchronized public boolean hasKey(String key) {
+        Validate.nonNull(key, "key");
+
+        boolean result = entries.containsKey(key);
+        return result;
+    }
+
+    /**
+     * Generate a content hash for the BVH of the specified native meshes. The
+     * hash covers every vertex position, every index, and the compression
+     * setting. The mesh data are read in place, without copying.
+     *
+     * @param useCompression true for quantized AABB compression
+     * @param submeshes the meshes to hash (not null, unaffected)
+     * @return a new string of hexadecimal digits (not null, not empty)
+     */
+    public static String meshKey(boolean useCompression,
+            IndexedMesh... submeshes) {
+        Validate.nonNull(submeshes, "submeshes");
+
+        ContentDigest digest = new ContentDigest();
+        digest.putByte((byte) (useCompression ? 1 : 0));
+        digest.putInt(submeshes.length);
+        for (IndexedMesh submesh : submeshes) {
+            FloatBuffer positions = submesh.viewVertexPositions();
+            int numFloats = positions.capacity();
+            digest.putInt(numFloats);
+            digest.putFloats(positions, numFloats);
+
+            IndexBuffer indices = submesh.viewIndices();
+            int numIndices = indices.size();
+            digest.putInt(numIndices);
+            for (int intIndex = 0; intIndex < numIndices; ++intIndex) {
+                digest.putInt(indices.get(intIndex));
+            }
+        }
+        String result = digest.finish();
+
+        return result;
+    }
+
+    /**
+     * Write all BVHs, including unsaved ones, to the backing file and re-map
+     * it. The file is written under a temporary name and then renamed.
+     * <p>
+     * Some platforms (notably Windows) don't allow replacing a file while it's
+     * memory-mapped. If the rename fails for that reason, a warning is logged,
+     * the store switches its mapping to the temporary file, and the next
+     * invocation retries the rename. The old mapping is released only when
+     * it's garbage collected, so the retry might not succeed right away.
+     * Temporary files still in use are deleted when the JVM exits.
+     *
+     * @throws IOException if the file can't be written
+     */
+    synchronized public void save() throws IOException {
+        if (numPending == 0 && mapping != null && file.equals(mappedFile)) {
+            return;
+        }
+
+        File directory = file.getAbsoluteFile().getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()
+                && !directory.isDirectory()) {
+            throw new IOException("can't create directory");
+        }
+        File tempFile = File.createTempFile(file.getName(), ".tmp", directory);
+        boolean replaced;
+        try {
+            write(tempFile);
+            replaced = replaceFile(tempFile);
+        } catch (IOException exception) {
+            tempFile.delete();
+            throw exception;
+        }
+
+        File oldMappedFile = mappedFile;
+        entries.clear();
+        this.mapping = null;
+        this.mappedFile = null;
+        this.numPending = 0;
+        if (replaced) {
+            map(file);
+        } else {
+            logger.log(Level.WARNING,
+                    "Can''t replace {0} while it''s mapped; using {1}",
+                    new Object[]{
+                        MyString.quote(file.getPath()),
+                        MyString.quote(tempFile.getPath())
+                    });
+            tempFile.deleteOnExit();
+            map(tempFile);
+        }
+        /*
+         * Delete any temporary file that was mapped before.
+         */
+        if (oldMappedFile != null && !oldMappedFile.equals(file)
+                && !oldMappedFile.delete()) {
+            oldMappedFile.deleteOnExit();
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Look up the serialized BVH for the specified key, copying it from the
+     * mapped file if necessary.
+     *
+     * @param key the content hash (not null)
+     * @param numTriangles the expected number of triangles
+     * @param numVertices the expected number of vertices
+     * @return an array of serialized bytes, or null if not found
+     */
+    synchronized private byte[] findBytes(String key, int numTriangles,
+            int numVertices) {
+        Entry entry = entries.get(key);
+        if (entry == null || entry.numTriangles != numTriangles
+                || entry.numVertices != numVertices) {
+            return null;
+        }
+
+        byte[] result = entry.pendingBytes;
+        if (result == null) {
+            /*
+             * The native deserializer requires a heap array,
+             * so copy directly from the mapping into an array of exact size.
+             */
+            ByteBuffer view = mapping.duplicate();
+            view.position((int) entry.offset);
+            result = new byte[entry.length];
+            view.get(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * Map the specified file and read its index.
+     *
+     * @param source the file to map (not null)
+     * @throws IOException if the file can't be mapped or is malformed
+     */
+    private void map(File source) throws IOException {
+        MappedByteBuffer buffer;
+        try (FileChannel channel
+                = FileChannel.open(source.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("file too large");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        }
+
+        if (buffer.remaining() < 12 || buffer.getInt() != magic) {
+            throw new IOException("bad magic number");
+        }
+        int version = buffer.getInt();
+        if (version != formatVersion) {
+            throw new IOException("unsupported format version " + version);
+        }
+        int platformLength = buffer.getInt();
+        if (platformLength < 0 || platformLength > buffer.remaining()) {
+            throw new IOException("bad platform length " + platformLength);
+        }
+        byte[] platformBytes = new byte[platformLength];
+        buffer.get(platformBytes);
+        String platform = new String(platformBytes, StandardCharsets.UTF_8);
+        String currentPlatform = JmeSystem.getPlatform().toString();
+        if (!platform.equals(currentPlatform)) {
+            logger.log(Level.INFO, "Ignoring {0}, written on {1}",
+                    new Object[]{MyString.quote(source.getPath()), platform});
+            return;
+        }
+
+        int numEntries = buffer.getInt();
+        long fileSize = buffer.capacity();
+        long indexSize = (long) numEntries * bytesPerIndexEntry;
+        if (numEntries < 0 || indexSize > buffer.remaining()) {
+            throw new IOException("bad entry count " + numEntries);
+        }
+        byte[] keyBytes = new byte[32];
+        for (int entryIndex = 0; entryIndex < numEntries; ++entryIndex) {
+            buffer.get(keyBytes);
+            String key = ContentDigest.toHex(keyBytes);
+            int length = buffer.getInt();
+            int numTriangles = buffer.getInt();
+            int numVertices = buffer.getInt();
+            long offset = buffer.getLong();
+            if (length < 0 || offset < 0L || offset + length > fileSize) {
+                throw new IOException("bad index entry " + entryIndex);
+            }
+            Entry entry = new Entry(
+                    offset, length, numTriangles, numVertices, null);
+            entries.put(key, entry);
+        }
+
+        this.mapping = buffer;
+        this.mappedFile = source;
+    }
+
+    /**
+     * Rename the specified file to replace the backing file.
+     *
+     * @param tempFile the file to rename (not null)
+     * @return true if successful, false if the backing file is in use
+     * @throws IOException if the rename failed for another reason
+     */
+    private boolean replaceFile(File tempFile) throws IOException {
+        try {
+            try {
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (FileSystemException exception) {
+            if (mapping == null || !file.equals(mappedFile)) {
+                throw exception;
+            }
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Convert a string of 64 hexadecimal digits to a hash.
+     *
+     * @param key the string to convert (not null)
+     * @return a new array of 32 bytes
+     */
+    private static byte[] toHash(String key) {
+        assert key.length() == 64 : key.length();
+
+        byte[] result = new byte[32];
+        for (int byteIndex = 0; byteIndex < 32; ++byteIndex) {
+            String pair = key.substring(2 * byteIndex, 2 * byteIndex + 2);
+            result[byteIndex] = (byte) Integer.parseInt(pair, 16);
+        }
+
+        return result;
+    }
+
+    /**
+     * Write the header, index, and all BVHs to the specified file.
+     *
+     * @param outputFile the file to write (not null)
+     * @throws IOException if the file can't be written
+     */
+    private void write(File outputFile) throws IOException {
+        byte[] platformBytes = JmeSystem.getPlatform().toString()
+                .getBytes(StandardCharsets.UTF_8);
+        int numEntries = entries.size();
+        int headerSize = 16 + platformBytes.length
+                + numEntries * bytesPerIndexEntry;
+
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(magic);
+        header.putInt(formatVersion);
+        header.putInt(platformBytes.length);
+        header.put(platformBytes);
+        header.putInt(numEntries);
+        long offset = headerSize;
+        for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+            Entry entry = mapEntry.getValue();
+            header.put(toHash(mapEntry.getKey()));
+            header.putInt(entry.length);
+            header.putInt(entry.numTriangles);
+            header.putInt(entry.numVertices);
+            header.putLong(offset);
+            offset += entry.length;
+        }
+        header.flip();
+
+        try (FileChannel channel = FileChannel.open(outputFile.toPath(),
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            for (Entry entry : entries.values()) {
+                ByteBuffer data;
+                if (entry.pendingBytes == null) {
+                    data = mapping.duplicate();
+                    data.position((int) entry.offset);
+                    data.limit((int) entry.offset + entry.length);
+                } else {
+                    data = ByteBuffer.wrap(entry.pendingBytes);
+                }
+                while (data.hasRemaining()) {
+                    channel.write(data);
+                }
+            }
+        }
+    }
+}
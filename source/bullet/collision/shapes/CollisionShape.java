@@ -212,6 +212,31 @@ abstract public class CollisionShape
         return result;
     }
 
+    /**
+     * Calculate an axis-aligned bounding box for this shape with the specified
+     * translation and rotation applied to it, without allocating any objects.
+     * Rotation is applied first. Collision margin is included.
+     *
+     * @param translation the translation to apply (not null, unaffected)
+     * @param rotation the rotation to apply (not null, unaffected)
+     * @param storeMinima storage for the minimum coordinates (not null,
+     * modified)
+     * @param storeMaxima storage for the maximum coordinates (not null,
+     * modified)
+     */
+    public void boundingBox(Vector3f translation, Matrix3f rotation,
+            Vector3f storeMinima, Vector3f storeMaxima) {
+        Validate.finite(translation, "translation");
+        Validate.nonNull(rotation, "rotation");
+        Validate.nonNull(storeMinima, "store minima");
+        Validate.nonNull(storeMaxima, "store maxima");
+
+        recalculateAabb();
+
+        long shapeId = nativeId();
+        getAabb(shapeId, translation, rotation, storeMinima, storeMaxima);
+    }
+
     /**
      * Test whether the specified scale factors can be applied to this shape.
      * Subclasses that restrict scaling should override this method.
@@ -162,6 +162,31 @@ public class MeshCollisionShape extends CollisionShape {
         createShape();
     }
 
+    /**
+     * Instantiate a shape from the specified native mesh(es) and a
+     * pre-existing BVH. The submeshes must be equivalent to those used to
+     * generate the BVH. Used by {@link BvhStore}.
+     *
+     * @param bvh the hierarchy to use (not null, alias created)
+     * @param useCompression true if the BVH uses quantized AABB compression
+     * @param submeshes the mesh(es) on which to base the shape (must contain at
+     * least one triangle)
+     */
+    MeshCollisionShape(BoundingValueHierarchy bvh, boolean useCompression,
+            IndexedMesh... submeshes) {
+        assert bvh != null;
+        assert submeshes.length > 0;
+        this.nativeMesh = new CompoundMesh();
+        for (IndexedMesh submesh : submeshes) {
+            nativeMesh.add(submesh);
+        }
+        assert nativeMesh.countTriangles() > 0;
+
+        this.useCompression = useCompression;
+        this.bvh = bvh;
+        createShape();
+    }
+
     /**
      * Instantiate a shape based on the specified JME mesh(es), using quantized
      * AABB compression.
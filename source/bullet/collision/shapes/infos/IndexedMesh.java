@@ -48,6 +48,7 @@ import com.jme3.util.BufferUtils;
 import com.jme3.util.clone.Cloner;
 import com.jme3.util.clone.JmeCloneable;
 import java.io.IOException;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
@@ -216,6 +217,53 @@ public class IndexedMesh
 
         createMesh();
     }
+
+    /**
+     * Instantiate an IndexedMesh based on the specified position and index
+     * buffers, such as those of a JME VertexBuffer. Direct buffers whose
+     * limits equal their capacities are used without copying, so their
+     * contents mustn't be modified afterward. Other buffers are copied.
+     *
+     * @param positionBuffer the vertex positions (not null, elements from 0 to
+     * limit-1 are used, limit a multiple of 3, possibly aliased)
+     * @param indexBuffer the vertex indices of all triangles (not null,
+     * elements from 0 to limit-1 are used, limit a multiple of 3, possibly
+     * aliased)
+     */
+    public IndexedMesh(FloatBuffer positionBuffer, IntBuffer indexBuffer) {
+        Validate.nonNull(positionBuffer, "position buffer");
+        Validate.nonNull(indexBuffer, "index buffer");
+        int numFloats = positionBuffer.limit();
+        Validate.require(numFloats % numAxes == 0, "limit a multiple of 3");
+        int numIndices = indexBuffer.limit();
+        Validate.require(numIndices % vpt == 0, "limit a multiple of 3");
+
+        numVertices = numFloats / numAxes;
+        if (positionBuffer.isDirect()
+                && numFloats == positionBuffer.capacity()) {
+            vertexPositions = positionBuffer;
+        } else {
+            vertexPositions = BufferUtils.createFloatBuffer(numFloats);
+            for (int offset = 0; offset < numFloats; ++offset) {
+                vertexPositions.put(offset, positionBuffer.get(offset));
+            }
+        }
+        vertexStride = numAxes * floatBytes;
+
+        numTriangles = numIndices / vpt;
+        IntBuffer buffer = indexBuffer;
+        if (!indexBuffer.isDirect() || numIndices != indexBuffer.capacity()) {
+            buffer = BufferUtils.createIntBuffer(numIndices);
+            for (int offset = 0; offset < numIndices; ++offset) {
+                buffer.put(offset, indexBuffer.get(offset));
+            }
+        }
+        indices = IndexBuffer.wrapIndexBuffer(buffer);
+        int indexBytes = indices.getFormat().getComponentSize();
+        indexStride = vpt * indexBytes;
+
+        createMesh();
+    }
     // *************************************************************************
     // new methods exposed
 
@@ -270,6 +318,37 @@ public class IndexedMesh
         assert numVertices >= 0 : numVertices;
         return numVertices;
     }
+
+    /**
+     * Access the triangle indices without copying them.
+     *
+     * @return a new read-only view of the pre-existing data (not null)
+     */
+    public IndexBuffer viewIndices() {
+        Buffer data = indices.getBuffer();
+        Buffer view;
+        if (data instanceof ByteBuffer) {
+            view = ((ByteBuffer) data).asReadOnlyBuffer();
+        } else if (data instanceof ShortBuffer) {
+            view = ((ShortBuffer) data).asReadOnlyBuffer();
+        } else {
+            view = ((IntBuffer) data).asReadOnlyBuffer();
+        }
+        IndexBuffer result = IndexBuffer.wrapIndexBuffer(view);
+
+        return result;
+    }
+
+    /**
+     * Access the vertex positions without copying them.
+     *
+     * @return a new read-only view of the pre-existing data (not null, 3
+     * floats per vertex, not flipped)
+     */
+    public FloatBuffer viewVertexPositions() {
+        FloatBuffer result = vertexPositions.asReadOnlyBuffer();
+        return result;
+    }
     // *************************************************************************
     // JmeCloneable methods
 
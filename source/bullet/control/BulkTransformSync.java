@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.control;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.TransformFrame;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Apply the physics transforms of a group of rigid-body controls to their
+ * controlled spatials in 2 passes, separately from the scene-graph update.
+ * <p>
+ * The first pass reads the transforms of the bodies that moved into a direct
+ * buffer, using {@link PhysicsSpace#TRANSFORM_STRIDE} floats per body. The
+ * second pass applies the buffered transforms to the spatials without calling
+ * native code. Transforms can be read either from the bodies' motion states
+ * ({@link #sync()}) or from published frames
+ * ({@link #sync(com.jme3.bullet.TransformFrame,
+ * com.jme3.bullet.TransformFrame, float)}).
+ * <p>
+ * A synchronizer owns the spatial transforms of its registered controls: a
+ * control can be registered with only one synchronizer at a time, and while
+ * registered its update() no longer moves its spatial.
+ * <p>
+ * Cost: reading from motion states makes one native call per registered
+ * control, the same as RigidBodyControl.update(), and bodies that haven't
+ * moved are skipped. Reading from frames makes no native calls.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class BulkTransformSync {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(BulkTransformSync.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * transforms read during the most recent sync: 7 floats per moved control
+     * (not null, direct)
+     */
+    private FloatBuffer transforms;
+    /**
+     * index in the newest frame where each control's body was last found,
+     * used as a search hint
+     */
+    private int[] frameHints;
+    /**
+     * index of each control moved during the most recent sync
+     */
+    private int[] movedIndices;
+    /**
+     * number of spatials moved during the most recent sync (&ge;0)
+     */
+    private int numApplied = 0;
+    /**
+     * registered controls, in order of registration
+     */
+    final private List<RigidBodyControl> controls = new ArrayList<>(64);
+    /**
+     * temporary storage for an orientation
+     */
+    final private Quaternion tmpOrientation = new Quaternion();
+    /**
+     * temporary storage for an older orientation
+     */
+    final private Quaternion tmpOrientation2 = new Quaternion();
+    /**
+     * temporary storage for a location
+     */
+    final private Vector3f tmpLocation = new Vector3f();
+    /**
+     * temporary storage for an older location
+     */
+    final private Vector3f tmpLocation2 = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty synchronizer with room for 64 controls.
+     */
+    public BulkTransformSync() {
+        int capacity = 64;
+        this.frameHints = new int[capacity];
+        this.movedIndices = new int[capacity];
+        this.transforms = BufferUtils.createFloatBuffer(
+                capacity * PhysicsSpace.TRANSFORM_STRIDE);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Register the specified control, so that its spatial is moved by this
+     * synchronizer instead of during update().
+     *
+     * @param control the control to add (not null, not registered with any
+     * synchronizer, alias created)
+     */
+    public void addControl(RigidBodyControl control) {
+        Validate.nonNull(control, "control");
+        Validate.require(!control.isBulkSync(), "an unregistered control");
+
+        int index = controls.size();
+        if (index == movedIndices.length) {
+            int capacity = 2 * index;
+            this.frameHints = Arrays.copyOf(frameHints, capacity);
+            this.movedIndices = new int[capacity];
+            this.transforms = BufferUtils.createFloatBuffer(
+                    capacity * PhysicsSpace.TRANSFORM_STRIDE);
+        }
+        controls.add(control);
+        frameHints[index] = index;
+        control.setBulkSync(this);
+    }
+
+    /**
+     * Count the spatials moved during the most recent sync.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countApplied() {
+        assert numApplied >= 0 : numApplied;
+        return numApplied;
+    }
+
+    /**
+     * Count the registered controls.
+     *
+     * @return the count (&ge;0)
+     */
+    public int countControls() {
+        int result = controls.size();
+        return result;
+    }
+
+    /**
+     * De-register the specified control, so that its spatial is again moved
+     * during update().
+     *
+     * @param control the control to remove (not null, registered with this
+     * synchronizer)
+     */
+    public void removeControl(RigidBodyControl control) {
+        Validate.nonNull(control, "control");
+        Validate.require(
+                control.getBulkSync() == this, "a registered control");
+
+        int index = controls.indexOf(control);
+        controls.remove(index);
+        int numControls = controls.size();
+        System.arraycopy(frameHints, index + 1, frameHints, index,
+                numControls - index);
+        control.setBulkSync(null);
+    }
+
+    /**
+     * Read the motion state of each registered control whose body has moved
+     * since the previous sync, then apply the buffered transforms to their
+     * spatials. Invoke once per frame, after the physics has been stepped,
+     * on the thread that updates the scene graph, while no step is in
+     * progress.
+     *
+     * @return the number of spatials moved (&ge;0)
+     */
+    public int sync() {
+        int numControls = controls.size();
+        transforms.clear();
+        int numMoved = 0;
+        for (int i = 0; i < numControls; ++i) {
+            RigidBodyControl control = controls.get(i);
+            if (control.readMotionState(tmpLocation, tmpOrientation)) {
+                putTransform(tmpLocation, tmpOrientation);
+                movedIndices[numMoved] = i;
+                ++numMoved;
+            }
+        }
+        applyTransforms(numMoved);
+
+        return numApplied;
+    }
+
+    /**
+     * Look up the transform of each registered control's body in the
+     * specified frame, optionally blending it with an older frame, then apply
+     * the buffered transforms to their spatials. Bodies missing from the
+     * newest frame are skipped. Makes no native calls, so it's safe to invoke
+     * while the physics is being stepped on another thread.
+     *
+     * @param newest the newest frame (not null, unaffected)
+     * @param previous an older frame to blend from, or null to apply the
+     * newest frame as-is (unaffected)
+     * @param alpha the weight of the newest frame (&ge;0, &le;1, 1 &rarr;
+     * ignore the older frame)
+     * @return the number of spatials moved (&ge;0)
+     */
+    public int sync(TransformFrame newest, TransformFrame previous,
+            float alpha) {
+        Validate.nonNull(newest, "newest frame");
+        Validate.fraction(alpha, "alpha");
+
+        boolean blend = (previous != null && alpha < 1f);
+        int numControls = controls.size();
+        transforms.clear();
+        int numMoved = 0;
+        for (int i = 0; i < numControls; ++i) {
+            long bodyId = controls.get(i).nativeId();
+            int bodyIndex = newest.findBody(bodyId, frameHints[i]);
+            if (bodyIndex == -1) {
+                continue;
+            }
+            frameHints[i] = bodyIndex;
+            newest.location(bodyIndex, tmpLocation);
+            newest.orientation(bodyIndex, tmpOrientation);
+
+            int oldIndex = blend ? previous.findBody(bodyId, bodyIndex) : -1;
+            if (oldIndex == -1) {
+                putTransform(tmpLocation, tmpOrientation);
+            } else {
+                previous.location(oldIndex, tmpLocation2);
+                previous.orientation(oldIndex, tmpOrientation2);
+                tmpLocation2.interpolateLocal(tmpLocation, alpha);
+                tmpOrientation2.slerp(tmpOrientation, alpha);
+                putTransform(tmpLocation2, tmpOrientation2);
+            }
+            movedIndices[numMoved] = i;
+            ++numMoved;
+        }
+        applyTransforms(numMoved);
+
+        return numApplied;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Apply the buffered transforms to the spatials of the moved controls.
+     *
+     * @param numMoved the number of buffered transforms (&ge;0)
+     */
+    private void applyTransforms(int numMoved) {
+        for (int movedIndex = 0; movedIndex < numMoved; ++movedIndex) {
+            int start = PhysicsSpace.TRANSFORM_STRIDE * movedIndex;
+            tmpLocation.set(transforms.get(start), transforms.get(start + 1),
+                    transforms.get(start + 2));
+            tmpOrientation.set(transforms.get(start + 3),
+                    transforms.get(start + 4), transforms.get(start + 5),
+                    transforms.get(start + 6));
+
+            RigidBodyControl control = controls.get(movedIndices[movedIndex]);
+            control.applyPhysicsTransform(tmpLocation, tmpOrientation);
+        }
+        this.numApplied = numMoved;
+    }
+
+    /**
+     * Append the specified transform to the buffer.
+     *
+     * @param location the location (not null, unaffected)
+     * @param orientation the orientation (not null, unaffected)
+     */
+    private void putTransform(Vector3f location, Quaternion orientation) {
+        transforms.put(location.x)
+                .put(location.y)
+                .put(location.z)
+                .put(orientation.getX())
+                .put(orientation.getY())
+                .put(orientation.getZ())
+                .put(orientation.getW());
+    }
+}
@@ -107,6 +107,11 @@ public class RigidBodyControl
      * supports it), false&rarr;disable shape scaling
      */
     private boolean applyScale = false;
+    /**
+     * synchronizer that updates the spatial's transform, or null if it's
+     * updated from the motion state during update()
+     */
+    private BulkTransformSync bulkSync = null;
     /**
      * true&rarr;Control is enabled, false&rarr;Control is disabled
      */
@@ -171,6 +176,39 @@ public class RigidBodyControl
     // *************************************************************************
     // new methods exposed
 
+    /**
+     * Apply the specified physics transform to the controlled spatial. Invoked
+     * by {@link BulkTransformSync}. Has no effect if the Control is disabled,
+     * if the spatial follows a kinematic body, or if the spatial ignores
+     * transforms.
+     *
+     * @param location the body's location (in physics-space coordinates, not
+     * null, unaffected)
+     * @param orientation the body's orientation (in physics-space coordinates,
+     * not null, unaffected)
+     */
+    public void applyPhysicsTransform(Vector3f location,
+            Quaternion orientation) {
+        if (!isFollowingBody()) {
+            return;
+        }
+
+        getMotionState().applyTransform(spatial, location, orientation);
+        if (applyScale) {
+            applySpatialScale();
+        }
+    }
+
+    /**
+     * Access the synchronizer that updates the spatial's transform.
+     *
+     * @return the pre-existing instance, or null if the transform is updated
+     * during update()
+     */
+    public BulkTransformSync getBulkSync() {
+        return bulkSync;
+    }
+
     /**
      * Access the controlled spatial.
      *
@@ -192,6 +230,16 @@ public class RigidBodyControl
         return ms.isApplyPhysicsLocal();
     }
 
+    /**
+     * Test whether the spatial's transform is updated by a BulkTransformSync.
+     *
+     * @return true if updated in bulk, false if updated during update()
+     */
+    public boolean isBulkSync() {
+        boolean result = (bulkSync != null);
+        return result;
+    }
+
     /**
      * Test whether the collision-shape scale should match the spatial's scale.
      *
@@ -252,6 +300,41 @@ public class RigidBodyControl
         this.kinematicSpatial = kinematicSpatial;
     }
     // *************************************************************************
+    // new package-private methods
+
+    /**
+     * Read the body's motion state, but only if the spatial follows the body
+     * and the body has moved since its transform was last applied. Invoked by
+     * {@link BulkTransformSync}. Makes at most one native call.
+     *
+     * @param storeLocation storage for the location (in physics-space
+     * coordinates, not null, modified only if the result is true)
+     * @param storeOrientation storage for the orientation (in physics-space
+     * coordinates, not null, modified only if the result is true)
+     * @return true if a new transform was read, otherwise false
+     */
+    boolean readMotionState(Vector3f storeLocation,
+            Quaternion storeOrientation) {
+        boolean result = false;
+        if (isFollowingBody()) {
+            RigidBodyMotionState ms = getMotionState();
+            result = ms.readTransform(storeLocation, storeOrientation);
+        }
+
+        return result;
+    }
+
+    /**
+     * Alter which synchronizer updates the spatial's transform. Invoked by
+     * {@link BulkTransformSync}.
+     *
+     * @param sync the desired synchronizer, or null to update the transform
+     * during update() (alias created)
+     */
+    void setBulkSync(BulkTransformSync sync) {
+        this.bulkSync = sync;
+    }
+    // *************************************************************************
     // new protected methods
 
     /**
@@ -448,7 +531,8 @@ public class RigidBodyControl
                 }
             }
 
-        } else if (!MySpatial.isIgnoringTransforms(spatial)) {
+        } else if (bulkSync == null
+                && !MySpatial.isIgnoringTransforms(spatial)) {
             getMotionState().applyTransform(spatial);
             if (applyScale) {
                 applySpatialScale();
@@ -471,6 +555,11 @@ public class RigidBodyControl
     public void cloneFields(Cloner cloner, Object original) {
         super.cloneFields(cloner, original);
         spatial = cloner.clone(spatial);
+        /*
+         * The clone isn't registered with any synchronizer, so it must
+         * update its own spatial.
+         */
+        this.bulkSync = null;
     }
 
     /**
@@ -613,4 +702,22 @@ public class RigidBodyControl
 
         return result;
     }
+
+    /**
+     * Test whether the controlled spatial should follow the body. Makes no
+     * native calls.
+     *
+     * @return true if it follows the body, otherwise false
+     */
+    private boolean isFollowingBody() {
+        if (!enabled || spatial == null) {
+            return false;
+        } else if (isKinematic() && kinematicSpatial) {
+            return false;
+        } else if (MySpatial.isIgnoringTransforms(spatial)) {
+            return false;
+        } else {
+            return true;
+        }
+    }
 }
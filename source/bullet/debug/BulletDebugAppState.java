@@ -35,7 +35,11 @@ import com.jme3.app.Application;
 import com.jme3.app.state.BaseAppState;
 import com.jme3.asset.AssetManager;
 import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.TransformFrame;
 import com.jme3.bullet.collision.PhysicsCollisionObject;
+import com.jme3.bullet.collision.shapes.CollisionShape;
+import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
+import com.jme3.bullet.collision.shapes.PlaneCollisionShape;
 import com.jme3.bullet.joints.Anchor;
 import com.jme3.bullet.joints.Constraint;
 import com.jme3.bullet.joints.JointEnd;
@@ -46,21 +50,29 @@ import com.jme3.bullet.objects.PhysicsCharacter;
 import com.jme3.bullet.objects.PhysicsGhostObject;
 import com.jme3.bullet.objects.PhysicsRigidBody;
 import com.jme3.bullet.objects.PhysicsVehicle;
+import com.jme3.bullet.util.DebugMeshKey;
+import com.jme3.bullet.util.DebugShapeFactory;
 import com.jme3.material.Material;
 import com.jme3.material.RenderState;
 import com.jme3.math.ColorRGBA;
 import com.jme3.math.Transform;
+import com.jme3.math.Vector3f;
 import com.jme3.renderer.RenderManager;
 import com.jme3.renderer.ViewPort;
 import com.jme3.renderer.queue.RenderQueue;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
 import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.control.Control;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jme3utilities.MeshNormals;
 import jme3utilities.MyAsset;
 import jme3utilities.Validate;
 import jme3utilities.debug.AxesVisualizer;
@@ -72,6 +84,44 @@ import jme3utilities.math.MyMath;
  * @author normenhansen
  */
 public class BulletDebugAppState extends BaseAppState {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * The debug-mesh key of a batched rigid body, cached across frames along
+     * with the parameters it was built from, so that a new key is built only
+     * when those parameters change.
+     */
+    private static class CachedKey {
+        /**
+         * collision margin of the shape
+         */
+        float margin;
+        /**
+         * debug-mesh resolution of the body
+         */
+        int resolution;
+        /**
+         * value of shapeFrame when the key was last used
+         */
+        long lastUsed;
+        /**
+         * collision shape of the body
+         */
+        CollisionShape shape;
+        /**
+         * the cached key (not null once built)
+         */
+        DebugMeshKey key;
+        /**
+         * debug-mesh normals of the body
+         */
+        MeshNormals normals;
+        /**
+         * scale factors of the shape
+         */
+        final Vector3f scale = new Vector3f();
+    }
     // *************************************************************************
     // constants and loggers
 
@@ -150,6 +200,25 @@ public class BulletDebugAppState extends BaseAppState {
      * map physics joints to visualization nodes
      */
     private HashMap<PhysicsJoint, Node> jointMap = new HashMap<>(64);
+    /**
+     * number of cached keys used since shapeFrame was last incremented
+     */
+    private int numKeysUsed = 0;
+    /**
+     * counts invocations of updateShapes()
+     */
+    private long shapeFrame = 0L;
+    /**
+     * cached debug-mesh key of each batched rigid body
+     */
+    final private Map<PhysicsRigidBody, CachedKey> batchKeys
+            = new IdentityHashMap<>(64);
+    /**
+     * map debug-mesh keys and materials to batches, for batched visualization
+     * of rigid bodies (a null batch indicates a mesh that can't be batched)
+     */
+    final private Map<DebugMeshKey, Map<Material, DebugShapeBatch>> batchMap
+            = new HashMap<>(64);
     /**
      * materials for rigid bodies (and vehicle chassis and colliders) that are
      * responsive and either static or kinematic or inactive
@@ -192,6 +261,14 @@ public class BulletDebugAppState extends BaseAppState {
      * scene-graph node for (debug) visualization
      */
     final private Node root = new Node("Physics Debug Root Node");
+    /**
+     * rigid-body transforms captured for batched visualization
+     */
+    final private TransformFrame batchFrame = new TransformFrame();
+    /**
+     * temporary storage for the scale factors of a shape
+     */
+    final private Vector3f tmpScale = new Vector3f();
     // *************************************************************************
     // constructors
 
@@ -606,10 +683,21 @@ public class BulletDebugAppState extends BaseAppState {
     }
 
     /**
-     * Synchronize the collision-shape debug controls and axis visualizers with
-     * the collision objects in the PhysicsSpace.
+     * Synchronize the collision-shape debug controls, axis visualizers, and
+     * shape batches with the collision objects in the PhysicsSpace.
      */
     protected void updateShapes() {
+        ++shapeFrame;
+        this.numKeysUsed = 0;
+        for (Map<Material, DebugShapeBatch> map : batchMap.values()) {
+            for (DebugShapeBatch batch : map.values()) {
+                if (batch != null) {
+                    batch.beginFrame();
+                }
+            }
+        }
+        boolean isBatched = configuration.isBatched();
+
         for (Map.Entry<PhysicsCollisionObject, Node> entry
                 : pcoMap.entrySet()) {
             DebugAppStateFilter filter = configuration.getFilter();
@@ -646,19 +734,31 @@ public class BulletDebugAppState extends BaseAppState {
                 updateAxes(node, displayShape);
 
             } else if (pco instanceof PhysicsRigidBody) {
+                PhysicsRigidBody body = (PhysicsRigidBody) pco;
                 control = node.getControl(BulletRigidBodyDebugControl.class);
-                if (control == null && displayShape) {
-                    logger.log(Level.FINE,
-                            "Create new BulletRigidBodyDebugControl");
-                    control = new BulletRigidBodyDebugControl(
-                            this, (PhysicsRigidBody) pco);
-                    node.addControl(control);
-                } else if (control != null && !displayShape) {
-                    node.removeControl(control);
+                boolean inBatch = isBatched && displayShape && addToBatch(body);
+                if (inBatch) {
+                    // The batch visualizes the shape, without axes.
+                    if (control != null) {
+                        node.removeControl(control);
+                    }
+                    updateAxes(node, false);
+
+                } else {
+                    if (control == null && displayShape) {
+                        logger.log(Level.FINE,
+                                "Create new BulletRigidBodyDebugControl");
+                        control = new BulletRigidBodyDebugControl(this, body);
+                        node.addControl(control);
+                    } else if (control != null && !displayShape) {
+                        node.removeControl(control);
+                    }
+                    updateAxes(node, displayShape);
                 }
-                updateAxes(node, displayShape);
             }
         }
+
+        updateBatches();
     }
 
     /**
@@ -776,6 +876,101 @@ public class BulletDebugAppState extends BaseAppState {
     // *************************************************************************
     // private methods
 
+    /**
+     * Add the specified rigid body to the batch for its debug mesh and
+     * Material, creating the batch if necessary.
+     *
+     * @param body the body to visualize (not null)
+     * @return true if the body was added to a batch, false if it must be
+     * visualized individually
+     */
+    private boolean addToBatch(PhysicsRigidBody body) {
+        CollisionShape shape = body.getCollisionShape();
+        if (shape instanceof CompoundCollisionShape
+                || shape instanceof PlaneCollisionShape) {
+            return false;
+        }
+
+        Material material = body.getDebugMaterial();
+        if (material == null || material == enableChildColoring) {
+            int numSides = body.debugNumSides();
+            if (!body.isContactResponse()) {
+                material = getGhostMaterial(numSides);
+            } else if (body.isDynamic() && body.isActive()) {
+                material = getActiveMaterial(numSides);
+            } else {
+                material = getInactiveMaterial(numSides);
+            }
+        }
+
+        DebugMeshKey key = batchKey(body, shape);
+        Map<Material, DebugShapeBatch> map = batchMap.get(key);
+        if (map == null) {
+            map = new HashMap<>(4);
+            batchMap.put(key, map);
+        }
+
+        DebugShapeBatch batch = map.get(material);
+        if (batch == null) {
+            if (map.containsKey(material)) { // known to be unbatchable
+                return false;
+            }
+            Geometry template
+                    = (Geometry) DebugShapeFactory.getDebugShape(body);
+            Mesh mesh = template.getMesh();
+            if (!DebugShapeBatch.canBatch(mesh)) {
+                map.put(material, null);
+                return false;
+            }
+            batch = new DebugShapeBatch(key, mesh, material);
+            map.put(material, batch);
+            attachChild(batch.getGeometry());
+        }
+        batch.addMember(body);
+
+        return true;
+    }
+
+    /**
+     * Obtain the debug-mesh key of the specified rigid body, reusing the key
+     * from the previous frame if the shape and mesh parameters haven't
+     * changed.
+     *
+     * @param body the body to visualize (not null)
+     * @param shape the body's collision shape (not null, not compound)
+     * @return a key (not null)
+     */
+    private DebugMeshKey batchKey(PhysicsRigidBody body, CollisionShape shape) {
+        float margin = shape.getMargin();
+        MeshNormals normals = body.debugMeshNormals();
+        int resolution = body.debugMeshResolution();
+        shape.getScale(tmpScale);
+
+        CachedKey cached = batchKeys.get(body);
+        if (cached == null) {
+            cached = new CachedKey();
+            batchKeys.put(body, cached);
+        } else if (cached.shape == shape && cached.margin == margin
+                && cached.normals == normals
+                && cached.resolution == resolution
+                && cached.scale.equals(tmpScale)) {
+            cached.lastUsed = shapeFrame;
+            ++numKeysUsed;
+            return cached.key;
+        }
+
+        cached.key = new DebugMeshKey(shape, normals, resolution);
+        cached.margin = margin;
+        cached.normals = normals;
+        cached.resolution = resolution;
+        cached.scale.set(tmpScale);
+        cached.shape = shape;
+        cached.lastUsed = shapeFrame;
+        ++numKeysUsed;
+
+        return cached.key;
+    }
+
     /**
      * Synchronize the angular-velocity debug controls with the dynamic rigid
      * bodies in the PhysicsSpace.
@@ -808,6 +1003,52 @@ public class BulletDebugAppState extends BaseAppState {
         }
     }
 
+    /**
+     * Refresh the shape batches from a bulk capture of rigid-body transforms,
+     * and discard any batches that no longer have members.
+     */
+    private void updateBatches() {
+        if (batchKeys.size() > numKeysUsed) { // discard stale keys
+            Iterator<CachedKey> iterator = batchKeys.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().lastUsed != shapeFrame) {
+                    iterator.remove();
+                }
+            }
+        }
+        if (batchMap.isEmpty()) {
+            return;
+        }
+
+        boolean isCaptured = false;
+        Iterator<Map<Material, DebugShapeBatch>> mapIterator
+                = batchMap.values().iterator();
+        while (mapIterator.hasNext()) {
+            Map<Material, DebugShapeBatch> map = mapIterator.next();
+            Iterator<DebugShapeBatch> batchIterator
+                    = map.values().iterator();
+            while (batchIterator.hasNext()) {
+                DebugShapeBatch batch = batchIterator.next();
+                if (batch == null) {
+                    continue;
+                } else if (batch.countMembers() == 0) {
+                    batch.getGeometry().removeFromParent();
+                    batchIterator.remove();
+                } else {
+                    if (!isCaptured) {
+                        PhysicsSpace space = configuration.getSpace();
+                        batchFrame.capture(space, 0.0);
+                        isCaptured = true;
+                    }
+                    batch.update(batchFrame);
+                }
+            }
+            if (map.isEmpty()) {
+                mapIterator.remove();
+            }
+        }
+    }
+
     /**
      * Synchronize the bounding-box debug controls with the collision objects in
      * the PhysicsSpace.
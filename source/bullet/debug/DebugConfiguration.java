@@ -58,6 +58,11 @@ public class DebugConfiguration {
     // *************************************************************************
     // fields
 
+    /**
+     * true if rigid bodies with identical debug meshes are visualized in
+     * batches, false if each is visualized individually
+     */
+    private boolean isBatched = false;
     /**
      * true if-and-only-if (debug) visualization is enabled
      */
@@ -273,6 +278,16 @@ public class DebugConfiguration {
         }
     }
 
+    /**
+     * Test whether rigid bodies with identical debug meshes are visualized in
+     * batches.
+     *
+     * @return true if batched, otherwise false
+     */
+    public boolean isBatched() {
+        return isBatched;
+    }
+
     /**
      * Test whether (debug) visualization is enabled.
      *
@@ -351,6 +366,22 @@ public class DebugConfiguration {
         this.axisLineWidth = width;
     }
 
+    /**
+     * Alter whether rigid bodies with identical debug meshes and materials are
+     * visualized in batches. Each batch is drawn as a single Geometry whose
+     * vertices are refreshed from a bulk capture of body transforms, so the
+     * cost of the visualization scales with the number of distinct shapes
+     * rather than the number of bodies. Batched bodies aren't visualized with
+     * axes, and compound and plane shapes are never batched. Changes take
+     * effect on the next update.
+     *
+     * @param enable true &rarr; batch, false &rarr; visualize individually
+     * (default=false)
+     */
+    public void setBatched(boolean enable) {
+        this.isBatched = enable;
+    }
+
     /**
      * Alter which bounding boxes are included in the visualization.
      *
@@ -0,0 +1,496 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.debug;
+
+import com.jme3.bullet.TransformFrame;
+import com.jme3.bullet.objects.PhysicsRigidBody;
+import com.jme3.bullet.util.DebugMeshKey;
+import com.jme3.material.Material;
+import com.jme3.math.Quaternion;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Geometry;
+import com.jme3.scene.Mesh;
+import com.jme3.scene.VertexBuffer;
+import com.jme3.scene.mesh.IndexBuffer;
+import com.jme3.util.BufferUtils;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A single Geometry that visualizes many rigid bodies sharing the same debug
+ * mesh and Material. Each frame, the body transforms are read from a bulk
+ * TransformFrame and applied to copies of the template mesh, so the scene
+ * graph contains one Geometry per batch instead of one subtree per body.
+ * <p>
+ * Vertices are transformed on the CPU, but only for members whose transforms
+ * changed since the previous update. If no member moved and the membership is
+ * unchanged, the mesh isn't touched at all, so a batch of sleeping bodies
+ * costs one transform comparison per member per frame.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+class DebugShapeBatch {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of axes in a vector
+     */
+    final private static int numAxes = 3;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(DebugShapeBatch.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * true if the membership changed since the previous update
+     */
+    private boolean isMembershipChanged = true;
+    /**
+     * key of the shared debug mesh
+     */
+    final private DebugMeshKey key;
+    /**
+     * vertex normals of the template (in shape coordinates), or null if the
+     * template lacks normals
+     */
+    final private float[] templateNormals;
+    /**
+     * vertex positions of the template (in shape coordinates)
+     */
+    final private float[] templatePositions;
+    /**
+     * transform last applied to each member: the location (x, y, z) followed
+     * by the orientation (x, y, z, w)
+     */
+    private float[] appliedTransforms = new float[0];
+    /**
+     * temporary storage for a rotation matrix
+     */
+    final private float[] rotation = new float[9];
+    /**
+     * visualizes the whole batch
+     */
+    final private Geometry geometry;
+    /**
+     * number of bodies the current buffers can accommodate
+     */
+    private int capacity = 0;
+    /**
+     * frame index of each member in the previous update, used as a hint
+     */
+    private int[] frameHints = new int[0];
+    /**
+     * vertex indices of the template, or null if the template isn't indexed
+     */
+    final private int[] templateIndices;
+    /**
+     * batched normals, or null if the template lacks normals
+     */
+    private FloatBuffer normals;
+    /**
+     * batched positions
+     */
+    private FloatBuffer positions;
+    /**
+     * batched indices, or null if the template isn't indexed
+     */
+    private IntBuffer indices;
+    /**
+     * bodies visualized by this batch in the current frame
+     */
+    private List<PhysicsRigidBody> members = new ArrayList<>(16);
+    /**
+     * bodies visualized by this batch in the previous frame
+     */
+    private List<PhysicsRigidBody> previousMembers = new ArrayList<>(16);
+    /**
+     * batched mesh
+     */
+    final private Mesh mesh = new Mesh();
+    /**
+     * temporary storage for a body orientation
+     */
+    final private Quaternion tmpOrientation = new Quaternion();
+    /**
+     * temporary storage for a body location
+     */
+    final private Vector3f tmpLocation = new Vector3f();
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty batch for the specified template.
+     *
+     * @param key the key of the template mesh (not null, alias created)
+     * @param template the debug mesh to replicate (not null, unaffected, must
+     * satisfy {@link #canBatch(com.jme3.scene.Mesh)})
+     * @param material the Material for the batch (not null, alias created)
+     */
+    DebugShapeBatch(DebugMeshKey key, Mesh template, Material material) {
+        assert canBatch(template);
+
+        this.key = key;
+        this.templatePositions = toArray(
+                template.getFloatBuffer(VertexBuffer.Type.Position));
+
+        FloatBuffer normalBuffer
+                = template.getFloatBuffer(VertexBuffer.Type.Normal);
+        this.templateNormals
+                = (normalBuffer == null) ? null : toArray(normalBuffer);
+
+        IndexBuffer indexBuffer = template.getIndexBuffer();
+        if (indexBuffer == null) {
+            this.templateIndices = null;
+        } else {
+            int numIndices = indexBuffer.size();
+            this.templateIndices = new int[numIndices];
+            for (int i = 0; i < numIndices; ++i) {
+                templateIndices[i] = indexBuffer.get(i);
+            }
+        }
+
+        mesh.setMode(template.getMode());
+        this.geometry = new Geometry("debug batch " + key, mesh);
+        geometry.setMaterial(material);
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Add the specified body to this batch for the current frame.
+     *
+     * @param body the body to visualize (not null, alias created)
+     */
+    void addMember(PhysicsRigidBody body) {
+        assert body != null;
+
+        int index = members.size();
+        if (index >= previousMembers.size()
+                || previousMembers.get(index) != body) {
+            this.isMembershipChanged = true;
+        }
+        members.add(body);
+    }
+
+    /**
+     * Begin a new frame: the current members become the previous members.
+     */
+    void beginFrame() {
+        List<PhysicsRigidBody> swap = previousMembers;
+        this.previousMembers = members;
+        this.members = swap;
+        members.clear();
+        this.isMembershipChanged = false;
+    }
+
+    /**
+     * Test whether the specified mesh can serve as a batch template. Only
+     * triangle meshes with positions, optional normals, and optional indices
+     * are supported.
+     *
+     * @param mesh the mesh to test (not null, unaffected)
+     * @return true if batchable, otherwise false
+     */
+    static boolean canBatch(Mesh mesh) {
+        if (mesh.getMode() != Mesh.Mode.Triangles) {
+            return false;
+        }
+        for (VertexBuffer vertexBuffer : mesh.getBufferList()) {
+            switch (vertexBuffer.getBufferType()) {
+                case Index:
+                    break;
+                case Normal:
+                case Position:
+                    if (vertexBuffer.getNumComponents() != numAxes) {
+                        return false;
+                    }
+                    break;
+                default:
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Count the bodies in the current frame.
+     *
+     * @return the count (&ge;0)
+     */
+    int countMembers() {
+        int result = members.size();
+        return result;
+    }
+
+    /**
+     * Access the Geometry that visualizes this batch.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    Geometry getGeometry() {
+        return geometry;
+    }
+
+    /**
+     * Update the batched mesh to reflect the current members and their
+     * transforms.
+     *
+     * @param frame the transforms of all rigid bodies in the space (not null,
+     * unaffected)
+     */
+    void update(TransformFrame frame) {
+        int numMembers = members.size();
+        if (numMembers != previousMembers.size()) {
+            this.isMembershipChanged = true;
+        }
+        boolean isMeshChanged = isMembershipChanged;
+        if (isMembershipChanged) {
+            resize(numMembers);
+        }
+
+        int vertexFloats = templatePositions.length;
+        for (int memberIndex = 0; memberIndex < numMembers; ++memberIndex) {
+            PhysicsRigidBody body = members.get(memberIndex);
+            int frameIndex
+                    = frame.findBody(body.nativeId(), frameHints[memberIndex]);
+            frameHints[memberIndex] = frameIndex;
+            if (frameIndex >= 0) {
+                frame.location(frameIndex, tmpLocation);
+                frame.orientation(frameIndex, tmpOrientation);
+            } else { // not captured: read it directly
+                body.getPhysicsLocation(tmpLocation);
+                body.getPhysicsRotation(tmpOrientation);
+            }
+            if (!isMembershipChanged && isApplied(memberIndex)) {
+                continue;
+            }
+            storeApplied(memberIndex);
+            isMeshChanged = true;
+            setRotation(tmpOrientation);
+
+            int offset = memberIndex * vertexFloats;
+            transform(templatePositions, positions, offset, true);
+            if (templateNormals != null) {
+                transform(templateNormals, normals, offset, false);
+            }
+        }
+        if (!isMeshChanged) {
+            return;
+        }
+
+        mesh.getBuffer(VertexBuffer.Type.Position).updateData(positions);
+        if (normals != null) {
+            mesh.getBuffer(VertexBuffer.Type.Normal).updateData(normals);
+        }
+        mesh.updateBound();
+        geometry.updateModelBound();
+    }
+    // *************************************************************************
+    // Object methods
+
+    /**
+     * Represent this batch as a String.
+     *
+     * @return a descriptive string of text (not null, not empty)
+     */
+    @Override
+    public String toString() {
+        String result = String.format("DebugShapeBatch[%s, %d members]",
+                key, members.size());
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Test whether the current tmpLocation and tmpOrientation match the
+     * transform last applied to the indexed member.
+     *
+     * @param memberIndex the index of the member (&ge;0)
+     * @return true if they match exactly, otherwise false
+     */
+    private boolean isApplied(int memberIndex) {
+        int i = 7 * memberIndex;
+        boolean result = appliedTransforms[i] == tmpLocation.x
+                && appliedTransforms[i + 1] == tmpLocation.y
+                && appliedTransforms[i + 2] == tmpLocation.z
+                && appliedTransforms[i + 3] == tmpOrientation.getX()
+                && appliedTransforms[i + 4] == tmpOrientation.getY()
+                && appliedTransforms[i + 5] == tmpOrientation.getZ()
+                && appliedTransforms[i + 6] == tmpOrientation.getW();
+
+        return result;
+    }
+
+    /**
+     * Ensure the batched buffers can hold the specified number of bodies and
+     * rebuild the indices.
+     *
+     * @param numMembers the number of bodies (&ge;0)
+     */
+    private void resize(int numMembers) {
+        if (numMembers > capacity) {
+            int newCapacity = Math.max(numMembers, 2 * capacity);
+            int numFloats = newCapacity * templatePositions.length;
+            this.positions = BufferUtils.createFloatBuffer(numFloats);
+            mesh.clearBuffer(VertexBuffer.Type.Position);
+            mesh.setBuffer(VertexBuffer.Type.Position, numAxes, positions);
+            if (templateNormals != null) {
+                this.normals = BufferUtils.createFloatBuffer(numFloats);
+                mesh.clearBuffer(VertexBuffer.Type.Normal);
+                mesh.setBuffer(VertexBuffer.Type.Normal, numAxes, normals);
+            }
+            if (templateIndices != null) {
+                int numIndices = newCapacity * templateIndices.length;
+                this.indices = BufferUtils.createIntBuffer(numIndices);
+                mesh.clearBuffer(VertexBuffer.Type.Index);
+                mesh.setBuffer(VertexBuffer.Type.Index, 1, indices);
+            }
+            this.appliedTransforms = new float[7 * newCapacity];
+            this.frameHints = new int[newCapacity];
+            this.capacity = newCapacity;
+        }
+
+        int numFloats = numMembers * templatePositions.length;
+        positions.limit(numFloats);
+        if (normals != null) {
+            normals.limit(numFloats);
+        }
+        if (indices != null) {
+            int numVertices = templatePositions.length / numAxes;
+            indices.clear();
+            for (int memberIndex = 0; memberIndex < numMembers; ++memberIndex) {
+                int base = memberIndex * numVertices;
+                for (int templateIndex : templateIndices) {
+                    indices.put(base + templateIndex);
+                }
+            }
+            indices.flip();
+            mesh.getBuffer(VertexBuffer.Type.Index).updateData(indices);
+        }
+        Arrays.fill(frameHints, -1);
+        mesh.updateCounts();
+    }
+
+    /**
+     * Convert the specified quaternion to a rotation matrix, stored in the
+     * rotation field in row-major order.
+     *
+     * @param q the orientation (not null, normalized, unaffected)
+     */
+    private void setRotation(Quaternion q) {
+        float x = q.getX();
+        float y = q.getY();
+        float z = q.getZ();
+        float w = q.getW();
+
+        rotation[0] = 1f - 2f * (y * y + z * z);
+        rotation[1] = 2f * (x * y - z * w);
+        rotation[2] = 2f * (x * z + y * w);
+        rotation[3] = 2f * (x * y + z * w);
+        rotation[4] = 1f - 2f * (x * x + z * z);
+        rotation[5] = 2f * (y * z - x * w);
+        rotation[6] = 2f * (x * z - y * w);
+        rotation[7] = 2f * (y * z + x * w);
+        rotation[8] = 1f - 2f * (x * x + y * y);
+    }
+
+    /**
+     * Record tmpLocation and tmpOrientation as the transform applied to the
+     * indexed member.
+     *
+     * @param memberIndex the index of the member (&ge;0)
+     */
+    private void storeApplied(int memberIndex) {
+        int i = 7 * memberIndex;
+        appliedTransforms[i] = tmpLocation.x;
+        appliedTransforms[i + 1] = tmpLocation.y;
+        appliedTransforms[i + 2] = tmpLocation.z;
+        appliedTransforms[i + 3] = tmpOrientation.getX();
+        appliedTransforms[i + 4] = tmpOrientation.getY();
+        appliedTransforms[i + 5] = tmpOrientation.getZ();
+        appliedTransforms[i + 6] = tmpOrientation.getW();
+    }
+
+    /**
+     * Copy the contents of the specified buffer to a new array.
+     *
+     * @param buffer the buffer to copy (not null, unaffected)
+     * @return a new array
+     */
+    private static float[] toArray(FloatBuffer buffer) {
+        int numFloats = buffer.limit();
+        float[] result = new float[numFloats];
+        for (int i = 0; i < numFloats; ++i) {
+            result[i] = buffer.get(i);
+        }
+
+        return result;
+    }
+
+    /**
+     * Rotate (and optionally translate) template vectors into the specified
+     * buffer, using the current rotation matrix and tmpLocation.
+     *
+     * @param source the template vectors (not null, unaffected)
+     * @param target the buffer to write (not null, modified)
+     * @param offset the index of the first float to write (&ge;0)
+     * @param translate true to add tmpLocation, false for direction vectors
+     */
+    private void transform(float[] source, FloatBuffer target, int offset,
+            boolean translate) {
+        float tx = translate ? tmpLocation.x : 0f;
+        float ty = translate ? tmpLocation.y : 0f;
+        float tz = translate ? tmpLocation.z : 0f;
+
+        for (int i = 0; i < source.length; i += numAxes) {
+            float x = source[i];
+            float y = source[i + 1];
+            float z = source[i + 2];
+            target.put(offset + i,
+                    rotation[0] * x + rotation[1] * y + rotation[2] * z + tx);
+            target.put(offset + i + 1,
+                    rotation[3] * x + rotation[4] * y + rotation[5] * z + ty);
+            target.put(offset + i + 2,
+                    rotation[6] * x + rotation[7] * y + rotation[8] * z + tz);
+        }
+    }
+}
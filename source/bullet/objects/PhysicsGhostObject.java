@@ -45,8 +45,10 @@ import com.jme3.util.clone.Cloner;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import jme3utilities.Validate;
 
 /**
  * A collision object for intangibles, based on Bullet's
@@ -86,6 +88,11 @@ public class PhysicsGhostObject extends PhysicsCollisionObject {
      */
     private List<PhysicsCollisionObject> overlappingObjects
             = new LinkedList<>();
+    /**
+     * visitor that receives overlapping objects from native code instead of
+     * the list, or null to fill the list
+     */
+    private Consumer<PhysicsCollisionObject> overlapVisitor = null;
     // *************************************************************************
     // constructors
 
@@ -147,6 +154,27 @@ public class PhysicsGhostObject extends PhysicsCollisionObject {
         return overlappingObjects;
     }
 
+    /**
+     * Pass each overlapping object to the specified visitor, instead of
+     * filling the internal list. The native code still makes one JNI upcall
+     * per overlapping object, so the cost is proportional to the number of
+     * overlaps. This method only avoids the list.
+     *
+     * @param visitor the visitor to invoke (not null)
+     */
+    public void visitOverlappingObjects(
+            Consumer<PhysicsCollisionObject> visitor) {
+        Validate.nonNull(visitor, "visitor");
+
+        this.overlapVisitor = visitor;
+        try {
+            long objectId = nativeId();
+            getOverlappingObjects(objectId);
+        } finally {
+            this.overlapVisitor = null;
+        }
+    }
+
     /**
      * Directly alter the location of this object's center.
      *
@@ -278,7 +306,11 @@ public class PhysicsGhostObject extends PhysicsCollisionObject {
      * @param co the collision object to add (alias created)
      */
     private void addOverlappingObject_native(PhysicsCollisionObject co) {
-        overlappingObjects.add(co);
+        if (overlapVisitor == null) {
+            overlappingObjects.add(co);
+        } else {
+            overlapVisitor.accept(co);
+        }
     }
 
     /**
@@ -105,27 +105,32 @@ public class RigidBodyMotionState
         if (!physicsLocationDirty) {
             return false;
         }
-        if (!applyPhysicsLocal && spatial.getParent() != null) {
-            localLocation.subtractLocal(
-                    spatial.getParent().getWorldTranslation());
-            localLocation.divideLocal(spatial.getParent().getWorldScale());
-            tmpInverseWorldRotation.set(spatial.getParent().getWorldRotation())
-                    .inverseLocal().multLocal(localLocation);
-            tmpInverseWorldRotation.mult(localRotationQuat, localRotationQuat);
-
-            spatial.setLocalTranslation(localLocation);
-            spatial.setLocalRotation(localRotationQuat);
-        } else {
-            spatial.setLocalTranslation(localLocation);
-            spatial.setLocalRotation(localRotationQuat);
-        }
-        if (vehicle != null) {
-            vehicle.updateWheels();
-        }
+        applyLocalTransform(spatial);
 
         return true;
     }
 
+    /**
+     * Apply the specified physics transform to the specified Spatial, for
+     * instance one obtained from
+     * {@link com.jme3.bullet.PhysicsSpace#copyRigidTransforms}. The motion
+     * state isn't consulted.
+     *
+     * @param spatial where to apply the physics transform (not null, modified)
+     * @param location the location (in physics-space coordinates, not null,
+     * unaffected)
+     * @param orientation the orientation (in physics-space coordinates, not
+     * null, unaffected)
+     */
+    public void applyTransform(Spatial spatial, Vector3f location,
+            Quaternion orientation) {
+        Vector3f localLocation = spatial.getLocalTranslation(); // alias
+        Quaternion localRotationQuat = spatial.getLocalRotation(); // alias
+        localLocation.set(location);
+        localRotationQuat.set(orientation);
+        applyLocalTransform(spatial);
+    }
+
     /**
      * Copy the location from this motion state.
      *
@@ -220,6 +225,26 @@ public class RigidBodyMotionState
         return transform;
     }
 
+    /**
+     * If the motion state has been updated since its transform was last
+     * applied or read, copy the new transform and mark it as applied. Makes a
+     * single native call.
+     *
+     * @param storeLocation storage for the location (in physics-space
+     * coordinates, not null, modified only if the result is true)
+     * @param storeOrientation storage for the orientation (in physics-space
+     * coordinates, not null, modified only if the result is true)
+     * @return true if a new transform was copied, otherwise false
+     */
+    public boolean readTransform(Vector3f storeLocation,
+            Quaternion storeOrientation) {
+        long motionStateId = nativeId();
+        boolean result = applyTransform(
+                motionStateId, storeLocation, storeOrientation);
+
+        return result;
+    }
+
     /**
      * Alter whether physics-space coordinates should match the spatial's local
      * coordinates.
@@ -276,6 +301,35 @@ public class RigidBodyMotionState
     // *************************************************************************
     // Java private methods
 
+    /**
+     * Convert the physics transform (already stored in the local transform of
+     * the specified Spatial) to local coordinates, if necessary, and mark the
+     * Spatial for a refresh.
+     *
+     * @param spatial the Spatial to update (not null, modified)
+     */
+    private void applyLocalTransform(Spatial spatial) {
+        Vector3f localLocation = spatial.getLocalTranslation(); // alias
+        Quaternion localRotationQuat = spatial.getLocalRotation(); // alias
+        if (!applyPhysicsLocal && spatial.getParent() != null) {
+            localLocation.subtractLocal(
+                    spatial.getParent().getWorldTranslation());
+            localLocation.divideLocal(spatial.getParent().getWorldScale());
+            tmpInverseWorldRotation.set(spatial.getParent().getWorldRotation())
+                    .inverseLocal().multLocal(localLocation);
+            tmpInverseWorldRotation.mult(localRotationQuat, localRotationQuat);
+
+            spatial.setLocalTranslation(localLocation);
+            spatial.setLocalRotation(localRotationQuat);
+        } else {
+            spatial.setLocalTranslation(localLocation);
+            spatial.setLocalRotation(localRotationQuat);
+        }
+        if (vehicle != null) {
+            vehicle.updateWheels();
+        }
+    }
+
     /**
      * Free the identified tracked native object. Invoked by reflection.
      *
@@ -50,15 +50,21 @@ import com.jme3.terrain.Terrain;
 import com.jme3.util.BufferUtils;
 import java.nio.Buffer;
 import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.logging.Logger;
 import jme3utilities.MyMesh;
 import jme3utilities.MySpatial;
 import jme3utilities.Validate;
 import jme3utilities.math.MyBuffer;
 import jme3utilities.math.MyVector3f;
+import vhacd.DecompositionJob;
 import vhacd.VHACD;
 import vhacd.VHACDHull;
 import vhacd.VHACDParameters;
@@ -270,41 +276,15 @@ final public class CollisionShapeFactory {
         Validate.nonNull(parameters, "parameters");
 
         Mesh mergedMesh = makeMergedMesh(modelRoot);
-
         FloatBuffer positionBuffer
                 = mergedMesh.getFloatBuffer(VertexBuffer.Type.Position);
-        int numFloats = positionBuffer.limit();
-        float[] positionArray = new float[numFloats];
-        for (int offset = 0; offset < numFloats; ++offset) {
-            positionArray[offset] = positionBuffer.get(offset);
-        }
-
-        IndexBuffer indexBuffer = mergedMesh.getIndicesAsList();
-        int numIndices = indexBuffer.size();
-        int[] indexArray = new int[numIndices];
-        for (int offset = 0; offset < numIndices; ++offset) {
-            indexArray[offset] = indexBuffer.get(offset);
-        }
+        IntBuffer indexBuffer = intIndices(mergedMesh);
         /*
          * Use the V-HACD algorithm to generate a list of hulls.
          */
         List<VHACDHull> vhacdHulls
-                = VHACD.compute(positionArray, indexArray, parameters);
-        /*
-         * Convert each V-HACD hull to a HullCollisionShape
-         * and add that to the result.
-         */
-        CompoundCollisionShape result;
-        if (addResult == null) {
-            int numHulls = vhacdHulls.size();
-            result = new CompoundCollisionShape(numHulls);
-        } else {
-            result = addResult;
-        }
-        for (VHACDHull vhacdHull : vhacdHulls) {
-            HullCollisionShape hullShape = new HullCollisionShape(vhacdHull);
-            result.addChildShape(hullShape);
-        }
+                = VHACD.compute(positionBuffer, indexBuffer, parameters);
+        CompoundCollisionShape result = addVhacdHulls(vhacdHulls, addResult);
 
         return result;
     }
@@ -324,30 +304,121 @@ final public class CollisionShapeFactory {
         Validate.nonNull(parameters, "parameters");
 
         Mesh mergedMesh = makeMergedMesh(modelRoot);
-
         FloatBuffer positionBuffer
                 = mergedMesh.getFloatBuffer(VertexBuffer.Type.Position);
-        int numFloats = positionBuffer.limit();
-        float[] positionArray = new float[numFloats];
-        for (int offset = 0; offset < numFloats; ++offset) {
-            positionArray[offset] = positionBuffer.get(offset);
-        }
-
-        IndexBuffer indexBuffer = mergedMesh.getIndicesAsList();
-        int numIndices = indexBuffer.size();
-        int[] indexArray = new int[numIndices];
-        for (int offset = 0; offset < numIndices; ++offset) {
-            indexArray[offset] = indexBuffer.get(offset);
-        }
+        IntBuffer indexBuffer = intIndices(mergedMesh);
         /*
          * Use the V-HACD algorithm to generate a list of hulls.
          */
         List<Vhacd4Hull> vhacdHulls
-                = Vhacd4.compute(positionArray, indexArray, parameters);
-        /*
-         * Convert each V-HACD hull to a HullCollisionShape
-         * and add that to the result.
-         */
+                = Vhacd4.compute(positionBuffer, indexBuffer, parameters);
+        CompoundCollisionShape result = addVhacd4Hulls(vhacdHulls, addResult);
+
+        return result;
+    }
+
+    /**
+     * Start creating a shape for a dynamic object using classic V-HACD. The
+     * model is read on the calling thread; the decomposition and shape
+     * creation are performed by the specified executor, which requires a
+     * thread-safe native library unless it executes on the calling thread.
+     * Cancelling the returned future cancels the decomposition, but only
+     * before it starts: use {@link vhacd.VHACD#submit} directly to monitor
+     * progress.
+     *
+     * @param modelRoot the model on which to base the shape (not null,
+     * unaffected)
+     * @param parameters (not null, shouldn't be modified until the future
+     * completes)
+     * @param executor the executor to perform the decomposition (not null)
+     * @return a new future that completes with a new compound shape
+     */
+    public static CompletableFuture<CompoundCollisionShape>
+            createVhacdShapeAsync(Spatial modelRoot,
+                    VHACDParameters parameters, Executor executor) {
+        Validate.nonNull(modelRoot, "model root");
+        Validate.nonNull(parameters, "parameters");
+        Validate.nonNull(executor, "executor");
+
+        Mesh mergedMesh = makeMergedMesh(modelRoot);
+        FloatBuffer positionBuffer
+                = mergedMesh.getFloatBuffer(VertexBuffer.Type.Position);
+        IntBuffer indexBuffer = intIndices(mergedMesh);
+
+        DecompositionJob<VHACDHull> job = VHACD.submit(
+                positionBuffer, indexBuffer, parameters, executor);
+        Function<List<VHACDHull>, CompoundCollisionShape> converter
+                = new Function<List<VHACDHull>, CompoundCollisionShape>() {
+            @Override
+            public CompoundCollisionShape apply(List<VHACDHull> hulls) {
+                CompoundCollisionShape shape = addVhacdHulls(hulls, null);
+                return shape;
+            }
+        };
+        CompletableFuture<CompoundCollisionShape> result
+                = job.future().thenApply(converter);
+        propagateCancellation(result, job);
+
+        return result;
+    }
+
+    /**
+     * Start creating a shape for a dynamic object using V-HACD version 4. The
+     * model is read on the calling thread; the decomposition and shape
+     * creation are performed by the specified executor, which requires a
+     * thread-safe native library unless it executes on the calling thread.
+     * Cancelling the returned future cancels the decomposition, but only
+     * before it starts: use {@link vhacd4.Vhacd4#submit} directly to monitor
+     * progress.
+     *
+     * @param modelRoot the model on which to base the shape (not null,
+     * unaffected)
+     * @param parameters (not null, shouldn't be modified until the future
+     * completes)
+     * @param executor the executor to perform the decomposition (not null)
+     * @return a new future that completes with a new compound shape
+     */
+    public static CompletableFuture<CompoundCollisionShape>
+            createVhacdShapeAsync(Spatial modelRoot,
+                    Vhacd4Parameters parameters, Executor executor) {
+        Validate.nonNull(modelRoot, "model root");
+        Validate.nonNull(parameters, "parameters");
+        Validate.nonNull(executor, "executor");
+
+        Mesh mergedMesh = makeMergedMesh(modelRoot);
+        FloatBuffer positionBuffer
+                = mergedMesh.getFloatBuffer(VertexBuffer.Type.Position);
+        IntBuffer indexBuffer = intIndices(mergedMesh);
+
+        DecompositionJob<Vhacd4Hull> job = Vhacd4.submit(
+                positionBuffer, indexBuffer, parameters, executor);
+        Function<List<Vhacd4Hull>, CompoundCollisionShape> converter
+                = new Function<List<Vhacd4Hull>, CompoundCollisionShape>() {
+            @Override
+            public CompoundCollisionShape apply(List<Vhacd4Hull> hulls) {
+                CompoundCollisionShape shape = addVhacd4Hulls(hulls, null);
+                return shape;
+            }
+        };
+        CompletableFuture<CompoundCollisionShape> result
+                = job.future().thenApply(converter);
+        propagateCancellation(result, job);
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Convert each V-HACD version 4 hull to a HullCollisionShape and add it to
+     * a compound shape.
+     *
+     * @param vhacdHulls the hulls to convert (not null, unaffected)
+     * @param addResult the compound shape to append to (modified if not null)
+     * @return a compound shape (either addResult or a new shape, not null)
+     */
+    private static CompoundCollisionShape addVhacd4Hulls(
+            List<Vhacd4Hull> vhacdHulls, CompoundCollisionShape addResult) {
         CompoundCollisionShape result;
         if (addResult == null) {
             int numHulls = vhacdHulls.size();
@@ -362,8 +433,31 @@ final public class CollisionShapeFactory {
 
         return result;
     }
-    // *************************************************************************
-    // private methods
+
+    /**
+     * Convert each classic V-HACD hull to a HullCollisionShape and add it to a
+     * compound shape.
+     *
+     * @param vhacdHulls the hulls to convert (not null, unaffected)
+     * @param addResult the compound shape to append to (modified if not null)
+     * @return a compound shape (either addResult or a new shape, not null)
+     */
+    private static CompoundCollisionShape addVhacdHulls(
+            List<VHACDHull> vhacdHulls, CompoundCollisionShape addResult) {
+        CompoundCollisionShape result;
+        if (addResult == null) {
+            int numHulls = vhacdHulls.size();
+            result = new CompoundCollisionShape(numHulls);
+        } else {
+            result = addResult;
+        }
+        for (VHACDHull vhacdHull : vhacdHulls) {
+            HullCollisionShape hullShape = new HullCollisionShape(vhacdHull);
+            result.addChildShape(hullShape);
+        }
+
+        return result;
+    }
 
     /**
      * Append transformed mesh triangles to a merged mesh.
@@ -533,6 +627,30 @@ final public class CollisionShapeFactory {
         return result;
     }
 
+    /**
+     * Access the vertex indices of the specified mesh as an IntBuffer, copying
+     * them only if they're stored in a narrower format.
+     *
+     * @param mesh the mesh to read (not null, unaffected)
+     * @return the pre-existing buffer or a new direct buffer
+     */
+    private static IntBuffer intIndices(Mesh mesh) {
+        Buffer data = mesh.getBuffer(VertexBuffer.Type.Index).getData();
+        IntBuffer result;
+        if (data instanceof IntBuffer && data.isDirect()) {
+            result = (IntBuffer) data;
+        } else {
+            IndexBuffer indexBuffer = mesh.getIndicesAsList();
+            int numIndices = indexBuffer.size();
+            result = BufferUtils.createIntBuffer(numIndices);
+            for (int offset = 0; offset < numIndices; ++offset) {
+                result.put(offset, indexBuffer.get(offset));
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Generate a Mesh that merges the triangles of non-empty geometries not
      * tagged with "JmePhysicsIgnore".
@@ -593,6 +711,26 @@ final public class CollisionShapeFactory {
         return result;
     }
 
+    /**
+     * Arrange for the cancellation of a dependent future to cancel the
+     * decomposition job it depends on.
+     *
+     * @param dependent the dependent future (not null)
+     * @param job the job to cancel (not null)
+     */
+    private static void propagateCancellation(
+            final CompletableFuture<?> dependent,
+            final DecompositionJob<?> job) {
+        dependent.whenComplete(new BiConsumer<Object, Throwable>() {
+            @Override
+            public void accept(Object shape, Throwable throwable) {
+                if (dependent.isCancelled()) {
+                    job.cancel();
+                }
+            }
+        });
+    }
+
     /**
      * Calculate the Transform for a ChildCollisionShape relative to the
      * ancestor for which the shape is being generated.
@@ -0,0 +1,214 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * Accumulate a SHA-256 content hash, for use as a cache key. Primitive values
+ * are buffered in a fixed-size chunk and fed to the message digest a chunk at
+ * a time, so hashing large meshes doesn't copy them.
+ * <p>
+ * Shared by the V-HACD classes, {@code BvhStore}, and {@code DacShapeCache}.
+ * Not thread-safe.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+final public class ContentDigest {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * number of bytes hashed at a time
+     */
+    final private static int bytesPerChunk = 8_192;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(ContentDigest.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * buffer for values not yet fed to the digest
+     */
+    final private ByteBuffer chunk = ByteBuffer.allocate(bytesPerChunk);
+    /**
+     * underlying message digest
+     */
+    final private MessageDigest digest;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty SHA-256 digest.
+     */
+    public ContentDigest() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException exception) {
+            throw new IllegalStateException(exception);
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Complete the hash and format it. The digest is reset afterward.
+     *
+     * @return a new string of 64 hexadecimal digits (not null)
+     */
+    public String finish() {
+        flush();
+        byte[] hash = digest.digest();
+        String result = toHex(hash);
+
+        return result;
+    }
+
+    /**
+     * Append a single byte.
+     *
+     * @param value the value to append
+     */
+    public void putByte(byte value) {
+        if (!chunk.hasRemaining()) {
+            flush();
+        }
+        chunk.put(value);
+    }
+
+    /**
+     * Append the specified bytes.
+     *
+     * @param bytes the values to append (not null, unaffected)
+     */
+    public void putBytes(byte[] bytes) {
+        Validate.nonNull(bytes, "bytes");
+
+        flush();
+        digest.update(bytes);
+    }
+
+    /**
+     * Append a single float.
+     *
+     * @param value the value to append
+     */
+    public void putFloat(float value) {
+        if (chunk.remaining() < 4) {
+            flush();
+        }
+        chunk.putFloat(value);
+    }
+
+    /**
+     * Append elements 0 through numFloats-1 of the specified buffer, using
+     * absolute gets. The buffer's position isn't altered.
+     *
+     * @param buffer the buffer to read (not null, unaffected)
+     * @param numFloats the number of elements to append (&ge;0)
+     */
+    public void putFloats(FloatBuffer buffer, int numFloats) {
+        Validate.nonNull(buffer, "buffer");
+        Validate.nonNegative(numFloats, "number of floats");
+
+        for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+            putFloat(buffer.get(floatIndex));
+        }
+    }
+
+    /**
+     * Append a single int.
+     *
+     * @param value the value to append
+     */
+    public void putInt(int value) {
+        if (chunk.remaining() < 4) {
+            flush();
+        }
+        chunk.putInt(value);
+    }
+
+    /**
+     * Append elements 0 through numInts-1 of the specified buffer, using
+     * absolute gets. The buffer's position isn't altered.
+     *
+     * @param buffer the buffer to read (not null, unaffected)
+     * @param numInts the number of elements to append (&ge;0)
+     */
+    public void putInts(IntBuffer buffer, int numInts) {
+        Validate.nonNull(buffer, "buffer");
+        Validate.nonNegative(numInts, "number of ints");
+
+        for (int intIndex = 0; intIndex < numInts; ++intIndex) {
+            putInt(buffer.get(intIndex));
+        }
+    }
+
+    /**
+     * Convert a hash to a string of lowercase hexadecimal digits.
+     *
+     * @param hash the bytes to convert (not null, unaffected)
+     * @return a new string
+     */
+    public static String toHex(byte[] hash) {
+        Validate.nonNull(hash, "hash");
+
+        StringBuilder builder = new StringBuilder(2 * hash.length);
+        for (byte b : hash) {
+            builder.append(String.format("%02x", b));
+        }
+        String result = builder.toString();
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Feed the contents of the chunk buffer to the digest and clear the
+     * buffer.
+     */
+    private void flush() {
+        chunk.flip();
+        digest.update(chunk);
+        chunk.clear();
+    }
+}
@@ -36,13 +36,16 @@ import com.jme3.bullet.collision.shapes.CompoundCollisionShape;
 import com.jme3.math.Vector3f;
 import java.util.logging.Logger;
 import jme3utilities.MeshNormals;
+import jme3utilities.Validate;
 
 /**
- * Key used to locate cached debug meshes. Note: immutable.
+ * Key used to locate cached debug meshes. Objects with equal keys share the
+ * same debug mesh, so the key is also useful for grouping objects whose
+ * visualizations can be batched. Note: immutable.
  *
  * @author Stephen Gold sgold@sonic.net
  */
-class DebugMeshKey {
+public class DebugMeshKey {
     // *************************************************************************
     // constants and loggers
 
@@ -84,9 +87,11 @@ class DebugMeshKey {
      * @param normals (not null)
      * @param resolution 0 or 1
      */
-    DebugMeshKey(CollisionShape shape, MeshNormals normals, int resolution) {
-        assert normals != null;
-        assert !(shape instanceof CompoundCollisionShape);
+    public DebugMeshKey(
+            CollisionShape shape, MeshNormals normals, int resolution) {
+        Validate.nonNull(normals, "normals");
+        Validate.require(!(shape instanceof CompoundCollisionShape),
+                "a non-compound shape");
 
         this.normals = normals;
         margin = shape.getMargin();
@@ -49,11 +49,20 @@ import com.jme3.scene.Node;
 import com.jme3.scene.Spatial;
 import com.jme3.scene.VertexBuffer;
 import com.jme3.util.BufferUtils;
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.FloatBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Logger;
 import jme3utilities.MeshNormals;
 import jme3utilities.MyMesh;
@@ -68,6 +77,71 @@ import jme3utilities.math.MyVector3f;
  * @author CJ Hare, normenhansen
  */
 final public class DebugShapeFactory {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * An entry in the debug-mesh cache. The mesh is generated by a FutureTask,
+     * so that concurrent requests for the same key share a single build.
+     */
+    final private static class CachedMesh {
+        /**
+         * true after the entry has been removed from the cache
+         */
+        private boolean isDiscarded = false;
+        /**
+         * builds the mesh (not null)
+         */
+        final private FutureTask<Mesh> task;
+        /**
+         * snapshot of lastUse taken while choosing entries to evict (accessed
+         * only while holding evictionLock)
+         */
+        private long evictionStamp;
+        /**
+         * value of the use clock at the most recent request for this entry
+         */
+        private volatile long lastUse;
+        /**
+         * estimated footprint of the mesh that's counted in cachedBytes (in
+         * bytes, &ge;0)
+         */
+        private long numBytes = 0L;
+
+        /**
+         * Instantiate an entry for the specified mesh builder.
+         *
+         * @param builder generates the mesh (not null)
+         */
+        CachedMesh(Callable<Mesh> builder) {
+            this.task = new FutureTask<>(builder);
+        }
+
+        /**
+         * Count the completed mesh against the cache's budget, unless the
+         * entry has already been discarded.
+         *
+         * @param bytes the estimated footprint of the mesh (in bytes, &ge;0)
+         */
+        synchronized void account(long bytes) {
+            if (!isDiscarded) {
+                this.numBytes = bytes;
+                cachedBytes.addAndGet(bytes);
+            }
+        }
+
+        /**
+         * Release the entry's share of the cache's budget. Invoke only after
+         * removing the entry from the cache.
+         */
+        synchronized void discard() {
+            if (!isDiscarded) {
+                this.isDiscarded = true;
+                cachedBytes.addAndGet(-numBytes);
+                this.numBytes = 0L;
+            }
+        }
+    }
     // *************************************************************************
     // constants and loggers
 
@@ -105,18 +179,46 @@ final public class DebugShapeFactory {
      * index, MAX_VALUE&rarr;always index)
      */
     private static int maxVerticesToIndex = 6_000;
+    /**
+     * estimated footprint of all completed meshes in the cache (in bytes)
+     */
+    final private static AtomicLong cachedBytes = new AtomicLong();
+    /**
+     * logical clock to order cache entries by recency of use
+     */
+    final private static AtomicLong useClock = new AtomicLong();
+    /**
+     * count of cache lookups that found an existing or in-flight mesh
+     */
+    final private static LongAdder cacheHits = new LongAdder();
+    /**
+     * count of cache lookups that had to build a new mesh
+     */
+    final private static LongAdder cacheMisses = new LongAdder();
+    /**
+     * count of meshes evicted to stay within the byte budget
+     */
+    final private static LongAdder cacheEvictions = new LongAdder();
+    /**
+     * budget for cached meshes (in bytes, &ge;0, default=64 MiB)
+     */
+    private static volatile long maxCachedBytes = 64L << 20;
     /**
      * map keys to previously generated debug meshes, for reuse
      *
-     * Synchronized so that it can be updated from the "Physics Cleaner" thread.
+     * Concurrent so that it can be updated from the "Physics Cleaner" thread
+     * and so that meshes for distinct keys can be built in parallel.
      */
-    final private static Map<DebugMeshKey, Mesh> cache
-            = Collections.synchronizedMap(
-                    new WeakHashMap<DebugMeshKey, Mesh>(200));
+    final private static Map<DebugMeshKey, CachedMesh> cache
+            = new ConcurrentHashMap<>(200);
     /**
      * customization applied to all generated meshes, or null for none
      */
     private static MeshCustomizer meshCustomizer;
+    /**
+     * serialize evictions
+     */
+    final private static Object evictionLock = new Object();
     // *************************************************************************
     // constructors
 
@@ -132,11 +234,24 @@ final public class DebugShapeFactory {
      * Forget all previously generated debug meshes.
      */
     public static void clearCache() {
-        cache.clear();
+        for (Map.Entry<DebugMeshKey, CachedMesh> entry : cache.entrySet()) {
+            removeEntry(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Estimate the total footprint of the cached debug meshes.
+     *
+     * @return the number of bytes (&ge;0)
+     */
+    public static long countCachedBytes() {
+        long result = cachedBytes.get();
+        return result;
     }
 
     /**
-     * Count how many debug meshes are cached.
+     * Count how many debug meshes are cached, including any that are still
+     * being generated.
      *
      * @return the count (&ge;0)
      */
@@ -145,6 +260,39 @@ final public class DebugShapeFactory {
         return result;
     }
 
+    /**
+     * Count how many cached meshes have been evicted to stay within the byte
+     * budget since the statistics were last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countCacheEvictions() {
+        long result = cacheEvictions.sum();
+        return result;
+    }
+
+    /**
+     * Count how many debug-mesh lookups were satisfied by the cache since the
+     * statistics were last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countCacheHits() {
+        long result = cacheHits.sum();
+        return result;
+    }
+
+    /**
+     * Count how many debug-mesh lookups required generating a new mesh since
+     * the statistics were last reset.
+     *
+     * @return the count (&ge;0)
+     */
+    public static long countCacheMisses() {
+        long result = cacheMisses.sum();
+        return result;
+    }
+
     /**
      * Determine vertex locations for the specified collision shape. Note:
      * recursive!
@@ -347,6 +495,16 @@ final public class DebugShapeFactory {
         return result;
     }
 
+    /**
+     * Return the byte budget for cached debug meshes.
+     *
+     * @return the budget (in bytes, &ge;0)
+     */
+    public static long maxCachedBytes() {
+        long result = maxCachedBytes;
+        return result;
+    }
+
     /**
      * Determine the side length of the (square) debug mesh for a
      * PlaneCollisionShape.
@@ -364,15 +522,23 @@ final public class DebugShapeFactory {
      * @param shapeId the ID of the shape to remove
      */
     public static void removeShapeFromCache(long shapeId) {
-        synchronized (cache) {
-            for (DebugMeshKey key : cache.keySet()) {
-                if (key.shapeId() == shapeId) {
-                    cache.remove(key);
-                }
+        for (Map.Entry<DebugMeshKey, CachedMesh> entry : cache.entrySet()) {
+            DebugMeshKey key = entry.getKey();
+            if (key.shapeId() == shapeId) {
+                removeEntry(key, entry.getValue());
             }
         }
     }
 
+    /**
+     * Reset the cache's hit, miss, and eviction counters to zero.
+     */
+    public static void resetCacheStatistics() {
+        cacheHits.reset();
+        cacheMisses.reset();
+        cacheEvictions.reset();
+    }
+
     /**
      * Alter whether to index new debug meshes. (Doesn't affect cached meshes or
      * plane shapes.) Indexing might boost performance when there are many small
@@ -397,6 +563,24 @@ final public class DebugShapeFactory {
         maxVerticesToIndex = maxVertices;
     }
 
+    /**
+     * Alter the byte budget for cached debug meshes. When the estimated
+     * footprint exceeds the budget, the least recently used meshes are
+     * evicted. Geometries that already use an evicted mesh are unaffected.
+     *
+     * @param maxBytes the desired budget (in bytes, &ge;0, default=64 MiB,
+     * 0&rarr;don't retain meshes, MAX_VALUE&rarr;unlimited)
+     */
+    public static void setMaxCachedBytes(long maxBytes) {
+        if (maxBytes < 0L) {
+            String message = "maxBytes = " + maxBytes;
+            throw new IllegalArgumentException(message);
+        }
+
+        maxCachedBytes = maxBytes;
+        evictLeastRecent();
+    }
+
     /**
      * Calculate the volume of a debug mesh for the specified convex shape. The
      * shape's scale and margin are taken into account, but not its debug-mesh
@@ -421,6 +605,64 @@ final public class DebugShapeFactory {
     // *************************************************************************
     // private methods
 
+    /**
+     * Wait for the specified cache entry to finish generating its mesh. If
+     * generation failed, the entry is removed and the failure is rethrown.
+     *
+     * @param key the entry's key (not null)
+     * @param entry the entry to wait for (not null)
+     * @return the generated mesh (not null)
+     */
+    private static Mesh awaitMesh(DebugMeshKey key, CachedMesh entry) {
+        boolean interrupted = false;
+        Mesh result = null;
+        try {
+            while (result == null) {
+                try {
+                    result = entry.task.get();
+                } catch (InterruptedException exception) {
+                    interrupted = true;
+                }
+            }
+        } catch (ExecutionException exception) {
+            removeEntry(key, entry);
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new RuntimeException(cause);
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Estimate the footprint of the specified mesh's vertex buffers.
+     *
+     * @param mesh the mesh to analyze (not null, unaffected)
+     * @return the number of bytes (&ge;0)
+     */
+    private static long countBytes(Mesh mesh) {
+        long result = 0L;
+        for (VertexBuffer vertexBuffer : mesh.getBufferList()) {
+            Buffer data = vertexBuffer.getData();
+            if (data != null) {
+                VertexBuffer.Format format = vertexBuffer.getFormat();
+                int componentBytes = format.getComponentSize();
+                result += (long) data.capacity() * componentBytes;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * Generate vertex locations for triangles to visualize the specified
      * CompoundCollisionShape.
@@ -525,25 +767,31 @@ final public class DebugShapeFactory {
         assert resolution <= highResolution : resolution;
 
         DebugMeshKey key = new DebugMeshKey(shape, normals, resolution);
-        Mesh mesh;
-        synchronized (cache) {
-            mesh = cache.get(key);
-            if (mesh == null) {
-                if (shape instanceof PlaneCollisionShape) {
-                    mesh = createPlaneMesh((PlaneCollisionShape) shape,
-                            normals);
-                } else {
-                    mesh = createMesh(shape, normals, resolution);
-                }
-                if (meshCustomizer != null) {
-                    mesh = meshCustomizer.customizeMesh(mesh);
-                }
-                if (listener != null) {
-                    listener.debugMeshInit(mesh);
-                }
-                cache.put(key, mesh);
+        CachedMesh entry = cache.get(key);
+        boolean isBuilder = false;
+        if (entry == null) {
+            Callable<Mesh> builder
+                    = newMeshBuilder(shape, listener, normals, resolution);
+            CachedMesh newEntry = new CachedMesh(builder);
+            entry = cache.putIfAbsent(key, newEntry);
+            if (entry == null) {
+                entry = newEntry;
+                isBuilder = true;
             }
         }
+        entry.lastUse = useClock.incrementAndGet();
+
+        Mesh mesh;
+        if (isBuilder) {
+            cacheMisses.increment();
+            entry.task.run(); // Generate the mesh on the current thread.
+            mesh = awaitMesh(key, entry);
+            entry.account(countBytes(mesh));
+            evictLeastRecent();
+        } else {
+            cacheHits.increment();
+            mesh = awaitMesh(key, entry); // might wait for another thread
+        }
 
         Geometry geometry = new Geometry("Bullet debug", mesh);
         geometry.updateModelBound();
@@ -785,6 +1033,85 @@ final public class DebugShapeFactory {
         return result;
     }
 
+    /**
+     * Evict least recently used meshes until the cache is within its byte
+     * budget. Meshes still being generated are never evicted.
+     */
+    private static void evictLeastRecent() {
+        if (cachedBytes.get() <= maxCachedBytes) {
+            return;
+        }
+
+        synchronized (evictionLock) {
+            List<Map.Entry<DebugMeshKey, CachedMesh>> candidates
+                    = new ArrayList<>(cache.size());
+            for (Map.Entry<DebugMeshKey, CachedMesh> entry
+                    : cache.entrySet()) {
+                CachedMesh cachedMesh = entry.getValue();
+                if (cachedMesh.task.isDone()) {
+                    cachedMesh.evictionStamp = cachedMesh.lastUse;
+                    candidates.add(entry);
+                }
+            }
+            Collections.sort(candidates,
+                    new Comparator<Map.Entry<DebugMeshKey, CachedMesh>>() {
+                @Override
+                public int compare(Map.Entry<DebugMeshKey, CachedMesh> a,
+                        Map.Entry<DebugMeshKey, CachedMesh> b) {
+                    int result = Long.compare(a.getValue().evictionStamp,
+                            b.getValue().evictionStamp);
+                    return result;
+                }
+            });
+
+            for (Map.Entry<DebugMeshKey, CachedMesh> entry : candidates) {
+                if (cachedBytes.get() <= maxCachedBytes) {
+                    break;
+                }
+                if (removeEntry(entry.getKey(), entry.getValue())) {
+                    cacheEvictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * Create a Callable to generate a debug mesh for the specified
+     * (non-compound) collision shape, applying the customizer and listener.
+     *
+     * @param shape (not null, not compound, unaffected)
+     * @param listener the listener to notify, or null for none
+     * @param normals which normals to generate (not null)
+     * @param resolution how much detail for convex shapes (0=low, 1=high)
+     * @return a new instance (not null)
+     */
+    private static Callable<Mesh> newMeshBuilder(final CollisionShape shape,
+            final DebugMeshInitListener listener, final MeshNormals normals,
+            final int resolution) {
+        Callable<Mesh> result = new Callable<Mesh>() {
+            @Override
+            public Mesh call() {
+                Mesh mesh;
+                if (shape instanceof PlaneCollisionShape) {
+                    mesh = createPlaneMesh((PlaneCollisionShape) shape,
+                            normals);
+                } else {
+                    mesh = createMesh(shape, normals, resolution);
+                }
+                if (meshCustomizer != null) {
+                    mesh = meshCustomizer.customizeMesh(mesh);
+                }
+                if (listener != null) {
+                    listener.debugMeshInit(mesh);
+                }
+
+                return mesh;
+            }
+        };
+
+        return result;
+    }
+
     /**
      * Generate a Transform that maps the Y-Z plane to the surface of the
      * specified PlaneCollisionShape.
@@ -806,6 +1133,23 @@ final public class DebugShapeFactory {
 
         return result;
     }
+
+    /**
+     * Remove the specified entry from the cache, if it's still present, and
+     * release its share of the byte budget.
+     *
+     * @param key the entry's key (not null)
+     * @param entry the entry to remove (not null)
+     * @return true if the entry was removed, otherwise false
+     */
+    private static boolean removeEntry(DebugMeshKey key, CachedMesh entry) {
+        boolean result = cache.remove(key, entry);
+        if (result) {
+            entry.discard();
+        }
+
+        return result;
+    }
     // *************************************************************************
     // native private methods
 
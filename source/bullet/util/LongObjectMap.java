@@ -0,0 +1,561 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A thread-safe hash map from non-zero long keys (such as native IDs) to
+ * non-null values, using open addressing with linear probing.
+ * <p>
+ * Unlike {@code ConcurrentHashMap<Long, V>}, it stores keys in a primitive
+ * array, so lookups, insertions, and removals don't box keys or allocate
+ * entry nodes. Removals use backward-shift deletion, so no tombstones
+ * accumulate under churn.
+ * <p>
+ * All methods synchronize on the map. Enumeration methods return snapshots.
+ * The snapshot returned by {@link #values()} is cached until the map is next
+ * modified, so repeatedly iterating an unchanged map doesn't allocate. For
+ * concurrent access from many threads, see {@link StripedLongObjectMap}. For
+ * APIs that require a {@code Map<Long, V>}, see {@link #asMap()}.
+ *
+ * @param <V> the type of values
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class LongObjectMap<V> {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * Iterate over a snapshot of the entries in the enclosing map.
+     * {@link #remove()} removes the current entry from the map.
+     */
+    private class EntryIterator implements Iterator<Map.Entry<Long, V>> {
+        /**
+         * index of the next entry (&ge;0)
+         */
+        private int nextIndex = 0;
+        /**
+         * snapshot of the keys
+         */
+        final private long[] snapshotKeys;
+        /**
+         * snapshot of the values, in the same order as the keys
+         */
+        final private List<V> snapshotValues;
+
+        /**
+         * Instantiate an iterator over the current entries.
+         */
+        EntryIterator() {
+            synchronized (LongObjectMap.this) {
+                this.snapshotKeys = keys();
+                this.snapshotValues = new ArrayList<>(snapshotKeys.length);
+                for (long key : snapshotKeys) {
+                    snapshotValues.add(LongObjectMap.this.get(key));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean result = (nextIndex < snapshotKeys.length);
+            return result;
+        }
+
+        @Override
+        public Map.Entry<Long, V> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+
+            long key = snapshotKeys[nextIndex];
+            V value = snapshotValues.get(nextIndex);
+            ++nextIndex;
+            Map.Entry<Long, V> result
+                    = new AbstractMap.SimpleImmutableEntry<>(key, value);
+
+            return result;
+        }
+
+        @Override
+        public void remove() {
+            if (nextIndex == 0) {
+                throw new IllegalStateException("next() wasn't invoked.");
+            }
+            LongObjectMap.this.remove(snapshotKeys[nextIndex - 1]);
+        }
+    }
+
+    /**
+     * A live {@code Map<Long, V>} view of the enclosing map, for APIs that
+     * predate LongObjectMap. Keys are boxed at the boundary. Iterators
+     * traverse a snapshot of the entries, and their entries are immutable.
+     */
+    private class MapView extends AbstractMap<Long, V> {
+        @Override
+        public void clear() {
+            LongObjectMap.this.clear();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            boolean result = isValidKey(key)
+                    && LongObjectMap.this.containsKey((Long) key);
+            return result;
+        }
+
+        @Override
+        public Set<Map.Entry<Long, V>> entrySet() {
+            return new AbstractSet<Map.Entry<Long, V>>() {
+                @Override
+                public Iterator<Map.Entry<Long, V>> iterator() {
+                    return new EntryIterator();
+                }
+
+                @Override
+                public int size() {
+                    return LongObjectMap.this.size();
+                }
+            };
+        }
+
+        @Override
+        public V get(Object key) {
+            V result = null;
+            if (isValidKey(key)) {
+                result = LongObjectMap.this.get((Long) key);
+            }
+
+            return result;
+        }
+
+        @Override
+        public V put(Long key, V value) {
+            V result = LongObjectMap.this.put(key, value);
+            return result;
+        }
+
+        @Override
+        public V remove(Object key) {
+            V result = null;
+            if (isValidKey(key)) {
+                result = LongObjectMap.this.remove((Long) key);
+            }
+
+            return result;
+        }
+
+        @Override
+        public int size() {
+            return LongObjectMap.this.size();
+        }
+
+        /**
+         * Test whether the specified object could be a key of the map.
+         *
+         * @param key the object to test (may be null, unaffected)
+         * @return true if it's a non-zero Long, otherwise false
+         */
+        private boolean isValidKey(Object key) {
+            boolean result = key instanceof Long && (Long) key != 0L;
+            return result;
+        }
+    }
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * smallest capacity of the tables (a power of 2)
+     */
+    final private static int minCapacity = 16;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(LongObjectMap.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of entries in the map (&ge;0)
+     */
+    private int size = 0;
+    /**
+     * key in each slot, or 0 if the slot is empty (length a power of 2)
+     */
+    private long[] keys;
+    /**
+     * value in each slot, or null if the slot is empty (same length as keys)
+     */
+    private Object[] values;
+    /**
+     * unmodifiable snapshot of the values, or null if it needs to be rebuilt
+     */
+    private List<V> snapshot = null;
+    /**
+     * live Map view of this map, or null if not yet created
+     */
+    private Map<Long, V> mapView = null;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty map.
+     *
+     * @param expectedSize the number of entries to allocate room for (&ge;0)
+     */
+    public LongObjectMap(int expectedSize) {
+        Validate.nonNegative(expectedSize, "expected size");
+
+        int capacity = minCapacity;
+        while (capacity < 2 * expectedSize) {
+            capacity <<= 1;
+        }
+        this.keys = new long[capacity];
+        this.values = new Object[capacity];
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Access a live {@code Map<Long, V>} view of this map, for APIs that
+     * predate LongObjectMap. Changes to either are visible in the other.
+     * Each access through the view boxes its key, and each iteration copies
+     * the entries, so prefer the primitive methods where possible.
+     *
+     * @return the pre-existing view (not null)
+     */
+    synchronized public Map<Long, V> asMap() {
+        if (mapView == null) {
+            this.mapView = new MapView();
+        }
+
+        return mapView;
+    }
+
+    /**
+     * Remove all entries, without shrinking the tables.
+     */
+    synchronized public void clear() {
+        for (int slot = 0; slot < keys.length; ++slot) {
+            keys[slot] = 0L;
+            values[slot] = null;
+        }
+        this.size = 0;
+        this.snapshot = null;
+    }
+
+    /**
+     * Test whether the specified key is in the map.
+     *
+     * @param key the key to find (not zero)
+     * @return true if found, otherwise false
+     */
+    synchronized public boolean containsKey(long key) {
+        int slot = findSlot(key);
+        boolean result = (slot >= 0);
+
+        return result;
+    }
+
+    /**
+     * Look up the value associated with the specified key.
+     *
+     * @param key the key to find (not zero)
+     * @return the pre-existing value, or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    synchronized public V get(long key) {
+        int slot = findSlot(key);
+        V result = null;
+        if (slot >= 0) {
+            result = (V) values[slot];
+        }
+
+        return result;
+    }
+
+    /**
+     * Determine the preferred slot for the specified key. Native IDs are
+     * aligned addresses, so the bits are mixed before masking. Also used by
+     * other open-addressed tables keyed by native ID.
+     *
+     * @param key the key (not zero)
+     * @param mask the table length minus one
+     * @return the slot index (&ge;0, &le;mask)
+     */
+    public static int homeSlot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        hash ^= (hash >>> 32);
+        int result = (int) hash & mask;
+
+        return result;
+    }
+
+    /**
+     * Test whether the map is empty.
+     *
+     * @return true if empty, otherwise false
+     */
+    synchronized public boolean isEmpty() {
+        boolean result = (size == 0);
+        return result;
+    }
+
+    /**
+     * Enumerate the keys in the map, in arbitrary order.
+     *
+     * @return a new array (not null)
+     */
+    synchronized public long[] keys() {
+        long[] result = new long[size];
+        int count = 0;
+        for (long key : keys) {
+            if (key != 0L) {
+                result[count] = key;
+                ++count;
+            }
+        }
+        assert count == size : count;
+
+        return result;
+    }
+
+    /**
+     * Associate the specified value with the specified key, replacing any
+     * previous association.
+     *
+     * @param key the key (not zero)
+     * @param value the value (not null, alias created)
+     * @return the previous value, or null if none
+     */
+    @SuppressWarnings("unchecked")
+    synchronized public V put(long key, V value) {
+        Validate.nonZero(key, "key");
+        Validate.nonNull(value, "value");
+
+        int mask = keys.length - 1;
+        int slot = homeSlot(key, mask);
+        while (keys[slot] != 0L) {
+            if (keys[slot] == key) {
+                V result = (V) values[slot];
+                values[slot] = value;
+                if (result != value) {
+                    this.snapshot = null;
+                }
+                return result;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        values[slot] = value;
+        ++size;
+        this.snapshot = null;
+        if (2 * size > keys.length) {
+            resize(2 * keys.length);
+        }
+
+        return null;
+    }
+
+    /**
+     * Remove the entry with the specified key.
+     *
+     * @param key the key to remove (not zero)
+     * @return the value that was removed, or null if not found
+     */
+    @SuppressWarnings("unchecked")
+    synchronized public V remove(long key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+
+        V result = (V) values[slot];
+        deleteSlot(slot);
+        --size;
+        this.snapshot = null;
+
+        return result;
+    }
+
+    /**
+     * Count the entries in the map.
+     *
+     * @return the count (&ge;0)
+     */
+    synchronized public int size() {
+        assert size >= 0 : size;
+        return size;
+    }
+
+    /**
+     * Enumerate the values in the map, in arbitrary order. The snapshot is
+     * shared by all callers until the map is next modified.
+     *
+     * @return an unmodifiable list of pre-existing values (not null)
+     */
+    synchronized public List<V> values() {
+        if (snapshot == null) {
+            List<V> list = values(null);
+            this.snapshot = Collections.unmodifiableList(list);
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * Enumerate the values in the map, in arbitrary order.
+     *
+     * @param storeResult storage for the result (cleared and modified if not
+     * null)
+     * @return a list of pre-existing values (either storeResult or a new
+     * list, not null)
+     */
+    @SuppressWarnings("unchecked")
+    synchronized public List<V> values(List<V> storeResult) {
+        List<V> result;
+        if (storeResult == null) {
+            result = new ArrayList<>(size);
+        } else {
+            result = storeResult;
+            result.clear();
+        }
+
+        for (Object value : values) {
+            if (value != null) {
+                result.add((V) value);
+            }
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Empty the specified slot, shifting later entries of the same probe
+     * sequence backward so that no tombstone is needed.
+     *
+     * @param emptySlot the index of the slot to empty (&ge;0)
+     */
+    private void deleteSlot(int emptySlot) {
+        int mask = keys.length - 1;
+        int hole = emptySlot;
+        int slot = hole;
+        while (true) {
+            slot = (slot + 1) & mask;
+            long key = keys[slot];
+            if (key == 0L) {
+                break;
+            }
+            /*
+             * Move the entry into the hole unless its home slot lies
+             * cyclically within (hole, slot].
+             */
+            int home = homeSlot(key, mask);
+            boolean stays;
+            if (hole <= slot) {
+                stays = (hole < home && home <= slot);
+            } else {
+                stays = (hole < home || home <= slot);
+            }
+            if (!stays) {
+                keys[hole] = key;
+                values[hole] = values[slot];
+                hole = slot;
+            }
+        }
+
+        keys[hole] = 0L;
+        values[hole] = null;
+    }
+
+    /**
+     * Find the slot that contains the specified key.
+     *
+     * @param key the key to find (not zero)
+     * @return the slot index (&ge;0) or -1 if not found
+     */
+    private int findSlot(long key) {
+        Validate.nonZero(key, "key");
+
+        int mask = keys.length - 1;
+        int slot = homeSlot(key, mask);
+        while (true) {
+            long slotKey = keys[slot];
+            if (slotKey == key) {
+                return slot;
+            } else if (slotKey == 0L) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Re-insert all entries into tables with the specified capacity.
+     *
+     * @param newCapacity the desired capacity (a power of 2, &gt;size)
+     */
+    private void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        this.keys = new long[newCapacity];
+        this.values = new Object[newCapacity];
+
+        int mask = newCapacity - 1;
+        for (int oldSlot = 0; oldSlot < oldKeys.length; ++oldSlot) {
+            long key = oldKeys[oldSlot];
+            if (key != 0L) {
+                int slot = homeSlot(key, mask);
+                while (keys[slot] != 0L) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                values[slot] = oldValues[oldSlot];
+            }
+        }
+    }
+}
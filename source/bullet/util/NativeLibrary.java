@@ -31,7 +31,7 @@
  */
 package com.jme3.bullet.util;
 
-import com.jme3.bullet.NativePhysicsObject;
+import com.jme3.bullet.NativeReclaimer;
 import com.jme3.math.Vector3f;
 import java.util.logging.Logger;
 
@@ -192,14 +192,7 @@ final public class NativeLibrary {
                     + " native library but loaded v" + lbjVersion + "!");
         }
 
-        Thread physicsCleaner = new Thread("Physics Cleaner") {
-            @Override
-            public void run() {
-                NativePhysicsObject.freeUnusedObjects();
-            }
-        };
-        physicsCleaner.setDaemon(true);
-        physicsCleaner.start();
+        NativeReclaimer.start();
     }
 
     /**
@@ -41,16 +41,19 @@ import com.jme3.scene.mesh.IndexBuffer;
 import com.jme3.util.BufferUtils;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Map;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 import jme3utilities.math.IntPair;
-import jme3utilities.math.MyBuffer;
-import jme3utilities.math.MyVector3f;
 
 /**
  * A utility class for interfacing with Native Bullet, specifically for soft
@@ -74,6 +77,10 @@ public class NativeSoftBodyUtil { // TODO finalize the class
      * number of vertices per triangle
      */
     final private static int vpt = 3;
+    /**
+     * number of vertices hashed per task when an executor is used
+     */
+    final private static int verticesPerTask = 16_384;
     /**
      * message logger for this class
      */
@@ -256,27 +263,126 @@ public class NativeSoftBodyUtil { // TODO finalize the class
      * @return a new index map (not null)
      */
     public static IntBuffer generateIndexMap(FloatBuffer positionBuffer) {
+        IntBuffer result = generateIndexMap(positionBuffer, 0f, null);
+        return result;
+    }
+
+    /**
+     * Create an index map to merge any mesh vertices whose positions lie
+     * within the specified distance of an earlier vertex. Other vertex
+     * properties (such as bone weights, normals, and texture coordinates) are
+     * ignored.
+     *
+     * @param positionBuffer the buffer of mesh-vertex positions (not null,
+     * limit a multiple of 3, unaffected)
+     * @param epsilon the welding tolerance (in mesh units, &ge;0, 0 &rarr;
+     * merge only identical positions)
+     * @return a new index map (not null)
+     */
+    public static IntBuffer generateIndexMap(FloatBuffer positionBuffer,
+            float epsilon) {
+        IntBuffer result = generateIndexMap(positionBuffer, epsilon, null);
+        return result;
+    }
+
+    /**
+     * Create an index map to merge any mesh vertices whose positions lie
+     * within the specified distance of an earlier vertex, optionally using an
+     * executor. Other vertex properties (such as bone weights, normals, and
+     * texture coordinates) are ignored.
+     * <p>
+     * Each vertex is merged into the earliest vertex that isn't itself merged
+     * and lies within the tolerance, so the result doesn't depend on the
+     * executor. With zero tolerance, the entire search runs in parallel.
+     * Otherwise, only the hashing runs in parallel, because the merge order
+     * matters.
+     *
+     * @param positionBuffer the buffer of mesh-vertex positions (not null,
+     * limit a multiple of 3, unaffected)
+     * @param epsilon the welding tolerance (in mesh units, &ge;0, 0 &rarr;
+     * merge only identical positions)
+     * @param executor the executor to use, or null to run on the current
+     * thread
+     * @return a new index map (not null)
+     */
+    public static IntBuffer generateIndexMap(FloatBuffer positionBuffer,
+            float epsilon, ExecutorService executor) {
+        Validate.nonNull(positionBuffer, "position buffer");
         int numFloats = positionBuffer.limit();
         Validate.require(numFloats % numAxes == 0, "limit a multiple of 3");
-        int numVertices = numFloats / numAxes;
+        Validate.nonNegative(epsilon, "epsilon");
+        final int numVertices = numFloats / numAxes;
+        /*
+         * Hash each vertex, in parallel if an executor was supplied.
+         */
+        final FloatBuffer positions = positionBuffer.duplicate();
+        final int[] keys = (epsilon == 0f)
+                ? new int[numFloats] : new int[0];
+        final long[] cells = (epsilon == 0f)
+                ? new long[0] : new long[numFloats];
+        final int[] hashes = new int[numVertices];
+        final float cellSize = epsilon;
+        List<Callable<Void>> tasks = new ArrayList<>(8);
+        int taskSize = (executor == null) ? numVertices : verticesPerTask;
+        for (int start = 0; start < numVertices; start += taskSize) {
+            final int first = start;
+            final int end = Math.min(start + taskSize, numVertices);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    hashRange(positions, cellSize, first, end, keys, cells,
+                            hashes);
+                    return null;
+                }
+            });
+        }
+        runTasks(tasks, executor);
+        /*
+         * Find the representative of each vertex.
+         */
+        final int[] representatives = new int[numVertices];
+        if (epsilon == 0f) {
+            int numPartitions = 1;
+            if (executor != null && numVertices > verticesPerTask) {
+                numPartitions = Math.min(16, numVertices / verticesPerTask);
+            }
+            final int partitionCount = numPartitions;
+            tasks.clear();
+            for (int partition = 0; partition < numPartitions; ++partition) {
+                final int partitionIndex = partition;
+                tasks.add(new Callable<Void>() {
+                    @Override
+                    public Void call() {
+                        findIdentical(keys, hashes, partitionIndex,
+                                partitionCount, representatives);
+                        return null;
+                    }
+                });
+            }
+            runTasks(tasks, executor);
 
+        } else {
+            findNearby(positionBuffer, epsilon, cells, hashes,
+                    representatives);
+        }
+        /*
+         * Number the representatives in order of first occurrence.
+         */
+        int[] mappedIndices = new int[numVertices];
         IntBuffer result = BufferUtils.createIntBuffer(numVertices);
-        Map<Vector3f, Integer> tmpHashMap = new HashMap<>(numVertices);
         int nextMappedIndex = 0;
-
         for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
-            Vector3f position = new Vector3f();
-            MyBuffer.get(positionBuffer, numAxes * vertexIndex, position);
-            MyVector3f.standardize(position, position);
-
-            if (!tmpHashMap.containsKey(position)) {
-                tmpHashMap.put(position, nextMappedIndex);
-                result.put(nextMappedIndex);
+            int representative = representatives[vertexIndex];
+            int mappedIndex;
+            if (representative == vertexIndex) {
+                mappedIndex = nextMappedIndex;
                 ++nextMappedIndex;
             } else {
-                int mappedIndex = tmpHashMap.get(position);
-                result.put(mappedIndex);
+                assert representative < vertexIndex;
+                mappedIndex = mappedIndices[representative];
             }
+            mappedIndices[vertexIndex] = mappedIndex;
+            result.put(mappedIndex);
         }
         result.flip();
 
@@ -499,6 +605,297 @@ public class NativeSoftBodyUtil { // TODO finalize the class
         store.getBuffer(VertexBuffer.Type.Position).setUpdateNeeded();
     }
     // *************************************************************************
+    // private methods
+
+    /**
+     * Find the representative of each vertex in the specified hash partition,
+     * merging only identical positions.
+     *
+     * @param keys the standardized position bits of each vertex (not null,
+     * unaffected)
+     * @param hashes the hash of each vertex (not null, unaffected)
+     * @param partition the index of the partition to process (&ge;0)
+     * @param numPartitions the number of partitions (&gt;0)
+     * @param storeRepresentatives storage for the representative of each
+     * vertex (not null, modified only in the partition)
+     */
+    private static void findIdentical(int[] keys, int[] hashes, int partition,
+            int numPartitions, int[] storeRepresentatives) {
+        int numVertices = hashes.length;
+        int numMembers = 0;
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            if (partitionOf(hashes[vertexIndex], numPartitions) == partition) {
+                ++numMembers;
+            }
+        }
+        int[] table = new int[tableSize(numMembers)];
+        int mask = table.length - 1;
+
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            int hash = hashes[vertexIndex];
+            if (partitionOf(hash, numPartitions) != partition) {
+                continue;
+            }
+            int representative = vertexIndex;
+            int keyStart = numAxes * vertexIndex;
+            for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+                int entry = table[slot];
+                if (entry == 0) {
+                    table[slot] = vertexIndex + 1;
+                    break;
+                }
+                int candidate = entry - 1;
+                int candidateStart = numAxes * candidate;
+                if (hashes[candidate] == hash
+                        && keys[candidateStart] == keys[keyStart]
+                        && keys[candidateStart + 1] == keys[keyStart + 1]
+                        && keys[candidateStart + 2] == keys[keyStart + 2]) {
+                    representative = candidate;
+                    break;
+                }
+            }
+            storeRepresentatives[vertexIndex] = representative;
+        }
+    }
+
+    /**
+     * Find the representative of each vertex, merging positions that lie
+     * within the specified distance of one another.
+     *
+     * @param positions the vertex positions (not null, unaffected)
+     * @param epsilon the welding tolerance (&gt;0)
+     * @param cells the grid cell of each vertex (not null, unaffected)
+     * @param hashes the hash of each vertex's cell (not null, unaffected)
+     * @param storeRepresentatives storage for the representative of each
+     * vertex (not null, modified)
+     */
+    private static void findNearby(FloatBuffer positions, float epsilon,
+            long[] cells, int[] hashes, int[] storeRepresentatives) {
+        int numVertices = hashes.length;
+        double epsilonSquared = (double) epsilon * epsilon;
+        /*
+         * Each table entry is the most recent representative in a cell.
+         * Earlier representatives in the same cell are chained through
+         * nextInCell.
+         */
+        int[] table = new int[tableSize(numVertices)];
+        int mask = table.length - 1;
+        int[] nextInCell = new int[numVertices];
+
+        for (int vertexIndex = 0; vertexIndex < numVertices; ++vertexIndex) {
+            int start = numAxes * vertexIndex;
+            float x = positions.get(start);
+            float y = positions.get(start + 1);
+            float z = positions.get(start + 2);
+
+            int representative = vertexIndex;
+            for (long dx = -1L; dx <= 1L; ++dx) {
+                for (long dy = -1L; dy <= 1L; ++dy) {
+                    for (long dz = -1L; dz <= 1L; ++dz) {
+                        long cx = cells[start] + dx;
+                        long cy = cells[start + 1] + dy;
+                        long cz = cells[start + 2] + dz;
+                        int head = findCell(table, cells, cx, cy, cz);
+                        for (int rep = head; rep >= 0; rep = nextInCell[rep]) {
+                            if (rep < representative) {
+                                int repStart = numAxes * rep;
+                                double ddx = positions.get(repStart) - x;
+                                double ddy = positions.get(repStart + 1) - y;
+                                double ddz = positions.get(repStart + 2) - z;
+                                double distanceSquared
+                                        = ddx * ddx + ddy * ddy + ddz * ddz;
+                                if (distanceSquared <= epsilonSquared) {
+                                    representative = rep;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+            storeRepresentatives[vertexIndex] = representative;
+
+            if (representative == vertexIndex) {
+                // Add the new representative to the head of its cell's chain.
+                int hash = hashes[vertexIndex];
+                for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+                    int entry = table[slot];
+                    if (entry == 0) {
+                        nextInCell[vertexIndex] = -1;
+                        table[slot] = vertexIndex + 1;
+                        break;
+                    }
+                    int entryStart = numAxes * (entry - 1);
+                    if (cells[entryStart] == cells[start]
+                            && cells[entryStart + 1] == cells[start + 1]
+                            && cells[entryStart + 2] == cells[start + 2]) {
+                        nextInCell[vertexIndex] = entry - 1;
+                        table[slot] = vertexIndex + 1;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Find the most recent representative in the specified grid cell.
+     *
+     * @param table the cell table (not null, unaffected)
+     * @param cells the grid cell of each vertex (not null, unaffected)
+     * @param cx the X index of the cell
+     * @param cy the Y index of the cell
+     * @param cz the Z index of the cell
+     * @return the index of the representative, or -1 if the cell is empty
+     */
+    private static int findCell(int[] table, long[] cells, long cx, long cy,
+            long cz) {
+        int mask = table.length - 1;
+        int hash = hashCell(cx, cy, cz);
+        for (int slot = hash & mask;; slot = (slot + 1) & mask) {
+            int entry = table[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int entryStart = numAxes * (entry - 1);
+            if (cells[entryStart] == cx && cells[entryStart + 1] == cy
+                    && cells[entryStart + 2] == cz) {
+                return entry - 1;
+            }
+        }
+    }
+
+    /**
+     * Hash the specified grid cell.
+     *
+     * @param cx the X index of the cell
+     * @param cy the Y index of the cell
+     * @param cz the Z index of the cell
+     * @return the hash
+     */
+    private static int hashCell(long cx, long cy, long cz) {
+        long hash = cx * 0x9E3779B97F4A7C15L;
+        hash = (hash ^ cy) * 0xC2B2AE3D27D4EB4FL;
+        hash = (hash ^ cz) * 0x165667B19E3779F9L;
+        int result = (int) (hash ^ (hash >>> 32));
+
+        return result;
+    }
+
+    /**
+     * Hash a range of vertices. With zero tolerance, store the standardized
+     * bits of each position; otherwise, store the grid cell of each vertex.
+     *
+     * @param positions the vertex positions (not null, unaffected)
+     * @param cellSize the grid-cell size, or 0 for exact keys
+     * @param start the index of the first vertex in the range (&ge;0)
+     * @param end one more than the index of the last vertex in the range
+     * @param storeKeys storage for standardized bits (not null, modified)
+     * @param storeCells storage for grid cells (not null, modified)
+     * @param storeHashes storage for hashes (not null, modified)
+     */
+    private static void hashRange(FloatBuffer positions, float cellSize,
+            int start, int end, int[] storeKeys, long[] storeCells,
+            int[] storeHashes) {
+        for (int vertexIndex = start; vertexIndex < end; ++vertexIndex) {
+            int floatIndex = numAxes * vertexIndex;
+            float x = positions.get(floatIndex);
+            float y = positions.get(floatIndex + 1);
+            float z = positions.get(floatIndex + 2);
+            if (cellSize == 0f) {
+                int xBits = standardBits(x);
+                int yBits = standardBits(y);
+                int zBits = standardBits(z);
+                storeKeys[floatIndex] = xBits;
+                storeKeys[floatIndex + 1] = yBits;
+                storeKeys[floatIndex + 2] = zBits;
+                storeHashes[vertexIndex] = hashCell(xBits, yBits, zBits);
+            } else {
+                long cx = (long) Math.floor(x / cellSize);
+                long cy = (long) Math.floor(y / cellSize);
+                long cz = (long) Math.floor(z / cellSize);
+                storeCells[floatIndex] = cx;
+                storeCells[floatIndex + 1] = cy;
+                storeCells[floatIndex + 2] = cz;
+                storeHashes[vertexIndex] = hashCell(cx, cy, cz);
+            }
+        }
+    }
+
+    /**
+     * Determine which partition the specified hash belongs to. Uses the high
+     * bits, so that table slots (which use the low bits) remain well spread.
+     *
+     * @param hash the hash value
+     * @param numPartitions the number of partitions (&gt;0)
+     * @return the partition index (&ge;0, &lt;numPartitions)
+     */
+    private static int partitionOf(int hash, int numPartitions) {
+        int result = (int) (((hash & 0xFFFFFFFFL) * numPartitions) >>> 32);
+        return result;
+    }
+
+    /**
+     * Run the specified tasks, using the executor if there's more than one.
+     *
+     * @param tasks the tasks to run (not null)
+     * @param executor the executor to use, or null to run on the current
+     * thread
+     */
+    private static void runTasks(List<Callable<Void>> tasks,
+            ExecutorService executor) {
+        try {
+            if (executor == null || tasks.size() <= 1) {
+                for (Callable<Void> task : tasks) {
+                    FutureTask<Void> futureTask = new FutureTask<>(task);
+                    futureTask.run();
+                    futureTask.get();
+                }
+            } else {
+                List<Future<Void>> futures = executor.invokeAll(tasks);
+                for (Future<Void> future : futures) {
+                    future.get();
+                }
+            }
+        } catch (ExecutionException exception) {
+            Throwable cause = exception.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(exception);
+        }
+    }
+
+    /**
+     * Convert a float to bits, treating -0 as 0 and all NaNs as equal, to
+     * match {@link jme3utilities.math.MyVector3f#standardize}.
+     *
+     * @param input the value to convert
+     * @return the bit representation
+     */
+    private static int standardBits(float input) {
+        float standard = (input == 0f) ? 0f : input;
+        int result = Float.floatToIntBits(standard);
+
+        return result;
+    }
+
+    /**
+     * Choose a power-of-two table size for the specified number of entries,
+     * keeping the load factor at or below 1/2.
+     *
+     * @param numEntries the expected number of entries (&ge;0)
+     * @return the size (&ge;2, a power of two)
+     */
+    private static int tableSize(int numEntries) {
+        int minSize = Math.max(1, 2 * numEntries - 1);
+        int result = Integer.highestOneBit(minSize) << 1;
+
+        return result;
+    }
+    // *************************************************************************
     // native private methods
 
     native private static void updateClusterMesh(long softBodyId,
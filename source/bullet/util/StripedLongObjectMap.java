@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.jme3.bullet.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A thread-safe hash map from non-zero long keys (such as native IDs) to
+ * non-null values, partitioned into independently locked stripes.
+ * <p>
+ * Each stripe is a {@link LongObjectMap}, so entries aren't boxed, while
+ * threads that touch different stripes never contend for a lock. This suits
+ * maps updated from many threads at once, such as the registry of native
+ * objects, where a single {@code LongObjectMap} would serialize all callers.
+ * <p>
+ * Enumeration methods visit the stripes one at a time, so they aren't atomic
+ * with respect to concurrent modifications.
+ *
+ * @param <V> the type of values
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class StripedLongObjectMap<V> {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * largest number of stripes (a power of 2)
+     */
+    final private static int maxStripes = 64;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(StripedLongObjectMap.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * number of bits to shift a mixed key to obtain its stripe index
+     */
+    final private int stripeShift;
+    /**
+     * the stripes (length a power of 2)
+     */
+    final private LongObjectMap<V>[] stripes;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate an empty map with about 4 stripes per available processor.
+     *
+     * @param expectedSize the number of entries to allocate room for (&ge;0)
+     */
+    @SuppressWarnings("unchecked")
+    public StripedLongObjectMap(int expectedSize) {
+        Validate.nonNegative(expectedSize, "expected size");
+
+        int numCpus = Runtime.getRuntime().availableProcessors();
+        int numStripes = 2;
+        while (numStripes < 4 * numCpus && numStripes < maxStripes) {
+            numStripes <<= 1;
+        }
+        int numBits = Integer.numberOfTrailingZeros(numStripes);
+        this.stripeShift = Long.SIZE - numBits;
+
+        int perStripe = (expectedSize + numStripes - 1) / numStripes;
+        this.stripes = new LongObjectMap[numStripes];
+        for (int stripeIndex = 0; stripeIndex < numStripes; ++stripeIndex) {
+            stripes[stripeIndex] = new LongObjectMap<>(perStripe);
+        }
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Test whether the specified key is in the map.
+     *
+     * @param key the key to find (not zero)
+     * @return true if found, otherwise false
+     */
+    public boolean containsKey(long key) {
+        boolean result = stripe(key).containsKey(key);
+        return result;
+    }
+
+    /**
+     * Look up the value associated with the specified key.
+     *
+     * @param key the key to find (not zero)
+     * @return the pre-existing value, or null if not found
+     */
+    public V get(long key) {
+        V result = stripe(key).get(key);
+        return result;
+    }
+
+    /**
+     * Associate the specified value with the specified key, replacing any
+     * previous association.
+     *
+     * @param key the key (not zero)
+     * @param value the value (not null, alias created)
+     * @return the previous value, or null if none
+     */
+    public V put(long key, V value) {
+        Validate.nonZero(key, "key");
+        V result = stripe(key).put(key, value);
+
+        return result;
+    }
+
+    /**
+     * Remove the entry with the specified key.
+     *
+     * @param key the key to remove (not zero)
+     * @return the value that was removed, or null if not found
+     */
+    public V remove(long key) {
+        V result = stripe(key).remove(key);
+        return result;
+    }
+
+    /**
+     * Count the entries in the map.
+     *
+     * @return the count (&ge;0)
+     */
+    public int size() {
+        int result = 0;
+        for (LongObjectMap<V> stripe : stripes) {
+            result += stripe.size();
+        }
+
+        return result;
+    }
+
+    /**
+     * Enumerate the values in the map, in arbitrary order.
+     *
+     * @param storeResult storage for the result (cleared and modified if not
+     * null)
+     * @return a list of pre-existing values (either storeResult or a new
+     * list, not null)
+     */
+    public List<V> values(List<V> storeResult) {
+        List<V> result;
+        if (storeResult == null) {
+            result = new ArrayList<>(size());
+        } else {
+            result = storeResult;
+            result.clear();
+        }
+
+        for (LongObjectMap<V> stripe : stripes) {
+            result.addAll(stripe.values());
+        }
+
+        return result;
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Select the stripe for the specified key. The top bits of the mixed key
+     * are used, so the choice of stripe doesn't correlate with the slot
+     * chosen within the stripe.
+     *
+     * @param key the key (not zero)
+     * @return the pre-existing stripe (not null)
+     */
+    private LongObjectMap<V> stripe(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        int stripeIndex = (int) (hash >>> stripeShift);
+        LongObjectMap<V> result = stripes[stripeIndex];
+
+        return result;
+    }
+}
@@ -0,0 +1,263 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package vhacd;
+
+import com.jme3.util.SafeArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.logging.Logger;
+import jme3utilities.Validate;
+
+/**
+ * A handle for a single convex decomposition that runs asynchronously, with
+ * its own progress listeners and cancellation. Used by both {@link VHACD} and
+ * {@link vhacd4.Vhacd4}.
+ * <p>
+ * Cancellation is cooperative: a job that hasn't started yet is skipped, but
+ * native code can't be interrupted, so a running decomposition continues to
+ * completion and its hulls are discarded.
+ * <p>
+ * Jobs are created and started only by the decomposition classes, each of
+ * which supplies its own subclass.
+ *
+ * @param <H> the type of hull produced
+ * @author Stephen Gold sgold@sonic.net
+ */
+abstract public class DecompositionJob<H> implements VHACDProgressListener {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(DecompositionJob.class.getName());
+    // *************************************************************************
+    // fields
+
+    /**
+     * registered progress listeners for this job
+     */
+    final private Collection<VHACDProgressListener> listeners
+            = new SafeArrayList<>(VHACDProgressListener.class);
+    /**
+     * completes with the generated hulls
+     */
+    final private CompletableFuture<List<H>> future
+            = new CompletableFuture<>();
+    /**
+     * latest overall completion percentage (&ge;0, &le;100)
+     */
+    private volatile double overallPercent = 0.0;
+    /**
+     * name of the latest operation reported, or null if none yet
+     */
+    private volatile String operationName;
+    /**
+     * name of the latest stage reported, or null if none yet
+     */
+    private volatile String stageName;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a job that hasn't started. Invoked only by subclasses.
+     */
+    protected DecompositionJob() {
+        // do nothing
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Register the specified progress listener. Updates are delivered on the
+     * thread that performs the decomposition.
+     *
+     * @param listener the listener to register (not null, alias created)
+     */
+    public void addProgressListener(VHACDProgressListener listener) {
+        Validate.nonNull(listener, "listener");
+        assert !listeners.contains(listener);
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Cancel the job. If it's still running, its result will be discarded.
+     *
+     * @return true if the job was cancelled by this invocation, false if it
+     * had already completed
+     */
+    public boolean cancel() {
+        boolean result = future.cancel(false);
+        return result;
+    }
+
+    /**
+     * Access the future that completes with the generated hulls. The list is
+     * empty if the algorithm failed.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public CompletableFuture<List<H>> future() {
+        return future;
+    }
+
+    /**
+     * Test whether the job has been cancelled.
+     *
+     * @return true if cancelled, otherwise false
+     */
+    public boolean isCancelled() {
+        boolean result = future.isCancelled();
+        return result;
+    }
+
+    /**
+     * Test whether the job has completed, whether normally, exceptionally, or
+     * by cancellation.
+     *
+     * @return true if done, otherwise false
+     */
+    public boolean isDone() {
+        boolean result = future.isDone();
+        return result;
+    }
+
+    /**
+     * Return the name of the latest operation reported.
+     *
+     * @return the name, or null if no progress has been reported
+     */
+    public String operationName() {
+        return operationName;
+    }
+
+    /**
+     * Return the latest overall completion percentage.
+     *
+     * @return the percentage (&ge;0, &le;100)
+     */
+    public double overallPercent() {
+        return overallPercent;
+    }
+
+    /**
+     * De-register the specified progress listener.
+     *
+     * @param listener the listener to de-register (not null, unaffected)
+     */
+    public void removeProgressListener(VHACDProgressListener listener) {
+        Validate.nonNull(listener, "listener");
+
+        boolean success = listeners.remove(listener);
+        assert success;
+    }
+
+    /**
+     * Return the name of the latest stage reported.
+     *
+     * @return the name, or null if no progress has been reported
+     */
+    public String stageName() {
+        return stageName;
+    }
+    // *************************************************************************
+    // new protected methods
+
+    /**
+     * Perform the decomposition on the current thread. Invoked at most once,
+     * by the executor passed to {@link #start(java.util.concurrent.Executor)}.
+     *
+     * @return a new list of hulls, or an empty list if the algorithm failed
+     * @throws Exception if the decomposition fails
+     */
+    abstract protected List<H> decompose() throws Exception;
+
+    /**
+     * Arrange for the specified executor to perform the decomposition, unless
+     * the job is cancelled first, and complete the future. Invoked only by
+     * subclasses, once per job.
+     *
+     * @param executor the executor to run the job (not null)
+     */
+    final protected void start(Executor executor) {
+        Validate.nonNull(executor, "executor");
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (future.isDone()) {
+                    return;
+                }
+                try {
+                    List<H> hulls = decompose();
+                    future.complete(hulls);
+                } catch (Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+            }
+        });
+    }
+    // *************************************************************************
+    // VHACDProgressListener methods
+
+    /**
+     * Record a progress update and forward it to the job's listeners, unless
+     * the job was cancelled.
+     *
+     * @param overallPercent an overall completion percentage (&ge;0, &le;100)
+     * @param stagePercent a completion percentage for the current stage (&ge;0,
+     * &le;100)
+     * @param operationPercent a completion percentage for the current operation
+     * (&ge;0, &le;100)
+     * @param stageName the name of the current stage
+     * @param operationName the name of the current operation
+     */
+    @Override
+    public void update(double overallPercent, double stagePercent,
+            double operationPercent, String stageName, String operationName) {
+        if (future.isCancelled()) {
+            return;
+        }
+
+        this.overallPercent = overallPercent;
+        this.stageName = stageName;
+        this.operationName = operationName;
+        for (VHACDProgressListener listener : listeners) {
+            listener.update(overallPercent, stagePercent,
+                    operationPercent, stageName, operationName);
+        }
+    }
+}
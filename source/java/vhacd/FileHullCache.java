@@ -0,0 +1,290 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package vhacd;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import jme3utilities.MyString;
+import jme3utilities.Validate;
+import jme3utilities.math.MyVector3f;
+
+/**
+ * A HullCache that stores each decomposition in its own file, named after its
+ * key.
+ * <p>
+ * The file format is compact and big-endian: a 4-byte magic number, a 4-byte
+ * format version, the number of hulls, and then for each hull the number of
+ * floats followed by the floats themselves. Files are written to a temporary
+ * name and then renamed, so concurrent readers never see partial files.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class FileHullCache implements HullCache {
+    // *************************************************************************
+    // constants and loggers
+
+    /**
+     * magic number at the start of each file ("HULL" in ASCII)
+     */
+    final private static int magic = 0x48554c4c;
+    /**
+     * version number of the file format
+     */
+    final private static int formatVersion = 1;
+    /**
+     * message logger for this class
+     */
+    final public static Logger logger
+            = Logger.getLogger(FileHullCache.class.getName());
+    /**
+     * filename suffix for cache entries
+     */
+    final private static String suffix = ".hulls";
+    // *************************************************************************
+    // fields
+
+    /**
+     * directory that contains the cache entries
+     */
+    final private File directory;
+    // *************************************************************************
+    // constructors
+
+    /**
+     * Instantiate a cache in the specified directory, which is created if it
+     * doesn't exist.
+     *
+     * @param directory the directory to use (not null)
+     */
+    public FileHullCache(File directory) {
+        Validate.nonNull(directory, "directory");
+        this.directory = directory;
+    }
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Delete all entries from the cache.
+     *
+     * @return the number of files deleted (&ge;0)
+     */
+    public int clear() {
+        int result = 0;
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().endsWith(suffix) && file.delete()) {
+                    ++result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Access the directory that contains the cache entries.
+     *
+     * @return the pre-existing instance (not null)
+     */
+    public File getDirectory() {
+        return directory;
+    }
+    // *************************************************************************
+    // HullCache methods
+
+    /**
+     * Find the hulls stored with the specified key. A file that can't be read
+     * is treated as a miss.
+     *
+     * @param key the content hash of the decomposition (not null, not empty)
+     * @return a new array of vertex-position arrays, one per hull, or null if
+     * not found
+     */
+    @Override
+    public float[][] load(String key) {
+        File file = entryFile(key);
+        if (!file.isFile()) {
+            return null;
+        }
+
+        float[][] result = null;
+        long fileLength = file.length();
+        try (DataInputStream dis = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file)))) {
+            result = readHulls(dis, fileLength);
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, "Failed to read {0}: {1}",
+                    new Object[]{MyString.quote(file.getPath()), exception});
+        }
+
+        return result;
+    }
+
+    /**
+     * Store the hulls of a decomposition. Failures are logged but otherwise
+     * ignored.
+     *
+     * @param key the content hash of the decomposition (not null, not empty)
+     * @param hulls the vertex positions of each hull (not null, unaffected)
+     */
+    @Override
+    public void store(String key, float[][] hulls) {
+        Validate.nonNull(hulls, "hulls");
+        File file = entryFile(key);
+
+        File tempFile = null;
+        try {
+            if (!directory.isDirectory() && !directory.mkdirs()
+                    && !directory.isDirectory()) {
+                throw new IOException("can't create directory");
+            }
+            tempFile = File.createTempFile(key, ".tmp", directory);
+            try (DataOutputStream dos = new DataOutputStream(
+                    new BufferedOutputStream(
+                            new FileOutputStream(tempFile)))) {
+                writeHulls(dos, hulls);
+            }
+            try {
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException exception) {
+                Files.move(tempFile.toPath(), file.toPath(),
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+
+        } catch (IOException exception) {
+            logger.log(Level.WARNING, "Failed to write {0}: {1}",
+                    new Object[]{MyString.quote(file.getPath()), exception});
+            if (tempFile != null) {
+                tempFile.delete();
+            }
+        }
+    }
+    // *************************************************************************
+    // private methods
+
+    /**
+     * Determine the file for the specified key.
+     *
+     * @param key the content hash (not null, not empty)
+     * @return a new File
+     */
+    private File entryFile(String key) {
+        Validate.nonEmpty(key, "key");
+        for (int i = 0; i < key.length(); ++i) {
+            char ch = key.charAt(i);
+            if (!Character.isLetterOrDigit(ch) && ch != '-' && ch != '_') {
+                throw new IllegalArgumentException(
+                        "Illegal character in key: " + MyString.quote(key));
+            }
+        }
+
+        File result = new File(directory, key + suffix);
+        return result;
+    }
+
+    /**
+     * Read hulls in the cache format, validating counts against the file
+     * length so that a corrupt file can't trigger huge allocations.
+     *
+     * @param dis the stream to read (not null)
+     * @param fileLength the length of the file (in bytes)
+     * @return a new array of vertex-position arrays
+     * @throws IOException if the stream can't be read or is malformed
+     */
+    private static float[][] readHulls(DataInputStream dis, long fileLength)
+            throws IOException {
+        if (dis.readInt() != magic) {
+            throw new IOException("bad magic number");
+        }
+        int version = dis.readInt();
+        if (version != formatVersion) {
+            throw new IOException("unsupported format version " + version);
+        }
+
+        long remaining = fileLength - 12L;
+        int numHulls = dis.readInt();
+        if (numHulls < 0 || 4L * numHulls > remaining) {
+            throw new IOException("bad hull count " + numHulls);
+        }
+        float[][] result = new float[numHulls][];
+        for (int hullIndex = 0; hullIndex < numHulls; ++hullIndex) {
+            int numFloats = dis.readInt();
+            remaining -= 4L;
+            if (numFloats <= 0 || numFloats % MyVector3f.numAxes != 0
+                    || 4L * numFloats > remaining) {
+                throw new IOException("bad float count " + numFloats);
+            }
+            float[] positions = new float[numFloats];
+            for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+                positions[floatIndex] = dis.readFloat();
+            }
+            remaining -= 4L * numFloats;
+            result[hullIndex] = positions;
+        }
+
+        return result;
+    }
+
+    /**
+     * Write hulls in the cache format.
+     *
+     * @param dos the stream to write (not null)
+     * @param hulls the vertex positions of each hull (not null, unaffected)
+     * @throws IOException if the stream can't be written
+     */
+    private static void writeHulls(DataOutputStream dos, float[][] hulls)
+            throws IOException {
+        dos.writeInt(magic);
+        dos.writeInt(formatVersion);
+        dos.writeInt(hulls.length);
+        for (float[] positions : hulls) {
+            dos.writeInt(positions.length);
+            for (float position : positions) {
+                dos.writeFloat(position);
+            }
+        }
+    }
+}
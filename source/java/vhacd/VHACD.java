@@ -29,13 +29,18 @@
  */
 package vhacd;
 
+import com.jme3.bullet.util.ContentDigest;
 import com.jme3.util.BufferUtils;
 import com.jme3.util.SafeArrayList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 import jme3utilities.math.MyVector3f;
@@ -45,6 +50,70 @@ import jme3utilities.math.MyVector3f;
  * Decomposition on an indexed mesh.
  */
 final public class VHACD {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * An asynchronous decomposition submitted to this class.
+     */
+    final private static class Job extends DecompositionJob<VHACDHull> {
+        // *********************************************************************
+        // fields
+
+        /**
+         * vertex indices of all mesh triangles
+         */
+        final private IntBuffer indices;
+        /**
+         * positions of all mesh vertices
+         */
+        final private FloatBuffer positions;
+        /**
+         * tuning parameters
+         */
+        final private VHACDParameters params;
+        // *********************************************************************
+        // constructors
+
+        /**
+         * Instantiate a job and start it.
+         *
+         * @param positions the positions of all mesh vertices (not null,
+         * alias created)
+         * @param indices the vertex indices of all mesh triangles (not null,
+         * alias created)
+         * @param params the tuning parameters to use (not null, alias
+         * created)
+         * @param executor the executor to run the job (not null)
+         */
+        Job(FloatBuffer positions, IntBuffer indices, VHACDParameters params,
+                Executor executor) {
+            this.positions = positions;
+            this.indices = indices;
+            this.params = params;
+            start(executor);
+        }
+        // *********************************************************************
+        // DecompositionJob methods
+
+        /**
+         * Perform the decomposition on the current thread, routing native
+         * progress updates to this job.
+         *
+         * @return a new list of hulls, or an empty list if the algorithm
+         * failed
+         */
+        @Override
+        protected List<VHACDHull> decompose() {
+            currentJob.set(this);
+            try {
+                List<VHACDHull> result = compute(positions, indices, params);
+                return result;
+            } finally {
+                currentJob.remove();
+            }
+        }
+    }
     // *************************************************************************
     // constants and loggers
 
@@ -66,9 +135,19 @@ final public class VHACD {
     final private static Collection<VHACDProgressListener> progressListeners
             = new SafeArrayList<>(VHACDProgressListener.class);
     /**
-     * list of hulls computed during the latest decomposition
+     * decomposition job being performed by each thread, if any
+     */
+    final private static ThreadLocal<DecompositionJob<VHACDHull>> currentJob
+            = new ThreadLocal<>();
+    /**
+     * cache consulted by compute(), or null if caching is disabled
      */
-    private static List<VHACDHull> results;
+    private static volatile HullCache hullCache;
+    /**
+     * list of hulls computed by each thread's current decomposition
+     */
+    final private static ThreadLocal<List<VHACDHull>> results
+            = new ThreadLocal<>();
     // *************************************************************************
     // constructors
 
@@ -93,7 +172,71 @@ final public class VHACD {
     }
 
     /**
-     * Generate convex hulls to approximate the specified mesh.
+     * Generate a content hash for the decomposition of the specified mesh with
+     * the specified parameters. The hash covers every vertex position, every
+     * index, and every parameter that affects the result.
+     *
+     * @param positions the positions of all mesh vertices (not null, length a
+     * multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null, length
+     * a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, unaffected)
+     * @return a new string of hexadecimal digits (not null, not empty)
+     */
+    public static String cacheKey(float[] positions, int[] indices,
+            VHACDParameters params) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+
+        String result = cacheKey(
+                FloatBuffer.wrap(positions), IntBuffer.wrap(indices), params);
+        return result;
+    }
+
+    /**
+     * Generate a content hash for the decomposition of the specified mesh with
+     * the specified parameters. Equivalent to the array-based method, for
+     * meshes held in buffers.
+     *
+     * @param positions the positions of all mesh vertices (not null, elements
+     * from 0 to limit-1 are used, limit a multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null,
+     * elements from 0 to limit-1 are used, limit a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, unaffected)
+     * @return a new string of hexadecimal digits (not null, not empty)
+     */
+    public static String cacheKey(FloatBuffer positions, IntBuffer indices,
+            VHACDParameters params) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+        Validate.nonNull(params, "parameters");
+
+        ContentDigest digest = new ContentDigest();
+        digest.putBytes("VHACD classic".getBytes(StandardCharsets.UTF_8));
+
+        int numFloats = positions.limit();
+        digest.putInt(numFloats);
+        digest.putFloats(positions, numFloats);
+        int numIndices = indices.limit();
+        digest.putInt(numIndices);
+        digest.putInts(indices, numIndices);
+
+        ByteArrayOutputStream paramBytes = new ByteArrayOutputStream(64);
+        try {
+            params.toOutputStream(paramBytes);
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+        digest.putBytes(paramBytes.toByteArray());
+        String result = digest.finish();
+
+        return result;
+    }
+
+    /**
+     * Generate convex hulls to approximate the specified mesh. Decompositions
+     * may be performed concurrently on separate threads. If a hull cache is
+     * configured, it is consulted first and updated afterward.
      *
      * @param positions the positions of all mesh vertices (not null, length a
      * multiple of 3, unaffected)
@@ -106,16 +249,94 @@ final public class VHACD {
             VHACDParameters params) {
         Validate.nonNull(positions, "positions");
         Validate.nonNull(indices, "indices");
-        assert positions.length % MyVector3f.numAxes == 0 : positions.length;
-        assert indices.length % vpt == 0 : indices.length;
 
-        FloatBuffer positionsBuffer = BufferUtils.createFloatBuffer(positions);
+        FloatBuffer positionBuffer = BufferUtils.createFloatBuffer(positions);
         IntBuffer indexBuffer = BufferUtils.createIntBuffer(indices);
-        results = new ArrayList<>(50);
-        compute(positionsBuffer, indexBuffer, params.nativeId(),
-                params.getDebugEnabled());
+        List<VHACDHull> result = compute(positionBuffer, indexBuffer, params);
+
+        return result;
+    }
+
+    /**
+     * Generate convex hulls to approximate the specified mesh, which is held
+     * in buffers. Direct buffers whose limits equal their capacities (such as
+     * those of a JME VertexBuffer) are passed to native code without copying;
+     * other buffers are copied first.
+     *
+     * @param positions the positions of all mesh vertices (not null, elements
+     * from 0 to limit-1 are used, limit a multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null,
+     * elements from 0 to limit-1 are used, limit a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, unaffected)
+     * @return a new list of hulls, or an empty list if the algorithm failed
+     */
+    public static List<VHACDHull> compute(FloatBuffer positions,
+            IntBuffer indices, VHACDParameters params) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+        assert positions.limit() % MyVector3f.numAxes == 0 : positions.limit();
+        assert indices.limit() % vpt == 0 : indices.limit();
+
+        HullCache cache = hullCache;
+        String key = null;
+        if (cache != null) {
+            key = cacheKey(positions, indices, params);
+            float[][] cachedHulls = cache.load(key);
+            if (cachedHulls != null) {
+                List<VHACDHull> result = new ArrayList<>(cachedHulls.length);
+                for (float[] hullPositions : cachedHulls) {
+                    result.add(new VHACDHull(hullPositions));
+                }
+                return result;
+            }
+        }
+
+        int numFloats = positions.limit();
+        FloatBuffer positionBuffer = positions;
+        if (!positions.isDirect() || numFloats != positions.capacity()) {
+            positionBuffer = BufferUtils.createFloatBuffer(numFloats);
+            for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+                positionBuffer.put(floatIndex, positions.get(floatIndex));
+            }
+        }
+        int numIndices = indices.limit();
+        IntBuffer indexBuffer = indices;
+        if (!indices.isDirect() || numIndices != indices.capacity()) {
+            indexBuffer = BufferUtils.createIntBuffer(numIndices);
+            for (int intIndex = 0; intIndex < numIndices; ++intIndex) {
+                indexBuffer.put(intIndex, indices.get(intIndex));
+            }
+        }
+
+        List<VHACDHull> result = new ArrayList<>(50);
+        results.set(result);
+        try {
+            compute(positionBuffer, indexBuffer, params.nativeId(),
+                    params.getDebugEnabled());
+        } finally {
+            results.remove();
+        }
+
+        if (cache != null && !result.isEmpty()) {
+            int numHulls = result.size();
+            float[][] hullPositions = new float[numHulls][];
+            for (int hullIndex = 0; hullIndex < numHulls; ++hullIndex) {
+                hullPositions[hullIndex]
+                        = result.get(hullIndex).clonePositions();
+            }
+            cache.store(key, hullPositions);
+        }
+
+        return result;
+    }
 
-        return results;
+    /**
+     * Access the hull cache consulted by {@link #compute}.
+     *
+     * @return the pre-existing instance, or null if caching is disabled
+     */
+    public static HullCache getHullCache() {
+        return hullCache;
     }
 
     /**
@@ -129,6 +350,75 @@ final public class VHACD {
         boolean success = progressListeners.remove(listener);
         assert success;
     }
+
+    /**
+     * Alter the hull cache consulted by {@link #compute}.
+     *
+     * @param cache the desired cache (alias created) or null to disable
+     * caching (default=null)
+     */
+    public static void setHullCache(HullCache cache) {
+        hullCache = cache;
+    }
+
+    /**
+     * Submit an asynchronous decomposition of the specified mesh. The job's
+     * listeners receive only its own progress updates; listeners registered
+     * with this class receive updates from all decompositions.
+     * <p>
+     * The mesh is copied to direct buffers on the calling thread, so the
+     * arrays can be modified as soon as this method returns.
+     *
+     * @param positions the positions of all mesh vertices (not null, length a
+     * multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null, length
+     * a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, shouldn't be
+     * modified until the job completes)
+     * @param executor the executor to run the job (not null)
+     * @return a new job (not null)
+     */
+    public static DecompositionJob<VHACDHull> submit(float[] positions,
+            int[] indices, VHACDParameters params, Executor executor) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+
+        FloatBuffer positionBuffer = BufferUtils.createFloatBuffer(positions);
+        IntBuffer indexBuffer = BufferUtils.createIntBuffer(indices);
+        DecompositionJob<VHACDHull> result
+                = submit(positionBuffer, indexBuffer, params, executor);
+
+        return result;
+    }
+
+    /**
+     * Submit an asynchronous decomposition of the specified mesh, which is
+     * held in buffers. The buffers aren't copied on the calling thread: direct
+     * buffers whose limits equal their capacities are passed to native code
+     * as they are, so their contents shouldn't be modified until the job
+     * completes.
+     *
+     * @param positions the positions of all mesh vertices (not null, elements
+     * from 0 to limit-1 are used, limit a multiple of 3, alias created)
+     * @param indices the vertex indices of all mesh triangles (not null,
+     * elements from 0 to limit-1 are used, limit a multiple of 3, alias
+     * created)
+     * @param params the tuning parameters to use (not null, shouldn't be
+     * modified until the job completes)
+     * @param executor the executor to run the job (not null)
+     * @return a new job (not null)
+     */
+    public static DecompositionJob<VHACDHull> submit(FloatBuffer positions,
+            IntBuffer indices, VHACDParameters params, Executor executor) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+        Validate.nonNull(params, "parameters");
+        Validate.nonNull(executor, "executor");
+
+        DecompositionJob<VHACDHull> result
+                = new Job(positions, indices, params, executor);
+        return result;
+    }
     // *************************************************************************
     // private methods
 
@@ -141,11 +431,12 @@ final public class VHACD {
      */
     private static void addHull(long hullId) {
         VHACDHull hull = new VHACDHull(hullId);
-        results.add(hull);
+        results.get().add(hull);
     }
 
     /**
-     * Update all progress listeners.
+     * Update all global progress listeners, plus the current thread's job (if
+     * any).
      * <p>
      * This method is invoked by native code.
      *
@@ -163,6 +454,12 @@ final public class VHACD {
             listener.update(overallPercent, stagePercent,
                     operationPercent, stageName, operationName);
         }
+
+        DecompositionJob<VHACDHull> job = currentJob.get();
+        if (job != null) {
+            job.update(overallPercent, stagePercent, operationPercent,
+                    stageName, operationName);
+        }
     }
     // *************************************************************************
     // native private methods
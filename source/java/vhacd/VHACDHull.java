@@ -74,6 +74,19 @@ public class VHACDHull {
             positions[floatIndex] = floatBuffer.get(floatIndex);
         }
     }
+
+    /**
+     * Instantiate a hull from cached vertex positions.
+     *
+     * @param positions the vertex positions (not null, not empty, length a
+     * multiple of 3, alias created)
+     */
+    VHACDHull(float[] positions) {
+        assert positions.length > 0;
+        assert positions.length % MyVector3f.numAxes == 0 : positions.length;
+
+        this.positions = positions;
+    }
     // *************************************************************************
     // new methods exposed
 
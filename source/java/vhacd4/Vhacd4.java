@@ -29,15 +29,23 @@
  */
 package vhacd4;
 
+import com.jme3.bullet.util.ContentDigest;
 import com.jme3.util.BufferUtils;
+import com.jme3.util.SafeArrayList;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
 import java.util.logging.Logger;
 import jme3utilities.Validate;
 import jme3utilities.math.MyVector3f;
+import vhacd.DecompositionJob;
+import vhacd.HullCache;
 import vhacd.VHACDProgressListener;
 
 /**
@@ -45,6 +53,70 @@ import vhacd.VHACDProgressListener;
  * Decomposition on an indexed mesh.
  */
 final public class Vhacd4 {
+    // *************************************************************************
+    // classes and enums
+
+    /**
+     * An asynchronous decomposition submitted to this class.
+     */
+    final private static class Job extends DecompositionJob<Vhacd4Hull> {
+        // *********************************************************************
+        // fields
+
+        /**
+         * vertex indices of all mesh triangles
+         */
+        final private IntBuffer indices;
+        /**
+         * positions of all mesh vertices
+         */
+        final private FloatBuffer positions;
+        /**
+         * tuning parameters
+         */
+        final private Vhacd4Parameters params;
+        // *********************************************************************
+        // constructors
+
+        /**
+         * Instantiate a job and start it.
+         *
+         * @param positions the positions of all mesh vertices (not null,
+         * alias created)
+         * @param indices the vertex indices of all mesh triangles (not null,
+         * alias created)
+         * @param params the tuning parameters to use (not null, alias
+         * created)
+         * @param executor the executor to run the job (not null)
+         */
+        Job(FloatBuffer positions, IntBuffer indices, Vhacd4Parameters params,
+                Executor executor) {
+            this.positions = positions;
+            this.indices = indices;
+            this.params = params;
+            start(executor);
+        }
+        // *********************************************************************
+        // DecompositionJob methods
+
+        /**
+         * Perform the decomposition on the current thread, routing native
+         * progress updates to this job.
+         *
+         * @return a new list of hulls, or an empty list if the algorithm
+         * failed
+         */
+        @Override
+        protected List<Vhacd4Hull> decompose() {
+            currentJob.set(this);
+            try {
+                List<Vhacd4Hull> result = compute(positions, indices, params);
+                return result;
+            } finally {
+                currentJob.remove();
+            }
+        }
+    }
     // *************************************************************************
     // constants and loggers
 
@@ -64,11 +136,21 @@ final public class Vhacd4 {
      * list of registered progress listeners
      */
     final private static Collection<VHACDProgressListener> progressListeners
-            = new ArrayList<>(4);
+            = new SafeArrayList<>(VHACDProgressListener.class);
+    /**
+     * decomposition job being performed by each thread, if any
+     */
+    final private static ThreadLocal<DecompositionJob<Vhacd4Hull>> currentJob
+            = new ThreadLocal<>();
     /**
-     * list of hulls computed during the latest decomposition
+     * cache consulted by compute(), or null if caching is disabled
      */
-    private static List<Vhacd4Hull> results;
+    private static volatile HullCache hullCache;
+    /**
+     * list of hulls computed by each thread's current decomposition
+     */
+    final private static ThreadLocal<List<Vhacd4Hull>> results
+            = new ThreadLocal<>();
     // *************************************************************************
     // constructors
 
@@ -93,7 +175,71 @@ final public class Vhacd4 {
     }
 
     /**
-     * Generate convex hulls to approximate the specified mesh.
+     * Generate a content hash for the decomposition of the specified mesh with
+     * the specified parameters. The hash covers every vertex position, every
+     * index, and every parameter that affects the result.
+     *
+     * @param positions the positions of all mesh vertices (not null, length a
+     * multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null, length
+     * a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, unaffected)
+     * @return a new string of hexadecimal digits (not null, not empty)
+     */
+    public static String cacheKey(float[] positions, int[] indices,
+            Vhacd4Parameters params) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+
+        String result = cacheKey(
+                FloatBuffer.wrap(positions), IntBuffer.wrap(indices), params);
+        return result;
+    }
+
+    /**
+     * Generate a content hash for the decomposition of the specified mesh with
+     * the specified parameters. Equivalent to the array-based method, for
+     * meshes held in buffers.
+     *
+     * @param positions the positions of all mesh vertices (not null, elements
+     * from 0 to limit-1 are used, limit a multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null,
+     * elements from 0 to limit-1 are used, limit a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, unaffected)
+     * @return a new string of hexadecimal digits (not null, not empty)
+     */
+    public static String cacheKey(FloatBuffer positions, IntBuffer indices,
+            Vhacd4Parameters params) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+        Validate.nonNull(params, "parameters");
+
+        ContentDigest digest = new ContentDigest();
+        digest.putBytes("V-HACD 4".getBytes(StandardCharsets.UTF_8));
+
+        int numFloats = positions.limit();
+        digest.putInt(numFloats);
+        digest.putFloats(positions, numFloats);
+        int numIndices = indices.limit();
+        digest.putInt(numIndices);
+        digest.putInts(indices, numIndices);
+
+        ByteArrayOutputStream paramBytes = new ByteArrayOutputStream(64);
+        try {
+            params.toOutputStream(paramBytes);
+        } catch (IOException exception) {
+            throw new IllegalStateException(exception);
+        }
+        digest.putBytes(paramBytes.toByteArray());
+        String result = digest.finish();
+
+        return result;
+    }
+
+    /**
+     * Generate convex hulls to approximate the specified mesh. Decompositions
+     * may be performed concurrently on separate threads. If a hull cache is
+     * configured, it is consulted first and updated afterward.
      *
      * @param positions the positions of all mesh vertices (not null, length a
      * multiple of 3, unaffected)
@@ -106,16 +252,94 @@ final public class Vhacd4 {
             Vhacd4Parameters params) {
         Validate.nonNull(positions, "positions");
         Validate.nonNull(indices, "indices");
-        assert positions.length % MyVector3f.numAxes == 0 : positions.length;
-        assert indices.length % vpt == 0 : indices.length;
 
-        FloatBuffer positionsBuffer = BufferUtils.createFloatBuffer(positions);
+        FloatBuffer positionBuffer = BufferUtils.createFloatBuffer(positions);
         IntBuffer indexBuffer = BufferUtils.createIntBuffer(indices);
-        results = new ArrayList<>(50);
-        compute(positionsBuffer, indexBuffer, params.nativeId(),
-                params.getDebugEnabled());
+        List<Vhacd4Hull> result = compute(positionBuffer, indexBuffer, params);
+
+        return result;
+    }
+
+    /**
+     * Generate convex hulls to approximate the specified mesh, which is held
+     * in buffers. Direct buffers whose limits equal their capacities (such as
+     * those of a JME VertexBuffer) are passed to native code without copying;
+     * other buffers are copied first.
+     *
+     * @param positions the positions of all mesh vertices (not null, elements
+     * from 0 to limit-1 are used, limit a multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null,
+     * elements from 0 to limit-1 are used, limit a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, unaffected)
+     * @return a new list of hulls, or an empty list if the algorithm failed
+     */
+    public static List<Vhacd4Hull> compute(FloatBuffer positions,
+            IntBuffer indices, Vhacd4Parameters params) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+        assert positions.limit() % MyVector3f.numAxes == 0 : positions.limit();
+        assert indices.limit() % vpt == 0 : indices.limit();
+
+        HullCache cache = hullCache;
+        String key = null;
+        if (cache != null) {
+            key = cacheKey(positions, indices, params);
+            float[][] cachedHulls = cache.load(key);
+            if (cachedHulls != null) {
+                List<Vhacd4Hull> result = new ArrayList<>(cachedHulls.length);
+                for (float[] hullPositions : cachedHulls) {
+                    result.add(new Vhacd4Hull(hullPositions));
+                }
+                return result;
+            }
+        }
+
+        int numFloats = positions.limit();
+        FloatBuffer positionBuffer = positions;
+        if (!positions.isDirect() || numFloats != positions.capacity()) {
+            positionBuffer = BufferUtils.createFloatBuffer(numFloats);
+            for (int floatIndex = 0; floatIndex < numFloats; ++floatIndex) {
+                positionBuffer.put(floatIndex, positions.get(floatIndex));
+            }
+        }
+        int numIndices = indices.limit();
+        IntBuffer indexBuffer = indices;
+        if (!indices.isDirect() || numIndices != indices.capacity()) {
+            indexBuffer = BufferUtils.createIntBuffer(numIndices);
+            for (int intIndex = 0; intIndex < numIndices; ++intIndex) {
+                indexBuffer.put(intIndex, indices.get(intIndex));
+            }
+        }
+
+        List<Vhacd4Hull> result = new ArrayList<>(50);
+        results.set(result);
+        try {
+            compute(positionBuffer, indexBuffer, params.nativeId(),
+                    params.getDebugEnabled());
+        } finally {
+            results.remove();
+        }
+
+        if (cache != null && !result.isEmpty()) {
+            int numHulls = result.size();
+            float[][] hullPositions = new float[numHulls][];
+            for (int hullIndex = 0; hullIndex < numHulls; ++hullIndex) {
+                hullPositions[hullIndex]
+                        = result.get(hullIndex).clonePositions();
+            }
+            cache.store(key, hullPositions);
+        }
+
+        return result;
+    }
 
-        return results;
+    /**
+     * Access the hull cache consulted by {@link #compute}.
+     *
+     * @return the pre-existing instance, or null if caching is disabled
+     */
+    public static HullCache getHullCache() {
+        return hullCache;
     }
 
     /**
@@ -129,6 +353,75 @@ final public class Vhacd4 {
         boolean success = progressListeners.remove(listener);
         assert success;
     }
+
+    /**
+     * Alter the hull cache consulted by {@link #compute}.
+     *
+     * @param cache the desired cache (alias created) or null to disable
+     * caching (default=null)
+     */
+    public static void setHullCache(HullCache cache) {
+        hullCache = cache;
+    }
+
+    /**
+     * Submit an asynchronous decomposition of the specified mesh. The job's
+     * listeners receive only its own progress updates; listeners registered
+     * with this class receive updates from all decompositions.
+     * <p>
+     * The mesh is copied to direct buffers on the calling thread, so the
+     * arrays can be modified as soon as this method returns.
+     *
+     * @param positions the positions of all mesh vertices (not null, length a
+     * multiple of 3, unaffected)
+     * @param indices the vertex indices of all mesh triangles (not null, length
+     * a multiple of 3, unaffected)
+     * @param params the tuning parameters to use (not null, shouldn't be
+     * modified until the job completes)
+     * @param executor the executor to run the job (not null)
+     * @return a new job (not null)
+     */
+    public static DecompositionJob<Vhacd4Hull> submit(float[] positions,
+            int[] indices, Vhacd4Parameters params, Executor executor) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+
+        FloatBuffer positionBuffer = BufferUtils.createFloatBuffer(positions);
+        IntBuffer indexBuffer = BufferUtils.createIntBuffer(indices);
+        DecompositionJob<Vhacd4Hull> result
+                = submit(positionBuffer, indexBuffer, params, executor);
+
+        return result;
+    }
+
+    /**
+     * Submit an asynchronous decomposition of the specified mesh, which is
+     * held in buffers. The buffers aren't copied on the calling thread: direct
+     * buffers whose limits equal their capacities are passed to native code
+     * as they are, so their contents shouldn't be modified until the job
+     * completes.
+     *
+     * @param positions the positions of all mesh vertices (not null, elements
+     * from 0 to limit-1 are used, limit a multiple of 3, alias created)
+     * @param indices the vertex indices of all mesh triangles (not null,
+     * elements from 0 to limit-1 are used, limit a multiple of 3, alias
+     * created)
+     * @param params the tuning parameters to use (not null, shouldn't be
+     * modified until the job completes)
+     * @param executor the executor to run the job (not null)
+     * @return a new job (not null)
+     */
+    public static DecompositionJob<Vhacd4Hull> submit(FloatBuffer positions,
+            IntBuffer indices, Vhacd4Parameters params, Executor executor) {
+        Validate.nonNull(positions, "positions");
+        Validate.nonNull(indices, "indices");
+        Validate.nonNull(params, "parameters");
+        Validate.nonNull(executor, "executor");
+
+        DecompositionJob<Vhacd4Hull> result
+                = new Job(positions, indices, params, executor);
+        return result;
+    }
     // *************************************************************************
     // private methods
 
@@ -141,11 +434,12 @@ final public class Vhacd4 {
      */
     private static void addHull(long hullId) {
         Vhacd4Hull hull = new Vhacd4Hull(hullId);
-        results.add(hull);
+        results.get().add(hull);
     }
 
     /**
-     * Update all progress listeners.
+     * Update all global progress listeners, plus the current thread's job (if
+     * any).
      * <p>
      * This method is invoked by native code.
      *
@@ -163,6 +457,12 @@ final public class Vhacd4 {
             listener.update(overallPercent, stagePercent,
                     operationPercent, stageName, operationName);
         }
+
+        DecompositionJob<Vhacd4Hull> job = currentJob.get();
+        if (job != null) {
+            job.update(overallPercent, stagePercent, operationPercent,
+                    stageName, operationName);
+        }
     }
     // *************************************************************************
     // native private methods
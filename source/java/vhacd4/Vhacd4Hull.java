@@ -75,6 +75,19 @@ public class Vhacd4Hull {
             positions[floatIndex] = floatBuffer.get(floatIndex);
         }
     }
+
+    /**
+     * Instantiate a hull from cached vertex positions.
+     *
+     * @param positions the vertex positions (not null, not empty, length a
+     * multiple of 3, alias created)
+     */
+    Vhacd4Hull(float[] positions) {
+        assert positions.length > 0;
+        assert positions.length % MyVector3f.numAxes == 0 : positions.length;
+
+        this.positions = positions;
+    }
     // *************************************************************************
     // new methods exposed
 
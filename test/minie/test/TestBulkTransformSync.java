@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2022 jMonkeyEngine
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are
+ * met:
+ *
+ * * Redistributions of source code must retain the above copyright
+ *   notice, this list of conditions and the following disclaimer.
+ *
+ * * Redistributions in binary form must reproduce the above copyright
+ *   notice, this list of conditions and the following disclaimer in the
+ *   documentation and/or other materials provided with the distribution.
+ *
+ * * Neither the name of 'jMonkeyEngine' nor the names of its contributors
+ *   may be used to endorse or promote products derived from this software
+ *   without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS
+ * "AS IS" AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED
+ * TO, THE IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR
+ * PURPOSE ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR
+ * CONTRIBUTORS BE LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL,
+ * EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO,
+ * PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR
+ * PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF
+ * LIABILITY, WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+ * NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF THE USE OF THIS
+ * SOFTWARE, EVEN IF ADVISED OF THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package jme3utilities.minie.test;
+
+import com.jme3.bullet.PhysicsSpace;
+import com.jme3.bullet.collision.shapes.SphereCollisionShape;
+import com.jme3.bullet.control.BulkTransformSync;
+import com.jme3.bullet.control.RigidBodyControl;
+import com.jme3.math.Vector3f;
+import com.jme3.scene.Node;
+import com.jme3.system.NativeLibraryLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Verify that a cloned RigidBodyControl isn't left registered with the
+ * BulkTransformSync of its original.
+ *
+ * @author Stephen Gold sgold@sonic.net
+ */
+public class TestBulkTransformSync {
+    // *************************************************************************
+    // new methods exposed
+
+    /**
+     * Clone a bulk-synced control and verify that each spatial follows its
+     * body.
+     */
+    @Test
+    public void testCloneBulkSync() {
+        NativeLibraryLoader.loadNativeLibrary("bulletjme", true);
+
+        SphereCollisionShape shape = new SphereCollisionShape(1f);
+        RigidBodyControl rbc = new RigidBodyControl(shape, 1f);
+        Node node = new Node("original");
+        node.addControl(rbc);
+        BulkTransformSync sync = new BulkTransformSync();
+        sync.addControl(rbc);
+
+        Node nodeClone = (Node) node.clone();
+        RigidBodyControl rbcClone
+                = nodeClone.getControl(RigidBodyControl.class);
+        Assert.assertNotSame(rbc, rbcClone);
+        Assert.assertSame(sync, rbc.getBulkSync());
+        Assert.assertFalse(rbcClone.isBulkSync());
+        Assert.assertNull(rbcClone.getBulkSync());
+        Assert.assertEquals(1, sync.countControls());
+
+        PhysicsSpace space = new PhysicsSpace(PhysicsSpace.BroadphaseType.DBVT);
+        rbc.setPhysicsSpace(space);
+        rbcClone.setPhysicsLocation(new Vector3f(5f, 0f, 0f)); // no overlap
+        rbcClone.setPhysicsSpace(space);
+        for (int stepIndex = 0; stepIndex < 10; ++stepIndex) {
+            space.update(1f / 60f, 0);
+        }
+        /*
+         * The clone's update() moves its own spatial, but the original's
+         * update() leaves its spatial to the synchronizer.
+         */
+        rbcClone.update(0f);
+        Assert.assertTrue(nodeClone.getLocalTranslation().y < 0f);
+        rbc.update(0f);
+        Assert.assertEquals(0f, node.getLocalTranslation().y, 0f);
+
+        int numApplied = sync.sync();
+        Assert.assertEquals(1, numApplied);
+        Assert.assertTrue(node.getLocalTranslation().y < 0f);
+    }
+}